@@ -29,10 +29,27 @@ function renderMessages(messages) {
   $('.ui-scrollpanel')[0].scrollTop = 0;
 }
 
+// Interval between checks on the progress of file extraction (ms)
+EXTRACTION_CHECK_INTERVAL = 1000;
+
+// Timer for the next extraction progress check
+extractionTimer = null;
+
 function reprocessUploadedFiles() {
-  $('#uploadForm\\:fileList_data>tr').each(function() {
-    extractNext();
-  });
+  extractNext();
+}
+
+// Called when the server has reported the current extraction state.
+// Keep checking until all files have been extracted.
+function extractionUpdated() {
+  if (null != extractionTimer) {
+    clearTimeout(extractionTimer);
+    extractionTimer = null;
+  }
+
+  if ($('#uploadForm\\:extractionInProgress').val() == 'true') {
+    extractionTimer = setTimeout(extractNext, EXTRACTION_CHECK_INTERVAL);
+  }
 }
 
 function runTypeChanged(rowIndex, runTypeIndex) {
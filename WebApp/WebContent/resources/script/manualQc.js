@@ -8,9 +8,9 @@ function qcFlagsAccepted() {
 
   PF('flagDialog').hide();
 
-  drawPlot(1, true, false);
-  drawPlot(2, true, false);
   clearSelection();
+  applyFlagUpdates(1);
+  applyFlagUpdates(2);
 
   // Reload table data
   jsDataTable.ajax.reload(null, false);
@@ -30,8 +30,9 @@ function showFlagDialog() {
     $('#selectionForm\\:manualFlag_panel').find("[data-label='Questionable']").hide()
   }
 
-  let woceRowHtml = getSelectedRows().length.toString() + ' row';
-  if (getSelectedRows().length > 1) {
+  let selectedRowCount = getSelectedRowCount();
+  let woceRowHtml = selectedRowCount.toString() + ' row';
+  if (selectedRowCount > 1) {
     woceRowHtml += 's';
   }
   $('#manualRowCount').html(woceRowHtml);
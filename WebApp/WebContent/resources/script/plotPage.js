@@ -512,17 +512,134 @@ function setSelectedColumn(column) {
   $('#selectionForm\\:selectedColumn').val(column);
 }
 
+// The selected rows are stored as a JSON array of [first, last] row ID
+// ranges. Each range covers all the rows from first to last inclusive.
+
+// Cache of the parsed row IDs
+var rowIDsCache = null;
+var rowIDsCacheJson = null;
+
+// Get the row IDs for the page, in ascending order
+function getRowIDs() {
+  let json = $('#plotPageForm\\:rowIDs').val();
+  if (json != rowIDsCacheJson) {
+    rowIDsCache = JSON.parse(json);
+    rowIDsCacheJson = json;
+  }
+
+  return rowIDsCache;
+}
+
+// Find the position of the first row whose ID is greater than or equal to
+// the specified ID
+function rowIDLowerBound(rowIDs, rowId) {
+  let low = 0;
+  let high = rowIDs.length;
+
+  while (low < high) {
+    let mid = (low + high) >>> 1;
+    if (rowIDs[mid] < rowId) {
+      low = mid + 1;
+    } else {
+      high = mid;
+    }
+  }
+
+  return low;
+}
+
+// Cache of the parsed selected row ranges
+var selectedRangesCache = null;
+var selectedRangesCacheJson = null;
+
+// Get the selected rows as an array of [first, last] row ID ranges
+function getSelectedRanges() {
+  let json = $('#selectionForm\\:selectedRows').val();
+  if (json != selectedRangesCacheJson) {
+    selectedRangesCache = JSON.parse(json);
+    selectedRangesCacheJson = json;
+  }
+
+  return selectedRangesCache;
+}
+
 // Get the selected rows as an array of row IDs
 function getSelectedRows() {
-  return JSON.parse($('#selectionForm\\:selectedRows').val())
+  let rowIDs = getRowIDs();
+  let result = [];
+
+  getSelectedRanges().forEach(range => {
+    let i = rowIDLowerBound(rowIDs, range[0]);
+    while (i < rowIDs.length && rowIDs[i] <= range[1]) {
+      result.push(rowIDs[i]);
+      i++;
+    }
+  });
+
+  return result;
 }
 
-// Set the selected rows as an array of row IDs.
-// Sorts and uniques (via a Set) the rows before setting them
+// Get the number of selected rows
+function getSelectedRowCount() {
+  let rowIDs = getRowIDs();
+  let count = 0;
+
+  getSelectedRanges().forEach(range => {
+    count += rowIDLowerBound(rowIDs, range[1] + 1) -
+      rowIDLowerBound(rowIDs, range[0]);
+  });
+
+  return count;
+}
+
+// Determine whether or not a row is selected
+function isRowSelected(rowId) {
+  rowId = +rowId;
+  let ranges = getSelectedRanges();
+
+  // Find the last range starting at or before the row
+  let low = 0;
+  let high = ranges.length;
+  while (low < high) {
+    let mid = (low + high) >>> 1;
+    if (ranges[mid][0] <= rowId) {
+      low = mid + 1;
+    } else {
+      high = mid;
+    }
+  }
+
+  return low > 0 && rowId <= ranges[low - 1][1];
+}
+
+// Set the selected rows from an array of row IDs.
+// The rows are converted to ranges of consecutive rows on the page.
 function setSelectedRows(rows) {
-  $('#selectionForm\\:selectedRows').val(
-    JSON.stringify([...new Set(rows.sort())])
-    );
+  let rowIDs = getRowIDs();
+
+  let indices = [];
+  rows.forEach(row => {
+    let index = rowIDLowerBound(rowIDs, +row);
+    if (index < rowIDs.length && rowIDs[index] == row) {
+      indices.push(index);
+    }
+  });
+
+  indices = [...new Set(indices)].sort((a, b) => a - b);
+
+  let ranges = [];
+  let i = 0;
+  while (i < indices.length) {
+    let end = i;
+    while (end + 1 < indices.length && indices[end + 1] == indices[end] + 1) {
+      end++;
+    }
+
+    ranges.push([rowIDs[indices[i]], rowIDs[indices[end]]]);
+    i = end + 1;
+  }
+
+  $('#selectionForm\\:selectedRows').val(JSON.stringify(ranges));
 
   if (typeof updateSelectedRows === 'function') {
     updateSelectedRows(); // PF remotecommand
@@ -566,24 +683,8 @@ function addRowsToSelection(rows) {
 }
 
 function removeRowsFromSelection(rows) {
-
-  var selectedRows = getSelectedRows();
-
-  var rowsIndex = 0;
-  var selectionIndex = 0;
-
-  while (selectionIndex < selectedRows.length && rowsIndex < rows.length) {
-    while (selectedRows[selectionIndex] == rows[rowsIndex]) {
-      selectedRows.splice(selectionIndex, 1);
-      rowsIndex++;
-      if (rowsIndex == rows.length || selectionIndex == selectedRows.length) {
-        break;
-      }
-    }
-    selectionIndex++;
-  }
-
-  setSelectedRows(selectedRows);
+  let removedRows = new Set(rows);
+  setSelectedRows(getSelectedRows().filter(row => !removedRows.has(row)));
 }
 
 function clearSelection() {
@@ -600,7 +701,7 @@ function selectionUpdated() {
     drawSelectionPlot(1);
     drawSelectionPlot(2);
 
-    if (getSelectedRows().length == 0) {
+    if (getSelectedRowCount() == 0) {
       $('#selectionActions :button').each(function(index, value) {
         $(value).prop('disabled', true).addClass('ui-state-disabled');
       });
@@ -768,7 +869,7 @@ function clickCellAction(cell, shiftClick) {
       let actionRows = [rowId];
 
       if (!shiftClick) {
-        if ($.inArray(rowId, getSelectedRows()) != -1) {
+        if (isRowSelected(rowId)) {
           action = DESELECT_ACTION;
         } else {
           action = SELECT_ACTION;
@@ -817,9 +918,9 @@ function drawTableSelection() {
     $("td.selected").removeClass('selected');
 
     // Highlight selected cells
-    let selectedRows = getSelectedRows();
+    let selectedRowCount = getSelectedRowCount();
 
-    if (selectedRows.length > 0) {
+    if (selectedRowCount > 0) {
 
       // Highlight the rows
       let tableColumnIndex = getTableColumnIndex(getSelectedColumn().id);
@@ -828,7 +929,7 @@ function drawTableSelection() {
       for (let i = 0; i < rows.length; i++) {
         let row = jsDataTable.row(i);
 
-        if ($.inArray(row.data()['DT_RowId'], getSelectedRows()) > -1) {
+        if (isRowSelected(row.data()['DT_RowId'])) {
 
           if (isFixedColumn(getTableColumnIndex(getSelectedColumn().id))) {
             // Set the overlaid fixed columns table
@@ -840,7 +941,7 @@ function drawTableSelection() {
       }
 
       $('#selectedColumnDisplay').html(getSelectedColumn().shortName);
-      $('#selectedRowsCountDisplay').html(selectedRows.length);
+      $('#selectedRowsCountDisplay').html(selectedRowCount);
     } else {
       $('#selectedColumnDisplay').html('None');
       $('#selectedRowsCountDisplay').html('');
@@ -953,7 +1054,7 @@ function scrollToTableRow(rowId) {
   var tableRow = -1;
 
   if (null != rowId) {
-    tableRow = JSON.parse($('#plotPageForm\\:rowIDs').val()).indexOf(rowId);
+    tableRow = getRowIDs().indexOf(rowId);
   }
 
   if (tableRow >= 0) {
@@ -989,7 +1090,7 @@ function getRowsInRange(startRow, endRow, columnIndex) {
     step = -1;
   }
 
-  let rowIDs = JSON.parse($('#plotPageForm\\:rowIDs').val());
+  let rowIDs = getRowIDs();
 
   let startIndex = rowIDs.indexOf(startRow);
   let currentIndex = startIndex;
@@ -1710,13 +1811,13 @@ function getRowId(event, xValue, points) {
 function getSelectionPlotData(index) {
   let selectionData = [];
 
-  let selectedIds = getSelectedRows();
+  let selectedCount = getSelectedRowCount();
 
   let plotDataVar = 'dataPlot' + index + 'Data';
 
   if (null != window[plotDataVar]) {
     for (let i = 0; i < window[plotDataVar].length; i++) {
-      if ($.inArray(window[plotDataVar][i][1], selectedIds) != -1) {
+      if (isRowSelected(window[plotDataVar][i][1])) {
 
         if (hasY2(index)) {
           selectionData.push([window[plotDataVar][i][0], window[plotDataVar][i][3], null]);
@@ -1724,7 +1825,7 @@ function getSelectionPlotData(index) {
           selectionData.push([window[plotDataVar][i][0], window[plotDataVar][i][3]]);
         }
 
-        if (selectionData.length == selectedIds.length) {
+        if (selectionData.length == selectedCount) {
           break;
         }
       }
@@ -2173,6 +2274,101 @@ function getMapData(index) {
   eval('map' + index + 'GetData()');
 }
 
+// Apply the changes to a plot and its map after QC flags have been set.
+// Only the changed points are updated unless the server asks for a full
+// reload.
+function applyFlagUpdates(index) {
+  let mode = getPlotMode(index);
+
+  if (mode == PLOT_MODE_PLOT) {
+    applyPlotFlagUpdates(index);
+  }
+
+  applyMapFlagUpdates(index, mode == PLOT_MODE_MAP);
+}
+
+// Find the position of the first plot row whose X value (a Date) is at or
+// after the specified time
+function findPlotRow(rows, time) {
+  let low = 0;
+  let high = rows.length;
+
+  while (low < high) {
+    let mid = (low + high) >>> 1;
+    if (rows[mid][0].getTime() < time) {
+      low = mid + 1;
+    } else {
+      high = mid;
+    }
+  }
+
+  return low;
+}
+
+function applyPlotFlagUpdates(index) {
+  let updates = parseJsonWithDates($('#plot' + index + 'Form\\:plot' + index + 'FlagUpdates').val());
+  let data = window['dataPlot' + index + 'Data'];
+  let flags = window['flagPlot' + index + 'Data'];
+
+  if (updates.full || null == data || null == flags) {
+    plotLoading(index, PLOT_MODE_PLOT);
+    eval('loadPlot' + index + '()'); // PF remoteCommand
+  } else {
+    updates.data.forEach(row => {
+      let time = row[0].getTime();
+      let i = findPlotRow(data, time);
+      if (i < data.length && data[i][0].getTime() == time) {
+        data[i] = row;
+      }
+    });
+
+    // Add, replace or remove flag plot rows. Rows with no values are no
+    // longer flagged.
+    updates.flags.forEach(row => {
+      let time = row[0].getTime();
+      let i = findPlotRow(flags, time);
+      let exists = i < flags.length && flags[i][0].getTime() == time;
+      let flagged = row.slice(1).some(value => null != value);
+
+      if (flagged && exists) {
+        flags[i] = row;
+      } else if (flagged) {
+        flags.splice(i, 0, row);
+      } else if (exists) {
+        flags.splice(i, 1);
+      }
+    });
+
+    // The flag plot is always drawn from the form field
+    $('#plot' + index + 'Form\\:plot' + index + 'Flags').val(JSON.stringify(flags));
+    drawPlot(index, true, true);
+  }
+}
+
+function applyMapFlagUpdates(index, visible) {
+  let updates = JSON.parse($('#plot' + index + 'Form\\:map' + index + 'FlagUpdates').val());
+  let flagLayer = window['map' + index + FLAG_LAYER];
+
+  if (updates.full || null == flagLayer) {
+    if (visible) {
+      plotLoading(index, PLOT_MODE_MAP);
+      eval('map' + index + 'GetData()'); // PF remoteCommand
+    }
+  } else {
+    let rows = new Set(updates.rows);
+
+    flagLayer.eachLayer(marker => {
+      if (rows.has(marker.feature.properties.rowID)) {
+        flagLayer.removeLayer(marker);
+      }
+    });
+
+    makeMapLayer(index, updates.flags, false).eachLayer(marker => {
+      flagLayer.addLayer(marker);
+    });
+  }
+}
+
 function drawMap(index) {
   let mapVar = 'map' + index;
   let dataLayerVar = mapVar + DATA_LAYER;
@@ -0,0 +1,108 @@
+package jmh.uk.ac.exeter.QuinCe.BenchmarkBase;
+
+import javax.servlet.ServletContext;
+import javax.servlet.ServletContextEvent;
+import javax.sql.DataSource;
+
+import org.flywaydb.core.Flyway;
+import org.h2.jdbcx.JdbcDataSource;
+import org.mockito.Mockito;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.TestResourceManager;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * A {@link ResourceManager} for use by benchmarks.
+ *
+ * <p>
+ * Benchmarks run outside the JUnit/Spring test infrastructure, so this class
+ * sets up the same environment as {@link TestResourceManager} by hand: an
+ * in-memory H2 database migrated with the test migrations, and the test
+ * application configuration. Benchmarks must be run from the project root so
+ * that the configuration paths resolve.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class BenchmarkResourceManager extends TestResourceManager {
+
+  /**
+   * The JDBC URL of the in-memory benchmark database. The database is kept
+   * open for the lifetime of the JVM.
+   */
+  private static final String DATABASE_URL = "jdbc:h2:mem:benchmarkDb;DB_CLOSE_DELAY=-1";
+
+  /**
+   * The location of the database migrations.
+   */
+  private static final String MIGRATIONS_LOCATION = "/resources/db_migrations";
+
+  /**
+   * The locations of the test base migrations, which create a user, the
+   * Benguela Stream instrument and a dataset.
+   */
+  public static final String[] TEST_BASE_LOCATIONS = {
+    "/resources/sql/testbase/user", "/resources/sql/testbase/instrument",
+    "/resources/sql/testbase/dataset" };
+
+  private BenchmarkResourceManager(DataSource dataSource) {
+    super(dataSource);
+  }
+
+  /**
+   * Initialise the {@link ResourceManager} if it has not already been
+   * initialised.
+   *
+   * @return The data source for the benchmark database.
+   */
+  public static synchronized DataSource init() {
+
+    if (null == ResourceManager.getInstance()) {
+      JdbcDataSource dataSource = new JdbcDataSource();
+      dataSource.setURL(DATABASE_URL);
+      dataSource.setUser("user");
+      dataSource.setPassword("pass");
+
+      Flyway.configure().dataSource(dataSource)
+        .locations(MIGRATIONS_LOCATION).load().migrate();
+
+      ServletContext servletContext = Mockito.mock(ServletContext.class);
+      Mockito.doReturn(DATABASE_NAME).when(servletContext)
+        .getInitParameter("database.name");
+      Mockito.doReturn(CONFIG_PATH).when(servletContext)
+        .getInitParameter("configuration.path");
+
+      ServletContextEvent servletContextEvent = Mockito
+        .mock(ServletContextEvent.class);
+      Mockito.doReturn(servletContext).when(servletContextEvent)
+        .getServletContext();
+
+      new BenchmarkResourceManager(dataSource)
+        .contextInitialized(servletContextEvent);
+    }
+
+    return ResourceManager.getInstance().getDBDataSource();
+  }
+
+  /**
+   * Apply additional migrations to the benchmark database, initialising it
+   * first if required. Migrations that have already been applied are skipped.
+   *
+   * @param locations
+   *          The locations of the additional migrations
+   * @return The data source for the benchmark database.
+   */
+  public static synchronized DataSource migrate(String... locations) {
+    DataSource dataSource = init();
+
+    String[] allLocations = new String[locations.length + 1];
+    allLocations[0] = MIGRATIONS_LOCATION;
+    System.arraycopy(locations, 0, allLocations, 1, locations.length);
+
+    Flyway.configure().dataSource(dataSource).locations(allLocations).load()
+      .migrate();
+
+    return dataSource;
+  }
+}
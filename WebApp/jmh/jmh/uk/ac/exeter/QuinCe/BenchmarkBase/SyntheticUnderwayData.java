@@ -0,0 +1,511 @@
+package jmh.uk.ac.exeter.QuinCe.BenchmarkBase;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetException;
+import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCResult;
+import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
+import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeSpecification;
+import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.LatitudeSpecification;
+import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.LongitudeSpecification;
+
+/**
+ * Generator for synthetic data from an underway pCO₂ instrument.
+ *
+ * <p>
+ * The data simulates a ship steaming along a great circle-ish track with an
+ * equilibrator-based pCO₂ system. Every hour the system runs four gas
+ * standards for three minutes each, and spends the rest of the hour measuring
+ * seawater. Sea surface temperature and salinity follow a slow trend with a
+ * diurnal cycle and sensor noise, and a small fraction of values are missing
+ * or contain spikes so that QC routines have something to find.
+ * </p>
+ *
+ * <p>
+ * The data is generated from a fixed seed, so the same parameters always
+ * produce identical data. All values are generated up front; the various
+ * {@code make} methods convert them into the forms needed by different parts
+ * of the system.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class SyntheticUnderwayData {
+
+  /**
+   * The column headings of the generated file.
+   */
+  public static final String[] COLUMN_HEADINGS = { "Date/Time", "Longitude",
+    "Latitude", "Run Type", "Intake Temperature", "Salinity",
+    "Equilibrator Temperature", "Equilibrator Pressure", "xCO2" };
+
+  public static final int TIME_COLUMN = 0;
+
+  public static final int LONGITUDE_COLUMN = 1;
+
+  public static final int LATITUDE_COLUMN = 2;
+
+  public static final int RUN_TYPE_COLUMN = 3;
+
+  public static final int INTAKE_TEMPERATURE_COLUMN = 4;
+
+  public static final int SALINITY_COLUMN = 5;
+
+  public static final int EQUILIBRATOR_TEMPERATURE_COLUMN = 6;
+
+  public static final int EQUILIBRATOR_PRESSURE_COLUMN = 7;
+
+  public static final int XCO2_COLUMN = 8;
+
+  /**
+   * The date/time format used in generated files.
+   */
+  public static final String DATE_TIME_FORMAT = "yyyy-MM-dd HH:mm:ss.SSS";
+
+  /**
+   * The gas standard run types, in the order that they are run.
+   */
+  public static final String[] STANDARDS = { "STD1", "STD2", "STD3", "STD4" };
+
+  /**
+   * The concentrations of the gas standards.
+   */
+  public static final double[] STANDARD_CONCENTRATIONS = { 0D, 250D, 450D,
+    650D };
+
+  /**
+   * The run type for seawater measurements.
+   */
+  public static final String MEASUREMENT_RUN_TYPE = "EQU";
+
+  /**
+   * The length of each standard run in milliseconds.
+   */
+  public static final long STANDARD_RUN_MILLIS = 180000L;
+
+  /**
+   * The length of a complete standards and measurements cycle.
+   */
+  public static final long CYCLE_MILLIS = 3600000L;
+
+  /**
+   * The mapping of generated columns to the database column IDs of the
+   * Benguela Stream instrument in the test base migrations (see
+   * {@link BenchmarkResourceManager#TEST_BASE_LOCATIONS}).
+   */
+  public static final Map<Integer, Long> TEST_INSTRUMENT_COLUMNS;
+
+  static {
+    Map<Integer, Long> columns = new LinkedHashMap<Integer, Long>();
+    columns.put(INTAKE_TEMPERATURE_COLUMN, 1L);
+    columns.put(SALINITY_COLUMN, 2L);
+    columns.put(EQUILIBRATOR_TEMPERATURE_COLUMN, 3L);
+    columns.put(EQUILIBRATOR_PRESSURE_COLUMN, 4L);
+    columns.put(XCO2_COLUMN, 5L);
+    columns.put(RUN_TYPE_COLUMN, 6L);
+    TEST_INSTRUMENT_COLUMNS = Collections.unmodifiableMap(columns);
+  }
+
+  /**
+   * The proportion of values that are missing.
+   */
+  private static final double MISSING_PROPORTION = 0.001D;
+
+  /**
+   * The proportion of values that contain a spike.
+   */
+  private static final double SPIKE_PROPORTION = 0.0005D;
+
+  private static final DateTimeFormatter FORMATTER = DateTimeFormatter
+    .ofPattern(DATE_TIME_FORMAT);
+
+  private final LocalDateTime start;
+
+  private final long intervalMillis;
+
+  private final int rowCount;
+
+  private final int[] runTypes;
+
+  private final double[] longitudes;
+
+  private final double[] latitudes;
+
+  /**
+   * The sensor values, indexed by column then row. Only sensor columns are
+   * populated. Missing values are {@code NaN}.
+   */
+  private final double[][] values;
+
+  /**
+   * Generate a dataset.
+   *
+   * @param rowCount
+   *          The number of rows
+   * @param intervalMillis
+   *          The time between rows in milliseconds
+   */
+  public SyntheticUnderwayData(int rowCount, long intervalMillis) {
+    this(rowCount, intervalMillis, LocalDateTime.of(2021, 1, 1, 0, 0, 0), 1L);
+  }
+
+  /**
+   * Generate a dataset with a specified start time and random seed.
+   *
+   * @param rowCount
+   *          The number of rows
+   * @param intervalMillis
+   *          The time between rows in milliseconds
+   * @param start
+   *          The time of the first row
+   * @param seed
+   *          The random seed
+   */
+  public SyntheticUnderwayData(int rowCount, long intervalMillis,
+    LocalDateTime start, long seed) {
+
+    this.start = start;
+    this.intervalMillis = intervalMillis;
+    this.rowCount = rowCount;
+
+    runTypes = new int[rowCount];
+    longitudes = new double[rowCount];
+    latitudes = new double[rowCount];
+    values = new double[COLUMN_HEADINGS.length][];
+    for (int col = INTAKE_TEMPERATURE_COLUMN; col < values.length; col++) {
+      values[col] = new double[rowCount];
+    }
+
+    generate(new Random(seed));
+  }
+
+  private void generate(Random random) {
+
+    // Roughly 10 knots heading south-west from the English Channel
+    double lon = -5D;
+    double lat = 49D;
+    double degreesPerMilli = 5e-8D;
+    double latDirection = -1D;
+
+    double trendSst = 14D;
+    double trendSalinity = 35.2D;
+    double seawaterXco2 = 390D;
+
+    for (int row = 0; row < rowCount; row++) {
+      long elapsed = row * intervalMillis;
+      double hours = elapsed / 3600000D;
+
+      // Long datasets wrap around the globe and zig-zag in latitude
+      lon -= degreesPerMilli * intervalMillis;
+      if (lon < -180D) {
+        lon += 360D;
+      }
+
+      lat += latDirection * degreesPerMilli * intervalMillis * 0.6D;
+      if (Math.abs(lat) > 60D) {
+        latDirection = -latDirection;
+      }
+
+      longitudes[row] = lon;
+      latitudes[row] = lat;
+
+      // Slow random walks for the water mass properties
+      trendSst += random.nextGaussian() * 1e-4D;
+      trendSalinity += random.nextGaussian() * 2e-5D;
+      seawaterXco2 += random.nextGaussian() * 5e-3D;
+
+      double sst = trendSst + 0.4D * Math.sin(hours / 24D * 2 * Math.PI);
+
+      values[INTAKE_TEMPERATURE_COLUMN][row] = sst
+        + random.nextGaussian() * 0.005D;
+      values[SALINITY_COLUMN][row] = trendSalinity
+        + random.nextGaussian() * 0.002D;
+      values[EQUILIBRATOR_TEMPERATURE_COLUMN][row] = sst + 0.3D
+        + random.nextGaussian() * 0.01D;
+      values[EQUILIBRATOR_PRESSURE_COLUMN][row] = 1013D
+        + 5D * Math.sin(hours / 36D * 2 * Math.PI)
+        + random.nextGaussian() * 0.2D;
+
+      int standard = (int) ((elapsed % CYCLE_MILLIS) / STANDARD_RUN_MILLIS);
+      if (standard < STANDARDS.length) {
+        runTypes[row] = standard;
+
+        // Standards read slightly high with a small drift
+        values[XCO2_COLUMN][row] = STANDARD_CONCENTRATIONS[standard] * 1.005D
+          + 1.5D + hours * 0.001D + random.nextGaussian() * 0.05D;
+      } else {
+        runTypes[row] = -1;
+        values[XCO2_COLUMN][row] = seawaterXco2 + random.nextGaussian() * 0.3D;
+      }
+
+      for (int col = INTAKE_TEMPERATURE_COLUMN; col < values.length; col++) {
+        double chance = random.nextDouble();
+        if (chance < MISSING_PROPORTION) {
+          values[col][row] = Double.NaN;
+        } else if (chance < MISSING_PROPORTION + SPIKE_PROPORTION) {
+          values[col][row] *= 1.5D;
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the number of rows in the dataset.
+   *
+   * @return The row count
+   */
+  public int getRowCount() {
+    return rowCount;
+  }
+
+  /**
+   * Get the time of a row.
+   *
+   * @param row
+   *          The row
+   * @return The row's time
+   */
+  public LocalDateTime getTime(int row) {
+    return start.plusNanos(row * intervalMillis * 1000000L);
+  }
+
+  /**
+   * Get the times of all rows.
+   *
+   * @return The times
+   */
+  public List<LocalDateTime> getTimes() {
+    List<LocalDateTime> result = new ArrayList<LocalDateTime>(rowCount);
+    for (int row = 0; row < rowCount; row++) {
+      result.add(getTime(row));
+    }
+    return result;
+  }
+
+  /**
+   * Get the run type of a row.
+   *
+   * @param row
+   *          The row
+   * @return The run type
+   */
+  public String getRunType(int row) {
+    return runTypes[row] == -1 ? MEASUREMENT_RUN_TYPE
+      : STANDARDS[runTypes[row]];
+  }
+
+  /**
+   * Get the longitude of a row.
+   *
+   * @param row
+   *          The row
+   * @return The longitude
+   */
+  public double getLongitude(int row) {
+    return longitudes[row];
+  }
+
+  /**
+   * Get the latitude of a row.
+   *
+   * @param row
+   *          The row
+   * @return The latitude
+   */
+  public double getLatitude(int row) {
+    return latitudes[row];
+  }
+
+  /**
+   * Get a sensor value.
+   *
+   * @param column
+   *          The sensor column, from {@link #INTAKE_TEMPERATURE_COLUMN}
+   *          onwards
+   * @param row
+   *          The row
+   * @return The value, or {@code NaN} if it is missing
+   */
+  public double getValue(int column, int row) {
+    return values[column][row];
+  }
+
+  /**
+   * Get the value of a column as it would appear in a data file.
+   *
+   * @param column
+   *          The column
+   * @param row
+   *          The row
+   * @return The value
+   */
+  public String getFieldValue(int column, int row) {
+    String result;
+
+    switch (column) {
+    case TIME_COLUMN: {
+      result = FORMATTER.format(getTime(row));
+      break;
+    }
+    case LONGITUDE_COLUMN: {
+      result = String.format("%.5f", longitudes[row]);
+      break;
+    }
+    case LATITUDE_COLUMN: {
+      result = String.format("%.5f", latitudes[row]);
+      break;
+    }
+    case RUN_TYPE_COLUMN: {
+      result = getRunType(row);
+      break;
+    }
+    default: {
+      result = Double.isNaN(values[column][row]) ? ""
+        : String.format("%.4f", values[column][row]);
+    }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the fields of a row as they would be extracted from a data file.
+   *
+   * @param row
+   *          The row
+   * @return The fields
+   */
+  public List<String> getFields(int row) {
+    List<String> fields = new ArrayList<String>(COLUMN_HEADINGS.length);
+    for (int col = 0; col < COLUMN_HEADINGS.length; col++) {
+      fields.add(getFieldValue(col, row));
+    }
+    return fields;
+  }
+
+  /**
+   * Make the lines of a data file containing the generated data, including a
+   * single column header line.
+   *
+   * @param separator
+   *          The column separator
+   * @return The file lines
+   */
+  public List<String> makeFileLines(String separator) {
+    List<String> lines = new ArrayList<String>(rowCount + 1);
+    lines.add(String.join(separator, COLUMN_HEADINGS));
+
+    for (int row = 0; row < rowCount; row++) {
+      lines.add(String.join(separator, getFields(row)));
+    }
+
+    return lines;
+  }
+
+  /**
+   * Make a {@link FileDefinition} for the files generated by
+   * {@link #makeFileLines(String)}. The definition has no run type column
+   * assigned, because that requires a full instrument definition.
+   *
+   * @param separator
+   *          The column separator
+   * @return The file definition
+   * @throws Exception
+   *           If the definition cannot be created
+   */
+  public static FileDefinition makeFileDefinition(String separator)
+    throws Exception {
+
+    DateTimeSpecification dateTimeSpec = new DateTimeSpecification(false);
+    dateTimeSpec.assign(DateTimeSpecification.DATE_TIME, TIME_COLUMN,
+      DATE_TIME_FORMAT);
+
+    return new FileDefinition(1L, "Synthetic", separator,
+      FileDefinition.HEADER_TYPE_LINE_COUNT, 0, null, 1,
+      COLUMN_HEADINGS.length,
+      new LongitudeSpecification(LongitudeSpecification.FORMAT_MINUS180_180,
+        LONGITUDE_COLUMN, -1),
+      new LatitudeSpecification(LatitudeSpecification.FORMAT_MINUS90_90,
+        LATITUDE_COLUMN, -1),
+      dateTimeSpec, null);
+  }
+
+  /**
+   * Make {@link SensorValue}s for the generated data.
+   *
+   * <p>
+   * The values are given unique IDs starting at {@code firstId} as if they
+   * had been stored in the database, so they can receive QC flags. Pass
+   * {@code firstId < 0} to create new values that can be stored in the
+   * database. Values are created in time order within each column, with the
+   * columns in the order given by {@code columns}.
+   * </p>
+   *
+   * @param datasetId
+   *          The dataset ID
+   * @param columns
+   *          Map of generated column index to database column ID. The
+   *          {@link #RUN_TYPE_COLUMN} may be included.
+   * @param firstId
+   *          The ID of the first value
+   * @return The sensor values
+   */
+  public List<SensorValue> makeSensorValues(long datasetId,
+    Map<Integer, Long> columns, long firstId) {
+
+    List<SensorValue> result = new ArrayList<SensorValue>(
+      rowCount * columns.size());
+
+    long id = firstId;
+
+    for (Map.Entry<Integer, Long> column : columns.entrySet()) {
+      for (int row = 0; row < rowCount; row++) {
+        String value = getFieldValue(column.getKey(), row);
+        if (value.length() == 0) {
+          value = null;
+        }
+
+        if (firstId < 0) {
+          result.add(
+            new SensorValue(datasetId, column.getValue(), getTime(row), value));
+        } else {
+          result.add(new SensorValue(id, datasetId, column.getValue(),
+            getTime(row), value, new AutoQCResult(),
+            null == value ? Flag.BAD : Flag.ASSUMED_GOOD,
+            null == value ? SensorValue.MISSING_QC_COMMENT : null));
+          id++;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Make the {@link RunTypePeriods} for the generated data.
+   *
+   * @return The run type periods
+   * @throws DataSetException
+   *           If the periods cannot be built
+   */
+  public RunTypePeriods makeRunTypePeriods() throws DataSetException {
+    RunTypePeriods result = new RunTypePeriods();
+    for (int row = 0; row < rowCount; row++) {
+      result.add(getRunType(row), getTime(row));
+    }
+    result.finish();
+    result.buildIndex();
+    return result;
+  }
+}
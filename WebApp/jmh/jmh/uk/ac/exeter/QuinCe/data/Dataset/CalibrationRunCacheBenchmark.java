@@ -0,0 +1,171 @@
+package jmh.uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.exeter.QuinCe.data.Dataset.CalibrationRunCache;
+import uk.ac.exeter.QuinCe.data.Dataset.CalibrationRunCache.OffsetFit;
+import uk.ac.exeter.QuinCe.data.Dataset.CalibrationRunCache.RunMean;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetMeasurements;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetMeasurements.RunSegment;
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.SearchableSensorValuesList;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+
+/**
+ * Compares calculating the gas standard regression for every measurement with
+ * the memoised calculations in {@link CalibrationRunCache}.
+ *
+ * <p>
+ * The synthetic dataset has a value every ten seconds. Each hour starts with a
+ * three minute run of each of four gas standards, followed by ordinary
+ * measurements for the rest of the hour.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class CalibrationRunCacheBenchmark {
+
+  private static final long COLUMN_ID = 1L;
+
+  private static final int INTERVAL_SECONDS = 10;
+
+  private static final int STANDARD_RUN_SECONDS = 180;
+
+  private static final String[] STANDARDS = { "STD1", "STD2", "STD3",
+    "STD4" };
+
+  private static final double[] CONCENTRATIONS = { 0D, 250D, 400D, 550D };
+
+  private static final String MEASUREMENT_RUN_TYPE = "MEAS";
+
+  @Param({ "720" })
+  private int hours;
+
+  private DatasetMeasurements measurements;
+
+  private SearchableSensorValuesList sensorValues;
+
+  private List<Measurement> measurementsToCalibrate;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(1L);
+
+    measurements = new DatasetMeasurements();
+    sensorValues = new SearchableSensorValuesList(COLUMN_ID);
+    measurementsToCalibrate = new ArrayList<Measurement>();
+
+    LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+
+    for (int second = 0; second < hours * 3600; second += INTERVAL_SECONDS) {
+      LocalDateTime time = start.plusSeconds(second);
+
+      int secondOfHour = second % 3600;
+      int standard = secondOfHour / STANDARD_RUN_SECONDS;
+
+      String runType;
+      double value;
+      if (standard < STANDARDS.length) {
+        runType = STANDARDS[standard];
+        value = CONCENTRATIONS[standard] * 1.01D + 2D
+          + random.nextGaussian() * 0.1D;
+      } else {
+        runType = MEASUREMENT_RUN_TYPE;
+        value = 380D + random.nextGaussian() * 10D;
+      }
+
+      Map<Long, String> runTypes = new HashMap<Long, String>();
+      runTypes.put(Measurement.GENERIC_RUN_TYPE_VARIABLE, runType);
+      Measurement measurement = new Measurement(1L, time, runTypes);
+      measurements.addMeasurement(measurement);
+
+      if (runType.equals(MEASUREMENT_RUN_TYPE)) {
+        measurementsToCalibrate.add(measurement);
+      }
+
+      sensorValues
+        .add(new SensorValue(1L, COLUMN_ID, time, String.valueOf(value)));
+    }
+
+    // Build the run segments outside the benchmarks
+    measurements.getRunSegmentBefore(Measurement.GENERIC_RUN_TYPE_VARIABLE,
+      STANDARDS[0], start);
+  }
+
+  /**
+   * Calculate the run means and regression for every measurement.
+   *
+   * @param blackhole
+   *          The blackhole
+   */
+  @Benchmark
+  public void perMeasurement(Blackhole blackhole) {
+    for (Measurement measurement : measurementsToCalibrate) {
+      RunSegment[] runs = priorRuns(measurement);
+
+      List<RunMean> means = new ArrayList<RunMean>(runs.length);
+      for (RunSegment run : runs) {
+        means.add(null == run ? null
+          : CalibrationRunCache.calculateRunMean(sensorValues, run));
+      }
+
+      OffsetFit fit = CalibrationRunCache.fit(means, CONCENTRATIONS);
+      blackhole.consume(fit.predict(380D));
+    }
+  }
+
+  /**
+   * Use the memoised run means and regression. A new cache is used for each
+   * invocation so the cost of filling it is included.
+   *
+   * @param blackhole
+   *          The blackhole
+   */
+  @Benchmark
+  public void memoised(Blackhole blackhole) {
+    CalibrationRunCache cache = new CalibrationRunCache();
+
+    for (Measurement measurement : measurementsToCalibrate) {
+      OffsetFit fit = cache.getOffsetFit(sensorValues,
+        priorRuns(measurement), CONCENTRATIONS);
+      blackhole.consume(fit.predict(380D));
+    }
+  }
+
+  private RunSegment[] priorRuns(Measurement measurement) {
+    RunSegment[] runs = new RunSegment[STANDARDS.length];
+    for (int i = 0; i < STANDARDS.length; i++) {
+      runs[i] = measurements.getRunSegmentBefore(
+        Measurement.GENERIC_RUN_TYPE_VARIABLE, STANDARDS[i],
+        measurement.getTime());
+    }
+
+    return runs;
+  }
+}
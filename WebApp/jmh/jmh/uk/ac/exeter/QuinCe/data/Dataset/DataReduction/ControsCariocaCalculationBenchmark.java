@@ -0,0 +1,141 @@
+package jmh.uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import java.math.BigDecimal;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import junit.uk.ac.exeter.QuinCe.data.Dataset.DataReduction.BigDecimalReducerReference;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.CariocaReducer;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ControsPco2Reducer;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.InterpolatedCoefficient;
+
+/**
+ * Compares the double precision calculations in {@link ControsPco2Reducer} and
+ * {@link CariocaReducer} with the equivalent {@link BigDecimal} calculations.
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class ControsCariocaCalculationBenchmark {
+
+  private static final double PRIOR_RUNTIME = 1000D;
+
+  private static final double POST_RUNTIME = 500000D;
+
+  private static final double[] PRIOR_K = { 5.0e1, 4.0e-1, 2.5e-9 };
+
+  private static final double[] POST_K = { 5.2e1, 3.9e-1, 2.7e-9 };
+
+  private static final String CARIOCA_A = "0.0010295";
+
+  private static final String CARIOCA_B = "0.0002391";
+
+  private static final String CARIOCA_C = "0.0000001568";
+
+  @Param({ "100000" })
+  private int measurementCount;
+
+  private double[] s2Beam;
+
+  private double[] zeroS2Beam;
+
+  private double[] runTime;
+
+  private double[] resistance;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    Random random = new Random(1L);
+
+    s2Beam = new double[measurementCount];
+    zeroS2Beam = new double[measurementCount];
+    runTime = new double[measurementCount];
+    resistance = new double[measurementCount];
+
+    for (int i = 0; i < measurementCount; i++) {
+      zeroS2Beam[i] = 0.98D + random.nextDouble() * 0.02D;
+      s2Beam[i] = zeroS2Beam[i] * (0.75D + random.nextDouble() * 0.1D);
+      runTime[i] = PRIOR_RUNTIME
+        + random.nextDouble() * (POST_RUNTIME - PRIOR_RUNTIME);
+      resistance[i] = 8000D + random.nextDouble() * 6000D;
+    }
+  }
+
+  @Benchmark
+  public void controsBigDecimal(Blackhole blackhole) {
+    for (int i = 0; i < measurementCount; i++) {
+      BigDecimal sProc = BigDecimalReducerReference.controsSProc(1D,
+        s2Beam[i], zeroS2Beam[i]);
+
+      blackhole.consume(BigDecimalReducerReference.controsXco2ProcPart(sProc,
+        interpolateBigDecimal(0, runTime[i]),
+        interpolateBigDecimal(1, runTime[i]),
+        interpolateBigDecimal(2, runTime[i])));
+    }
+  }
+
+  @Benchmark
+  public void controsDouble(Blackhole blackhole) {
+    InterpolatedCoefficient k1 = interpolatedCoefficient(0);
+    InterpolatedCoefficient k2 = interpolatedCoefficient(1);
+    InterpolatedCoefficient k3 = interpolatedCoefficient(2);
+
+    for (int i = 0; i < measurementCount; i++) {
+      double sProc = ControsPco2Reducer.calcSProc(1D, s2Beam[i],
+        zeroS2Beam[i]);
+
+      blackhole.consume(ControsPco2Reducer.calcXco2ProcPart(sProc,
+        k1.valueAt(runTime[i]), k2.valueAt(runTime[i]),
+        k3.valueAt(runTime[i])));
+    }
+  }
+
+  @Benchmark
+  public void cariocaBigDecimal(Blackhole blackhole) {
+    for (int i = 0; i < measurementCount; i++) {
+      blackhole.consume(BigDecimalReducerReference
+        .steinhartHartKelvin(CARIOCA_A, CARIOCA_B, CARIOCA_C, resistance[i]));
+    }
+  }
+
+  @Benchmark
+  public void cariocaDouble(Blackhole blackhole) {
+    double a = Double.parseDouble(CARIOCA_A);
+    double b = Double.parseDouble(CARIOCA_B);
+    double c = Double.parseDouble(CARIOCA_C);
+
+    for (int i = 0; i < measurementCount; i++) {
+      blackhole.consume(CariocaReducer.calcSteinhartHartKelvin(a, b, c,
+        Math.log(resistance[i])));
+    }
+  }
+
+  private BigDecimal interpolateBigDecimal(int k, double x) {
+    return BigDecimalReducerReference.interpolate(PRIOR_RUNTIME, PRIOR_K[k],
+      POST_RUNTIME, POST_K[k], x);
+  }
+
+  private InterpolatedCoefficient interpolatedCoefficient(int k) {
+    return InterpolatedCoefficient.getInstance((Double) PRIOR_RUNTIME,
+      (Double) PRIOR_K[k], (Double) POST_RUNTIME, (Double) POST_K[k]);
+  }
+}
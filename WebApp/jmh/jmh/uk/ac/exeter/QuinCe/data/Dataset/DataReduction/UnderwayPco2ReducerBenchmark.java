@@ -0,0 +1,131 @@
+package jmh.uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.BenchmarkResourceManager;
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.MeasurementValue;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducer;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducerFactory;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReductionRecord;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+import uk.ac.exeter.QuinCe.web.datasets.plotPage.PlotPageTableValue;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Compares the per-measurement and batch data reduction APIs for the underway
+ * pCO₂ reducers.
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class UnderwayPco2ReducerBenchmark {
+
+  /**
+   * The sensor types given values in each synthetic measurement, with their
+   * typical value and random variation.
+   */
+  private static final Object[][] SENSOR_VALUES = {
+    { "Intake Temperature", 12D, 2D }, { "Salinity", 35D, 0.5D },
+    { "Equilibrator Temperature", 12.3D, 2D },
+    { "Equilibrator Pressure", 1000D, 5D },
+    { "Atmospheric Pressure", 1013D, 10D },
+    { "xCO₂ (with standards)", 380D, 20D } };
+
+  @Param({ "Underway Marine pCO₂", "Underway Atmospheric pCO₂" })
+  private String variableName;
+
+  @Param({ "100000" })
+  private int measurementCount;
+
+  private Instrument instrument;
+
+  private DataReducer reducer;
+
+  private List<Measurement> measurements;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    BenchmarkResourceManager.init();
+    SensorsConfiguration sensorConfig = ResourceManager.getInstance()
+      .getSensorsConfiguration();
+
+    Variable variable = sensorConfig.getInstrumentVariable(variableName);
+    reducer = DataReducerFactory.getReducer(variable,
+      new HashMap<String, Properties>());
+
+    // All values are GOOD, so the instrument's sensor assignments are never
+    // needed for QC cascades
+    instrument = Mockito.mock(Instrument.class);
+
+    Random random = new Random(1L);
+    LocalDateTime time = LocalDateTime.of(2020, 1, 1, 0, 0, 0);
+    measurements = new ArrayList<Measurement>(measurementCount);
+
+    for (int i = 0; i < measurementCount; i++) {
+      HashMap<Long, MeasurementValue> values = new HashMap<Long, MeasurementValue>();
+
+      for (Object[] sensorValue : SENSOR_VALUES) {
+        SensorType sensorType = sensorConfig
+          .getSensorType((String) sensorValue[0]);
+        double value = (Double) sensorValue[1]
+          + random.nextGaussian() * (Double) sensorValue[2];
+
+        values.put(sensorType.getId(),
+          new MeasurementValue(sensorType.getId(), List.of((long) i),
+            new ArrayList<Long>(), 1, value, Flag.GOOD, new HashSet<String>(),
+            PlotPageTableValue.MEASURED_TYPE, new Properties()));
+      }
+
+      HashMap<Long, String> runTypes = new HashMap<Long, String>();
+      runTypes.put(Measurement.GENERIC_RUN_TYPE_VARIABLE, "EQU");
+
+      measurements.add(new Measurement(i, 1L, time.plusMinutes(i), runTypes,
+        values));
+    }
+  }
+
+  @Benchmark
+  public void perMeasurement(Blackhole blackhole) throws Exception {
+    for (Measurement measurement : measurements) {
+      blackhole.consume(
+        reducer.performDataReduction(instrument, measurement, null));
+    }
+  }
+
+  @Benchmark
+  public List<DataReductionRecord> batch() throws Exception {
+    return reducer.performDataReduction(instrument, measurements, null);
+  }
+}
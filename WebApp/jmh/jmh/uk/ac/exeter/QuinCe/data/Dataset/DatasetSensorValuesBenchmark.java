@@ -0,0 +1,130 @@
+package jmh.uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.BenchmarkResourceManager;
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.SyntheticUnderwayData;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
+
+/**
+ * Benchmarks for building {@link DatasetSensorValues} and looking up values in
+ * it.
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DatasetSensorValuesBenchmark {
+
+  /**
+   * The number of lookups made by each lookup benchmark.
+   */
+  private static final int LOOKUPS = 100000;
+
+  @Param({ "100000", "1000000" })
+  private int rows;
+
+  @Param({ "100", "60000" })
+  private long intervalMillis;
+
+  private Instrument instrument;
+
+  private List<SensorValue> sensorValues;
+
+  private DatasetSensorValues datasetSensorValues;
+
+  private LocalDateTime[] lookupTimes;
+
+  private long[] lookupColumns;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    DataSource dataSource = BenchmarkResourceManager
+      .migrate(BenchmarkResourceManager.TEST_BASE_LOCATIONS);
+    instrument = InstrumentDB.getInstrument(dataSource, 1L);
+
+    SyntheticUnderwayData data = new SyntheticUnderwayData(rows,
+      intervalMillis);
+    sensorValues = data.makeSensorValues(1L,
+      SyntheticUnderwayData.TEST_INSTRUMENT_COLUMNS, 1L);
+
+    datasetSensorValues = build();
+
+    Random random = new Random(1L);
+    // Look up the numeric sensor columns
+    Long[] columnIds = SyntheticUnderwayData.TEST_INSTRUMENT_COLUMNS.entrySet()
+      .stream()
+      .filter(e -> e.getKey() != SyntheticUnderwayData.RUN_TYPE_COLUMN)
+      .map(e -> e.getValue()).toArray(Long[]::new);
+
+    lookupTimes = new LocalDateTime[LOOKUPS];
+    lookupColumns = new long[LOOKUPS];
+    for (int i = 0; i < LOOKUPS; i++) {
+      lookupTimes[i] = data.getTime(random.nextInt(rows));
+      lookupColumns[i] = columnIds[random.nextInt(columnIds.length)];
+    }
+  }
+
+  private DatasetSensorValues build() throws Exception {
+    DatasetSensorValues result = new DatasetSensorValues(instrument);
+    for (SensorValue value : sensorValues) {
+      result.add(value);
+    }
+    return result;
+  }
+
+  @Benchmark
+  public DatasetSensorValues construct() throws Exception {
+    return build();
+  }
+
+  @Benchmark
+  public void getSensorValue(Blackhole blackhole) {
+    for (int i = 0; i < LOOKUPS; i++) {
+      blackhole.consume(
+        datasetSensorValues.getSensorValue(lookupTimes[i], lookupColumns[i]));
+    }
+  }
+
+  @Benchmark
+  public void getColumnValue(Blackhole blackhole) {
+    for (int i = 0; i < LOOKUPS; i++) {
+      blackhole.consume(datasetSensorValues.getColumnValues(lookupColumns[i])
+        .get(lookupTimes[i]));
+    }
+  }
+
+  @Benchmark
+  public void getWithInterpolation(Blackhole blackhole) {
+    for (int i = 0; i < LOOKUPS; i++) {
+      blackhole.consume(datasetSensorValues.getColumnValues(lookupColumns[i])
+        .getWithInterpolation(lookupTimes[i].plusNanos(1000L), true, true));
+    }
+  }
+}
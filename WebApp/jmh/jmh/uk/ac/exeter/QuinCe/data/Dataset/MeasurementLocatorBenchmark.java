@@ -0,0 +1,105 @@
+package jmh.uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.sql.DataSource;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.BenchmarkResourceManager;
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.SyntheticUnderwayData;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.MeasurementLocator;
+import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
+
+/**
+ * Benchmark for {@link MeasurementLocator#locateMeasurements} using the
+ * Benguela Stream instrument from the test base migrations, whose
+ * Underway Marine pCO₂ variable uses run types to identify measurements.
+ *
+ * <p>
+ * The synthetic sensor values are stored in the in-memory benchmark database
+ * during setup, so the benchmark includes the cost of reading them back.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MeasurementLocatorBenchmark {
+
+  private static final long DATASET_ID = 1L;
+
+  private static final String DELETE_SENSOR_VALUES_STATEMENT = "DELETE FROM "
+    + "sensor_values WHERE dataset_id = ?";
+
+  @Param({ "100000" })
+  private int rows;
+
+  @Param({ "1000" })
+  private long intervalMillis;
+
+  private Connection conn;
+
+  private Instrument instrument;
+
+  private DataSet dataset;
+
+  private MeasurementLocator locator;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    DataSource dataSource = BenchmarkResourceManager
+      .migrate(BenchmarkResourceManager.TEST_BASE_LOCATIONS);
+
+    conn = dataSource.getConnection();
+    instrument = InstrumentDB.getInstrument(conn, 1L);
+    dataset = DataSetDB.getDataSet(conn, DATASET_ID);
+    locator = MeasurementLocator
+      .getMeasurementLocator(instrument.getVariables().get(0));
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(DELETE_SENSOR_VALUES_STATEMENT)) {
+      stmt.setLong(1, DATASET_ID);
+      stmt.execute();
+    }
+
+    SyntheticUnderwayData data = new SyntheticUnderwayData(rows,
+      intervalMillis);
+    DataSetDataDB.storeSensorValues(conn, data.makeSensorValues(DATASET_ID,
+      SyntheticUnderwayData.TEST_INSTRUMENT_COLUMNS, -1L));
+  }
+
+  @TearDown(Level.Trial)
+  public void tearDown() throws Exception {
+    conn.close();
+  }
+
+  @Benchmark
+  public List<Measurement> locateMeasurements() throws Exception {
+    return locator.locateMeasurements(conn, instrument, dataset);
+  }
+}
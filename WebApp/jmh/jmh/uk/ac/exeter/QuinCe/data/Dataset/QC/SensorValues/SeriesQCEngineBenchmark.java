@@ -0,0 +1,100 @@
+package jmh.uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.BenchmarkResourceManager;
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.SyntheticUnderwayData;
+import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AbstractAutoQCRoutine;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCRoutine;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.SeriesQCEngine;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Compares running all the configured QC routines for a column one after the
+ * other against running them in a single pass with the
+ * {@link SeriesQCEngine}.
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SeriesQCEngineBenchmark {
+
+  @Param({ "1000000" })
+  private int rows;
+
+  @Param({ "1000" })
+  private long intervalMillis;
+
+  private SensorType sensorType;
+
+  private List<AbstractAutoQCRoutine> routines;
+
+  private List<SensorValue> values;
+
+  private RunTypePeriods runTypePeriods;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    BenchmarkResourceManager.init();
+
+    sensorType = ResourceManager.getInstance().getSensorsConfiguration()
+      .getSensorType("Intake Temperature");
+
+    routines = ResourceManager.getInstance().getQCRoutinesConfiguration()
+      .getRoutines(sensorType);
+
+    SyntheticUnderwayData data = new SyntheticUnderwayData(rows,
+      intervalMillis);
+
+    values = new ArrayList<SensorValue>(data.makeSensorValues(1L,
+      Map.of(SyntheticUnderwayData.INTAKE_TEMPERATURE_COLUMN, 1L), 1L));
+
+    runTypePeriods = data.makeRunTypePeriods();
+  }
+
+  @Setup(Level.Invocation)
+  public void clearFlags() throws Exception {
+    for (SensorValue value : values) {
+      value.clearAutomaticQC();
+    }
+  }
+
+  @Benchmark
+  public List<SensorValue> separate() throws Exception {
+    for (AbstractAutoQCRoutine routine : routines) {
+      routine.setSensorType(sensorType);
+      ((AutoQCRoutine) routine).qc(values, runTypePeriods);
+    }
+    return values;
+  }
+
+  @Benchmark
+  public List<SensorValue> fused() throws Exception {
+    SeriesQCEngine.qc(routines, sensorType, values, runTypePeriods);
+    return values;
+  }
+}
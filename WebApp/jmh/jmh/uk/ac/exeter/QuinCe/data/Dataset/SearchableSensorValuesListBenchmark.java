@@ -0,0 +1,80 @@
+package jmh.uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.exeter.QuinCe.data.Dataset.SearchableSensorValuesList;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCResult;
+
+/**
+ * Measures interpolation lookups in a {@link SearchableSensorValuesList} where
+ * most of the values are flagged {@link Flag#BAD}.
+ *
+ * <p>
+ * The synthetic column has a value every second, so the interpolation limit
+ * spans hundreds of values. Each {@code runLength} block of values is
+ * {@link Flag#BAD} apart from its first value, and a lookup is made at the
+ * time of every value in the column.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SearchableSensorValuesListBenchmark {
+
+  private static final long COLUMN_ID = 1L;
+
+  @Param({ "86400" })
+  private int count;
+
+  @Param({ "60", "600" })
+  private int runLength;
+
+  private SearchableSensorValuesList values;
+
+  private List<LocalDateTime> times;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    LocalDateTime start = LocalDateTime.of(2023, 1, 1, 0, 0, 0);
+
+    values = new SearchableSensorValuesList(COLUMN_ID);
+
+    for (int i = 0; i < count; i++) {
+      Flag flag = i % runLength == 0 ? Flag.GOOD : Flag.BAD;
+      values.add(new SensorValue(i + 1, 1L, COLUMN_ID, start.plusSeconds(i),
+        String.valueOf(i), new AutoQCResult(), flag, null));
+    }
+
+    times = values.getTimes();
+  }
+
+  @Benchmark
+  public void interpolate(Blackhole blackhole) {
+    for (LocalDateTime time : times) {
+      blackhole.consume(values.getWithInterpolation(time, true, true));
+    }
+  }
+}
@@ -0,0 +1,118 @@
+package jmh.uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import uk.ac.exeter.QuinCe.data.Dataset.SensorOffsets;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorAssignment;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorGroup;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorGroupPair;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorGroups;
+
+/**
+ * Benchmark for {@link SensorOffsets#getOffsetTime} across three sensor
+ * groups, with offsets defined at regular intervals through the dataset.
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class SensorOffsetsBenchmark {
+
+  private static final LocalDateTime START = LocalDateTime.of(2021, 1, 1, 0,
+    0, 0);
+
+  @Param({ "1000000" })
+  private int lookups;
+
+  /**
+   * The number of offsets defined for each group pair.
+   */
+  @Param({ "10", "1000" })
+  private int offsetCount;
+
+  private SensorOffsets offsets;
+
+  private SensorAssignment firstSensor;
+
+  private SensorAssignment lastSensor;
+
+  private LocalDateTime[] times;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    SensorGroups groups = new SensorGroups();
+
+    groups.renameGroup("Default", "Group 1");
+    groups.addGroup("Group 2", "Group 1");
+    groups.addGroup("Group 3", "Group 2");
+
+    firstSensor = makeAssignment("Sensor 1");
+    lastSensor = makeAssignment("Sensor 3");
+    groups.addAssignment(firstSensor);
+    groups.addAssignment(makeAssignment("Sensor 2"));
+    groups.addAssignment(lastSensor);
+
+    groups.moveSensor("Sensor 1", "Group 1");
+    groups.moveSensor("Sensor 2", "Group 2");
+    groups.moveSensor("Sensor 3", "Group 3");
+
+    groups.getGroup("Group 1").setLink("Sensor 1", SensorGroup.NEXT);
+    groups.getGroup("Group 2").setLink("Sensor 2", SensorGroup.PREVIOUS);
+    groups.getGroup("Group 2").setLink("Sensor 2", SensorGroup.NEXT);
+    groups.getGroup("Group 3").setLink("Sensor 3", SensorGroup.PREVIOUS);
+
+    offsets = new SensorOffsets(groups);
+    Random random = new Random(1L);
+
+    // Offsets are spread over a 30 day dataset
+    long offsetSpacingSeconds = 30L * 86400L / offsetCount;
+
+    List<SensorGroupPair> pairs = groups.getGroupPairs();
+    for (SensorGroupPair pair : pairs) {
+      for (int i = 0; i < offsetCount; i++) {
+        offsets.addOffset(pair, START.plusSeconds(i * offsetSpacingSeconds),
+          10000L + random.nextInt(20000));
+      }
+    }
+
+    times = new LocalDateTime[lookups];
+    for (int i = 0; i < lookups; i++) {
+      times[i] = START.plusSeconds(random.nextInt(30 * 86400));
+    }
+  }
+
+  private static SensorAssignment makeAssignment(String name) {
+    SensorAssignment assignment = Mockito.mock(SensorAssignment.class);
+    Mockito.when(assignment.getSensorName()).thenReturn(name);
+    return assignment;
+  }
+
+  @Benchmark
+  public void getOffsetTime(Blackhole blackhole) throws Exception {
+    for (LocalDateTime time : times) {
+      blackhole.consume(offsets.getOffsetTime(time, firstSensor, lastSensor));
+    }
+  }
+}
@@ -0,0 +1,79 @@
+package jmh.uk.ac.exeter.QuinCe.data.Files;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.SyntheticUnderwayData;
+import uk.ac.exeter.QuinCe.data.Files.DataFile;
+import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
+
+/**
+ * Benchmarks for loading and validating a {@link DataFile}, and for splitting
+ * its lines into fields with {@link FileDefinition#extractFields(String)}.
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DataFileBenchmark {
+
+  @Param({ "100000", "1000000" })
+  private int rows;
+
+  @Param({ ",", "\t", " " })
+  private String separator;
+
+  private FileDefinition fileDefinition;
+
+  private List<String> lines;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    SyntheticUnderwayData data = new SyntheticUnderwayData(rows, 1000L);
+    fileDefinition = SyntheticUnderwayData.makeFileDefinition(separator);
+    lines = data.makeFileLines(separator);
+  }
+
+  /**
+   * Construct the {@link DataFile}, which validates every line.
+   *
+   * @return The data file
+   * @throws Exception
+   *           If the file cannot be created
+   */
+  @Benchmark
+  public DataFile load() throws Exception {
+    return new DataFile("", fileDefinition, "synthetic.csv", lines);
+  }
+
+  /**
+   * Extract the fields from every line in the file.
+   *
+   * @param blackhole
+   *          The blackhole
+   */
+  @Benchmark
+  public void extractFields(Blackhole blackhole) {
+    for (int i = 1; i < lines.size(); i++) {
+      blackhole.consume(fileDefinition.extractFields(lines.get(i)));
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package jmh.uk.ac.exeter.QuinCe.data.Instrument.DataFormats;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.SyntheticUnderwayData;
+import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeSpecification;
+
+/**
+ * Benchmarks for {@link DateTimeSpecification#getDateTime} with the most common
+ * date/time layouts.
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class DateTimeSpecificationBenchmark {
+
+  @Param({ "1000000" })
+  private int rows;
+
+  @Param({ "yyyy-MM-dd HH:mm:ss.SSS", "dd/MM/yyyy HH:mm:ss", "ISO", "UNIX",
+    "SEPARATE" })
+  private String format;
+
+  private DateTimeSpecification spec;
+
+  private List<List<String>> lines;
+
+  @Setup(Level.Trial)
+  public void setup() throws Exception {
+    SyntheticUnderwayData data = new SyntheticUnderwayData(rows, 1000L);
+    spec = new DateTimeSpecification(false);
+    lines = new ArrayList<List<String>>(rows);
+
+    DateTimeFormatter formatter = null;
+    DateTimeFormatter timeFormatter = null;
+
+    switch (format) {
+    case "ISO": {
+      spec.assign(DateTimeSpecification.DATE_TIME, 0, "ISO");
+      formatter = DateTimeFormatter.ISO_OFFSET_DATE_TIME;
+      break;
+    }
+    case "UNIX": {
+      spec.assign(DateTimeSpecification.UNIX, 0, null);
+      break;
+    }
+    case "SEPARATE": {
+      spec.assign(DateTimeSpecification.DATE, 0, "yyyy-MM-dd");
+      spec.assign(DateTimeSpecification.TIME, 1, "HH:mm:ss");
+      formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
+      timeFormatter = DateTimeFormatter.ofPattern("HH:mm:ss");
+      break;
+    }
+    default: {
+      spec.assign(DateTimeSpecification.DATE_TIME, 0, format);
+      formatter = DateTimeFormatter.ofPattern(format);
+    }
+    }
+
+    for (int i = 0; i < rows; i++) {
+      LocalDateTime time = data.getTime(i);
+      List<String> line = new ArrayList<String>(2);
+
+      if (format.equals("UNIX")) {
+        line.add(String.valueOf(time.toEpochSecond(ZoneOffset.UTC)));
+      } else if (format.equals("ISO")) {
+        line.add(formatter.format(time.atOffset(ZoneOffset.UTC)));
+      } else {
+        line.add(formatter.format(time));
+        if (null != timeFormatter) {
+          line.add(timeFormatter.format(time));
+        }
+      }
+
+      lines.add(line);
+    }
+  }
+
+  @Benchmark
+  public void getDateTime(Blackhole blackhole) throws Exception {
+    for (List<String> line : lines) {
+      blackhole.consume(spec.getDateTime(null, line));
+    }
+  }
+}
@@ -0,0 +1,159 @@
+package jmh.uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.javadocmd.simplelatlng.LatLng;
+
+import jmh.uk.ac.exeter.QuinCe.BenchmarkBase.SyntheticUnderwayData;
+import uk.ac.exeter.QuinCe.data.Dataset.GeoBounds;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.web.datasets.plotPage.MapRecord;
+import uk.ac.exeter.QuinCe.web.datasets.plotPage.MapRecords;
+import uk.ac.exeter.QuinCe.web.datasets.plotPage.RowSelection;
+
+/**
+ * Benchmarks for generating the QC page map data with
+ * {@link MapRecords#getDisplayJson}, for the whole dataset and for a zoomed
+ * in view.
+ *
+ * @author Steve Jones
+ *
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@org.openjdk.jmh.annotations.Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class MapRecordsBenchmark {
+
+  private static final GeoBounds FULL_BOUNDS = new GeoBounds(-180D, 180D,
+    -90D, 90D);
+
+  @Param({ "100000", "1000000" })
+  private int rows;
+
+  @Param({ "60000" })
+  private long intervalMillis;
+
+  private MapRecords records;
+
+  private GeoBounds zoomedBounds;
+
+  private RowSelection selectedRows;
+
+  @Setup(Level.Trial)
+  public void setup() {
+    SyntheticUnderwayData data = new SyntheticUnderwayData(rows,
+      intervalMillis);
+
+    records = new MapRecords(rows);
+    List<Long> rowIds = new ArrayList<Long>(rows);
+
+    for (int i = 0; i < rows; i++) {
+      double value = data
+        .getValue(SyntheticUnderwayData.INTAKE_TEMPERATURE_COLUMN, i);
+
+      Flag flag;
+      if (Double.isNaN(value)) {
+        flag = Flag.BAD;
+      } else if (i % 500 == 0) {
+        flag = Flag.NEEDED;
+      } else {
+        flag = Flag.GOOD;
+      }
+
+      records.add(new BenchmarkMapRecord(
+        new LatLng(data.getLatitude(i), data.getLongitude(i)), i, value,
+        flag));
+
+      rowIds.add((long) i);
+    }
+
+    selectedRows = new RowSelection(rowIds);
+    for (int i = 0; i < rows; i += 100) {
+      selectedRows.setIndex(i, true);
+    }
+
+    // Zoom in on the middle tenth of the track
+    double minLon = Double.MAX_VALUE;
+    double maxLon = -Double.MAX_VALUE;
+    double minLat = Double.MAX_VALUE;
+    double maxLat = -Double.MAX_VALUE;
+
+    for (int i = rows / 2 - rows / 20; i < rows / 2 + rows / 20; i++) {
+      minLon = Math.min(minLon, data.getLongitude(i));
+      maxLon = Math.max(maxLon, data.getLongitude(i));
+      minLat = Math.min(minLat, data.getLatitude(i));
+      maxLat = Math.max(maxLat, data.getLatitude(i));
+    }
+
+    zoomedBounds = new GeoBounds(minLon, maxLon, minLat, maxLat);
+  }
+
+  @Benchmark
+  public String fullBounds() {
+    return records.getDisplayJson(FULL_BOUNDS, selectedRows, true, false);
+  }
+
+  @Benchmark
+  public String fullBoundsGoodOnly() {
+    return records.getDisplayJson(FULL_BOUNDS, selectedRows, true, true);
+  }
+
+  @Benchmark
+  public String zoomed() {
+    return records.getDisplayJson(zoomedBounds, selectedRows, true, false);
+  }
+
+  /**
+   * Minimal {@link MapRecord} holding a fixed value and flag.
+   */
+  private static class BenchmarkMapRecord extends MapRecord {
+
+    private final Double value;
+
+    private final Flag flag;
+
+    private BenchmarkMapRecord(LatLng position, long id, double value,
+      Flag flag) {
+      super(position, id);
+      this.value = value;
+      this.flag = flag;
+    }
+
+    @Override
+    public boolean isGood() {
+      return flag.isGood();
+    }
+
+    @Override
+    public boolean flagNeeded() {
+      return flag.equals(Flag.NEEDED);
+    }
+
+    @Override
+    public Double getValue() {
+      return value;
+    }
+
+    @Override
+    public Flag getFlag(boolean ignoreNeeded) {
+      return ignoreNeeded && flagNeeded() ? Flag.ASSUMED_GOOD : flag;
+    }
+  }
+}
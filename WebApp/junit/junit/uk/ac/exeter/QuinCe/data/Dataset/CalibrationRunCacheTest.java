@@ -0,0 +1,108 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.ac.exeter.QuinCe.data.Dataset.CalibrationRunCache;
+import uk.ac.exeter.QuinCe.data.Dataset.CalibrationRunCache.OffsetFit;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetMeasurements;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetMeasurements.RunSegment;
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.SearchableSensorValuesList;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+
+/**
+ * Tests for the {@link CalibrationRunCache}.
+ *
+ * @author Steve Jones
+ *
+ */
+public class CalibrationRunCacheTest {
+
+  private static final long VAR = Measurement.GENERIC_RUN_TYPE_VARIABLE;
+
+  private static final String[] RUN_TYPES = { "STD1", "STD1", "STD2", "STD2",
+    "STD3", "STD3", "MEAS", "MEAS" };
+
+  private static final double[] VALUES = { 1D, 3D, 252D, 254D, 403D, 405D,
+    380D, 381D };
+
+  private static final double[] CONCENTRATIONS = { 0D, 250D, 400D };
+
+  private DatasetMeasurements measurements;
+
+  private SearchableSensorValuesList sensorValues;
+
+  @BeforeEach
+  public void makeData() {
+    measurements = new DatasetMeasurements();
+    sensorValues = new SearchableSensorValuesList(1L);
+
+    for (int i = 0; i < RUN_TYPES.length; i++) {
+      LocalDateTime time = LocalDateTime.of(2023, 1, 1, 0, i, 0);
+
+      Map<Long, String> runTypes = new HashMap<Long, String>();
+      runTypes.put(VAR, RUN_TYPES[i]);
+      measurements.addMeasurement(new Measurement(1L, time, runTypes));
+      sensorValues
+        .add(new SensorValue(1L, 1L, time, String.valueOf(VALUES[i])));
+    }
+  }
+
+  private RunSegment[] getRuns() {
+    LocalDateTime time = LocalDateTime.of(2023, 1, 1, 0, 7, 0);
+    return new RunSegment[] {
+      measurements.getRunSegmentBefore(VAR, "STD1", time),
+      measurements.getRunSegmentBefore(VAR, "STD2", time),
+      measurements.getRunSegmentBefore(VAR, "STD3", time) };
+  }
+
+  @Test
+  public void fitMatchesRegressionTest() {
+    SimpleRegression regression = new SimpleRegression();
+    regression.addData(0D, 2D);
+    regression.addData(250D, 3D);
+    regression.addData(400D, 4D);
+
+    OffsetFit fit = measurements.getCalibrationRunCache()
+      .getOffsetFit(sensorValues, getRuns(), CONCENTRATIONS);
+
+    assertTrue(fit.canPredict());
+    assertEquals(3, fit.getN());
+    assertEquals(6, fit.getUsedValues().size());
+    assertEquals(regression.predict(380D), fit.predict(380D), 1e-10);
+  }
+
+  @Test
+  public void fitMemoisedTest() {
+    CalibrationRunCache cache = measurements.getCalibrationRunCache();
+    OffsetFit fit = cache.getOffsetFit(sensorValues, getRuns(),
+      CONCENTRATIONS);
+
+    assertSame(fit, cache.getOffsetFit(sensorValues, getRuns(),
+      CONCENTRATIONS));
+  }
+
+  @Test
+  public void missingRunTest() {
+    RunSegment[] runs = getRuns();
+    runs[1] = null;
+    runs[2] = null;
+
+    OffsetFit fit = measurements.getCalibrationRunCache()
+      .getOffsetFit(sensorValues, runs, CONCENTRATIONS);
+
+    assertFalse(fit.canPredict());
+    assertEquals(2, fit.getUsedValues().size());
+  }
+}
@@ -0,0 +1,128 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.CariocaReducer;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ControsPco2Reducer;
+
+/**
+ * {@link BigDecimal} reference implementations of the calculations in
+ * {@link ControsPco2Reducer} and {@link CariocaReducer}.
+ *
+ * <p>
+ * These follow the original BigDecimal implementations of the reducers, except
+ * that all divisions are performed to {@link MathContext#DECIMAL128} precision.
+ * The original implementations rounded divisions (including the interpolated k
+ * coefficients) to 10 decimal places, which quantised coefficients of the
+ * order of 1e-10 and so cannot be used as a precise reference.
+ * </p>
+ */
+public class BigDecimalReducerReference {
+
+  /**
+   * Calculate the CONTROS drift-corrected signal S<sub>proc</sub>.
+   *
+   * @param f
+   *          The F coefficient.
+   * @param s2Beam
+   *          The two-beam signal.
+   * @param zeroS2Beam
+   *          The zero two-beam signal.
+   * @return S<sub>proc</sub>.
+   */
+  public static BigDecimal controsSProc(double f, double s2Beam,
+    double zeroS2Beam) {
+
+    return new BigDecimal(f).multiply(BigDecimal.ONE.subtract(new BigDecimal(
+      s2Beam).divide(new BigDecimal(zeroS2Beam), MathContext.DECIMAL128)));
+  }
+
+  /**
+   * Linearly interpolate a coefficient. {@code null} prior or post values are
+   * handled in the same way as
+   * {@link uk.ac.exeter.QuinCe.data.Dataset.DataReduction.Calculators#interpolate(BigDecimal, BigDecimal, BigDecimal, BigDecimal, BigDecimal)}.
+   *
+   * @param x0
+   *          The prior x value.
+   * @param y0
+   *          The prior y value.
+   * @param x1
+   *          The post x value.
+   * @param y1
+   *          The post y value.
+   * @param x
+   *          The x value to interpolate to.
+   * @return The interpolated value.
+   */
+  public static BigDecimal interpolate(Double x0, Double y0, Double x1,
+    Double y1, double x) {
+
+    BigDecimal result;
+
+    boolean priorNull = null == x0 || null == y0;
+    boolean postNull = null == x1 || null == y1;
+
+    if (!priorNull && !postNull) {
+      BigDecimal bdX = new BigDecimal(x);
+      BigDecimal bdX0 = new BigDecimal(x0);
+      BigDecimal bdX1 = new BigDecimal(x1);
+
+      BigDecimal top = new BigDecimal(y0).multiply(bdX1.subtract(bdX))
+        .add(new BigDecimal(y1).multiply(bdX.subtract(bdX0)));
+
+      result = top.divide(bdX1.subtract(bdX0), MathContext.DECIMAL128);
+    } else if (!priorNull) {
+      result = new BigDecimal(y0);
+    } else {
+      result = new BigDecimal(y1);
+    }
+
+    return result;
+  }
+
+  /**
+   * Calculate the signal part of the CONTROS xCO₂ calculation.
+   *
+   * @param sProc
+   *          The drift-corrected signal.
+   * @param k1
+   *          The k1 coefficient.
+   * @param k2
+   *          The k2 coefficient.
+   * @param k3
+   *          The k3 coefficient.
+   * @return The signal part of xCO₂.
+   */
+  public static BigDecimal controsXco2ProcPart(BigDecimal sProc,
+    BigDecimal k1, BigDecimal k2, BigDecimal k3) {
+
+    return k3.multiply(sProc.pow(3)).add(k2.multiply(sProc.pow(2)))
+      .add(k1.multiply(sProc));
+  }
+
+  /**
+   * Calculate a temperature from a thermistor resistance using the
+   * Steinhart-Hart equation, as in the Carioca reducer.
+   *
+   * @param a
+   *          The A coefficient.
+   * @param b
+   *          The B coefficient.
+   * @param c
+   *          The C coefficient.
+   * @param resistance
+   *          The resistance.
+   * @return The temperature in Kelvin.
+   */
+  public static double steinhartHartKelvin(String a, String b, String c,
+    double resistance) {
+
+    BigDecimal lnR = new BigDecimal(Math.log(resistance));
+    BigDecimal bPart = new BigDecimal(b).multiply(lnR);
+    BigDecimal cPart = new BigDecimal(c).multiply(lnR.pow(3));
+
+    return BigDecimal.ONE.divide(new BigDecimal(a).add(bPart).add(cPart),
+      MathContext.DECIMAL128).doubleValue();
+  }
+}
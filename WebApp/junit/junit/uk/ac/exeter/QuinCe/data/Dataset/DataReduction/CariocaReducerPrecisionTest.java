@@ -0,0 +1,53 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.TestSetLine;
+import junit.uk.ac.exeter.QuinCe.TestBase.TestSetTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.CariocaReducer;
+
+/**
+ * Checks that the double precision Steinhart-Hart temperature calculation in
+ * {@link CariocaReducer} matches the BigDecimal reference calculation in
+ * {@link BigDecimalReducerReference} to a relative tolerance of
+ * {@link ControsPco2ReducerPrecisionTest#RELATIVE_TOLERANCE}.
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+public class CariocaReducerPrecisionTest extends TestSetTest {
+
+  private static final int A_COL = 0;
+
+  private static final int B_COL = 1;
+
+  private static final int C_COL = 2;
+
+  private static final int RESISTANCE_COL = 3;
+
+  @ParameterizedTest
+  @MethodSource("getLines")
+  public void steinhartHartTest(TestSetLine line) {
+
+    double resistance = line.getDoubleField(RESISTANCE_COL);
+
+    double expected = BigDecimalReducerReference.steinhartHartKelvin(
+      line.getStringField(A_COL, false), line.getStringField(B_COL, false),
+      line.getStringField(C_COL, false), resistance);
+
+    double actual = CariocaReducer.calcSteinhartHartKelvin(
+      line.getDoubleField(A_COL), line.getDoubleField(B_COL),
+      line.getDoubleField(C_COL), Math.log(resistance));
+
+    assertEquals(expected, actual,
+      expected * ControsPco2ReducerPrecisionTest.RELATIVE_TOLERANCE);
+  }
+
+  @Override
+  protected String getTestSetName() {
+    return "CariocaReducerPrecision";
+  }
+}
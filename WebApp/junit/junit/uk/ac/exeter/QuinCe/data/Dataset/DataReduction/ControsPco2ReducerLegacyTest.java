@@ -0,0 +1,186 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.TestSetLine;
+import junit.uk.ac.exeter.QuinCe.TestBase.TestSetTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.Calculators;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ControsPco2Reducer;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.InterpolatedCoefficient;
+
+/**
+ * Checks that the double precision calculations in {@link ControsPco2Reducer}
+ * reproduce the results of the original {@link BigDecimal} implementation.
+ *
+ * <p>
+ * {@link #legacyXco2ProcPart} is the calculation from the original
+ * {@code ControsPco2Reducer.doCalculation}, using the same
+ * {@link Calculators#interpolate(BigDecimal, BigDecimal, BigDecimal, BigDecimal, BigDecimal)}
+ * method and reading the k coefficients from their stored strings.
+ * </p>
+ *
+ * <p>
+ * The original implementation rounded the {@code S2beam / zero S2beam}
+ * division and the interpolated k coefficients to 10 decimal places. The two
+ * implementations can therefore only be expected to agree within the error
+ * that rounding introduces (see {@link #legacyRoundingBound}), plus a relative
+ * {@link #RELATIVE_TOLERANCE} for double precision arithmetic. Any larger
+ * difference indicates that the calculation itself has changed.
+ * </p>
+ *
+ * <p>
+ * The rounding is significant when the k coefficients are interpolated: k3 is
+ * of the order of 1e-9, so rounding it to 10 decimal places changes it by
+ * several percent, and the original results in the test set differ from the
+ * new ones by up to about 0.2%. Where the coefficients are taken from a single
+ * calibration the results differ by less than 1e-8.
+ * </p>
+ *
+ * <p>
+ * The test set is the one used by {@link ControsPco2ReducerPrecisionTest}.
+ * </p>
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+public class ControsPco2ReducerLegacyTest extends TestSetTest {
+
+  /**
+   * The maximum error introduced by rounding a value to 10 decimal places.
+   */
+  private static final double LEGACY_ROUNDING = 0.5e-10;
+
+  /**
+   * The permitted relative difference in addition to the legacy rounding
+   * error.
+   */
+  private static final double RELATIVE_TOLERANCE = 1e-12;
+
+  private static final int F_COL = 0;
+
+  private static final int S2BEAM_COL = 1;
+
+  private static final int ZERO_S2BEAM_COL = 2;
+
+  private static final int RUNTIME_COL = 3;
+
+  private static final int PRIOR_RUNTIME_COL = 4;
+
+  private static final int PRIOR_K1_COL = 5;
+
+  private static final int POST_RUNTIME_COL = 8;
+
+  private static final int POST_K1_COL = 9;
+
+  @ParameterizedTest
+  @MethodSource("getLines")
+  public void xco2ProcPartMatchesLegacyTest(TestSetLine line)
+    throws Exception {
+
+    double f = line.getDoubleField(F_COL);
+    double s2Beam = line.getDoubleField(S2BEAM_COL);
+    double zeroS2Beam = line.getDoubleField(ZERO_S2BEAM_COL);
+    double runTime = line.getDoubleField(RUNTIME_COL);
+
+    double[] k = new double[3];
+    BigDecimal[] legacyK = new BigDecimal[3];
+
+    for (int i = 0; i < 3; i++) {
+      k[i] = InterpolatedCoefficient
+        .getInstance(getNullableField(line, PRIOR_RUNTIME_COL),
+          getNullableField(line, PRIOR_K1_COL + i),
+          getNullableField(line, POST_RUNTIME_COL),
+          getNullableField(line, POST_K1_COL + i))
+        .valueAt(runTime);
+
+      legacyK[i] = Calculators.interpolate(
+        getBigDecimalField(line, PRIOR_RUNTIME_COL),
+        getBigDecimalField(line, PRIOR_K1_COL + i),
+        getBigDecimalField(line, POST_RUNTIME_COL),
+        getBigDecimalField(line, POST_K1_COL + i), new BigDecimal(runTime));
+    }
+
+    double sProc = ControsPco2Reducer.calcSProc(f, s2Beam, zeroS2Beam);
+    double actual = ControsPco2Reducer.calcXco2ProcPart(sProc, k[0], k[1],
+      k[2]);
+
+    double legacy = legacyXco2ProcPart(f, s2Beam, zeroS2Beam, legacyK[0],
+      legacyK[1], legacyK[2]);
+
+    boolean interpolated = !line.isFieldEmpty(PRIOR_RUNTIME_COL)
+      && !line.isFieldEmpty(POST_RUNTIME_COL);
+
+    double tolerance = legacyRoundingBound(f, sProc, k, interpolated)
+      + Math.abs(legacy) * RELATIVE_TOLERANCE;
+
+    assertEquals(legacy, actual, tolerance);
+  }
+
+  /**
+   * The signal part of the xCO₂ calculation as performed by the original
+   * BigDecimal implementation of {@link ControsPco2Reducer}.
+   */
+  private static double legacyXco2ProcPart(double f, double s2Beam,
+    double zeroS2Beam, BigDecimal k1, BigDecimal k2, BigDecimal k3) {
+
+    BigDecimal sProc = new BigDecimal(f)
+      .multiply(new BigDecimal(1D).subtract((new BigDecimal(s2Beam)
+        .divide(new BigDecimal(zeroS2Beam), 10, RoundingMode.HALF_UP))));
+
+    BigDecimal k3Part = k3.multiply(sProc.pow(3));
+    BigDecimal k2Part = k2.multiply(sProc.pow(2));
+    BigDecimal k1Part = k1.multiply(sProc);
+
+    return k3Part.add(k2Part).add(k1Part).doubleValue();
+  }
+
+  /**
+   * The largest difference from the exact result that the original
+   * implementation's rounding can produce.
+   *
+   * <p>
+   * Rounding the beam ratio changes S<sub>proc</sub> by up to
+   * {@code F * 0.5e-10}, which changes the result by that amount multiplied by
+   * the derivative of the polynomial. If the k coefficients were interpolated,
+   * each was also rounded by up to 0.5e-10, which changes the result by that
+   * amount multiplied by the corresponding power of S<sub>proc</sub>. A 1%
+   * margin covers the second order terms.
+   * </p>
+   */
+  private static double legacyRoundingBound(double f, double sProc,
+    double[] k, boolean interpolated) {
+
+    double s = Math.abs(sProc);
+
+    double derivative = Math.abs(k[0]) + 2 * Math.abs(k[1]) * s
+      + 3 * Math.abs(k[2]) * s * s;
+
+    double bound = Math.abs(f) * LEGACY_ROUNDING * derivative;
+
+    if (interpolated) {
+      bound += LEGACY_ROUNDING * (s + s * s + s * s * s);
+    }
+
+    return bound * 1.01;
+  }
+
+  private Double getNullableField(TestSetLine line, int field) {
+    return line.isFieldEmpty(field) ? null : line.getDoubleField(field);
+  }
+
+  private BigDecimal getBigDecimalField(TestSetLine line, int field) {
+    String value = line.getStringField(field, true);
+    return null == value ? null : new BigDecimal(value);
+  }
+
+  @Override
+  protected String getTestSetName() {
+    return "ControsPco2ReducerPrecision";
+  }
+}
@@ -0,0 +1,116 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.math.BigDecimal;
+
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.TestInstance.Lifecycle;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.TestSetLine;
+import junit.uk.ac.exeter.QuinCe.TestBase.TestSetTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ControsPco2Reducer;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.InterpolatedCoefficient;
+
+/**
+ * Checks that the double precision calculations in {@link ControsPco2Reducer}
+ * match the {@link BigDecimal} reference calculations in
+ * {@link BigDecimalReducerReference}.
+ *
+ * <p>
+ * The test set covers typical CONTROS HydroC coefficient ranges, with k
+ * coefficients interpolated between prior and post calibrations, or taken
+ * from only one of them. Results must agree to a relative tolerance of
+ * {@link #RELATIVE_TOLERANCE}.
+ * </p>
+ */
+@TestInstance(Lifecycle.PER_CLASS)
+public class ControsPco2ReducerPrecisionTest extends TestSetTest {
+
+  /**
+   * The maximum permitted relative difference between the double and
+   * BigDecimal results.
+   */
+  protected static final double RELATIVE_TOLERANCE = 1e-12;
+
+  private static final int F_COL = 0;
+
+  private static final int S2BEAM_COL = 1;
+
+  private static final int ZERO_S2BEAM_COL = 2;
+
+  private static final int RUNTIME_COL = 3;
+
+  private static final int PRIOR_RUNTIME_COL = 4;
+
+  private static final int PRIOR_K1_COL = 5;
+
+  private static final int POST_RUNTIME_COL = 8;
+
+  private static final int POST_K1_COL = 9;
+
+  @ParameterizedTest
+  @MethodSource("getLines")
+  public void sProcTest(TestSetLine line) {
+
+    double f = line.getDoubleField(F_COL);
+    double s2Beam = line.getDoubleField(S2BEAM_COL);
+    double zeroS2Beam = line.getDoubleField(ZERO_S2BEAM_COL);
+
+    double expected = BigDecimalReducerReference
+      .controsSProc(f, s2Beam, zeroS2Beam).doubleValue();
+
+    assertEquals(expected, ControsPco2Reducer.calcSProc(f, s2Beam, zeroS2Beam),
+      Math.abs(expected) * RELATIVE_TOLERANCE);
+  }
+
+  @ParameterizedTest
+  @MethodSource("getLines")
+  public void xco2ProcPartTest(TestSetLine line) {
+
+    double f = line.getDoubleField(F_COL);
+    double s2Beam = line.getDoubleField(S2BEAM_COL);
+    double zeroS2Beam = line.getDoubleField(ZERO_S2BEAM_COL);
+    double runTime = line.getDoubleField(RUNTIME_COL);
+
+    BigDecimal[] bdK = new BigDecimal[3];
+    double[] k = new double[3];
+
+    for (int i = 0; i < 3; i++) {
+      Double x0 = getNullableField(line, PRIOR_RUNTIME_COL);
+      Double y0 = getNullableField(line, PRIOR_K1_COL + i);
+      Double x1 = getNullableField(line, POST_RUNTIME_COL);
+      Double y1 = getNullableField(line, POST_K1_COL + i);
+
+      bdK[i] = BigDecimalReducerReference.interpolate(x0, y0, x1, y1, runTime);
+      k[i] = InterpolatedCoefficient.getInstance(x0, y0, x1, y1)
+        .valueAt(runTime);
+
+      assertEquals(bdK[i].doubleValue(), k[i],
+        Math.abs(bdK[i].doubleValue()) * RELATIVE_TOLERANCE,
+        "k" + (i + 1) + " interpolation");
+    }
+
+    double expected = BigDecimalReducerReference
+      .controsXco2ProcPart(
+        BigDecimalReducerReference.controsSProc(f, s2Beam, zeroS2Beam),
+        bdK[0], bdK[1], bdK[2])
+      .doubleValue();
+
+    double actual = ControsPco2Reducer.calcXco2ProcPart(
+      ControsPco2Reducer.calcSProc(f, s2Beam, zeroS2Beam), k[0], k[1], k[2]);
+
+    assertEquals(expected, actual, Math.abs(expected) * RELATIVE_TOLERANCE);
+  }
+
+  private Double getNullableField(TestSetLine line, int field) {
+    return line.isFieldEmpty(field) ? null : line.getDoubleField(field);
+  }
+
+  @Override
+  protected String getTestSetName() {
+    return "ControsPco2ReducerPrecision";
+  }
+}
@@ -0,0 +1,105 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Properties;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.CalculationParameter;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducerFactory;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.UnderwayMarinePco2Reducer;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Tests for the reducer metadata registry in {@link DataReducerFactory}.
+ */
+public class DataReducerFactoryTest extends BaseTest {
+
+  private static final String VARIABLE_NAME = "Underway Marine pCO₂";
+
+  private Variable variable;
+
+  @BeforeEach
+  public void init() throws Exception {
+    initResourceManager();
+    variable = ResourceManager.getInstance().getSensorsConfiguration()
+      .getInstrumentVariable(VARIABLE_NAME);
+  }
+
+  @FlywayTest
+  @Test
+  public void parametersAreSharedTest() throws Exception {
+    assertSame(DataReducerFactory.getCalculationParameters(variable, true),
+      DataReducerFactory.getCalculationParameters(variable, true));
+    assertSame(DataReducerFactory.getCalculationParameters(variable, false),
+      DataReducerFactory.getCalculationParameters(variable, false));
+  }
+
+  @FlywayTest
+  @Test
+  public void parametersMatchReducerTest() throws Exception {
+    List<CalculationParameter> expected = new UnderwayMarinePco2Reducer(
+      variable, new HashMap<String, Properties>()).getCalculationParameters();
+
+    assertEquals(expected,
+      DataReducerFactory.getCalculationParameters(variable, true));
+  }
+
+  @FlywayTest
+  @Test
+  public void resultParametersTest() throws Exception {
+    List<CalculationParameter> all = DataReducerFactory
+      .getCalculationParameters(variable, true);
+    List<CalculationParameter> results = DataReducerFactory
+      .getCalculationParameters(variable, false);
+
+    assertTrue(results.stream().allMatch(CalculationParameter::isResult));
+    assertEquals(all.stream().filter(CalculationParameter::isResult).count(),
+      results.size());
+  }
+
+  @FlywayTest
+  @Test
+  public void parametersAreImmutableTest() throws Exception {
+    List<CalculationParameter> params = DataReducerFactory
+      .getCalculationParameters(variable, true);
+
+    assertThrows(UnsupportedOperationException.class, () -> params.clear());
+  }
+
+  @FlywayTest
+  @Test
+  public void getVariableParameterTest() throws Exception {
+    for (CalculationParameter param : DataReducerFactory
+      .getCalculationParameters(variable, true)) {
+      assertSame(param,
+        DataReducerFactory.getVariableParameter(variable, param.getId()));
+    }
+  }
+
+  @FlywayTest
+  @Test
+  public void requiredSensorTypesTest() throws Exception {
+    SensorsConfiguration sensorConfig = ResourceManager.getInstance()
+      .getSensorsConfiguration();
+
+    List<SensorType> expected = sensorConfig.getSensorTypes(new String[] {
+      "Intake Temperature", "Salinity", "Equilibrator Temperature",
+      "Equilibrator Pressure", "xCO₂ (with standards)" });
+
+    assertEquals(expected,
+      DataReducerFactory.getRequiredSensorTypes(variable));
+  }
+}
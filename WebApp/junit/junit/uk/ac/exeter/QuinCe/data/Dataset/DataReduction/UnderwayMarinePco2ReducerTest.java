@@ -2,7 +2,9 @@ package junit.uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Properties;
 
 import org.flywaydb.test.annotation.FlywayTest;
@@ -15,6 +17,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReductionRecord;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.UnderwayMarinePco2Reducer;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
  * Test for the {@link UnderwayMarinePco2Reducer}.
@@ -28,6 +31,12 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
  */
 public class UnderwayMarinePco2ReducerTest extends DataReducerTest {
 
+  /**
+   * The permitted difference between the batch results and the expected
+   * values
+   */
+  private static final double BATCH_TOLERANCE = 1e-9;
+
   @FlywayTest
   @Test
   public void testReduction() throws Exception {
@@ -77,4 +86,61 @@ public class UnderwayMarinePco2ReducerTest extends DataReducerTest {
     assertEquals(357.5815834D, record.getCalculationValue("pCO₂ SST"), 0.0001);
     assertEquals(356.2642266D, record.getCalculationValue("fCO₂"), 0.0001);
   }
+
+  @FlywayTest
+  @Test
+  public void testBatchReduction() throws Exception {
+
+    Instrument instrument = Mockito.mock(Instrument.class);
+
+    Variable variable = ResourceManager.getInstance().getSensorsConfiguration()
+      .getInstrumentVariable("Underway Marine pCO₂");
+
+    UnderwayMarinePco2Reducer reducer = new UnderwayMarinePco2Reducer(variable,
+      new HashMap<String, Properties>());
+
+    Measurement measurement1 = makeMeasurement(
+      makeMeasurementValue("Intake Temperature", 11.912D),
+      makeMeasurementValue("Salinity", 35.224D),
+      makeMeasurementValue("Equilibrator Temperature", 12.37D),
+      makeMeasurementValue("Equilibrator Pressure", 999.23D),
+      makeMeasurementValue("xCO₂ (with standards)", 374.977D));
+
+    Measurement measurement2 = makeMeasurement(
+      makeMeasurementValue("Intake Temperature", 6.34D),
+      makeMeasurementValue("Salinity", 34.1D),
+      makeMeasurementValue("Equilibrator Temperature", 7.02D),
+      makeMeasurementValue("Equilibrator Pressure", 1012.6D),
+      makeMeasurementValue("xCO₂ (with standards)", 402.43D));
+
+    List<DataReductionRecord> batchRecords = reducer.performDataReduction(
+      instrument, Arrays.asList(measurement1, measurement2), null);
+
+    assertEquals(2, batchRecords.size());
+
+    // Expected values calculated with the original per-measurement
+    // arithmetic
+    assertBatchRecord(batchRecords.get(0), 0.458D, 0.013899182968895028D,
+      364.5766952363898D, 363.2335679212658D, 357.5815834259123D,
+      356.26422661633006D);
+
+    assertBatchRecord(batchRecords.get(1), 0.68D, 0.009708968255881323D,
+      398.26466101013983D, 396.67104338345337D, 386.9721635755115D,
+      385.4237317880996D);
+  }
+
+  private void assertBatchRecord(DataReductionRecord record, double deltaT,
+    double pH2O, double pCO2TEWet, double fCO2TEWet, double pCO2SST,
+    double fCO2) {
+
+    assertEquals(deltaT, record.getCalculationValue("ΔT"), BATCH_TOLERANCE);
+    assertEquals(pH2O, record.getCalculationValue("pH₂O"), BATCH_TOLERANCE);
+    assertEquals(pCO2TEWet, record.getCalculationValue("pCO₂ TE Wet"),
+      BATCH_TOLERANCE);
+    assertEquals(fCO2TEWet, record.getCalculationValue("fCO₂ TE Wet"),
+      BATCH_TOLERANCE);
+    assertEquals(pCO2SST, record.getCalculationValue("pCO₂ SST"),
+      BATCH_TOLERANCE);
+    assertEquals(fCO2, record.getCalculationValue("fCO₂"), BATCH_TOLERANCE);
+  }
 }
@@ -5,7 +5,12 @@ import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -26,6 +31,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCResult;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.RangeCheckRoutine;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 
 public class DataSetDataDBTest extends BaseTest {
@@ -36,6 +42,17 @@ public class DataSetDataDBTest extends BaseTest {
 
   private static final long COLUMN_ID = 1L;
 
+  private static final String ADD_MEASUREMENT_STATEMENT = "INSERT INTO "
+    + "measurements (dataset_id, date) VALUES (?, ?)";
+
+  private static final String ADD_DATA_REDUCTION_STATEMENT = "INSERT INTO "
+    + "data_reduction (measurement_id, variable_id, calculation_values, "
+    + "qc_flag) VALUES "
+    + "(?, (SELECT id FROM variables WHERE name = 'testVar'), '{}', 2)";
+
+  private static final String DATA_REDUCTION_COUNT_QUERY = "SELECT "
+    + "COUNT(*) FROM data_reduction WHERE measurement_id = ?";
+
   @BeforeEach
   public void setup() {
     initResourceManager();
@@ -342,4 +359,145 @@ public class DataSetDataDBTest extends BaseTest {
         true, false).size(),
       "Values not removed");
   }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void deleteSensorValuesBatchTest() throws Exception {
+    SensorValue value1 = new SensorValue(DATASET_ID, 1L,
+      LocalDateTime.of(2021, 1, 1, 0, 0, 0), "20");
+
+    SensorValue value2 = new SensorValue(DATASET_ID, 2L,
+      LocalDateTime.of(2021, 1, 1, 0, 1, 0), "21");
+
+    SensorValue value3 = new SensorValue(DATASET_ID, 1L,
+      LocalDateTime.of(2021, 1, 1, 0, 2, 0), "22");
+
+    DataSetDataDB.storeSensorValues(getConnection(),
+      Arrays.asList(value1, value2, value3));
+
+    assertEquals(3,
+      DataSetDataDB.getSensorValueCount(getConnection(), DATASET_ID));
+
+    assertEquals(2,
+      DataSetDataDB.deleteSensorValuesBatch(getConnection(), DATASET_ID, 2));
+    assertEquals(1,
+      DataSetDataDB.getSensorValueCount(getConnection(), DATASET_ID));
+
+    assertEquals(1,
+      DataSetDataDB.deleteSensorValuesBatch(getConnection(), DATASET_ID, 2));
+    assertEquals(0,
+      DataSetDataDB.deleteSensorValuesBatch(getConnection(), DATASET_ID, 2));
+    assertEquals(0,
+      DataSetDataDB.getSensorValueCount(getConnection(), DATASET_ID));
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void deleteMeasurementsBatchNoMeasurementsTest() throws Exception {
+    assertEquals(0,
+      DataSetDataDB.getMeasurementCount(getConnection(), DATASET_ID));
+    assertEquals(0,
+      DataSetDataDB.deleteMeasurementsBatch(getConnection(), DATASET_ID, 2));
+  }
+
+  /**
+   * Add a measurement with a data reduction record to the database.
+   *
+   * @param conn
+   *          A database connection
+   * @param time
+   *          The measurement time
+   * @return The measurement's database ID
+   */
+  private long addReducedMeasurement(Connection conn, LocalDateTime time)
+    throws Exception {
+
+    long measurementId;
+
+    try (PreparedStatement stmt = conn.prepareStatement(
+      ADD_MEASUREMENT_STATEMENT, Statement.RETURN_GENERATED_KEYS)) {
+
+      stmt.setLong(1, DATASET_ID);
+      stmt.setLong(2, DateTimeUtils.dateToLong(time));
+      stmt.execute();
+
+      try (ResultSet keys = stmt.getGeneratedKeys()) {
+        keys.next();
+        measurementId = keys.getLong(1);
+      }
+    }
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(ADD_DATA_REDUCTION_STATEMENT)) {
+      stmt.setLong(1, measurementId);
+      stmt.execute();
+    }
+
+    return measurementId;
+  }
+
+  private boolean hasDataReduction(Connection conn, long measurementId)
+    throws Exception {
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(DATA_REDUCTION_COUNT_QUERY)) {
+      stmt.setLong(1, measurementId);
+
+      try (ResultSet count = stmt.executeQuery()) {
+        count.next();
+        return count.getInt(1) > 0;
+      }
+    }
+  }
+
+  /**
+   * Test that removing the data reduction for a time range only removes the
+   * records for measurements inside the range, including those at the start
+   * and end times, and leaves the measurements in place.
+   *
+   * @throws Exception
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void deleteDataReductionRangeTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      LocalDateTime start = LocalDateTime.of(2021, 1, 1, 6, 0, 0);
+      LocalDateTime end = LocalDateTime.of(2021, 1, 1, 12, 0, 0);
+
+      long before = addReducedMeasurement(conn, start.minusSeconds(1));
+      long atStart = addReducedMeasurement(conn, start);
+      long inside = addReducedMeasurement(conn, start.plusHours(3));
+      long atEnd = addReducedMeasurement(conn, end);
+      long after = addReducedMeasurement(conn, end.plusSeconds(1));
+
+      DataSetDataDB.deleteDataReduction(conn, DATASET_ID, start, end);
+
+      assertTrue(hasDataReduction(conn, before));
+      assertFalse(hasDataReduction(conn, atStart));
+      assertFalse(hasDataReduction(conn, inside));
+      assertFalse(hasDataReduction(conn, atEnd));
+      assertTrue(hasDataReduction(conn, after));
+
+      assertEquals(5, DataSetDataDB.getMeasurementCount(conn, DATASET_ID));
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void deleteDataReductionRangeMissingTimeTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      assertThrows(MissingParamException.class, () -> {
+        DataSetDataDB.deleteDataReduction(conn, DATASET_ID, null,
+          LocalDateTime.of(2021, 1, 1, 12, 0, 0));
+      });
+    }
+  }
 }
@@ -0,0 +1,150 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetMeasurements;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetMeasurements.RunSegment;
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+
+/**
+ * Tests for the run segments in {@link DatasetMeasurements}.
+ *
+ * @author Steve Jones
+ *
+ */
+public class DatasetMeasurementsTest {
+
+  private static final long VAR = Measurement.GENERIC_RUN_TYPE_VARIABLE;
+
+  private static final long OTHER_VAR = 99L;
+
+  /**
+   * The run types of the test measurements, one per minute.
+   */
+  private static final String[] RUN_TYPES = { "STD1", "STD1", "STD2", "STD2",
+    null, "MEAS", "MEAS", "MEAS", "STD1", "STD1", "STD2", "MEAS" };
+
+  private DatasetMeasurements measurements;
+
+  private List<Measurement> ordered;
+
+  private static LocalDateTime time(int minute) {
+    return LocalDateTime.of(2023, 1, 1, 0, minute, 0);
+  }
+
+  @BeforeEach
+  public void makeMeasurements() {
+    measurements = new DatasetMeasurements();
+    ordered = new ArrayList<Measurement>();
+
+    for (int i = 0; i < RUN_TYPES.length; i++) {
+      Map<Long, String> runTypes = new HashMap<Long, String>();
+      runTypes.put(OTHER_VAR, "OTHER");
+      if (null != RUN_TYPES[i]) {
+        runTypes.put(VAR, RUN_TYPES[i]);
+      }
+
+      Measurement measurement = new Measurement(1L, time(i), runTypes);
+      ordered.add(measurement);
+    }
+
+    // Add in reverse order to check that the runs are based on time order
+    for (int i = ordered.size() - 1; i >= 0; i--) {
+      measurements.addMeasurement(ordered.get(i));
+    }
+  }
+
+  @Test
+  public void sameRunTest() {
+    TreeSet<Measurement> run = measurements.getMeasurementsInSameRun(VAR,
+      ordered.get(6));
+
+    assertEquals(3, run.size());
+    assertEquals(ordered.get(5), run.first());
+    assertEquals(ordered.get(7), run.last());
+  }
+
+  @Test
+  public void sameRunNoRunTypeTest() {
+    TreeSet<Measurement> run = measurements.getMeasurementsInSameRun(VAR,
+      ordered.get(4));
+
+    assertEquals(1, run.size());
+    assertEquals(ordered.get(4), run.first());
+
+    // The measurement is in a single run for the other variable
+    assertEquals(RUN_TYPES.length,
+      measurements.getMeasurementsInSameRun(OTHER_VAR, ordered.get(4)).size());
+  }
+
+  @Test
+  public void runSegmentBeforeTest() {
+    RunSegment segment = measurements.getRunSegmentBefore(VAR, "STD1",
+      time(9));
+
+    assertEquals("STD1", segment.getRunType());
+    assertEquals(time(8), segment.getStart());
+    assertEquals(time(9), segment.getEnd());
+    assertEquals(8, segment.getStartPosition());
+
+    // A run that starts at the time itself is not before it
+    segment = measurements.getRunSegmentBefore(VAR, "STD1", time(8));
+    assertEquals(time(0), segment.getStart());
+    assertEquals(2, segment.getMeasurements().size());
+  }
+
+  @Test
+  public void runSegmentAfterTest() {
+    RunSegment segment = measurements.getRunSegmentAfter(VAR, "STD2",
+      time(3));
+
+    assertEquals(time(10), segment.getStart());
+    assertEquals(1, segment.getMeasurements().size());
+
+    segment = measurements.getRunSegmentAfter(VAR, "STD2", time(2));
+    assertEquals(time(2), segment.getStart());
+    assertEquals(time(3), segment.getEnd());
+  }
+
+  @Test
+  public void noRunSegmentTest() {
+    assertNull(measurements.getRunSegmentBefore(VAR, "STD2", time(2)));
+    assertNull(measurements.getRunSegmentAfter(VAR, "STD1", time(9)));
+    assertNull(measurements.getRunSegmentAfter(VAR, "Missing", time(0)));
+    assertTrue(measurements.getRunBefore(VAR, "STD2", time(2)).isEmpty());
+  }
+
+  @Test
+  public void runMatchesSegmentTest() {
+    TreeSet<Measurement> run = measurements.getRunBefore(VAR, "MEAS",
+      time(11));
+
+    assertEquals(3, run.size());
+    assertEquals(ordered.get(5), run.first());
+  }
+
+  @Test
+  public void segmentsRebuiltAfterAddTest() {
+    assertNull(measurements.getRunSegmentAfter(VAR, "STD1", time(9)));
+
+    Map<Long, String> runTypes = new HashMap<Long, String>();
+    runTypes.put(VAR, "STD1");
+    measurements.addMeasurement(new Measurement(1L, time(20), runTypes));
+
+    RunSegment segment = measurements.getRunSegmentAfter(VAR, "STD1",
+      time(9));
+    assertEquals(time(20), segment.getStart());
+  }
+}
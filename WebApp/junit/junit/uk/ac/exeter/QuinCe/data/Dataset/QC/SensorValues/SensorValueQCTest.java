@@ -2,7 +2,9 @@ package junit.uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeout;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneId;
 
@@ -12,15 +14,19 @@ import org.junit.jupiter.api.Test;
 
 import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.InvalidFlagException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCResult;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.PositionQCCascadeRoutine;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.RangeCheckRoutine;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentException;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorGroupsException;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
@@ -329,4 +335,55 @@ public class SensorValueQCTest extends BaseTest {
 
     assertEquals(Flag.ASSUMED_GOOD, target.getUserQCFlag());
   }
+
+  /**
+   * Cascade the QC of a large set of positions, the second half of which are
+   * bad. Changing the QC of the sensor values must not invalidate the cached
+   * QC state of the position values, otherwise each position lookup has to
+   * rebuild it and the cascade takes a very long time.
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/instrument" })
+  @Test
+  public void largePositionCascadeTest() throws Exception {
+    int count = 50000;
+    LocalDateTime start = LocalDateTime.of(2021, 1, 1, 0, 0, 0);
+
+    DatasetSensorValues allValues = new DatasetSensorValues(InstrumentDB
+      .getInstrument(ResourceManager.getInstance().getDBDataSource(), 1L));
+
+    long id = 1;
+    for (int i = 0; i < count; i++) {
+      LocalDateTime time = start.plusMinutes(i);
+      Flag positionFlag = i < count / 2 ? Flag.GOOD : Flag.BAD;
+
+      allValues.add(new SensorValue(id++, DATASET_ID, SensorType.LONGITUDE_ID,
+        time, "10", new AutoQCResult(), positionFlag, "Position"));
+      allValues.add(new SensorValue(id++, DATASET_ID, SensorType.LATITUDE_ID,
+        time, "20", new AutoQCResult(), positionFlag, "Position"));
+      allValues.add(new SensorValue(id++, DATASET_ID, 1L, time, "12",
+        new AutoQCResult(), Flag.ASSUMED_GOOD, null));
+      allValues.add(new SensorValue(id++, DATASET_ID, 2L, time, "35",
+        new AutoQCResult(), Flag.ASSUMED_GOOD, null));
+    }
+
+    long positionQCVersion = SensorValue.getQCVersion(DATASET_ID,
+      SensorType.LONGITUDE_ID);
+
+    assertTimeout(Duration.ofSeconds(10), () -> new PositionQCCascadeRoutine()
+      .run(allValues.getInstrument(), allValues, new RunTypePeriods()));
+
+    assertEquals(positionQCVersion,
+      SensorValue.getQCVersion(DATASET_ID, SensorType.LONGITUDE_ID));
+
+    // Values away from the boundary between good and bad positions
+    for (SensorValue value : allValues.get(start.plusMinutes(100)).values()) {
+      assertEquals(Flag.ASSUMED_GOOD, value.getUserQCFlag());
+    }
+
+    for (SensorValue value : allValues.get(start.plusMinutes(count - 100))
+      .values()) {
+      assertEquals(Flag.LOOKUP, value.getUserQCFlag());
+    }
+  }
 }
@@ -0,0 +1,430 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AbstractAutoQCRoutine;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCResult;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCRoutine;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.QCStateSnapshot;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.RangeCheckRoutine;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.SeriesQCEngine;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Tests for the {@link SeriesQCEngine}, checking that running all routines in
+ * a single pass, or incrementally around changed values, gives the same
+ * results as running each routine separately over all the values.
+ *
+ * @author Steve Jones
+ *
+ */
+public class SeriesQCEngineTest extends BaseTest {
+
+  private static final long DATASET_ID = 1L;
+
+  private static final long COLUMN_ID = 1L;
+
+  private static final int VALUE_COUNT = 400;
+
+  private static final LocalDateTime START_TIME = LocalDateTime.of(2021, 1, 1,
+    0, 0, 0);
+
+  @BeforeEach
+  public void setup() {
+    initResourceManager();
+  }
+
+  private SensorType getSensorType() throws Exception {
+    return ResourceManager.getInstance().getSensorsConfiguration()
+      .getSensorType("Intake Temperature");
+  }
+
+  private List<AbstractAutoQCRoutine> getRoutines() throws Exception {
+    return ResourceManager.getInstance().getQCRoutinesConfiguration()
+      .getRoutines(getSensorType());
+  }
+
+  /**
+   * Make a set of values at one minute intervals containing a questionable
+   * value, a bad value, a long constant period and some missing values.
+   *
+   * @return The values
+   */
+  private List<SensorValue> makeValues() {
+    List<SensorValue> result = new ArrayList<SensorValue>(VALUE_COUNT);
+
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      String value;
+
+      if (i % 37 == 0) {
+        value = null;
+      } else if (i == 50) {
+        value = "45";
+      } else if (i == 60) {
+        value = "60";
+      } else if (i >= 100 && i < 250) {
+        value = i % 20 == 10 ? null : "15.0";
+      } else {
+        value = String.valueOf(20D + (i % 10) * 0.1D);
+      }
+
+      result.add(new SensorValue(i + 1, DATASET_ID, COLUMN_ID,
+        START_TIME.plusMinutes(i), value, new AutoQCResult(),
+        Flag.ASSUMED_GOOD, null));
+    }
+
+    return result;
+  }
+
+  private Set<String> getFlags(SensorValue value) {
+    Set<String> result = new TreeSet<String>();
+    for (RoutineFlag flag : value.getAutoQcResult()) {
+      result.add(flag.getRoutineName() + ":" + flag.getFlagValue() + ":"
+        + flag.getRequiredValue() + ":" + flag.getActualValue());
+    }
+    return result;
+  }
+
+  private String getQCState(SensorValue value) {
+    return getFlags(value) + ":" + value.getUserQCFlag().getFlagValue() + ":"
+      + value.getUserQCMessage();
+  }
+
+  /**
+   * Filter out values flagged by the user, as the {@code AutoQCJob} does.
+   */
+  private List<SensorValue> filter(List<SensorValue> values) {
+    return values.stream()
+      .filter(x -> !(x.getUserQCFlag().equals(Flag.BAD)
+        || x.getUserQCFlag().equals(Flag.QUESTIONABLE)))
+      .collect(Collectors.toList());
+  }
+
+  private boolean hasFlag(SensorValue value, String routineName) {
+    return value.getAutoQcResult().stream()
+      .anyMatch(f -> f.getRoutineName().endsWith("." + routineName));
+  }
+
+  @FlywayTest
+  @Test
+  public void fusedMatchesSeparateTest() throws Exception {
+    List<SensorValue> separateValues = makeValues();
+    for (AbstractAutoQCRoutine routine : getRoutines()) {
+      routine.setSensorType(getSensorType());
+      ((AutoQCRoutine) routine).qc(separateValues, null);
+    }
+
+    List<SensorValue> fusedValues = makeValues();
+    SeriesQCEngine.qc(getRoutines(), getSensorType(), fusedValues, null);
+
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      assertEquals(getFlags(separateValues.get(i)),
+        getFlags(fusedValues.get(i)), "Flags differ at index " + i);
+    }
+  }
+
+  @FlywayTest
+  @Test
+  public void fusedFlagsTest() throws Exception {
+    List<SensorValue> values = makeValues();
+    SeriesQCEngine.qc(getRoutines(), getSensorType(), values, null);
+
+    assertTrue(hasFlag(values.get(50), "RangeCheck"));
+    assertEquals(Flag.QUESTIONABLE.getFlagValue(),
+      values.get(50).getAutoQcResult().stream()
+        .filter(f -> f.getRoutineName().endsWith(".RangeCheck")).findFirst()
+        .get().getFlagValue());
+
+    assertTrue(hasFlag(values.get(60), "RangeCheck"));
+    assertEquals(Flag.BAD, values.get(60).getAutoQcFlag());
+
+    // Constant for 150 minutes
+    assertTrue(hasFlag(values.get(150), "ConstantValue"));
+    assertTrue(hasFlag(values.get(249), "ConstantValue"));
+
+    // Step change into the constant period
+    assertTrue(hasFlag(values.get(100), "HighDelta"));
+
+    // Missing values are never flagged
+    assertTrue(getFlags(values.get(37)).isEmpty());
+    assertTrue(getFlags(values.get(110)).isEmpty());
+
+    // Normal values are not flagged
+    assertTrue(getFlags(values.get(300)).isEmpty());
+  }
+
+  /**
+   * Flag a value as bad, then check that an incremental QC around that value
+   * gives the same results as QCing everything.
+   *
+   * @param index
+   *          The index of the value to be flagged
+   */
+  @FlywayTest
+  @ParameterizedTest
+  @ValueSource(ints = { 0, 1, 50, 60, 99, 100, 101, 175, 249, 250, 398, 399 })
+  public void incrementalMatchesFullTest(int index) throws Exception {
+
+    // QC everything, then flag a value
+    List<SensorValue> incrementalValues = makeValues();
+    SeriesQCEngine.qc(getRoutines(), getSensorType(),
+      filter(incrementalValues), null);
+
+    SensorValue changed = incrementalValues.get(index);
+    changed.setUserQC(Flag.BAD, "User flag");
+    LocalDateTime changedTime = changed.getTime();
+    changed.clearAutomaticQC();
+
+    SeriesQCEngine.qc(getRoutines(), getSensorType(),
+      filter(incrementalValues), null, changedTime, changedTime);
+
+    // Flag the value first, then QC everything
+    List<SensorValue> fullValues = makeValues();
+    fullValues.get(index).setUserQC(Flag.BAD, "User flag");
+    SeriesQCEngine.qc(getRoutines(), getSensorType(), filter(fullValues),
+      null);
+
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      assertEquals(getQCState(fullValues.get(i)),
+        getQCState(incrementalValues.get(i)), "QC differs at index " + i);
+    }
+  }
+
+  /**
+   * Make a set of values at one minute intervals containing a period of
+   * constant values that are out of range. The constant period is just long
+   * enough to be flagged, so removing a value from either end means it is no
+   * longer flagged.
+   *
+   * @return The values
+   */
+  private List<SensorValue> makeOverlappingValues() {
+    List<SensorValue> result = new ArrayList<SensorValue>(VALUE_COUNT);
+
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      String value;
+
+      if (i >= 100 && i <= 221) {
+        value = "60.0";
+      } else {
+        value = String.valueOf(20D + (i % 10) * 0.1D);
+      }
+
+      result.add(new SensorValue(i + 1, DATASET_ID, COLUMN_ID,
+        START_TIME.plusMinutes(i), value, new AutoQCResult(),
+        Flag.ASSUMED_GOOD, null));
+    }
+
+    return result;
+  }
+
+  /**
+   * Check that an incremental QC gives the same results as QCing everything
+   * where several routines flag the same values as bad, and the change only
+   * affects one routine's flags.
+   *
+   * @param index
+   *          The index of the value to be flagged by the user
+   */
+  @FlywayTest
+  @ParameterizedTest
+  @ValueSource(ints = { 100, 160, 221 })
+  public void incrementalOverlappingFlagsTest(int index) throws Exception {
+
+    List<SensorValue> incrementalValues = makeOverlappingValues();
+    SeriesQCEngine.qc(getRoutines(), getSensorType(),
+      filter(incrementalValues), null);
+
+    // The constant values are flagged by both routines
+    assertTrue(hasFlag(incrementalValues.get(150), "ConstantValue"));
+    assertTrue(hasFlag(incrementalValues.get(150), "RangeCheck"));
+
+    SensorValue changed = incrementalValues.get(index);
+    changed.setUserQC(Flag.BAD, "User flag");
+    LocalDateTime changedTime = changed.getTime();
+    changed.clearAutomaticQC();
+
+    SeriesQCEngine.qc(getRoutines(), getSensorType(),
+      filter(incrementalValues), null, changedTime, changedTime);
+
+    List<SensorValue> fullValues = makeOverlappingValues();
+    fullValues.get(index).setUserQC(Flag.BAD, "User flag");
+    SeriesQCEngine.qc(getRoutines(), getSensorType(), filter(fullValues),
+      null);
+
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      assertEquals(getQCState(fullValues.get(i)),
+        getQCState(incrementalValues.get(i)), "QC differs at index " + i);
+    }
+
+    // Removing an end value shortens the constant period, but the values
+    // are still out of range
+    if (index != 160) {
+      assertFalse(hasFlag(incrementalValues.get(150), "ConstantValue"));
+    }
+    assertTrue(hasFlag(incrementalValues.get(150), "RangeCheck"));
+  }
+
+  @FlywayTest
+  @Test
+  public void unchangedValuesNotDirtyTest() throws Exception {
+    List<SensorValue> values = makeValues();
+    SeriesQCEngine.qc(getRoutines(), getSensorType(), values, null);
+    SensorValue.clearDirtyFlag(values);
+
+    QCStateSnapshot snapshot = new QCStateSnapshot(values);
+    SensorValue.clearAutoQC(values);
+    SeriesQCEngine.qc(getRoutines(), getSensorType(), values, null);
+
+    assertEquals(0, snapshot.clearUnchanged());
+    assertTrue(values.stream().noneMatch(SensorValue::isDirty));
+  }
+
+  @FlywayTest
+  @Test
+  public void changedValuesDirtyTest() throws Exception {
+    List<SensorValue> values = makeValues();
+    SeriesQCEngine.qc(getRoutines(), getSensorType(), values, null);
+    SensorValue.clearDirtyFlag(values);
+
+    QCStateSnapshot snapshot = new QCStateSnapshot(values);
+    values.get(60).setUserQC(Flag.BAD, "User flag");
+    SensorValue.clearAutoQC(values);
+    SeriesQCEngine.qc(getRoutines(), getSensorType(), filter(values), null);
+
+    assertTrue(snapshot.clearUnchanged() > 0);
+    assertTrue(values.get(60).isDirty());
+    assertFalse(values.get(300).isDirty());
+  }
+
+  /**
+   * Check that each call to {@code getRoutineInstances} gives new routine
+   * instances that produce the same flags as the configured routines.
+   */
+  @FlywayTest
+  @Test
+  public void routineInstancesTest() throws Exception {
+    List<AbstractAutoQCRoutine> configured = getRoutines();
+    List<AbstractAutoQCRoutine> instances = ResourceManager.getInstance()
+      .getQCRoutinesConfiguration().getRoutineInstances(getSensorType());
+    List<AbstractAutoQCRoutine> otherInstances = ResourceManager.getInstance()
+      .getQCRoutinesConfiguration().getRoutineInstances(getSensorType());
+
+    assertEquals(configured.size(), instances.size());
+    for (int i = 0; i < configured.size(); i++) {
+      assertEquals(configured.get(i).getClass(), instances.get(i).getClass());
+      assertNotSame(configured.get(i), instances.get(i));
+      assertNotSame(instances.get(i), otherInstances.get(i));
+    }
+
+    List<SensorValue> configuredValues = makeValues();
+    SeriesQCEngine.qc(configured, getSensorType(), configuredValues, null);
+
+    List<SensorValue> instanceValues = makeValues();
+    SeriesQCEngine.qc(instances, getSensorType(), instanceValues, null);
+
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      assertEquals(getFlags(configuredValues.get(i)),
+        getFlags(instanceValues.get(i)), "Flags differ at index " + i);
+    }
+  }
+
+  /**
+   * Check that routines are applied in the configured order when a routine
+   * that is not a series routine is configured between series routines, and
+   * both flag the same values.
+   */
+  @FlywayTest
+  @Test
+  public void mixedRoutinesMatchSeparateTest() throws Exception {
+    List<AbstractAutoQCRoutine> routines = getRoutines();
+    int rangeCheckIndex = 0;
+    while (!(routines.get(rangeCheckIndex) instanceof RangeCheckRoutine)) {
+      rangeCheckIndex++;
+    }
+
+    List<AbstractAutoQCRoutine> mixedRoutines = new ArrayList<AbstractAutoQCRoutine>(
+      routines);
+    mixedRoutines.add(rangeCheckIndex + 1, new PlainBadValueRoutine());
+
+    List<SensorValue> separateValues = makeValues();
+    for (AbstractAutoQCRoutine routine : mixedRoutines) {
+      routine.setSensorType(getSensorType());
+      ((AutoQCRoutine) routine).qc(separateValues, null);
+    }
+
+    List<SensorValue> fusedValues = makeValues();
+    SeriesQCEngine.qc(mixedRoutines, getSensorType(), fusedValues, null);
+
+    // Both routines flag this value as bad
+    assertTrue(hasFlag(fusedValues.get(60), "RangeCheck"));
+
+    for (int i = 0; i < VALUE_COUNT; i++) {
+      assertEquals(getFlags(separateValues.get(i)),
+        getFlags(fusedValues.get(i)), "Flags differ at index " + i);
+    }
+  }
+
+  /**
+   * A routine that is not a {@code SeriesQCRoutine}, which flags all values
+   * above 50 as bad. It uses the name of a routine that is not configured for
+   * the test sensor type so that its messages can be looked up.
+   */
+  private static class PlainBadValueRoutine extends AutoQCRoutine {
+
+    private PlainBadValueRoutine() throws RoutineException {
+      setParameters(new ArrayList<String>());
+    }
+
+    @Override
+    protected void validateParameters() throws RoutineException {
+    }
+
+    @Override
+    protected void qcAction(List<SensorValue> values)
+      throws RoutineException {
+      for (SensorValue value : values) {
+        if (!value.isNaN() && value.getDoubleValue() > 50D) {
+          addFlag(value, Flag.BAD, "50", value.getValue());
+        }
+      }
+    }
+
+    @Override
+    public String getName() {
+      return "SensorValues.GradientTest";
+    }
+
+    @Override
+    public String getShortMessage() {
+      return "Bad value";
+    }
+
+    @Override
+    public String getLongMessage(RoutineFlag flag) {
+      return "Bad value";
+    }
+  }
+}
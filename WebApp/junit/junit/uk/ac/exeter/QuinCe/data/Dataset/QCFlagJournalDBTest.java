@@ -0,0 +1,181 @@
+package junit.uk.ac.exeter.QuinCe.data.Dataset;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
+import uk.ac.exeter.QuinCe.data.Dataset.InvalidSensorValueException;
+import uk.ac.exeter.QuinCe.data.Dataset.QCFlagJournalDB;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.RangeCheckRoutine;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
+
+/**
+ * Tests for {@link QCFlagJournalDB}.
+ *
+ * @author Steve Jones
+ *
+ */
+public class QCFlagJournalDBTest extends BaseTest {
+
+  private static final long INSTRUMENT_ID = 1L;
+
+  private static final long DATASET_ID = 1L;
+
+  private static final long COLUMN_ID = 1L;
+
+  private static final LocalDateTime TIME = LocalDateTime.of(2021, 1, 1, 0, 0,
+    0);
+
+  @BeforeEach
+  public void setup() {
+    initResourceManager();
+  }
+
+  /**
+   * Store a sensor value and retrieve it from the database so it has a
+   * database ID.
+   */
+  private SensorValue makeStoredValue(Connection conn) throws Exception {
+    DataSetDataDB.storeSensorValues(conn,
+      Arrays.asList(new SensorValue(DATASET_ID, COLUMN_ID, TIME, "20")));
+
+    return getStoredValue(conn);
+  }
+
+  private SensorValue getStoredValue(Connection conn) throws Exception {
+    return DataSetDataDB
+      .getSensorValues(conn, InstrumentDB.getInstrument(conn, INSTRUMENT_ID),
+        DATASET_ID, false, false)
+      .getColumnValues(COLUMN_ID).get(0);
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void journalNotWrittenUntilAppliedTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      SensorValue value = makeStoredValue(conn);
+      value.setUserQC(Flag.BAD, "Broken");
+
+      QCFlagJournalDB.journal(conn, DATASET_ID, Arrays.asList(value));
+      assertFalse(value.isDirty());
+      assertFalse(getStoredValue(conn).getUserQCFlag().equals(Flag.BAD));
+
+      assertEquals(1, QCFlagJournalDB.apply(conn, DATASET_ID));
+
+      SensorValue stored = getStoredValue(conn);
+      assertEquals(Flag.BAD, stored.getUserQCFlag());
+      assertEquals("Broken", stored.getUserQCMessage());
+
+      // Nothing left to apply
+      assertEquals(0, QCFlagJournalDB.apply(conn, DATASET_ID));
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void journalAppliedInOrderTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      SensorValue value = makeStoredValue(conn);
+
+      value.setUserQC(Flag.BAD, "Broken");
+      QCFlagJournalDB.journal(conn, DATASET_ID, Arrays.asList(value));
+
+      value.setUserQC(Flag.QUESTIONABLE, "Not sure");
+      QCFlagJournalDB.journal(conn, DATASET_ID, Arrays.asList(value));
+
+      assertEquals(2, QCFlagJournalDB.applyAll(getDataSource()));
+
+      SensorValue stored = getStoredValue(conn);
+      assertEquals(Flag.QUESTIONABLE, stored.getUserQCFlag());
+      assertEquals("Not sure", stored.getUserQCMessage());
+    }
+  }
+
+  /**
+   * Check that applying a journal record after a job has stored new automatic
+   * QC results only sets the user QC, and leaves the job's results in place.
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void journalKeepsNewerAutoQCTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      SensorValue value = makeStoredValue(conn);
+      value.setUserQC(Flag.BAD, "Broken");
+      QCFlagJournalDB.journal(conn, DATASET_ID, Arrays.asList(value));
+
+      // Automatic QC run before the journal is applied
+      SensorValue jobValue = getStoredValue(conn);
+      jobValue.addAutoQCFlag(
+        new RoutineFlag(new RangeCheckRoutine(), Flag.BAD, "77", "88"));
+      DataSetDataDB.storeSensorValues(conn, Arrays.asList(jobValue));
+
+      assertEquals(1, QCFlagJournalDB.apply(conn, DATASET_ID));
+
+      SensorValue stored = getStoredValue(conn);
+      assertEquals(jobValue.getAutoQcResult(), stored.getAutoQcResult());
+      assertEquals(Flag.BAD, stored.getUserQCFlag());
+      assertEquals("Broken", stored.getUserQCMessage());
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void cleanValuesNotJournalledTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      SensorValue value = makeStoredValue(conn);
+      QCFlagJournalDB.journal(conn, DATASET_ID, Arrays.asList(value));
+      assertEquals(0, QCFlagJournalDB.apply(conn, DATASET_ID));
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void deleteEntriesTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      SensorValue value = makeStoredValue(conn);
+      value.setUserQC(Flag.BAD, "Broken");
+      QCFlagJournalDB.journal(conn, DATASET_ID, Arrays.asList(value));
+
+      QCFlagJournalDB.deleteEntries(conn, DATASET_ID);
+      assertEquals(0, QCFlagJournalDB.apply(conn, DATASET_ID));
+      assertFalse(getStoredValue(conn).getUserQCFlag().equals(Flag.BAD));
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void unstoredValueTest() throws Exception {
+    SensorValue value = new SensorValue(DATASET_ID, COLUMN_ID, TIME, "20");
+
+    try (Connection conn = getConnection()) {
+      assertThrows(InvalidSensorValueException.class, () -> {
+        QCFlagJournalDB.journal(conn, DATASET_ID, Arrays.asList(value));
+      });
+    }
+  }
+}
@@ -2,6 +2,7 @@ package junit.uk.ac.exeter.QuinCe.data.Dataset;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -199,4 +200,70 @@ public class RunTypePeriodsTest extends BaseTest {
     assertTrue(
       makeContainsPeriods().contains(LocalDateTime.of(2000, 2, 1, 12, 0, 0)));
   }
+
+  @Test
+  public void getRunTypeTest() throws Exception {
+    RunTypePeriods periods = makeContainsPeriods();
+    assertEquals("RunType",
+      periods.getRunType(LocalDateTime.of(2000, 1, 1, 0, 0, 0)));
+    assertEquals("RunType",
+      periods.getRunType(LocalDateTime.of(2000, 1, 2, 0, 0, 0)));
+    assertNull(periods.getRunType(LocalDateTime.of(2000, 1, 12, 0, 0, 0)));
+    assertEquals("RunType2",
+      periods.getRunType(LocalDateTime.of(2000, 2, 2, 0, 0, 0)));
+    assertNull(periods.getRunType(LocalDateTime.of(2000, 2, 3, 0, 0, 0)));
+  }
+
+  @Test
+  public void getRunTypeAfterAddTest() throws Exception {
+    RunTypePeriods periods = makeContainsPeriods();
+    LocalDateTime time = LocalDateTime.of(2000, 3, 1, 0, 0, 0);
+    assertNull(periods.getRunType(time));
+
+    // The index must be rebuilt after the new period is added
+    periods.add("RunType3", time);
+    assertEquals("RunType3", periods.getRunType(time));
+  }
+
+  /**
+   * Check the binary search and the cursor against a linear scan over many
+   * periods
+   */
+  @Test
+  public void manyPeriodsTest() throws Exception {
+    RunTypePeriods periods = new RunTypePeriods();
+    LocalDateTime start = LocalDateTime.of(2000, 1, 1, 0, 0, 0);
+
+    // Each run type lasts for three minutes, with a gap of one minute between
+    // consecutive periods
+    for (int i = 0; i < 1000; i++) {
+      for (int j = 0; j < 3; j++) {
+        periods.add("RunType" + (i % 2), start.plusMinutes(i * 4 + j));
+      }
+    }
+
+    RunTypePeriods.Cursor cursor = periods.cursor();
+
+    for (int minute = -2; minute < 4010; minute++) {
+      LocalDateTime time = start.plusMinutes(minute).plusSeconds(30);
+      String expected = linearRunType(periods, time);
+      assertEquals(expected, periods.getRunType(time));
+      assertEquals(expected, cursor.getRunType(time));
+    }
+
+    // Going backwards resets the cursor
+    LocalDateTime early = start.plusMinutes(4).plusSeconds(10);
+    assertEquals(linearRunType(periods, early), cursor.getRunType(early));
+  }
+
+  private String linearRunType(RunTypePeriods periods, LocalDateTime time) {
+    String result = null;
+    for (RunTypePeriod period : periods) {
+      if (period.encompasses(time)) {
+        result = period.getRunType();
+      }
+    }
+
+    return result;
+  }
 }
@@ -1,6 +1,7 @@
 package junit.uk.ac.exeter.QuinCe.data.Dataset;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -267,4 +268,75 @@ public class SearchableSensorValuesListTest extends BaseTest {
     assertEquals(1, found.size());
     assertEquals(6L, found.get(0).getId());
   }
+
+  private SearchableSensorValuesList interpolationTestList(Flag... flags) {
+    SearchableSensorValuesList list = new SearchableSensorValuesList(1);
+
+    for (int i = 0; i < flags.length; i++) {
+      list.add(makeSensorValue(i + 1, i, flags[i], false));
+    }
+
+    return list;
+  }
+
+  private Long getId(SensorValue value) {
+    return null == value ? null : value.getId();
+  }
+
+  @Test
+  public void interpolationSkipsBadValuesTest() {
+    SearchableSensorValuesList list = interpolationTestList(Flag.GOOD,
+      Flag.BAD, Flag.BAD, Flag.BAD, Flag.GOOD, Flag.GOOD);
+
+    List<SensorValue> found = list.getWithInterpolation(makeTime(2), true,
+      true);
+    assertEquals(2, found.size());
+    assertEquals(1L, getId(found.get(0)));
+    assertEquals(5L, getId(found.get(1)));
+  }
+
+  @Test
+  public void interpolationLimitTest() {
+    SearchableSensorValuesList list = interpolationTestList(Flag.GOOD,
+      Flag.BAD, Flag.BAD, Flag.BAD, Flag.BAD, Flag.BAD, Flag.BAD, Flag.BAD,
+      Flag.BAD, Flag.BAD, Flag.GOOD);
+
+    // The GOOD value after the target is beyond the interpolation limit, so
+    // the search falls back to the BAD value at the target time, which is
+    // then discarded in favour of the GOOD prior value.
+    List<SensorValue> found = list.getWithInterpolation(makeTime(3), true,
+      true);
+    assertEquals(2, found.size());
+    assertEquals(1L, getId(found.get(0)));
+    assertNull(found.get(1));
+  }
+
+  @Test
+  public void interpolationStopsAtFlushingTest() {
+    SearchableSensorValuesList list = interpolationTestList(Flag.GOOD,
+      Flag.BAD, Flag.FLUSHING, Flag.BAD, Flag.GOOD);
+
+    List<SensorValue> found = list.getWithInterpolation(makeTime(1), true,
+      true);
+    assertEquals(2, found.size());
+    assertEquals(1L, getId(found.get(0)));
+    assertNull(found.get(1));
+  }
+
+  @Test
+  public void interpolationAfterQCChangeTest() throws Exception {
+    SearchableSensorValuesList list = interpolationTestList(Flag.GOOD,
+      Flag.BAD, Flag.BAD, Flag.BAD, Flag.GOOD, Flag.GOOD);
+
+    // Run a search to build the flag index
+    list.getWithInterpolation(makeTime(2), true, true);
+
+    list.get(4).setUserQC(Flag.BAD, "Bad");
+
+    List<SensorValue> found = list.getWithInterpolation(makeTime(2), true,
+      true);
+    assertEquals(2, found.size());
+    assertEquals(1L, getId(found.get(0)));
+    assertEquals(6L, getId(found.get(1)));
+  }
 }
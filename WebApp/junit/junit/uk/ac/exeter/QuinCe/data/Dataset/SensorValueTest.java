@@ -1,5 +1,7 @@
 package junit.uk.ac.exeter.QuinCe.data.Dataset;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import java.time.LocalDateTime;
@@ -9,10 +11,13 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCResult;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.RangeCheckRoutine;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
 
 public class SensorValueTest extends BaseTest {
@@ -38,4 +43,65 @@ public class SensorValueTest extends BaseTest {
     });
   }
 
+  private SensorValue makeStoredValue(long id, long columnId, Flag flag,
+    String message) {
+    return new SensorValue(id, 1L, columnId,
+      LocalDateTime.of(2021, 1, 1, 0, 0, 0), "20", new AutoQCResult(), flag,
+      message);
+  }
+
+  /**
+   * Test that values with QC cascaded from the same source get the source's
+   * QC message, and that it is updated when the source's QC changes.
+   */
+  @FlywayTest
+  @Test
+  public void lookupQCMessageTest() throws Exception {
+    DatasetSensorValues allSensorValues = new DatasetSensorValues(null);
+
+    SensorValue source = makeStoredValue(1L, SensorType.LONGITUDE_ID,
+      Flag.BAD, "Bad position");
+    allSensorValues.add(source);
+
+    SensorValue value1 = makeStoredValue(10L, 5L, Flag.ASSUMED_GOOD, null);
+    value1.setCascadingQC(source);
+    SensorValue value2 = makeStoredValue(11L, 5L, Flag.ASSUMED_GOOD, null);
+    value2.setCascadingQC(source);
+
+    String message1 = value1.getDisplayQCMessage(allSensorValues);
+    assertEquals("Bad position", message1);
+    assertSame(message1, value2.getDisplayQCMessage(allSensorValues));
+
+    source.setUserQC(Flag.QUESTIONABLE, "Questionable position");
+    assertEquals("Questionable position",
+      value1.getDisplayQCMessage(allSensorValues));
+    assertEquals("Questionable position",
+      value2.getDisplayQCMessage(allSensorValues));
+  }
+
+  /**
+   * Test that the cached QC messages for cascaded QC are kept when the QC of
+   * a value in a different dataset changes.
+   */
+  @FlywayTest
+  @Test
+  public void lookupQCMessageOtherDatasetTest() throws Exception {
+    DatasetSensorValues allSensorValues = new DatasetSensorValues(null);
+
+    SensorValue source = makeStoredValue(1L, SensorType.LONGITUDE_ID,
+      Flag.BAD, "Bad position");
+    allSensorValues.add(source);
+
+    SensorValue value = makeStoredValue(10L, 5L, Flag.ASSUMED_GOOD, null);
+    value.setCascadingQC(source);
+
+    String message = value.getDisplayQCMessage(allSensorValues);
+
+    SensorValue otherDatasetValue = new SensorValue(20L, 2L, 5L,
+      LocalDateTime.of(2021, 1, 1, 0, 0, 0), "20", new AutoQCResult(),
+      Flag.ASSUMED_GOOD, null);
+    otherDatasetValue.setUserQC(Flag.BAD, "Other dataset");
+
+    assertSame(message, value.getDisplayQCMessage(allSensorValues));
+  }
 }
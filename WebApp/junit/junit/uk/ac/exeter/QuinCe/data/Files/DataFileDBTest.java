@@ -0,0 +1,219 @@
+package junit.uk.ac.exeter.QuinCe.data.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Files.DataFile;
+import uk.ac.exeter.QuinCe.data.Files.DataFileDB;
+import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
+import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Tests for storing files with {@link DataFileDB}, checking that the file
+ * store is only changed if the database changes are committed.
+ *
+ * @author Steve Jones
+ *
+ */
+public class DataFileDBTest extends BaseTest {
+
+  /**
+   * The ID of a file that does not exist
+   */
+  private static final long MISSING_FILE_ID = 9999L;
+
+  /**
+   * A {@link DataFile} with fixed contents, so that it can be stored without
+   * being extracted from an uploaded file.
+   */
+  private static class TestDataFile extends DataFile {
+
+    private final String contents;
+
+    private TestDataFile(FileDefinition fileDefinition, String filename,
+      LocalDateTime start, String contents) {
+      super(ResourceManager.getInstance().getConfig().getProperty("filestore"),
+        -1, fileDefinition, filename, start, start.plusHours(1), 1,
+        new Properties());
+      this.contents = contents;
+    }
+
+    @Override
+    public String getContents() {
+      return contents;
+    }
+  }
+
+  private FileDefinition fileDefinition;
+
+  private File storeDirectory;
+
+  @BeforeEach
+  public void setup() throws Exception {
+    initResourceManager();
+
+    // The file store is shared between tests, so remove any files left by
+    // earlier tests
+    storeDirectory = new File(
+      ResourceManager.getInstance().getConfig().getProperty("filestore"), "1");
+
+    if (storeDirectory.exists()) {
+      for (File file : storeDirectory.listFiles()) {
+        file.delete();
+      }
+    }
+  }
+
+  private FileDefinition getFileDefinition() throws Exception {
+    if (null == fileDefinition) {
+      try (Connection conn = getConnection()) {
+        fileDefinition = InstrumentDB.getInstrument(conn, 1L)
+          .getFileDefinitions().get(0);
+      }
+    }
+
+    return fileDefinition;
+  }
+
+  private TestDataFile makeFile(String filename, LocalDateTime start,
+    String contents) throws Exception {
+    return new TestDataFile(getFileDefinition(), filename, start, contents);
+  }
+
+  private File getStoredFile(DataFile dataFile) {
+    return new File(storeDirectory, String.valueOf(dataFile.getDatabaseId()));
+  }
+
+  private boolean fileExists(long id) throws Exception {
+    try (Connection conn = getConnection()) {
+      return DataFileDB.fileExists(conn, id);
+    }
+  }
+
+  /**
+   * Check that no staging files have been left in the file store.
+   */
+  private void assertNoStagedFiles() {
+    if (storeDirectory.exists()) {
+      assertTrue(Arrays.stream(storeDirectory.list())
+        .noneMatch(name -> name.contains(".staged.")));
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument" })
+  @Test
+  public void storeFilesTest() throws Exception {
+    TestDataFile first = makeFile("first.csv",
+      LocalDateTime.of(2030, 1, 1, 0, 0, 0), "First");
+    TestDataFile second = makeFile("second.csv",
+      LocalDateTime.of(2030, 1, 2, 0, 0, 0), "Second");
+
+    Map<DataFile, Long> files = new LinkedHashMap<DataFile, Long>();
+    files.put(first, -1L);
+    files.put(second, -1L);
+
+    DataFileDB.storeFiles(getDataSource(),
+      ResourceManager.getInstance().getConfig(), files);
+
+    assertTrue(fileExists(first.getDatabaseId()));
+    assertTrue(fileExists(second.getDatabaseId()));
+
+    assertEquals(List.of("First"),
+      Files.readAllLines(getStoredFile(first).toPath()));
+    assertEquals(List.of("Second"),
+      Files.readAllLines(getStoredFile(second).toPath()));
+
+    assertNoStagedFiles();
+  }
+
+  /**
+   * Test that a new file is not written to the file store if a later file in
+   * the same batch fails.
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument" })
+  @Test
+  public void failedBatchNewFileTest() throws Exception {
+    TestDataFile newFile = makeFile("new.csv",
+      LocalDateTime.of(2030, 1, 1, 0, 0, 0), "New");
+    TestDataFile badFile = makeFile("bad.csv",
+      LocalDateTime.of(2030, 1, 2, 0, 0, 0), "Bad");
+
+    Map<DataFile, Long> files = new LinkedHashMap<DataFile, Long>();
+    files.put(newFile, -1L);
+    files.put(badFile, MISSING_FILE_ID);
+
+    assertThrows(RecordNotFoundException.class, () -> {
+      DataFileDB.storeFiles(getDataSource(),
+        ResourceManager.getInstance().getConfig(), files);
+    });
+
+    // The new file was given an ID before the batch failed
+    assertTrue(newFile.getDatabaseId() > 0);
+    assertFalse(fileExists(newFile.getDatabaseId()));
+    assertFalse(getStoredFile(newFile).exists());
+    assertNoStagedFiles();
+  }
+
+  /**
+   * Test that an existing file is not overwritten in the file store if a later
+   * file in the same batch fails.
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument" })
+  @Test
+  public void failedBatchReplaceFileTest() throws Exception {
+    LocalDateTime start = LocalDateTime.of(2030, 1, 1, 0, 0, 0);
+
+    TestDataFile original = makeFile("original.csv", start, "Original");
+    DataFileDB.storeFile(getDataSource(),
+      ResourceManager.getInstance().getConfig(), original, -1L);
+
+    TestDataFile replacement = makeFile("replacement.csv", start,
+      "Replacement");
+    TestDataFile badFile = makeFile("bad.csv",
+      LocalDateTime.of(2030, 1, 2, 0, 0, 0), "Bad");
+
+    Map<DataFile, Long> files = new LinkedHashMap<DataFile, Long>();
+    files.put(replacement, original.getDatabaseId());
+    files.put(badFile, MISSING_FILE_ID);
+
+    assertThrows(RecordNotFoundException.class, () -> {
+      DataFileDB.storeFiles(getDataSource(),
+        ResourceManager.getInstance().getConfig(), files);
+    });
+
+    assertEquals(List.of("Original"),
+      Files.readAllLines(getStoredFile(original).toPath()));
+
+    try (Connection conn = getConnection()) {
+      assertEquals("original.csv",
+        DataFileDB
+          .getDataFiles(conn, ResourceManager.getInstance().getConfig(),
+            List.of(original.getDatabaseId()))
+          .get(0).getFilename());
+    }
+
+    assertNoStagedFiles();
+  }
+}
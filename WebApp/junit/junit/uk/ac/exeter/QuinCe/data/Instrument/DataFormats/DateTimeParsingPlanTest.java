@@ -0,0 +1,179 @@
+package junit.uk.ac.exeter.QuinCe.data.Instrument.DataFormats;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeParsingPlan;
+import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeSpecification;
+import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeSpecificationException;
+
+/**
+ * Tests for the compiled {@link DateTimeParsingPlan}, checking that the fast
+ * parsers give the same results as the equivalent formatters.
+ *
+ * @author Steve Jones
+ *
+ */
+public class DateTimeParsingPlanTest {
+
+  private static DateTimeSpecification makeSpec(int assignment, String format)
+    throws Exception {
+    DateTimeSpecification spec = new DateTimeSpecification(false);
+    spec.assign(assignment, 0, format);
+    return spec;
+  }
+
+  private static LocalDateTime parse(DateTimeSpecification spec,
+    String... fields) throws Exception {
+    return spec.getParsingPlan().getDateTime(null, Arrays.asList(fields));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "2021-03-04 05:06:07", "2021-03-04 05:06:07.1",
+    "2021-03-04 05:06:07.123456789", "2020-02-29 23:59:59.5" })
+  public void fractionalDateTimeTest(String value) throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.DATE_TIME,
+      "yyyy-MM-dd HH:mm:ss.SSS");
+
+    LocalDateTime expected = LocalDateTime.parse(value,
+      spec.getAssignment(DateTimeSpecification.DATE_TIME).getFormatter());
+
+    assertEquals(expected, parse(spec, value));
+  }
+
+  @Test
+  public void plainDateTimeTest() throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.DATE_TIME,
+      "yyyy-MM-dd'T'HH:mm:ss");
+
+    assertEquals(LocalDateTime.of(2021, 3, 4, 5, 6, 7),
+      parse(spec, "2021-03-04T05:06:07"));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "2021-03-04 05:06:07.5", "2021-13-04 05:06:07",
+    "2021-03-04 05:06", "" })
+  public void invalidDateTimeTest(String value) throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.DATE_TIME,
+      "yyyy-MM-dd HH:mm:ss");
+
+    assertThrows(DateTimeSpecificationException.class, () -> {
+      parse(spec, value);
+    });
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "2021-03-04T05:06:07Z", "2021-03-04T05:06:07.25Z",
+    "2021-03-04T05:06:07+05:30", "2021-03-04t05:06:07-01:00",
+    "2021-03-04T05:06Z" })
+  public void isoDateTimeTest(String value) throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.DATE_TIME,
+      "ISO");
+
+    assertEquals(
+      LocalDateTime.parse(value, DateTimeFormatter.ISO_OFFSET_DATE_TIME),
+      parse(spec, value));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "2021-03-04T05:06:07", "2021-03-04T05:06:07+19:00",
+    "2021-02-30T05:06:07Z" })
+  public void invalidIsoDateTimeTest(String value) throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.DATE_TIME,
+      "ISO");
+
+    assertThrows(DateTimeSpecificationException.class, () -> {
+      parse(spec, value);
+    });
+  }
+
+  @Test
+  public void unixTimeTest() throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.UNIX, null);
+
+    assertEquals(LocalDateTime.of(2020, 9, 13, 12, 26, 40),
+      parse(spec, "1600000000"));
+    assertEquals(LocalDateTime.of(2020, 9, 13, 12, 26, 40, 500000000),
+      parse(spec, "1600000000.5"));
+    assertEquals(LocalDateTime.of(1969, 12, 31, 23, 59, 58, 750000000),
+      parse(spec, "-1.25"));
+  }
+
+  @Test
+  public void invalidUnixTimeTest() throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.UNIX, null);
+
+    assertThrows(DateTimeSpecificationException.class, () -> {
+      parse(spec, "16000x");
+    });
+  }
+
+  @Test
+  public void separateDateAndTimeTest() throws Exception {
+    DateTimeSpecification spec = new DateTimeSpecification(false);
+    spec.assign(DateTimeSpecification.DATE, 0, "yyyy-MM-dd");
+    spec.assign(DateTimeSpecification.TIME, 1, "HH:mm:ss.S");
+
+    assertEquals(LocalDateTime.of(2021, 3, 4, 5, 6, 7, 120000000),
+      parse(spec, "2021-03-04", "05:06:07.12"));
+  }
+
+  @Test
+  public void yearJDayTest() throws Exception {
+    DateTimeSpecification spec = new DateTimeSpecification(false);
+    spec.assign(DateTimeSpecification.YEAR, 0, null);
+    spec.assign(DateTimeSpecification.JDAY, 1, null);
+    spec.assign(DateTimeSpecification.HOUR, 2, null);
+    spec.assign(DateTimeSpecification.MINUTE, 3, null);
+    spec.assign(DateTimeSpecification.SECOND, 4, null);
+
+    assertEquals(LocalDateTime.of(2021, 2, 1, 5, 6, 7),
+      parse(spec, "2021", "32", "5", "6", "7"));
+  }
+
+  @Test
+  public void yearJDayTimeTest() throws Exception {
+    DateTimeSpecification spec = new DateTimeSpecification(false);
+    spec.assign(DateTimeSpecification.YEAR, 0, null);
+    spec.assign(DateTimeSpecification.JDAY_TIME, 1, null);
+
+    assertEquals(LocalDateTime.of(2021, 2, 1, 12, 0, 0),
+      parse(spec, "2021", "32.5"));
+  }
+
+  @Test
+  public void planRebuiltOnAssignmentTest() throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.DATE_TIME,
+      "yyyy-MM-dd HH:mm:ss");
+
+    DateTimeParsingPlan plan = spec.getParsingPlan();
+    assertSame(plan, spec.getParsingPlan());
+
+    spec.removeAssignment(0);
+    spec.assign(DateTimeSpecification.UNIX, 0, null);
+
+    assertNotSame(plan, spec.getParsingPlan());
+    assertEquals(LocalDateTime.of(1970, 1, 1, 0, 0, 10), parse(spec, "10"));
+  }
+
+  @Test
+  public void lineListTest() throws Exception {
+    DateTimeSpecification spec = makeSpec(DateTimeSpecification.DATE_TIME,
+      "yyyy-MM-dd HH:mm:ss");
+
+    List<String> line = Arrays.asList(" 2021-03-04 05:06:07 ");
+    assertEquals(LocalDateTime.of(2021, 3, 4, 5, 6, 7),
+      spec.getDateTime(null, line));
+  }
+}
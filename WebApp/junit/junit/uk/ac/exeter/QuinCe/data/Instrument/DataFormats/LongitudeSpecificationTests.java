@@ -66,6 +66,36 @@ public class LongitudeSpecificationTests extends TestSetTest {
     }
   }
 
+  /**
+   * Check that the full-precision value matches the formatted value, and that
+   * the cached parser gives the same result when reused.
+   */
+  @ParameterizedTest
+  @MethodSource("getLines")
+  public void longitudeDoubleValueTest(TestSetLine line) throws Exception {
+
+    String formatCode = line.getStringField(FORMAT_COL, true);
+    int format = LongitudeSpecification.class.getField(formatCode).getInt(null);
+
+    List<String> dataLine = new ArrayList<String>();
+    dataLine.add(line.getStringField(VALUE_COL, true));
+    dataLine.add(line.getStringField(HEMISPHERE_COL, true));
+    boolean hasHemisphere = null != line.getStringField(HEMISPHERE_COL, true);
+
+    if (line.getBooleanField(VALID_COL)) {
+      int hemisphereCol = hasHemisphere ? 1 : -1;
+      LongitudeSpecification spec = new LongitudeSpecification(format, 0,
+        hemisphereCol);
+
+      double first = spec.getDoubleValue(dataLine);
+      double second = spec.getDoubleValue(dataLine);
+      assertEquals(first, second);
+
+      assertEquals(line.getStringField(PARSED_COL, false),
+        spec.formatValue(first));
+    }
+  }
+
   @Override
   protected String getTestSetName() {
     return "LongitudeTests";
@@ -0,0 +1,115 @@
+package junit.uk.ac.exeter.QuinCe.data.Instrument;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
+import uk.ac.exeter.QuinCe.data.Instrument.RunTypes.RunTypeCategory;
+import uk.ac.exeter.QuinCe.data.Instrument.RunTypes.RunTypeCategoryException;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+
+/**
+ * Tests for the run type classification methods of {@link Instrument}.
+ *
+ * <p>
+ * The test instrument has no Run Type column, so only the fixed run types can
+ * be classified. Any other run type must raise an exception every time it is
+ * classified.
+ * </p>
+ */
+public class InstrumentRunTypeTest extends BaseTest {
+
+  private static final long INSTRUMENT_ID = 1000000L;
+
+  private Instrument instrument;
+
+  private Variable variable;
+
+  @BeforeEach
+  public void setup() {
+    initResourceManager();
+  }
+
+  private void loadInstrument() throws Exception {
+    instrument = InstrumentDB.getInstrument(getConnection(), INSTRUMENT_ID);
+    variable = instrument.getVariables().get(0);
+  }
+
+  @FlywayTest(locationsForMigrate = {
+    "resources/sql/web/Instrument/CalibrationBeanTest/base" })
+  @Test
+  public void fixedCategoriesTest() throws Exception {
+    loadInstrument();
+    assertEquals(RunTypeCategory.IGNORED, instrument
+      .getRunTypeCategory(variable.getId(), Measurement.IGNORED_RUN_TYPE));
+    assertEquals(RunTypeCategory.INTERNAL_CALIBRATION,
+      instrument.getRunTypeCategory(variable.getId(),
+        Measurement.INTERNAL_CALIBRATION_RUN_TYPE));
+
+    RunTypeCategory measurementCategory = instrument
+      .getRunTypeCategory(variable.getId(), Measurement.MEASUREMENT_RUN_TYPE);
+    assertEquals(variable.getId(), measurementCategory.getType());
+    assertSame(measurementCategory, instrument
+      .getRunTypeCategory(variable.getId(), Measurement.MEASUREMENT_RUN_TYPE));
+  }
+
+  @FlywayTest(locationsForMigrate = {
+    "resources/sql/web/Instrument/CalibrationBeanTest/base" })
+  @Test
+  public void genericCategoryTest() throws Exception {
+    loadInstrument();
+    assertEquals(RunTypeCategory.IGNORED,
+      instrument.getRunTypeCategory(Measurement.GENERIC_RUN_TYPE_VARIABLE,
+        Measurement.IGNORED_RUN_TYPE));
+  }
+
+  @FlywayTest(locationsForMigrate = {
+    "resources/sql/web/Instrument/CalibrationBeanTest/base" })
+  @Test
+  public void isRunTypeForVariableTest() throws Exception {
+    loadInstrument();
+    assertTrue(instrument.isRunTypeForVariable(variable,
+      Measurement.MEASUREMENT_RUN_TYPE));
+    assertFalse(instrument.isRunTypeForVariable(variable,
+      Measurement.INTERNAL_CALIBRATION_RUN_TYPE));
+    assertFalse(
+      instrument.isRunTypeForVariable(variable, Measurement.IGNORED_RUN_TYPE));
+    assertFalse(instrument.isRunTypeForVariable(variable, null));
+  }
+
+  @FlywayTest(locationsForMigrate = {
+    "resources/sql/web/Instrument/CalibrationBeanTest/base" })
+  @Test
+  public void unknownRunTypeTest() throws Exception {
+    loadInstrument();
+    assertThrows(RunTypeCategoryException.class,
+      () -> instrument.getRunTypeCategory(variable.getId(), "TARGET1"));
+
+    // The failure must be repeated, not just raised the first time
+    assertThrows(RunTypeCategoryException.class,
+      () -> instrument.getRunTypeCategory(variable.getId(), "TARGET1"));
+    assertThrows(RunTypeCategoryException.class,
+      () -> instrument.isRunTypeForVariable(variable, "TARGET1"));
+  }
+
+  @FlywayTest(locationsForMigrate = {
+    "resources/sql/web/Instrument/CalibrationBeanTest/base" })
+  @Test
+  public void internRunTypeTest() throws Exception {
+    loadInstrument();
+    String first = instrument.internRunType(new String("EQU"));
+    assertSame(first, instrument.internRunType(new String("EQU")));
+    assertSame(Measurement.MEASUREMENT_RUN_TYPE,
+      instrument.internRunType(new String(Measurement.MEASUREMENT_RUN_TYPE)));
+  }
+}
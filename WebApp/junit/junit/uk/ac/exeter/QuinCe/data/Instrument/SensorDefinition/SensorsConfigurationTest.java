@@ -528,6 +528,41 @@ public class SensorsConfigurationTest extends BaseTest {
     assertFalse(config.isParent(equilibratorPressure));
   }
 
+  /**
+   * Test that the {@link SensorType}s that depend on another type are found.
+   *
+   * @throws Exception
+   *           If the {@link SensorsConfiguration} cannot be accessed.
+   *
+   * @see #getConfig()
+   */
+  @FlywayTest
+  @Test
+  public void getDependentsTest() throws Exception {
+    SensorsConfiguration config = getConfig();
+
+    // Equilibrator Pressure (differential) depends on the ambient pressure
+    Set<SensorType> dependents = config.getDependents(config.getSensorType(7L));
+    assertEquals(1, dependents.size());
+    assertTrue(dependents.contains(config.getSensorType(6L)));
+  }
+
+  /**
+   * Test that a {@link SensorType} with no dependents returns an empty set.
+   *
+   * @throws Exception
+   *           If the {@link SensorsConfiguration} cannot be accessed.
+   *
+   * @see #getConfig()
+   */
+  @FlywayTest
+  @Test
+  public void getDependentsNoDependentsTest() throws Exception {
+    SensorsConfiguration config = getConfig();
+    assertTrue(
+      config.getDependents(config.getSensorType("Salinity")).isEmpty());
+  }
+
   /**
    * Test that a {@link SensorType} can be retrieved using its ID.
    *
@@ -781,37 +816,30 @@ public class SensorsConfigurationTest extends BaseTest {
     initTestVarList();
     SensorsConfiguration config = getConfig();
 
-    Connection conn = null;
-    try {
-      Set<SensorType> nonCoreSensors = config
-        .getNonCoreSensors(getDataSource().getConnection());
-
-      // Should not contain any of the core sensors
-      assertFalse(
-        nonCoreSensors.contains(config.getSensorType("xCO₂ (with standards)")));
-      assertFalse(nonCoreSensors.contains(config.getSensorType("testSensor")));
-
-      // Should include the used sensors, whether used multiple times or just
-      // once
-      assertTrue(nonCoreSensors.contains(config.getSensorType("Salinity")));
-      assertTrue(nonCoreSensors
-        .contains(config.getSensorType("Equilibrator Temperature")));
-
-      // Should include the Unused Sensor type even though it's not defined as
-      // part of either variable
-      assertTrue(
-        nonCoreSensors.contains(config.getSensorType("Unused sensor")));
-
-      // Should include children but not parents
-      assertFalse(
-        nonCoreSensors.contains(config.getSensorType("Equilibrator Pressure")));
-      assertTrue(nonCoreSensors
-        .contains(config.getSensorType("Equilibrator Pressure (absolute)")));
-      assertTrue(nonCoreSensors.contains(
-        config.getSensorType("Equilibrator Pressure (differential)")));
-    } finally {
-      DatabaseUtils.closeConnection(conn);
-    }
+    Set<SensorType> nonCoreSensors = config.getNonCoreSensors();
+
+    // Should not contain any of the core sensors
+    assertFalse(
+      nonCoreSensors.contains(config.getSensorType("xCO₂ (with standards)")));
+    assertFalse(nonCoreSensors.contains(config.getSensorType("testSensor")));
+
+    // Should include the used sensors, whether used multiple times or just
+    // once
+    assertTrue(nonCoreSensors.contains(config.getSensorType("Salinity")));
+    assertTrue(nonCoreSensors
+      .contains(config.getSensorType("Equilibrator Temperature")));
+
+    // Should include the Unused Sensor type even though it's not defined as
+    // part of either variable
+    assertTrue(nonCoreSensors.contains(config.getSensorType("Unused sensor")));
+
+    // Should include children but not parents
+    assertFalse(
+      nonCoreSensors.contains(config.getSensorType("Equilibrator Pressure")));
+    assertTrue(nonCoreSensors
+      .contains(config.getSensorType("Equilibrator Pressure (absolute)")));
+    assertTrue(nonCoreSensors.contains(
+      config.getSensorType("Equilibrator Pressure (differential)")));
   }
 
   /**
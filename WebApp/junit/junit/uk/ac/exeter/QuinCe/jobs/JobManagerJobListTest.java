@@ -0,0 +1,212 @@
+package junit.uk.ac.exeter.QuinCe.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.jobs.Job;
+import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobSummary;
+import uk.ac.exeter.QuinCe.jobs.NoSuchJobException;
+import uk.ac.exeter.QuinCe.jobs.UnrecognisedStatusException;
+
+/**
+ * Tests for the job list and job tidying methods of {@link JobManager}.
+ *
+ * @author Steve Jones
+ *
+ */
+public class JobManagerJobListTest extends BaseTest {
+
+  private static final long DAY = 86400000L;
+
+  private static final String INSERT_JOB_STATEMENT = "INSERT INTO job "
+    + "(id, owner, class, status, created, ended, stack_trace) "
+    + "VALUES (?, 1, 'uk.ac.exeter.QuinCe.jobs.test.TenSecondJob', ?, ?, ?, ?)";
+
+  /**
+   * The time that job ages are calculated from. All jobs use the same time so
+   * that jobs created on the same day have identical creation times.
+   */
+  private long now;
+
+  @BeforeEach
+  public void setup() {
+    initResourceManager();
+    now = System.currentTimeMillis();
+  }
+
+  /**
+   * Add a job to the database.
+   *
+   * @param id
+   *          The job ID
+   * @param status
+   *          The job status
+   * @param createdDaysAgo
+   *          The number of days since the job was created
+   * @param endedDaysAgo
+   *          The number of days since the job ended, or a negative value if
+   *          it has not ended
+   * @param stackTrace
+   *          The job's stack trace
+   */
+  private void addJob(long id, String status, int createdDaysAgo,
+    int endedDaysAgo, String stackTrace) throws Exception {
+
+    try (Connection conn = getConnection();
+      PreparedStatement stmt = conn.prepareStatement(INSERT_JOB_STATEMENT)) {
+
+      stmt.setLong(1, id);
+      stmt.setString(2, status);
+      stmt.setTimestamp(3, new Timestamp(now - createdDaysAgo * DAY));
+      stmt.setTimestamp(4,
+        endedDaysAgo < 0 ? null : new Timestamp(now - endedDaysAgo * DAY));
+      stmt.setString(5, stackTrace);
+      stmt.execute();
+    }
+  }
+
+  /**
+   * Add a set of jobs. Several jobs share the same creation time so the
+   * ordering by ID is exercised.
+   */
+  private void addJobs() throws Exception {
+    addJob(1, Job.FINISHED_STATUS, 100, 99, null);
+    addJob(2, Job.ERROR_STATUS, 100, 99, "Trace 2");
+    addJob(3, Job.KILLED_STATUS, 50, 49, null);
+    addJob(4, Job.FINISHED_STATUS, 50, 49, null);
+    addJob(5, Job.FINISHED_STATUS, 50, 1, null);
+    addJob(6, Job.ERROR_STATUS, 10, 9, "Trace 6");
+    addJob(7, Job.WAITING_STATUS, 0, -1, null);
+  }
+
+  private List<Long> getAllJobIds(String status, int pageSize)
+    throws Exception {
+
+    List<Long> ids = new ArrayList<Long>();
+
+    JobSummary after = null;
+    List<JobSummary> page;
+    do {
+      page = JobManager.getJobList(getDataSource(), status, after, pageSize);
+      assertTrue(page.size() <= pageSize);
+
+      for (JobSummary job : page) {
+        ids.add(job.getId());
+      }
+
+      if (page.size() > 0) {
+        after = page.get(page.size() - 1);
+      }
+    } while (page.size() == pageSize);
+
+    return ids;
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user" })
+  @Test
+  public void jobListPagesTest() throws Exception {
+    addJobs();
+
+    List<Long> expected = List.of(7L, 6L, 5L, 4L, 3L, 2L, 1L);
+    for (int pageSize = 1; pageSize <= 8; pageSize++) {
+      assertEquals(expected, getAllJobIds(null, pageSize),
+        "Page size " + pageSize);
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user" })
+  @Test
+  public void jobListStatusFilterTest() throws Exception {
+    addJobs();
+
+    assertEquals(List.of(5L, 4L, 1L), getAllJobIds(Job.FINISHED_STATUS, 2));
+    assertEquals(List.of(6L, 2L), getAllJobIds(Job.ERROR_STATUS, 1));
+    assertEquals(List.of(), getAllJobIds(Job.RUNNING_STATUS, 2));
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user" })
+  @Test
+  public void jobListInvalidStatusTest() throws Exception {
+    assertThrows(UnrecognisedStatusException.class, () -> {
+      JobManager.getJobList(getDataSource(), "NONSENSE", null, 10);
+    });
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user" })
+  @Test
+  public void stackTraceLoadedSeparatelyTest() throws Exception {
+    addJobs();
+
+    List<JobSummary> jobs = JobManager.getJobList(getDataSource(), null, null,
+      10);
+
+    for (JobSummary job : jobs) {
+      String stackTrace = JobManager.getStackTrace(getDataSource(),
+        job.getId());
+
+      if (job.getId() == 2L || job.getId() == 6L) {
+        assertTrue(job.getHasStackTrace());
+        assertEquals("Trace " + job.getId(), stackTrace);
+      } else {
+        assertFalse(job.getHasStackTrace());
+        assertNull(stackTrace);
+      }
+    }
+
+    assertEquals("Bloggs", jobs.get(0).getOwner().getSurname());
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user" })
+  @Test
+  public void stackTraceMissingJobTest() throws Exception {
+    assertThrows(NoSuchJobException.class, () -> {
+      JobManager.getStackTrace(getDataSource(), 1000L);
+    });
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user" })
+  @Test
+  public void deleteOldJobsTest() throws Exception {
+    addJobs();
+
+    assertEquals(2,
+      JobManager.deleteOldJobs(getDataSource(), Job.FINISHED_STATUS, 28));
+    assertEquals(1,
+      JobManager.deleteOldJobs(getDataSource(), Job.ERROR_STATUS, 90));
+    assertEquals(1,
+      JobManager.deleteOldJobs(getDataSource(), Job.KILLED_STATUS, 28));
+
+    assertEquals(List.of(7L, 6L, 5L), getAllJobIds(null, 10));
+
+    // Nothing more to delete
+    assertEquals(0,
+      JobManager.deleteOldJobs(getDataSource(), Job.FINISHED_STATUS, 28));
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user" })
+  @Test
+  public void deleteOldJobsActiveStatusTest() throws Exception {
+    assertThrows(UnrecognisedStatusException.class, () -> {
+      JobManager.deleteOldJobs(getDataSource(), Job.WAITING_STATUS, 28);
+    });
+
+    assertThrows(UnrecognisedStatusException.class, () -> {
+      JobManager.deleteOldJobs(getDataSource(), Job.RUNNING_STATUS, 28);
+    });
+  }
+}
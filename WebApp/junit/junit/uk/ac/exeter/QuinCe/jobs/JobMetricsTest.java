@@ -0,0 +1,114 @@
+package junit.uk.ac.exeter.QuinCe.jobs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.jobs.JobMetrics;
+import uk.ac.exeter.QuinCe.jobs.test.TenSecondJob;
+
+/**
+ * Tests for {@link JobMetrics}.
+ *
+ * @author Steve Jones
+ *
+ */
+public class JobMetricsTest extends BaseTest {
+
+  private JobMetrics makeMetrics() {
+    return new JobMetrics(1L, TenSecondJob.class);
+  }
+
+  @Test
+  public void initialState() {
+    JobMetrics metrics = makeMetrics();
+    assertEquals("TenSecondJob", metrics.getJobClass());
+    assertNull(metrics.getCurrentStage());
+    assertTrue(metrics.getCounters().isEmpty());
+    assertTrue(metrics.getPeakHeapBytes() > 0);
+  }
+
+  @Test
+  public void countersAccumulate() {
+    JobMetrics metrics = makeMetrics();
+    metrics.increment(JobMetrics.ROWS_READ, 1000);
+    metrics.increment(JobMetrics.ROWS_READ, 500);
+    metrics.increment(JobMetrics.SENSOR_VALUES_WRITTEN, 20);
+
+    assertEquals(1500L, metrics.getCounter(JobMetrics.ROWS_READ));
+    assertEquals(20L, metrics.getCounter(JobMetrics.SENSOR_VALUES_WRITTEN));
+    assertEquals(0L, metrics.getCounter(JobMetrics.MEASUREMENTS_LOCATED));
+  }
+
+  @Test
+  public void stagesRecordedInOrder() {
+    JobMetrics metrics = makeMetrics();
+    metrics.startStage("Load");
+    assertEquals("Load", metrics.getCurrentStage());
+    metrics.startStage("Process");
+    metrics.startStage("Load");
+    metrics.endStage();
+
+    assertNull(metrics.getCurrentStage());
+    assertEquals(List.of("Load", "Process"), metrics.getStages());
+    assertEquals(2, metrics.getStageWallMillis().size());
+    assertEquals(2, metrics.getStageCpuMillis().size());
+    assertEquals(2, metrics.getStageDatabaseMillis().size());
+  }
+
+  @Test
+  public void databaseTimeRecordedInStage() throws Exception {
+    JobMetrics metrics = makeMetrics();
+    metrics.startStage("Store");
+    long dbStart = System.nanoTime();
+    Thread.sleep(20);
+    metrics.addDatabaseTime(dbStart);
+    metrics.endStage();
+
+    long dbMillis = metrics.getStageDatabaseMillis().get("Store");
+    assertTrue(dbMillis >= 20);
+    assertTrue(metrics.getStageWallMillis().get("Store") >= dbMillis);
+  }
+
+  @Test
+  public void firstProgressWritten() {
+    JobMetrics metrics = makeMetrics();
+    assertTrue(metrics.progressWriteDue(1D, 1000L));
+  }
+
+  @Test
+  public void progressThrottledByTime() {
+    JobMetrics metrics = makeMetrics();
+    assertTrue(metrics.progressWriteDue(1D, 1000L));
+    assertFalse(metrics.progressWriteDue(10D, 2000L));
+    assertTrue(metrics.progressWriteDue(20D,
+      1000L + JobMetrics.PROGRESS_WRITE_INTERVAL));
+
+    // The unwritten progress is still available
+    assertFalse(metrics.progressWriteDue(21D,
+      2000L + JobMetrics.PROGRESS_WRITE_INTERVAL));
+    assertEquals(21D, metrics.getProgress());
+  }
+
+  @Test
+  public void progressThrottledByStep() {
+    JobMetrics metrics = makeMetrics();
+    assertTrue(metrics.progressWriteDue(10D, 1000L));
+    assertFalse(metrics.progressWriteDue(10.5D, 100000L));
+    assertTrue(metrics.progressWriteDue(11D, 100000L));
+  }
+
+  @Test
+  public void completeProgressAlwaysWritten() {
+    JobMetrics metrics = makeMetrics();
+    assertTrue(metrics.progressWriteDue(50D, 1000L));
+    assertTrue(metrics.progressWriteDue(100D, 1001L));
+    assertFalse(metrics.progressWriteDue(100D, 1002L));
+  }
+}
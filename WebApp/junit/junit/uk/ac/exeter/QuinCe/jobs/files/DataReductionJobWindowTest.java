@@ -0,0 +1,309 @@
+package junit.uk.ac.exeter.QuinCe.jobs.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Collectors;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
+import uk.ac.exeter.QuinCe.jobs.files.DataReductionJob;
+import uk.ac.exeter.QuinCe.jobs.files.DataReductionQCJob;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Tests for running a {@link DataReductionJob} (and the
+ * {@link DataReductionQCJob} that follows it) over a time window.
+ *
+ * <p>
+ * The tests follow the same steps as the jobs: the window is read from the
+ * job parameters, the dataset is reset for that window and the measurements
+ * inside the window are selected for processing.
+ * </p>
+ *
+ * <p>
+ * All times are relative to the start of the test dataset.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class DataReductionJobWindowTest extends BaseTest {
+
+  private static final long DATASET_ID = 1L;
+
+  private static final String ADD_MEASUREMENT_STATEMENT = "INSERT INTO "
+    + "measurements (dataset_id, date) VALUES (?, ?)";
+
+  private static final String ADD_DATA_REDUCTION_STATEMENT = "INSERT INTO "
+    + "data_reduction (measurement_id, variable_id, calculation_values, "
+    + "qc_flag) VALUES "
+    + "(?, (SELECT id FROM variables WHERE name = 'testVar'), '{}', 2)";
+
+  private static final String DATA_REDUCTION_COUNT_QUERY = "SELECT "
+    + "COUNT(*) FROM data_reduction WHERE measurement_id = ?";
+
+  /**
+   * A {@link DataReductionJob} that gives access to the reset methods.
+   */
+  private static class WindowTestJob extends DataReductionJob {
+
+    private WindowTestJob(Properties properties) throws Exception {
+      super(ResourceManager.getInstance(),
+        ResourceManager.getInstance().getConfig(), 1L, properties);
+    }
+
+    private void resetDataset(Connection conn, LocalDateTime[] window)
+      throws Exception {
+      reset(conn, window);
+    }
+  }
+
+  @BeforeEach
+  public void setup() {
+    initResourceManager();
+  }
+
+  private Properties makeProperties(LocalDateTime start, LocalDateTime end) {
+    Properties properties = new Properties();
+    properties.setProperty(DataReductionJob.ID_PARAM,
+      String.valueOf(DATASET_ID));
+
+    if (null != start) {
+      DataReductionJob.setWindow(properties, start, end);
+    }
+
+    return properties;
+  }
+
+  /**
+   * Add a measurement with a data reduction record to the database.
+   *
+   * @param conn
+   *          A database connection
+   * @param time
+   *          The measurement time
+   * @return The measurement's database ID
+   */
+  private long addReducedMeasurement(Connection conn, LocalDateTime time)
+    throws Exception {
+
+    long measurementId;
+
+    try (PreparedStatement stmt = conn.prepareStatement(
+      ADD_MEASUREMENT_STATEMENT, Statement.RETURN_GENERATED_KEYS)) {
+
+      stmt.setLong(1, DATASET_ID);
+      stmt.setLong(2, DateTimeUtils.dateToLong(time));
+      stmt.execute();
+
+      try (ResultSet keys = stmt.getGeneratedKeys()) {
+        keys.next();
+        measurementId = keys.getLong(1);
+      }
+    }
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(ADD_DATA_REDUCTION_STATEMENT)) {
+      stmt.setLong(1, measurementId);
+      stmt.execute();
+    }
+
+    return measurementId;
+  }
+
+  private boolean hasDataReduction(Connection conn, long measurementId)
+    throws Exception {
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(DATA_REDUCTION_COUNT_QUERY)) {
+      stmt.setLong(1, measurementId);
+
+      try (ResultSet count = stmt.executeQuery()) {
+        count.next();
+        return count.getInt(1) > 0;
+      }
+    }
+  }
+
+  private List<Long> getIds(List<Measurement> measurements) {
+    return measurements.stream().map(Measurement::getId)
+      .collect(Collectors.toList());
+  }
+
+  /**
+   * Test that a window inside the dataset only removes and reprocesses the
+   * measurements inside the window.
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void windowInsideDatasetTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      DataSet dataSet = DataSetDB.getDataSet(conn, DATASET_ID);
+      LocalDateTime start = dataSet.getStart();
+
+      long before = addReducedMeasurement(conn, start.plusSeconds(10));
+      long inside = addReducedMeasurement(conn, start.plusSeconds(30));
+      long after = addReducedMeasurement(conn, start.plusSeconds(70));
+
+      Properties properties = makeProperties(start.plusSeconds(20),
+        start.plusSeconds(60));
+
+      LocalDateTime[] window = DataReductionJob.getWindow(properties,
+        dataSet);
+      assertNotNull(window);
+
+      new WindowTestJob(properties).resetDataset(conn, window);
+
+      assertTrue(hasDataReduction(conn, before));
+      assertFalse(hasDataReduction(conn, inside));
+      assertTrue(hasDataReduction(conn, after));
+
+      List<Measurement> toProcess = DataReductionJob.filterWindow(
+        DataSetDataDB.getMeasurements(conn, DATASET_ID), window);
+
+      assertEquals(List.of(inside), getIds(toProcess));
+
+      assertEquals(DataSet.STATUS_DATA_REDUCTION,
+        DataSetDB.getDataSet(conn, DATASET_ID).getStatus());
+    }
+  }
+
+  /**
+   * Test that a window covering the whole dataset is treated as a full run,
+   * so measurements whose times have been moved outside the dataset by the
+   * sensor offsets are still removed and reprocessed.
+   */
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void wholeDatasetWindowTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      DataSet dataSet = DataSetDB.getDataSet(conn, DATASET_ID);
+
+      long offset = addReducedMeasurement(conn,
+        dataSet.getStart().minusSeconds(5));
+      long inside = addReducedMeasurement(conn,
+        dataSet.getStart().plusSeconds(30));
+
+      Properties properties = makeProperties(dataSet.getStart(),
+        dataSet.getEnd());
+
+      LocalDateTime[] window = DataReductionJob.getWindow(properties,
+        dataSet);
+      assertNull(window);
+
+      new WindowTestJob(properties).resetDataset(conn, window);
+
+      assertFalse(hasDataReduction(conn, offset));
+      assertFalse(hasDataReduction(conn, inside));
+
+      List<Measurement> toProcess = DataReductionJob.filterWindow(
+        DataSetDataDB.getMeasurements(conn, DATASET_ID), window);
+
+      assertEquals(List.of(offset, inside), getIds(toProcess));
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void noWindowTest() throws Exception {
+    try (Connection conn = getConnection()) {
+      DataSet dataSet = DataSetDB.getDataSet(conn, DATASET_ID);
+      assertNull(
+        DataReductionJob.getWindow(makeProperties(null, null), dataSet));
+    }
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void setWindowTest() throws Exception {
+    LocalDateTime start = LocalDateTime.of(2021, 1, 1, 6, 0, 0);
+    LocalDateTime end = LocalDateTime.of(2021, 1, 1, 12, 0, 0);
+
+    Properties properties = makeProperties(start, end);
+
+    assertEquals(String.valueOf(DateTimeUtils.dateToLong(start)),
+      properties.getProperty(DataReductionJob.WINDOW_START_PARAM));
+    assertEquals(String.valueOf(DateTimeUtils.dateToLong(end)),
+      properties.getProperty(DataReductionJob.WINDOW_END_PARAM));
+
+    // Valid parameters are accepted by both jobs
+    new WindowTestJob(properties);
+    new DataReductionQCJob(ResourceManager.getInstance(),
+      ResourceManager.getInstance().getConfig(), 1L, properties);
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void windowStartOnlyTest() throws Exception {
+    Properties properties = makeProperties(null, null);
+    properties.setProperty(DataReductionJob.WINDOW_START_PARAM, "1000");
+
+    assertThrows(InvalidJobParametersException.class, () -> {
+      new WindowTestJob(properties);
+    });
+
+    assertThrows(InvalidJobParametersException.class, () -> {
+      new DataReductionQCJob(ResourceManager.getInstance(),
+        ResourceManager.getInstance().getConfig(), 1L, properties);
+    });
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void windowStartAfterEndTest() throws Exception {
+    Properties properties = makeProperties(
+      LocalDateTime.of(2021, 1, 1, 12, 0, 0),
+      LocalDateTime.of(2021, 1, 1, 6, 0, 0));
+
+    assertThrows(InvalidJobParametersException.class, () -> {
+      new WindowTestJob(properties);
+    });
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/testbase/dataset" })
+  @Test
+  public void windowNotNumericTest() throws Exception {
+    Properties properties = makeProperties(null, null);
+    properties.setProperty(DataReductionJob.WINDOW_START_PARAM, "Start");
+    properties.setProperty(DataReductionJob.WINDOW_END_PARAM, "End");
+
+    assertThrows(InvalidJobParametersException.class, () -> {
+      new WindowTestJob(properties);
+    });
+  }
+}
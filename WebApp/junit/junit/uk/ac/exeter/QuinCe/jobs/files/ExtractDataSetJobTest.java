@@ -0,0 +1,181 @@
+package junit.uk.ac.exeter.QuinCe.jobs.files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+
+import org.flywaydb.test.annotation.FlywayTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
+import uk.ac.exeter.QuinCe.data.Files.DataFile;
+import uk.ac.exeter.QuinCe.data.Files.DataFileDB;
+import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
+import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
+import uk.ac.exeter.QuinCe.jobs.files.ExtractDataSetJob;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Tests for running an {@link ExtractDataSetJob} on a data file stored in the
+ * database and file store.
+ *
+ * <p>
+ * The job loads its files from the database, so their contents are only read
+ * from the file store when they are needed. These tests make sure that the
+ * whole extraction runs on files loaded in this way.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class ExtractDataSetJobTest extends BaseTest {
+
+  private static final long DATASET_ID = 1001L;
+
+  private static final long JOB_ID = 1001L;
+
+  /**
+   * The database ID of the Intake Temperature column from
+   * {@code testbase/instrument}
+   */
+  private static final long INTAKE_TEMP_COLUMN = 1L;
+
+  /**
+   * The number of columns in the test instrument's file
+   */
+  private static final int COLUMN_COUNT = 65;
+
+  private static final String SENSOR_VALUES_QUERY = "SELECT value "
+    + "FROM sensor_values WHERE dataset_id = ? AND file_column = ? "
+    + "ORDER BY date";
+
+  /**
+   * An {@link ExtractDataSetJob} that can be run directly in the test.
+   */
+  private static class TestExtractJob extends ExtractDataSetJob {
+
+    private TestExtractJob() throws Exception {
+      super(ResourceManager.getInstance(),
+        ResourceManager.getInstance().getConfig(), JOB_ID, makeProperties());
+    }
+
+    private void run() throws Exception {
+      execute(null);
+    }
+
+    private static Properties makeProperties() {
+      Properties properties = new Properties();
+      properties.setProperty(ExtractDataSetJob.ID_PARAM,
+        String.valueOf(DATASET_ID));
+      return properties;
+    }
+  }
+
+  @BeforeEach
+  public void setup() {
+    initResourceManager();
+  }
+
+  /**
+   * Make a line for the test instrument's file.
+   *
+   * @param date
+   *          The date ({@code dd/MM/yy})
+   * @param time
+   *          The time ({@code HH:mm:ss})
+   * @param intakeTemp
+   *          The intake temperature
+   * @return The line
+   */
+  private String makeLine(String date, String time, String intakeTemp) {
+    String[] fields = new String[COLUMN_COUNT];
+    Arrays.fill(fields, "0");
+
+    fields[2] = "STD1";
+    fields[3] = date;
+    fields[4] = time;
+    fields[5] = "50.5";
+    fields[6] = "N";
+    fields[7] = "10.25";
+    fields[8] = "W";
+    fields[14] = intakeTemp;
+
+    return String.join(" ", fields);
+  }
+
+  /**
+   * Store a file containing four lines inside the dataset and one after it.
+   */
+  private void storeFile() throws Exception {
+    FileDefinition fileDefinition;
+    try (Connection conn = getConnection()) {
+      fileDefinition = InstrumentDB.getInstrument(conn, 1L)
+        .getFileDefinitions().get(0);
+    }
+
+    List<String> contents = new ArrayList<String>();
+    contents.add("Header 1");
+    contents.add("Header 2");
+    contents.add(makeLine("01/01/21", "01:00:00", "20.1"));
+    contents.add(makeLine("01/01/21", "01:01:00", "20.2"));
+    contents.add(makeLine("01/01/21", "01:02:00", "20.3"));
+    contents.add(makeLine("01/01/21", "01:03:00", "20.4"));
+    contents.add(makeLine("02/01/21", "12:00:00", "20.5"));
+
+    DataFile dataFile = new DataFile(
+      ResourceManager.getInstance().getConfig().getProperty("filestore"),
+      fileDefinition, "extract.txt", contents);
+
+    DataFileDB.storeFile(getDataSource(),
+      ResourceManager.getInstance().getConfig(), dataFile, -1L);
+  }
+
+  private List<String> getSensorValues(Connection conn, long columnId)
+    throws Exception {
+
+    List<String> values = new ArrayList<String>();
+
+    try (PreparedStatement stmt = conn.prepareStatement(SENSOR_VALUES_QUERY)) {
+      stmt.setLong(1, DATASET_ID);
+      stmt.setLong(2, columnId);
+
+      try (ResultSet records = stmt.executeQuery()) {
+        while (records.next()) {
+          values.add(records.getString(1));
+        }
+      }
+    }
+
+    return values;
+  }
+
+  @FlywayTest(locationsForMigrate = { "resources/sql/testbase/user",
+    "resources/sql/testbase/variable", "resources/sql/testbase/instrument",
+    "resources/sql/jobs/files/ExtractDataSetJobTest" })
+  @Test
+  public void extractStoredFileTest() throws Exception {
+    storeFile();
+
+    new TestExtractJob().run();
+
+    try (Connection conn = getConnection()) {
+      assertEquals(List.of("20.1", "20.2", "20.3", "20.4"),
+        getSensorValues(conn, INTAKE_TEMP_COLUMN));
+
+      DataSet dataSet = DataSetDB.getDataSet(conn, DATASET_ID);
+      assertEquals(DataSet.STATUS_SENSOR_QC, dataSet.getStatus());
+      assertEquals(LocalDateTime.of(2021, 1, 1, 1, 0, 0), dataSet.getStart());
+      assertEquals(LocalDateTime.of(2021, 1, 1, 1, 3, 0), dataSet.getEnd());
+    }
+  }
+}
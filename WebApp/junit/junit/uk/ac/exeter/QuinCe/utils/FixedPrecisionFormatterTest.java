@@ -0,0 +1,180 @@
+package junit.uk.ac.exeter.QuinCe.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.utils.FixedPrecisionFormatter;
+
+/**
+ * Tests for {@link FixedPrecisionFormatter}.
+ *
+ * <p>
+ * The formatter must produce exactly the same output as the
+ * {@link DecimalFormat} it replaces, so most tests compare the two.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class FixedPrecisionFormatterTest extends BaseTest {
+
+  private static DecimalFormat makeDecimalFormat(int decimalPlaces) {
+    DecimalFormat format = new DecimalFormat();
+    format.setMinimumFractionDigits(decimalPlaces);
+    format.setMaximumFractionDigits(decimalPlaces);
+    format.setGroupingUsed(false);
+    format.setRoundingMode(RoundingMode.HALF_UP);
+    format.setDecimalFormatSymbols(
+      new DecimalFormatSymbols(new Locale("en", "US")));
+    return format;
+  }
+
+  @ParameterizedTest
+  @ValueSource(doubles = { 0D, -0D, 1D, -1D, 0.0005D, 0.0015D, 0.0025D,
+    1.0005D, 2.675D, -2.675D, 0.9995D, 9.9995D, -0.0004D, -0.0005D, 123.456D,
+    999999.9995D, 1e14D, 1e15D, 1e20D, -1e20D, Double.MIN_VALUE,
+    Double.MAX_VALUE, Double.NaN, Double.POSITIVE_INFINITY,
+    Double.NEGATIVE_INFINITY })
+  public void doubleMatchesDecimalFormatTest(double value) {
+    assertEquals(makeDecimalFormat(3).format(value),
+      new FixedPrecisionFormatter(3).format(value));
+  }
+
+  @Test
+  public void randomDoublesMatchDecimalFormatTest() {
+    Random random = new Random(42L);
+
+    for (int places = 0; places <= 6; places++) {
+      DecimalFormat decimalFormat = makeDecimalFormat(places);
+      FixedPrecisionFormatter formatter = new FixedPrecisionFormatter(places);
+
+      for (int i = 0; i < 100000; i++) {
+        double value = (random.nextDouble() - 0.5D)
+          * Math.pow(10, random.nextInt(18));
+        assertEquals(decimalFormat.format(value), formatter.format(value),
+          String.valueOf(value));
+      }
+    }
+  }
+
+  @Test
+  public void halfwayDoublesMatchDecimalFormatTest() {
+    DecimalFormat decimalFormat = makeDecimalFormat(3);
+    FixedPrecisionFormatter formatter = new FixedPrecisionFormatter(3);
+
+    // Values whose decimal representation ends in 5 at the fourth place are
+    // the most sensitive to rounding errors
+    for (int i = -100000; i <= 100000; i++) {
+      double value = i / 10000D + 0.00005D;
+      assertEquals(decimalFormat.format(value), formatter.format(value),
+        String.valueOf(value));
+    }
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "0", "-0", "0.0", "-0.0", "-0.0001", "-0.0005",
+    "1.0005", "1.00049999999999999", "2.675", "-2.675", "0.9995", "9.9995",
+    "-9.9995", "999.9999", "123", "123.4", "123.456", "123.4565",
+    "12345678901234567890.12345", ".5", "1e3", "1.5E-2",
+    "-1.2345e2", "0.5", "10" })
+  public void stringMatchesDecimalFormatTest(String value) {
+    assertEquals(makeDecimalFormat(3).format(new BigDecimal(value)),
+      new FixedPrecisionFormatter(3).format(value));
+  }
+
+  @ParameterizedTest
+  @ValueSource(strings = { "", " ", "abc", "1.2.3", "-", "1-2", "1,000",
+    "N/A" })
+  public void nonNumericStringUnchangedTest(String value) {
+    StringBuilder out = new StringBuilder();
+    FixedPrecisionFormatter formatter = new FixedPrecisionFormatter(3);
+
+    assertEquals(value, formatter.format(value));
+    assertFalse(formatter.formatIfNumeric(value, out));
+    assertEquals(0, out.length());
+  }
+
+  @Test
+  public void nullStringTest() {
+    assertNull(new FixedPrecisionFormatter(3).format((String) null));
+  }
+
+  @Test
+  public void formatIfNumericAppendsTest() {
+    StringBuilder out = new StringBuilder("x=");
+    assertTrue(new FixedPrecisionFormatter(2).formatIfNumeric("1.005", out));
+    assertEquals("x=1.01", out.toString());
+  }
+
+  @Test
+  public void formatDoubleAppendsTest() {
+    StringBuilder out = new StringBuilder("x=");
+    new FixedPrecisionFormatter(1).format(-12.25D, out);
+    assertEquals("x=-12.3", out.toString());
+  }
+
+  @Test
+  public void invalidDecimalPlacesTest() {
+    assertThrows(IllegalArgumentException.class, () -> {
+      new FixedPrecisionFormatter(-1);
+    });
+
+    assertThrows(IllegalArgumentException.class, () -> {
+      new FixedPrecisionFormatter(10);
+    });
+  }
+
+  @Test
+  public void concurrentFormattingTest() throws Exception {
+    FixedPrecisionFormatter formatter = new FixedPrecisionFormatter(3);
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    try {
+      List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+
+      for (int t = 0; t < 8; t++) {
+        long seed = t;
+        results.add(executor.submit(() -> {
+          DecimalFormat decimalFormat = makeDecimalFormat(3);
+          Random random = new Random(seed);
+          boolean ok = true;
+
+          for (int i = 0; i < 20000 && ok; i++) {
+            double value = (random.nextDouble() - 0.5D) * 1e6D;
+            ok = decimalFormat.format(value).equals(formatter.format(value))
+              && decimalFormat.format(new BigDecimal(String.valueOf(value)))
+                .equals(formatter.format(String.valueOf(value)));
+          }
+
+          return ok;
+        }));
+      }
+
+      for (Future<Boolean> result : results) {
+        assertTrue(result.get());
+      }
+    } finally {
+      executor.shutdown();
+    }
+  }
+}
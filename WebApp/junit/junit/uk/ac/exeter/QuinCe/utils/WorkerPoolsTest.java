@@ -0,0 +1,93 @@
+package junit.uk.ac.exeter.QuinCe.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import uk.ac.exeter.QuinCe.utils.WorkerPools;
+
+/**
+ * Tests for {@link WorkerPools}.
+ *
+ * <p>
+ * The tests use their own registries. Shutting down the application's shared
+ * registry would stop the pools used by jobs in other tests.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class WorkerPoolsTest {
+
+  @Test
+  public void shutdownStopsRegisteredPoolsTest() throws Exception {
+    WorkerPools registry = new WorkerPools();
+    ForkJoinPool pool1 = registry.createPool();
+    ForkJoinPool pool2 = registry.createPool();
+
+    assertEquals(1, pool1.submit(() -> 1).get());
+    assertEquals(2, pool2.submit(() -> 2).get());
+
+    registry.shutdownPools();
+
+    assertTrue(pool1.isTerminated());
+    assertTrue(pool2.isTerminated());
+  }
+
+  @Test
+  public void shutdownInterruptsRunningTasksTest() throws Exception {
+    WorkerPools registry = new WorkerPools();
+    ForkJoinPool pool = registry.createPool();
+
+    CountDownLatch started = new CountDownLatch(1);
+    Future<?> task = pool.submit(() -> {
+      started.countDown();
+      Thread.sleep(60000);
+      return null;
+    });
+
+    assertTrue(started.await(10, TimeUnit.SECONDS));
+    registry.shutdownPools();
+
+    assertTrue(pool.isTerminated());
+    assertTrue(task.isDone());
+  }
+
+  @Test
+  public void shutdownOnlyAffectsOwnPoolsTest() throws Exception {
+    WorkerPools registry = new WorkerPools();
+    WorkerPools otherRegistry = new WorkerPools();
+
+    ForkJoinPool pool = registry.createPool();
+    ForkJoinPool otherPool = otherRegistry.createPool();
+
+    registry.shutdownPools();
+
+    assertTrue(pool.isShutdown());
+    assertFalse(otherPool.isShutdown());
+    assertEquals(1, otherPool.submit(() -> 1).get());
+
+    otherRegistry.shutdownPools();
+    assertTrue(otherPool.isTerminated());
+  }
+
+  @Test
+  public void shutdownPoolRejectsTasksTest() throws Exception {
+    WorkerPools registry = new WorkerPools();
+    ForkJoinPool pool = registry.createPool();
+    registry.shutdownPools();
+
+    assertThrows(RejectedExecutionException.class, () -> {
+      pool.submit(() -> 1);
+    });
+  }
+}
@@ -2,6 +2,7 @@ package junit.uk.ac.exeter.QuinCe.web.Instrument;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -28,6 +29,7 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorGroupsExceptio
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.web.Instrument.CalculationCoefficientsBean;
 import uk.ac.exeter.QuinCe.web.Instrument.CalibrationBean;
 import uk.ac.exeter.QuinCe.web.Instrument.InvalidCalibrationEditException;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
@@ -602,6 +604,124 @@ public class CalibrationBeanTest extends BaseTest {
     assertTrue(affectedDatasetMatches(affected, "B", true));
   }
 
+  /**
+   * Create a {@link CalculationCoefficientsBean} for adding or editing a
+   * coefficient.
+   *
+   * @param editAction
+   *          The edit action being performed.
+   * @param calibrationId
+   *          The coefficient's database ID.
+   * @param coefficient
+   *          The coefficient name.
+   * @param deploymentDate
+   *          The coefficient date.
+   * @return The initialised bean.
+   */
+  private static CalibrationBean initCoefficientsBean(int editAction,
+    long calibrationId, String coefficient, LocalDateTime deploymentDate)
+    throws Exception {
+
+    CalibrationBean bean = new CalculationCoefficientsBean();
+    bean.setInstrumentId(INSTRUMENT_ID);
+    bean.start();
+
+    bean.setSelectedCalibrationId(calibrationId);
+    bean.loadSelectedCalibration();
+    bean.setEditAction(editAction);
+
+    // Targets are <variable id>.<coefficient>
+    String target = bean.getTargets().keySet().stream()
+      .filter(t -> t.endsWith("." + coefficient)).findFirst().get();
+
+    bean.getCalibration().setDeploymentDate(deploymentDate);
+    bean.getCalibration().setTarget(target);
+
+    return bean;
+  }
+
+  /**
+   * Test that adding a calculation coefficient between two others inside a
+   * dataset limits the reprocessing of that dataset to the period between
+   * the surrounding coefficients. Coefficients are interpolated, so the
+   * period starts at the previous coefficient even though only datasets after
+   * the new coefficient are affected.
+   *
+   * @throws Exception
+   *           If any internal errors are encountered.
+   */
+  @FlywayTest(locationsForMigrate = {
+    "resources/sql/web/Instrument/CalibrationBeanTest/base",
+    "resources/sql/web/Instrument/CalibrationBeanTest/calculationCoefficients" })
+  @Test
+  public void reprocessWindowInsideDatasetTest() throws Exception {
+
+    CalibrationBean bean = initCoefficientsBean(CalibrationBean.ADD_ACTION, -1,
+      "k1", LocalDateTime.of(2019, 6, 13, 0, 0, 0));
+
+    bean.calcAffectedDataSets();
+
+    assertNull(getAffectedDataset(bean, "A"));
+    DataSet dataset = getAffectedDataset(bean, "B");
+    assertNotNull(dataset);
+
+    LocalDateTime[] window = bean.getReprocessWindow(dataset);
+    assertNotNull(window);
+    assertEquals(LocalDateTime.of(2019, 6, 11, 0, 0, 0), window[0]);
+    assertEquals(LocalDateTime.of(2019, 6, 14, 0, 0, 0), window[1]);
+  }
+
+  /**
+   * Test that moving a calculation coefficient inside a dataset limits the
+   * reprocessing of that dataset to the period from the previous coefficient.
+   *
+   * @throws Exception
+   *           If any internal errors are encountered.
+   */
+  @FlywayTest(locationsForMigrate = {
+    "resources/sql/web/Instrument/CalibrationBeanTest/base",
+    "resources/sql/web/Instrument/CalibrationBeanTest/calculationCoefficients" })
+  @Test
+  public void reprocessWindowMovedCoefficientTest() throws Exception {
+
+    CalibrationBean bean = initCoefficientsBean(CalibrationBean.EDIT_ACTION,
+      1002L, "k1", LocalDateTime.of(2019, 6, 13, 0, 0, 0));
+
+    bean.calcAffectedDataSets();
+
+    DataSet dataset = getAffectedDataset(bean, "B");
+    assertNotNull(dataset);
+
+    LocalDateTime[] window = bean.getReprocessWindow(dataset);
+    assertNotNull(window);
+    assertEquals(LocalDateTime.of(2019, 6, 11, 0, 0, 0), window[0]);
+    assertEquals(dataset.getEnd(), window[1]);
+  }
+
+  /**
+   * Test that adding a calculation coefficient inside a dataset whose
+   * previous coefficient is before the dataset means the whole dataset is
+   * reprocessed.
+   *
+   * @throws Exception
+   *           If any internal errors are encountered.
+   */
+  @FlywayTest(locationsForMigrate = {
+    "resources/sql/web/Instrument/CalibrationBeanTest/base",
+    "resources/sql/web/Instrument/CalibrationBeanTest/calculationCoefficients" })
+  @Test
+  public void reprocessWindowWholeDatasetTest() throws Exception {
+
+    CalibrationBean bean = initCoefficientsBean(CalibrationBean.ADD_ACTION, -1,
+      "k2", LocalDateTime.of(2019, 6, 12, 0, 0, 0));
+
+    bean.calcAffectedDataSets();
+
+    DataSet dataset = getAffectedDataset(bean, "B");
+    assertNotNull(dataset);
+    assertNull(bean.getReprocessWindow(dataset));
+  }
+
   /**
    * Test deleting the only calibration when prior calibrations are required.
    *
@@ -666,6 +786,22 @@ public class CalibrationBeanTest extends BaseTest {
     return result;
   }
 
+  /**
+   * Get the affected {@link DataSet} with the specified name.
+   *
+   * @param bean
+   *          The bean
+   * @param name
+   *          The dataset name
+   * @return The dataset, or {@code null} if it is not affected
+   */
+  private static DataSet getAffectedDataset(CalibrationBean bean,
+    String name) {
+
+    return bean.getAffectedDatasets().keySet().stream()
+      .filter(d -> d.getName().equals(name)).findFirst().orElse(null);
+  }
+
   /**
    * Test whether or not the named dataset is present in the specified
    * collection of affected datasets, and that the {@code canBeReprocessed} flag
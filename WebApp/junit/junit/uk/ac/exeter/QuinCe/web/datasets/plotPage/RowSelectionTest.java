@@ -0,0 +1,85 @@
+package junit.uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import junit.uk.ac.exeter.QuinCe.TestBase.BaseTest;
+import uk.ac.exeter.QuinCe.web.datasets.plotPage.RowSelection;
+
+/**
+ * Tests for {@link RowSelection}.
+ *
+ * @author Steve Jones
+ *
+ */
+public class RowSelectionTest extends BaseTest {
+
+  private static final List<Long> ROW_IDS = Arrays.asList(10L, 20L, 30L, 40L,
+    50L, 60L);
+
+  @Test
+  public void emptySelectionTest() {
+    RowSelection selection = new RowSelection(ROW_IDS);
+    assertTrue(selection.isEmpty());
+    assertEquals(0, selection.size());
+    assertEquals("[]", selection.toJson());
+  }
+
+  @Test
+  public void toJsonRangesTest() {
+    RowSelection selection = new RowSelection(ROW_IDS);
+    selection.setIndex(0, true);
+    selection.setIndex(1, true);
+    selection.setIndex(2, true);
+    selection.setIndex(4, true);
+
+    assertEquals("[[10,30],[50,50]]", selection.toJson());
+    assertEquals(4, selection.size());
+  }
+
+  @Test
+  public void setFromJsonTest() {
+    RowSelection selection = new RowSelection(ROW_IDS);
+    selection.setFromJson("[[15,40],[60,60]]");
+
+    assertEquals(Arrays.asList(20L, 30L, 40L, 60L),
+      selection.getSelectedRowIds());
+    assertFalse(selection.isSelected(10L));
+    assertTrue(selection.isSelected(30L));
+    assertFalse(selection.isSelected(35L));
+    assertEquals("[[20,40],[60,60]]", selection.toJson());
+  }
+
+  @Test
+  public void setFromJsonReplacesSelectionTest() {
+    RowSelection selection = new RowSelection(ROW_IDS);
+    selection.setFromJson("[[10,60]]");
+    selection.setFromJson("[[30,30]]");
+    assertEquals(Arrays.asList(30L), selection.getSelectedRowIds());
+
+    selection.setFromJson("");
+    assertTrue(selection.isEmpty());
+  }
+
+  @Test
+  public void rangeOutsideRowsTest() {
+    RowSelection selection = new RowSelection(ROW_IDS);
+    selection.setFromJson("[[1,5],[70,80],[41,49]]");
+    assertTrue(selection.isEmpty());
+  }
+
+  @Test
+  public void indexOfTest() {
+    RowSelection selection = new RowSelection(ROW_IDS);
+    assertEquals(3, selection.indexOf(40L));
+    assertEquals(-1, selection.indexOf(45L));
+    assertEquals(40L, selection.getRowId(3));
+    assertEquals(6, selection.getRowCount());
+  }
+}
@@ -0,0 +1,11 @@
+-- Journal of manual QC flag changes waiting to be written to sensor_values
+CREATE TABLE qc_flag_journal (
+  id bigint NOT NULL AUTO_INCREMENT,
+  dataset_id int NOT NULL,
+  created bigint NOT NULL,
+  entries longtext NOT NULL,
+  PRIMARY KEY (id),
+  CONSTRAINT QCFLAGJOURNAL_DATASET FOREIGN KEY (dataset_id) REFERENCES dataset (id) ON DELETE NO ACTION ON UPDATE NO ACTION
+);
+
+CREATE INDEX QCFLAGJOURNAL_DATASET_idx ON qc_flag_journal(dataset_id);
@@ -0,0 +1,4 @@
+-- Indexes for the paginated job list and the job tidier
+CREATE INDEX JOB_CREATED_idx ON job (created, id);
+CREATE INDEX JOB_STATUS_CREATED_idx ON job (status, created, id);
+CREATE INDEX JOB_STATUS_ENDED_idx ON job (status, ended);
@@ -0,0 +1,23 @@
+-- Dataset and job for running an ExtractDataSetJob on the
+-- instrument from testbase.instrument
+
+-- Run type used in the test data file
+INSERT INTO run_type (file_definition_id, run_name, category_code)
+  VALUES (1, 'STD1', -3);
+
+-- 2021-01-01T00:00:00Z to 2021-01-02T00:00:00Z
+INSERT INTO dataset (
+    id, instrument_id, name, start, end, min_longitude,
+    max_longitude, min_latitude, max_latitude, status, nrt, status_date,
+    properties, error_messages, last_touched
+  ) VALUES (
+    1001, 1, 'BSBS20210101', 1609459200000, 1609545600000, 0, 0, 0, 0, 0, 0,
+    1609718400000,
+    '{"_INSTRUMENT":{"depth":"5","postFlushingTime":"0","preFlushingTime":"0"},"Underway Marine pCO₂":{},"Underway Atmospheric pCO₂":{"atm_pres_sensor_height":"10.0"}}',
+    NULL, 1609804800000
+  );
+
+-- The extraction job, owned by the user from testbase.user
+INSERT INTO job (id, owner, class, status)
+  VALUES (1001, 1, 'uk.ac.exeter.QuinCe.jobs.files.ExtractDataSetJob',
+    'RUNNING');
@@ -0,0 +1,31 @@
+-- A pair of datasets for an instrument with calculation coefficients
+
+-- The instrument measures CONTROS pCO₂, which has calculation coefficients
+INSERT INTO instrument_variables (instrument_id, variable_id)
+  VALUES (1000000, (SELECT id FROM variables WHERE name = 'CONTROS pCO₂'));
+
+-- 2019-06-03T00:00:00 to 2019-06-05T00:00:00
+INSERT INTO dataset (id, instrument_id, name, start, end, status, status_date)
+  VALUES (1001, 1000000, 'A', 1559520000000, 1559692800000, 4, 0);
+
+-- 2019-06-10T00:00:00 to 2019-06-15T00:00:00
+INSERT INTO dataset (id, instrument_id, name, start, end, status, status_date)
+  VALUES (1002, 1000000, 'B', 1560124800000, 1560556800000, 4, 0);
+
+-- k1 coefficients at 2019-06-11T00:00:00 and 2019-06-14T00:00:00,
+-- both inside dataset B
+INSERT INTO calibration (id, instrument_id, type, target, deployment_date, coefficients, class)
+  VALUES (1001, 1000000, 'CALC_COEFFICIENT',
+    CONCAT((SELECT id FROM variables WHERE name = 'CONTROS pCO₂'), '.k1'),
+    1560211200000, '{"Value":"1.0"}', 'CalculationCoefficient');
+
+INSERT INTO calibration (id, instrument_id, type, target, deployment_date, coefficients, class)
+  VALUES (1002, 1000000, 'CALC_COEFFICIENT',
+    CONCAT((SELECT id FROM variables WHERE name = 'CONTROS pCO₂'), '.k1'),
+    1560470400000, '{"Value":"2.0"}', 'CalculationCoefficient');
+
+-- k2 coefficient at 2019-06-01T00:00:00, before both datasets
+INSERT INTO calibration (id, instrument_id, type, target, deployment_date, coefficients, class)
+  VALUES (1003, 1000000, 'CALC_COEFFICIENT',
+    CONCAT((SELECT id FROM variables WHERE name = 'CONTROS pCO₂'), '.k2'),
+    1559347200000, '{"Value":"1.0"}', 'CalculationCoefficient');
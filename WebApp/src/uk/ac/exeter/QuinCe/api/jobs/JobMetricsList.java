@@ -0,0 +1,120 @@
+package uk.ac.exeter.QuinCe.api.jobs;
+
+import java.util.List;
+import java.util.Map;
+
+import javax.ws.rs.GET;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.MediaType;
+
+import org.primefaces.json.JSONArray;
+import org.primefaces.json.JSONObject;
+
+import uk.ac.exeter.QuinCe.jobs.JobMetrics;
+import uk.ac.exeter.QuinCe.jobs.JobMetricsRegistry;
+import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
+
+/**
+ * Read-only API call to get the processing metrics for running and recently
+ * completed jobs on this application instance.
+ *
+ * <p>
+ * The JSON is formatted as follows. All times are in milliseconds:
+ * </p>
+ *
+ * <pre>
+ * {
+ *   "running": [
+ *     {
+ *       "id": 1234,
+ *       "class": "ExtractDataSetJob",
+ *       "status": "RUNNING",
+ *       "stage": "Read files",
+ *       "progress": 42.0,
+ *       "elapsed": 60000,
+ *       "idle": 150,
+ *       "peakHeap": 536870912,
+ *       "counters": { "Rows read": 123000 },
+ *       "timings": {},
+ *       "stages": [
+ *         { "name": "Load files", "wall": 1200, "cpu": 300, "db": 800 },
+ *         { "name": "Read files", "wall": 58800, "cpu": 57000, "db": 0 }
+ *       ]
+ *     }
+ *   ],
+ *   "completed": [ ... ]
+ * }
+ * </pre>
+ *
+ * @author Steve Jones
+ *
+ */
+@Path("/jobs/metrics")
+public class JobMetricsList {
+
+  /**
+   * The main processing method for the API call.
+   *
+   * @return The JSON output (see above).
+   * @throws Exception
+   *           If any errors occur while building the output. Results in a
+   *           {@link javax.ws.rs.core.Response.Status#INTERNAL_SERVER_ERROR}
+   *           being sent back to the client.
+   */
+  @GET
+  @Produces(MediaType.APPLICATION_JSON)
+  public String getJobMetrics() throws Exception {
+
+    String result = null;
+
+    try {
+      JSONObject json = new JSONObject();
+      json.put("running", toJson(JobMetricsRegistry.getRunningJobs()));
+      json.put("completed", toJson(JobMetricsRegistry.getCompletedJobs()));
+      result = json.toString();
+    } catch (Exception e) {
+      ExceptionUtils.printStackTrace(e);
+      throw e;
+    }
+
+    return result;
+  }
+
+  private JSONArray toJson(List<JobMetrics> jobs) {
+    JSONArray result = new JSONArray();
+
+    for (JobMetrics job : jobs) {
+      JSONObject jobJson = new JSONObject();
+      jobJson.put("id", job.getJobId());
+      jobJson.put("class", job.getJobClass());
+      jobJson.put("status", job.getStatus());
+      jobJson.put("stage", job.getCurrentStage());
+      jobJson.put("progress", job.getProgress());
+      jobJson.put("elapsed", job.getElapsedMillis());
+      jobJson.put("idle", job.getIdleMillis());
+      jobJson.put("peakHeap", job.getPeakHeapBytes());
+      jobJson.put("counters", new JSONObject(job.getCounters()));
+      jobJson.put("timings", new JSONObject(job.getTimingMillis()));
+
+      Map<String, Long> wall = job.getStageWallMillis();
+      Map<String, Long> cpu = job.getStageCpuMillis();
+      Map<String, Long> db = job.getStageDatabaseMillis();
+
+      JSONArray stages = new JSONArray();
+      for (String stage : wall.keySet()) {
+        JSONObject stageJson = new JSONObject();
+        stageJson.put("name", stage);
+        stageJson.put("wall", wall.get(stage));
+        stageJson.put("cpu", cpu.get(stage));
+        stageJson.put("db", db.get(stage));
+        stages.put(stageJson);
+      }
+      jobJson.put("stages", stages);
+
+      result.put(jobJson);
+    }
+
+    return result;
+  }
+}
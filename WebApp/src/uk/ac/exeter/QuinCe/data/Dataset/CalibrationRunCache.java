@@ -0,0 +1,354 @@
+package uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+import org.apache.commons.math3.stat.descriptive.moment.Mean;
+import org.apache.commons.math3.stat.regression.SimpleRegression;
+
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetMeasurements.RunSegment;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
+
+/**
+ * Memoised gas standard calculations used when calibrating measurements
+ * against internal calibration runs.
+ *
+ * <p>
+ * All the measurements between a given pair of standard runs use the same
+ * standard runs for their calibration, so the mean of each run and the
+ * regression of the standard offsets are the same for all of them. This class
+ * stores those results so they only need to be calculated once. Each
+ * measurement then only needs to apply the fitted regression to its own value.
+ * </p>
+ *
+ * <p>
+ * Entries are keyed by the identity of the sensor values list and the
+ * {@link RunSegment}s, so the cache is only valid for the lifetime of the
+ * {@link DatasetMeasurements} object that owns it and must be cleared whenever
+ * its run segments are rebuilt. The sensor values must not change while the
+ * cache is in use.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class CalibrationRunCache {
+
+  /**
+   * The calculated means of individual standard runs.
+   */
+  private final ConcurrentHashMap<RunKey, RunMean> runMeans = new ConcurrentHashMap<RunKey, RunMean>();
+
+  /**
+   * The regressions calculated from sets of standard runs.
+   */
+  private final ConcurrentHashMap<FitKey, OffsetFit> fits = new ConcurrentHashMap<FitKey, OffsetFit>();
+
+  /**
+   * Get the mean of the good sensor values in a standard run, calculating it
+   * if required.
+   *
+   * @param sensorValues
+   *          The sensor values for the calibrated sensor
+   * @param run
+   *          The standard run
+   * @return The run mean
+   */
+  public RunMean getRunMean(SearchableSensorValuesList sensorValues,
+    RunSegment run) {
+    return runMeans.computeIfAbsent(new RunKey(sensorValues, run),
+      k -> calculateRunMean(sensorValues, run));
+  }
+
+  /**
+   * Get the regression of standard offsets against standard concentrations
+   * for a set of standard runs, calculating it if required.
+   *
+   * <p>
+   * The {@code runs} and {@code concentrations} arrays must be the same
+   * length, with each concentration being the standard concentration for the
+   * corresponding run. Runs may be {@code null} if no run was found for a
+   * standard; these are ignored.
+   * </p>
+   *
+   * @param sensorValues
+   *          The sensor values for the calibrated sensor
+   * @param runs
+   *          The standard runs
+   * @param concentrations
+   *          The standard concentrations
+   * @return The fitted regression
+   */
+  public OffsetFit getOffsetFit(SearchableSensorValuesList sensorValues,
+    RunSegment[] runs, double[] concentrations) {
+
+    FitKey key = new FitKey(sensorValues, runs, concentrations);
+
+    OffsetFit result = fits.get(key);
+    if (null == result) {
+      List<RunMean> means = new ArrayList<RunMean>(runs.length);
+      for (RunSegment run : runs) {
+        means.add(null == run ? null : getRunMean(sensorValues, run));
+      }
+
+      result = fits.computeIfAbsent(key, k -> fit(means, concentrations));
+    }
+
+    return result;
+  }
+
+  /**
+   * Remove all cached values.
+   */
+  public void clear() {
+    runMeans.clear();
+    fits.clear();
+  }
+
+  /**
+   * Calculate the mean of the good sensor values in a standard run.
+   *
+   * @param sensorValues
+   *          The sensor values for the calibrated sensor
+   * @param run
+   *          The standard run
+   * @return The run mean
+   */
+  public static RunMean calculateRunMean(
+    SearchableSensorValuesList sensorValues, RunSegment run) {
+
+    List<SensorValue> usedValues = run.getMeasurements().stream()
+      .map(m -> sensorValues.get(m.getTime())).filter(v -> null != v)
+      .filter(v -> !v.getDoubleValue().isNaN())
+      .filter(v -> v.getUserQCFlag().isGood()).collect(Collectors.toList());
+
+    Mean mean = new Mean();
+    usedValues.forEach(v -> mean.increment(v.getDoubleValue()));
+
+    return new RunMean(mean.getResult(), usedValues);
+  }
+
+  /**
+   * Fit the regression of standard offsets against standard concentrations.
+   *
+   * @param means
+   *          The run means. {@code null} entries are ignored.
+   * @param concentrations
+   *          The standard concentrations
+   * @return The fitted regression
+   */
+  public static OffsetFit fit(List<RunMean> means, double[] concentrations) {
+
+    SimpleRegression regression = new SimpleRegression();
+    Set<SensorValue> usedValues = new HashSet<SensorValue>();
+
+    for (int i = 0; i < concentrations.length; i++) {
+      RunMean mean = means.get(i);
+
+      // If there are values from the run...
+      if (null != mean && !Double.isNaN(mean.getMean())) {
+        usedValues.addAll(mean.getUsedValues());
+        regression.addData(concentrations[i],
+          mean.getMean() - concentrations[i]);
+      }
+    }
+
+    return new OffsetFit(regression, usedValues);
+  }
+
+  /**
+   * The mean value of a standard run, and the sensor values used to calculate
+   * it.
+   */
+  public static final class RunMean {
+
+    private final double mean;
+
+    private final List<SensorValue> usedValues;
+
+    private RunMean(double mean, List<SensorValue> usedValues) {
+      this.mean = mean;
+      this.usedValues = Collections.unmodifiableList(usedValues);
+    }
+
+    /**
+     * Get the mean value of the run. This will be {@code NaN} if there are no
+     * usable values.
+     *
+     * @return The mean
+     */
+    public double getMean() {
+      return mean;
+    }
+
+    /**
+     * Get the sensor values used to calculate the mean.
+     *
+     * @return The used values
+     */
+    public List<SensorValue> getUsedValues() {
+      return usedValues;
+    }
+  }
+
+  /**
+   * The fitted regression of standard offsets against standard
+   * concentrations for a set of standard runs.
+   */
+  public static final class OffsetFit {
+
+    private final long n;
+
+    private final double slope;
+
+    private final double intercept;
+
+    private final Set<SensorValue> usedValues;
+
+    private final LocalDateTime time;
+
+    private OffsetFit(SimpleRegression regression,
+      Set<SensorValue> usedValues) {
+
+      this.n = regression.getN();
+      this.slope = regression.getSlope();
+      this.intercept = regression.getIntercept();
+      this.usedValues = Collections.unmodifiableSet(usedValues);
+      this.time = usedValues.isEmpty() ? null
+        : DateTimeUtils.meanTime(usedValues.stream().map(v -> v.getTime()));
+    }
+
+    /**
+     * Get the number of standard runs used in the regression.
+     *
+     * @return The number of runs
+     */
+    public long getN() {
+      return n;
+    }
+
+    /**
+     * Determine whether enough standard runs were available to fit the
+     * regression.
+     *
+     * @return {@code true} if the regression can be used
+     */
+    public boolean canPredict() {
+      return n >= 2;
+    }
+
+    /**
+     * Get the offset for the specified measured value.
+     *
+     * @param value
+     *          The measured value
+     * @return The offset
+     */
+    public double predict(double value) {
+      return intercept + slope * value;
+    }
+
+    /**
+     * Get the sensor values used in the regression.
+     *
+     * @return The used sensor values
+     */
+    public Set<SensorValue> getUsedValues() {
+      return usedValues;
+    }
+
+    /**
+     * Get the mean time of the sensor values used in the regression.
+     *
+     * @return The mean time, or {@code null} if no values were used
+     */
+    public LocalDateTime getTime() {
+      return time;
+    }
+  }
+
+  /**
+   * Key for a run mean.
+   */
+  private static final class RunKey {
+
+    private final SearchableSensorValuesList sensorValues;
+
+    private final RunSegment run;
+
+    private RunKey(SearchableSensorValuesList sensorValues, RunSegment run) {
+      this.sensorValues = sensorValues;
+      this.run = run;
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * System.identityHashCode(sensorValues)
+        + System.identityHashCode(run);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof RunKey)) {
+        return false;
+      }
+      RunKey other = (RunKey) obj;
+      return sensorValues == other.sensorValues && run == other.run;
+    }
+  }
+
+  /**
+   * Key for an offset fit.
+   */
+  private static final class FitKey {
+
+    private final SearchableSensorValuesList sensorValues;
+
+    private final RunSegment[] runs;
+
+    private final double[] concentrations;
+
+    private final int hashCode;
+
+    private FitKey(SearchableSensorValuesList sensorValues, RunSegment[] runs,
+      double[] concentrations) {
+      this.sensorValues = sensorValues;
+      this.runs = runs.clone();
+      this.concentrations = concentrations.clone();
+
+      // RunSegments use identity equality, so this is cheap
+      this.hashCode = 31
+        * (31 * System.identityHashCode(sensorValues) + Arrays.hashCode(runs))
+        + Arrays.hashCode(concentrations);
+    }
+
+    @Override
+    public int hashCode() {
+      return hashCode;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+      if (this == obj) {
+        return true;
+      }
+      if (!(obj instanceof FitKey)) {
+        return false;
+      }
+      FitKey other = (FitKey) obj;
+      return sensorValues == other.sensorValues
+        && Arrays.equals(runs, other.runs)
+        && Arrays.equals(concentrations, other.concentrations);
+    }
+  }
+}
@@ -0,0 +1,35 @@
+package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+/**
+ * Optional interface for {@link DataReducer}s that can perform their
+ * calculations on whole columns of primitive values instead of one
+ * {@link uk.ac.exeter.QuinCe.data.Dataset.Measurement} at a time.
+ *
+ * <p>
+ * The input columns of the {@link DataReductionBatch} are in the same order as
+ * the reducer's required type strings, and the result columns are in the same
+ * order as its calculation parameters. Implementations must not use a
+ * database connection or any other shared mutable state, because separate
+ * batches may be processed in parallel.
+ * </p>
+ *
+ * @see DataReducer#performDataReduction(uk.ac.exeter.QuinCe.data.Instrument.Instrument,
+ *      java.util.List, java.sql.Connection)
+ */
+public interface BatchDataReducer {
+
+  /**
+   * Perform the data reduction calculations for a range of rows in a batch.
+   *
+   * @param batch
+   *          The batch.
+   * @param from
+   *          The first row to process (inclusive).
+   * @param to
+   *          The last row to process (exclusive).
+   * @throws DataReductionException
+   *           If the calculations fail.
+   */
+  public void doBatchCalculation(DataReductionBatch batch, int from, int to)
+    throws DataReductionException;
+}
@@ -29,7 +29,7 @@ public class Calculators {
    *          Celsius temperature
    * @return Kelvin temperature
    */
-  public static Double kelvin(Double celsius) {
+  public static double kelvin(double celsius) {
     return celsius + 273.15;
   }
 
@@ -40,7 +40,7 @@ public class Calculators {
    *          Kelvin temperature
    * @return Celsius temperature
    */
-  public static Double celsius(Double kelvin) {
+  public static double celsius(double kelvin) {
     return kelvin - 273.15;
   }
 
@@ -51,7 +51,7 @@ public class Calculators {
    *          Pressure in hPa
    * @return Pressure in atmospheres
    */
-  public static Double hPaToAtmospheres(Double hPa) {
+  public static double hPaToAtmospheres(double hPa) {
     return hPa * 100 * PASCALS_TO_ATMOSPHERES;
   }
 
@@ -68,13 +68,13 @@ public class Calculators {
    *          The temperature in °C
    * @return The fCO<sub>2</sub> value
    */
-  public static Double calcfCO2(Double pco2, Double xCO2InGas, Double pressure,
-    Double temperature) {
+  public static double calcfCO2(double pco2, double xCO2InGas,
+    double pressure, double temperature) {
 
-    Double kelvin = Calculators.kelvin(temperature);
-    Double B = -1636.75 + 12.0408 * kelvin - 0.0327957 * Math.pow(kelvin, 2)
+    double kelvin = Calculators.kelvin(temperature);
+    double B = -1636.75 + 12.0408 * kelvin - 0.0327957 * Math.pow(kelvin, 2)
       + (3.16528 * 1e-5) * Math.pow(kelvin, 3);
-    Double delta = 57.7 - 0.118 * kelvin;
+    double delta = 57.7 - 0.118 * kelvin;
 
     return pco2 * Math.exp(((B + 2 * Math.pow(1 - xCO2InGas * 1e-6, 2) * delta)
       * hPaToAtmospheres(pressure)) / (82.0575 * kelvin));
@@ -91,8 +91,8 @@ public class Calculators {
    *          The water vapour pressure
    * @return pCO<sub>2</sub> in water
    */
-  public static Double calcpCO2TEWet(Double xCO2, Double pressure,
-    Double pH2O) {
+  public static double calcpCO2TEWet(double xCO2, double pressure,
+    double pH2O) {
     return xCO2 * (hPaToAtmospheres(pressure) - pH2O);
   }
 
@@ -106,7 +106,7 @@ public class Calculators {
    *          Temperature (in celsius)
    * @return The calculated pH2O value
    */
-  public static Double calcPH2O(Double salinity, Double temperature) {
+  public static double calcPH2O(double salinity, double temperature) {
     double kelvin = Calculators.kelvin(temperature);
     return Math.exp(24.4543 - 67.4509 * (100 / kelvin)
       - 4.8489 * Math.log(kelvin / 100) - 0.000544 * salinity);
@@ -126,13 +126,13 @@ public class Calculators {
    *          The height of the sensor.
    * @return The adjusted pressure.
    */
-  public static Double calcSeaLevelPressure(Double measuredPressure,
-    Double temperature, Float sensorHeight) {
+  public static double calcSeaLevelPressure(double measuredPressure,
+    double temperature, Float sensorHeight) {
 
-    Double result = measuredPressure;
+    double result = measuredPressure;
 
     if (null != sensorHeight) {
-      Double correction = (measuredPressure * MOLAR_MASS_AIR)
+      double correction = (measuredPressure * MOLAR_MASS_AIR)
         / (Calculators.kelvin(temperature) * 8.314) * 9.8 * sensorHeight;
       result = measuredPressure + correction;
     }
@@ -239,8 +239,8 @@ public class Calculators {
    *          The intake temperature
    * @return The pCO<sub>2</sub> at intake temperature
    */
-  public static Double calcCO2AtSST(Double co2AtEquilibrator, Double eqt,
-    Double sst) {
+  public static double calcCO2AtSST(double co2AtEquilibrator, double eqt,
+    double sst) {
     return co2AtEquilibrator
       * Math.exp(0.0423 * (Calculators.kelvin(sst) - Calculators.kelvin(eqt)));
   }
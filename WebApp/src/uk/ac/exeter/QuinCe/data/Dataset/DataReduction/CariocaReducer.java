@@ -1,7 +1,5 @@
 package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
 
-import java.math.BigDecimal;
-import java.math.MathContext;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.List;
@@ -35,31 +33,31 @@ public class CariocaReducer extends DataReducer {
 
   private static final double S = 35;
 
-  private BigDecimal A = null;
+  private double A;
 
-  private BigDecimal B = null;
+  private double B;
 
-  private BigDecimal C = null;
+  private double C;
 
-  private Double RL = null;
+  private double RL;
 
-  private Double RH = null;
+  private double RH;
 
-  private Double R1 = null;
+  private double R1;
 
-  private Double a = null;
+  private double a;
 
-  private Double b = null;
+  private double b;
 
-  private Double c = null;
+  private double c;
 
-  private Double k = null;
+  private double k;
 
-  private Double kPrime = null;
+  private double kPrime;
 
-  private Double A_T = null;
+  private double A_T;
 
-  private Double e1 = null;
+  private double e1;
 
   public CariocaReducer(Variable variable, Map<String, Properties> properties)
     throws SensorTypeNotFoundException {
@@ -76,13 +74,13 @@ public class CariocaReducer extends DataReducer {
         allMeasurements.get(0).getTime());
 
     A = CalculationCoefficient.getCoefficient(coefficients, variable, "tempA")
-      .getBigDecimalValue();
+      .getValue();
 
     B = CalculationCoefficient.getCoefficient(coefficients, variable, "tempB")
-      .getBigDecimalValue();
+      .getValue();
 
     C = CalculationCoefficient.getCoefficient(coefficients, variable, "tempC")
-      .getBigDecimalValue();
+      .getValue();
 
     RL = CalculationCoefficient.getCoefficient(coefficients, variable, "tempRL")
       .getValue();
@@ -122,76 +120,75 @@ public class CariocaReducer extends DataReducer {
     // Get data values
     // Note that the nm values have reversed names because variables can't begin
     // with numbers
-    Double Th = getAdjustedValue(measurement, "Th");
-    Double Refb = getAdjustedValue(measurement, "Refb");
-    Double Refh = getAdjustedValue(measurement, "Refh");
-    Double nm810 = measurement.getMeasurementValue("810nm")
+    double Th = getAdjustedValue(measurement, "Th");
+    double Refb = getAdjustedValue(measurement, "Refb");
+    double Refh = getAdjustedValue(measurement, "Refh");
+    double nm810 = measurement.getMeasurementValue("810nm")
       .getCalculatedValue();
-    Double nm596 = measurement.getMeasurementValue("596nm")
+    double nm596 = measurement.getMeasurementValue("596nm")
       .getCalculatedValue();
-    Double nm434 = measurement.getMeasurementValue("434nm")
+    double nm434 = measurement.getMeasurementValue("434nm")
       .getCalculatedValue();
 
     // Temperature calculation
-    Double K = (Th - Refh) / (Refb - Refh);
+    double K = (Th - Refh) / (Refb - Refh);
 
-    Double R_temp = (R1 * (RH / (RH + R1)) + R1 * (K * RL) / (RL + R1)
+    double R_temp = (R1 * (RH / (RH + R1)) + R1 * (K * RL) / (RL + R1)
       - (R1 * (K * RH) / (RH + R1)))
       / (1 - (RH / (RH + R1)) - ((K * RL) / (RL + R1)) + (K * RH) / (RH + R1));
 
     // T = (1 / ( A + Bln(R) + C(ln(R))^3) ) - 273.15
-    BigDecimal lnR = new BigDecimal(Math.log(R_temp));
-    BigDecimal Bpart = B.multiply(lnR);
-    BigDecimal Cpart = C.multiply(lnR.pow(3));
+    double lnR = Math.log(R_temp);
+    double Bpart = B * lnR;
+    double Cpart = C * lnR * lnR * lnR;
 
-    Double kelvin = new BigDecimal(1)
-      .divide(A.add(Bpart).add(Cpart), MathContext.DECIMAL128).doubleValue();
-    Double celsius = Calculators.celsius(kelvin);
+    double kelvin = calcSteinhartHartKelvin(A, B, C, lnR);
+    double celsius = Calculators.celsius(kelvin);
 
     // CO2 calculation
-    Double e2 = 8.76277 - 0.04344 * kelvin + 0.00007256 * Math.pow(kelvin, 2);
-    Double e3 = -0.005765 + 0.00058 * kelvin;
+    double e2 = 8.76277 - 0.04344 * kelvin + 0.00007256 * Math.pow(kelvin, 2);
+    double e3 = -0.005765 + 0.00058 * kelvin;
 
     // Solubility coefficient (Weiss 1974)
-    Double alphaSalinityPart = S * (0.023517 - 0.023656 * (kelvin / 100)
+    double alphaSalinityPart = S * (0.023517 - 0.023656 * (kelvin / 100)
       + 0.0047036 * Math.pow(kelvin / 100, 2));
 
-    Double alpha = Math.exp(-60.2409 + 93.4517 * (100 / kelvin)
+    double alpha = Math.exp(-60.2409 + 93.4517 * (100 / kelvin)
       + 23.3585 * Math.log(kelvin / 100) + alphaSalinityPart);
 
     // Dissociation constants of carbonic acid in seawater (Lueker et al., 2000)
-    Double pK_1 = 3633.86 / kelvin - 61.2172 + 9.6777 * Math.log(kelvin)
+    double pK_1 = 3633.86 / kelvin - 61.2172 + 9.6777 * Math.log(kelvin)
       - 0.011555 * S + 0.0001152 * Math.pow(S, 2);
 
-    Double K_1 = Math.pow(10, pK_1 * -1);
+    double K_1 = Math.pow(10, pK_1 * -1);
 
-    Double pK_2 = 471.78 / kelvin + 25.929 - 3.16967 * Math.log(kelvin)
+    double pK_2 = 471.78 / kelvin + 25.929 - 3.16967 * Math.log(kelvin)
       - 0.01781 * S + 0.0001122 * Math.pow(S, 2);
 
-    Double K_2 = Math.pow(10, pK_2 * -1);
+    double K_2 = Math.pow(10, pK_2 * -1);
 
     // Thymol blue dissociation constant (Zhang and Byrne, 1996)
-    Double pK_i = 4.706 * (S / kelvin) + 26.33 - 7.17218 * Math.log10(kelvin)
+    double pK_i = 4.706 * (S / kelvin) + 26.33 - 7.17218 * Math.log10(kelvin)
       - 0.017316 * S;
 
-    Double K_i = Math.pow(10, pK_i * -1);
+    double K_i = Math.pow(10, pK_i * -1);
 
     // Other parameters
-    Double A_434 = kPrime + Math.log10(nm810 / nm434);
-    Double A_596 = k + Math.log10(nm810 / nm596);
+    double A_434 = kPrime + Math.log10(nm810 / nm434);
+    double A_596 = k + Math.log10(nm810 / nm596);
 
-    Double R = A_434 / A_596;
+    double R = A_434 / A_596;
 
-    Double Amax = (e2 / (e2 - e1 * e3))
+    double Amax = (e2 / (e2 - e1 * e3))
       * ((e2 - e1) * A_434 + (1 - e3) * A_596);
 
-    Double X = (R * e2 - e3) / (1 - R * e1);
+    double X = (R * e2 - e3) / (1 - R * e1);
 
     // pCO2 calculation
-    Double xTop = 1 - (c / A_T) * (1 / (1 + X));
-    Double xBottom = 1 + ((2 * K_2) / K_i) * (1 / X);
+    double xTop = 1 - (c / A_T) * (1 / (1 + X));
+    double xBottom = 1 + ((2 * K_2) / K_i) * (1 / X);
 
-    Double pCO2 = (((K_i * A_T) / (alpha * K_1)) * X * (xTop / xBottom))
+    double pCO2 = (((K_i * A_T) / (alpha * K_1)) * X * (xTop / xBottom))
       * Math.pow(10, 6);
 
     // pCO2 is slightly off which makes fCO2 quite a long way off
@@ -200,9 +197,9 @@ public class CariocaReducer extends DataReducer {
     record.put("Intake Temperature", celsius);
     record.put("K", K);
     record.put("R_temp", R_temp);
-    record.put("lnR", lnR.doubleValue());
-    record.put("Bpart", Bpart.doubleValue());
-    record.put("Cpart", Cpart.doubleValue());
+    record.put("lnR", lnR);
+    record.put("Bpart", Bpart);
+    record.put("Cpart", Cpart);
     record.put("kelvin", kelvin);
     record.put("e2", e2);
     record.put("e3", e3);
@@ -225,9 +222,33 @@ public class CariocaReducer extends DataReducer {
     // record.put("fCO₂", fCO2);
   }
 
-  private Double getAdjustedValue(Measurement measurement, String sensor)
+  /**
+   * Calculate a temperature in Kelvin from a thermistor resistance using the
+   * Steinhart-Hart equation {@code 1 / (A + B·ln(R) + C·ln(R)³)}.
+   *
+   * <p>
+   * The C term is small compared to A and B, so the denominator is evaluated
+   * with fused multiply-adds to avoid losing its contribution to rounding.
+   * </p>
+   *
+   * @param a
+   *          The A coefficient
+   * @param b
+   *          The B coefficient
+   * @param c
+   *          The C coefficient
+   * @param lnR
+   *          The natural log of the resistance
+   * @return The temperature in Kelvin
+   */
+  public static double calcSteinhartHartKelvin(double a, double b, double c,
+    double lnR) {
+    return 1D / Math.fma(c, lnR * lnR * lnR, Math.fma(b, lnR, a));
+  }
+
+  private double getAdjustedValue(Measurement measurement, String sensor)
     throws SensorTypeNotFoundException {
-    Double measuredValue = measurement.getMeasurementValue(sensor)
+    double measuredValue = measurement.getMeasurementValue(sensor)
       .getCalculatedValue();
 
     if (measuredValue > 4095 && measuredValue < 8191) {
@@ -1,7 +1,5 @@
 package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.sql.Connection;
 import java.util.ArrayList;
 import java.util.List;
@@ -17,6 +15,7 @@ import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalculationCoefficient;
 import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalculationCoefficientDB;
 import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationSet;
+import uk.ac.exeter.QuinCe.data.Instrument.Calibration.InterpolatedCoefficient;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorTypeNotFoundException;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
 import uk.ac.exeter.QuinCe.utils.MeanCalculator;
@@ -37,21 +36,30 @@ public class ControsPco2Reducer extends DataReducer {
 
   private CalibrationSet postCoefficients;
 
-  private CalculationCoefficient k1Prior = null;
+  /**
+   * The F coefficient from the prior calibration.
+   */
+  private double f;
 
-  private CalculationCoefficient k2Prior = null;
+  /**
+   * The f(Tsensor) coefficient from the prior calibration.
+   */
+  private double fTSensor;
 
-  private CalculationCoefficient k3Prior = null;
+  /**
+   * The k1 coefficient, interpolated by run time.
+   */
+  private InterpolatedCoefficient k1;
 
-  private CalculationCoefficient runTimePrior = null;
+  /**
+   * The k2 coefficient, interpolated by run time.
+   */
+  private InterpolatedCoefficient k2;
 
-  private CalculationCoefficient k1Post = null;
-
-  private CalculationCoefficient k2Post = null;
-
-  private CalculationCoefficient k3Post = null;
-
-  private CalculationCoefficient runTimePost = null;
+  /**
+   * The k3 coefficient, interpolated by run time.
+   */
+  private InterpolatedCoefficient k3;
 
   public ControsPco2Reducer(Variable variable,
     Map<String, Properties> properties) throws SensorTypeNotFoundException {
@@ -71,20 +79,19 @@ public class ControsPco2Reducer extends DataReducer {
       .getCalibrationsAfter(conn, instrument,
         allMeasurements.get(allMeasurements.size() - 1).getTime());
 
-    // Extract coefficients that will be used multiple times
-    k1Prior = CalculationCoefficient.getCoefficient(priorCoefficients, variable,
-      "k1");
-    k2Prior = CalculationCoefficient.getCoefficient(priorCoefficients, variable,
-      "k2");
-    k3Prior = CalculationCoefficient.getCoefficient(priorCoefficients, variable,
-      "k3");
-    runTimePrior = CalculationCoefficient.getCoefficient(priorCoefficients,
-      variable, "Runtime");
-
-    k1Post = getPost("k1");
-    k2Post = getPost("k2");
-    k3Post = getPost("k3");
-    runTimePost = getPost("Runtime");
+    // Extract the coefficients once for the whole dataset
+    f = getPriorValue("F");
+    fTSensor = getPriorValue("f(Tsensor)");
+
+    CalculationCoefficient runTimePrior = getPrior("Runtime");
+    CalculationCoefficient runTimePost = getPost("Runtime");
+
+    k1 = InterpolatedCoefficient.getInstance(runTimePrior, getPrior("k1"),
+      runTimePost, getPost("k1"));
+    k2 = InterpolatedCoefficient.getInstance(runTimePrior, getPrior("k2"),
+      runTimePost, getPost("k2"));
+    k3 = InterpolatedCoefficient.getInstance(runTimePrior, getPrior("k3"),
+      runTimePost, getPost("k3"));
 
     // Calculate zero Sbeam values
     zeroS2Beams = new TreeMap<Double, Double>();
@@ -111,11 +118,11 @@ public class ControsPco2Reducer extends DataReducer {
 
       if (runType.equals(Measurement.INTERNAL_CALIBRATION_RUN_TYPE)) {
 
-        Double rawSignal = measurement
+        double rawSignal = measurement
           .getMeasurementValue("Contros pCO₂ Raw Detector Signal")
           .getCalculatedValue();
 
-        if (!rawSignal.isNaN()) {
+        if (!Double.isNaN(rawSignal)) {
           runTimes.add(measurement.getMeasurementValue("Contros pCO₂ Runtime")
             .getCalculatedValue());
           s2Beams.add(calcS2Beam(measurement));
@@ -136,70 +143,48 @@ public class ControsPco2Reducer extends DataReducer {
   public void doCalculation(Instrument instrument, Measurement measurement,
     DataReductionRecord record, Connection conn) throws Exception {
 
-    // We use BigDecimals to maintain the precision on the k parameters,
-    // which are on the order of 1e-10
-
-    BigDecimal F = new BigDecimal(CalculationCoefficient
-      .getCoefficient(priorCoefficients, variable, "F").getValue());
+    double measurementRunTime = measurement
+      .getMeasurementValue("Contros pCO₂ Runtime").getCalculatedValue();
 
-    BigDecimal measurementRunTime = new BigDecimal(measurement
-      .getMeasurementValue("Contros pCO₂ Runtime").getCalculatedValue());
+    double measurementS2Beam = calcS2Beam(measurement);
 
-    Double measurementS2Beam = calcS2Beam(measurement);
+    if (!Double.isNaN(measurementS2Beam)) {
+      double zeroS2Beam = getInterpZeroS2Beam(measurementRunTime);
 
-    if (!measurementS2Beam.isNaN()) {
-      BigDecimal bdMeasurementS2Beam = new BigDecimal(measurementS2Beam);
-      BigDecimal zeroS2Beam = new BigDecimal(
-        getInterpZeroS2Beam(measurementRunTime.doubleValue()));
+      double sProc = calcSProc(f, measurementS2Beam, zeroS2Beam);
 
-      BigDecimal sProc = F.multiply(new BigDecimal(1D).subtract(
-        (bdMeasurementS2Beam.divide(zeroS2Beam, 10, RoundingMode.HALF_UP))));
+      double xco2ProcPart = calcXco2ProcPart(sProc,
+        k1.valueAt(measurementRunTime), k2.valueAt(measurementRunTime),
+        k3.valueAt(measurementRunTime));
 
-      BigDecimal k1Interp = CalculationCoefficient.interpolateBigDecimal(
-        runTimePrior, k1Prior, runTimePost, k1Post, measurementRunTime);
-      BigDecimal k2Interp = CalculationCoefficient.interpolateBigDecimal(
-        runTimePrior, k2Prior, runTimePost, k2Post, measurementRunTime);
-      BigDecimal k3Interp = CalculationCoefficient.interpolateBigDecimal(
-        runTimePrior, k3Prior, runTimePost, k3Post, measurementRunTime);
-
-      BigDecimal sProcCubed = sProc.pow(3);
-      BigDecimal sProcSquared = sProc.pow(2);
-
-      BigDecimal k3Part = k3Interp.multiply(sProcCubed);
-      BigDecimal k2Part = k2Interp.multiply(sProcSquared);
-      BigDecimal k1Part = k1Interp.multiply(sProc);
-
-      // We can drop back to double precision now
-      Double xco2ProcPart = k3Part.add(k2Part).add(k1Part).doubleValue();
-
-      Double gasTemperature = measurement
+      double gasTemperature = measurement
         .getMeasurementValue("Gas Stream Temperature").getCalculatedValue()
         + T0;
-      Double gasPressure = measurement
+      double gasPressure = measurement
         .getMeasurementValue("Gas Stream Pressure").getCalculatedValue();
 
-      Double xco2PresTempPart = (P0 * gasTemperature) / (T0 * gasPressure);
+      double xco2PresTempPart = (P0 * gasTemperature) / (T0 * gasPressure);
 
-      Double xco2 = xco2ProcPart * xco2PresTempPart;
+      double xco2 = xco2ProcPart * xco2PresTempPart;
 
-      Double membranePressure = measurement
+      double membranePressure = measurement
         .getMeasurementValue("Membrane Pressure").getCalculatedValue();
 
-      Double pCo2TEWet = xco2 * (membranePressure / P0);
-      Double fCo2TEWet = Calculators.calcfCO2(pCo2TEWet, xco2, membranePressure,
+      double pCo2TEWet = xco2 * (membranePressure / P0);
+      double fCo2TEWet = Calculators.calcfCO2(pCo2TEWet, xco2, membranePressure,
         gasTemperature);
 
-      Double sst = measurement.getMeasurementValue("Intake Temperature")
+      double sst = measurement.getMeasurementValue("Intake Temperature")
         .getCalculatedValue() + T0;
-      Double membraneTemp = measurement
+      double membraneTemp = measurement
         .getMeasurementValue("Membrane Temperature").getCalculatedValue() + T0;
 
-      Double pCO2SST = Calculators.calcCO2AtSST(pCo2TEWet, membraneTemp, sst);
-      Double fCO2 = Calculators.calcCO2AtSST(fCo2TEWet, membraneTemp, sst);
+      double pCO2SST = Calculators.calcCO2AtSST(pCo2TEWet, membraneTemp, sst);
+      double fCO2 = Calculators.calcCO2AtSST(fCo2TEWet, membraneTemp, sst);
 
-      record.put("Zero S₂beam", zeroS2Beam.doubleValue());
-      record.put("S₂beam", measurementS2Beam.doubleValue());
-      record.put("Sproc", sProc.doubleValue());
+      record.put("Zero S₂beam", zeroS2Beam);
+      record.put("S₂beam", measurementS2Beam);
+      record.put("Sproc", sProc);
       record.put("xCO₂", xco2);
       record.put("pCO₂ TE Wet", pCo2TEWet);
       record.put("fCO₂ TE Wet", fCo2TEWet);
@@ -208,6 +193,51 @@ public class ControsPco2Reducer extends DataReducer {
     }
   }
 
+  /**
+   * Calculate the drift-corrected signal S<sub>proc</sub>.
+   *
+   * <p>
+   * This is {@code F * (1 - S2beam / S2beamZero)}, rearranged so that the
+   * subtraction of the two nearly equal beam values is exact.
+   * </p>
+   *
+   * @param f
+   *          The F coefficient
+   * @param s2Beam
+   *          The two-beam signal of the measurement
+   * @param zeroS2Beam
+   *          The interpolated two-beam signal of the zero measurements
+   * @return The drift-corrected signal
+   */
+  public static double calcSProc(double f, double s2Beam, double zeroS2Beam) {
+    return f * ((zeroS2Beam - s2Beam) / zeroS2Beam);
+  }
+
+  /**
+   * Calculate the signal part of the xCO₂ calculation,
+   * {@code k3·Sproc³ + k2·Sproc² + k1·Sproc}.
+   *
+   * <p>
+   * The k coefficients can be as small as 1e-10, so the polynomial is
+   * evaluated in Horner form with fused multiply-adds to avoid intermediate
+   * rounding.
+   * </p>
+   *
+   * @param sProc
+   *          The drift-corrected signal
+   * @param k1
+   *          The k1 coefficient
+   * @param k2
+   *          The k2 coefficient
+   * @param k3
+   *          The k3 coefficient
+   * @return The signal part of xCO₂
+   */
+  public static double calcXco2ProcPart(double sProc, double k1, double k2,
+    double k3) {
+    return sProc * Math.fma(sProc, Math.fma(sProc, k3, k2), k1);
+  }
+
   @Override
   protected String[] getRequiredTypeStrings() {
     return new String[] { "Intake Temperature", "Salinity",
@@ -221,60 +251,78 @@ public class ControsPco2Reducer extends DataReducer {
   @Override
   public List<CalculationParameter> getCalculationParameters() {
     if (null == calculationParameters) {
-      calculationParameters = new ArrayList<CalculationParameter>(8);
+      List<CalculationParameter> parameters = new ArrayList<CalculationParameter>(
+        8);
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(0),
+      parameters.add(new CalculationParameter(makeParameterId(0),
         "Zero S₂beam", "Interpolated Zero Signal", "CONZERO2BEAM", "", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(1),
+      parameters.add(new CalculationParameter(makeParameterId(1),
         "S₂beam", "Two-beam Signal", "CON2BEAM", "", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(2),
+      parameters.add(new CalculationParameter(makeParameterId(2),
         "Sproc", "Drift-corrected Signal", "CONSPROC", "", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(3),
+      parameters.add(new CalculationParameter(makeParameterId(3),
         "xCO₂", "xCO₂ In Water", "XCO2WBDY", "μmol/mol", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(4),
+      parameters.add(new CalculationParameter(makeParameterId(4),
         "pCO₂ TE Wet", "pCO₂ In Water - Equilibrator Temperature", "PCO2IG02",
         "μatm", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(5),
+      parameters.add(new CalculationParameter(makeParameterId(5),
         "fCO₂ TE Wet", "fCO₂ In Water - Equilibrator Temperature", "FCO2IG02",
         "μatm", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(6),
+      parameters.add(new CalculationParameter(makeParameterId(6),
         "pCO₂ SST", "pCO₂ In Water", "PCO2TK02", "μatm", true));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(7),
+      parameters.add(new CalculationParameter(makeParameterId(7),
         "fCO₂", "fCO₂ In Water", "FCO2XXXX", "μatm", true));
+
+      calculationParameters = parameters;
     }
 
     return calculationParameters;
   }
 
-  private Double calcS2Beam(Measurement measurement)
+  private double calcS2Beam(Measurement measurement)
     throws SensorTypeNotFoundException {
-    Double s2Beam = measurement
+    double s2Beam = measurement
       .getMeasurementValue("Contros pCO₂ Raw Detector Signal")
       .getCalculatedValue()
       / measurement.getMeasurementValue("Contros pCO₂ Reference Signal")
         .getCalculatedValue();
 
-    Double fTSensor = CalculationCoefficient
-      .getCoefficient(priorCoefficients, variable, "f(Tsensor)").getValue();
-
     return s2Beam * fTSensor;
   }
 
+  private CalculationCoefficient getPrior(String coefficient) {
+    return CalculationCoefficient.getCoefficient(priorCoefficients, variable,
+      coefficient);
+  }
+
   private CalculationCoefficient getPost(String coefficient) {
     return CalculationCoefficient.getCoefficient(postCoefficients, variable,
       coefficient);
   }
 
-  private Double getInterpZeroS2Beam(Double runTime) {
+  private double getPriorValue(String coefficient)
+    throws DataReductionException {
+
+    CalculationCoefficient prior = getPrior(coefficient);
+    if (null == prior) {
+      throw new DataReductionException(
+        "Missing calculation coefficient " + coefficient);
+    }
+
+    return prior.getValue();
+  }
+
+  private double getInterpZeroS2Beam(double runTime) {
     Map.Entry<Double, Double> prior = zeroS2Beams.floorEntry(runTime);
     Map.Entry<Double, Double> post = zeroS2Beams.ceilingEntry(runTime);
-    return Calculators.interpolate(prior, post, runTime);
+    Double result = Calculators.interpolate(prior, post, runTime);
+    return null == result ? Double.NaN : result;
   }
 }
@@ -2,6 +2,7 @@ package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
 
 import java.sql.Connection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -70,12 +71,130 @@ public abstract class DataReducer {
       getCalculationParameterNames());
 
     doCalculation(instrument, measurement, record, conn);
+    applyQc(instrument, measurement, record,
+      variable.getAllSensorTypes(true));
+
+    return record;
+  }
+
+  /**
+   * Perform the data reduction and set up the QC flags for a set of
+   * measurements.
+   *
+   * <p>
+   * If this reducer is a {@link BatchDataReducer}, the measurements' values
+   * are extracted into a {@link DataReductionBatch} and calculated in one
+   * pass. Otherwise each measurement is passed to
+   * {@link #performDataReduction(Instrument, Measurement, Connection)} in
+   * turn.
+   * </p>
+   *
+   * @param instrument
+   *          The instrument that took the measurements
+   * @param measurements
+   *          The measurements
+   * @param conn
+   *          A database connection. Not used by {@link BatchDataReducer}s.
+   * @return The data reduction results, in the same order as the measurements
+   */
+  public List<DataReductionRecord> performDataReduction(Instrument instrument,
+    List<Measurement> measurements, Connection conn) throws Exception {
+
+    List<DataReductionRecord> result = new ArrayList<DataReductionRecord>(
+      measurements.size());
+
+    if (this instanceof BatchDataReducer) {
+      List<String> parameterNames = getCalculationParameterNames();
+      DataReductionBatch batch = makeBatch(measurements);
+      ((BatchDataReducer) this).doBatchCalculation(batch, 0, batch.size());
+
+      List<SensorType> qcSensorTypes = variable.getAllSensorTypes(true);
+
+      for (int row = 0; row < batch.size(); row++) {
+        Measurement measurement = batch.getMeasurement(row);
+        DataReductionRecord record = new DataReductionRecord(measurement,
+          variable, parameterNames);
+
+        for (int param = 0; param < parameterNames.size(); param++) {
+          record.put(parameterNames.get(param), batch.getResult(param)[row]);
+        }
+
+        applyQc(instrument, measurement, record, qcSensorTypes);
+        result.add(record);
+      }
+    } else {
+      for (Measurement measurement : measurements) {
+        result.add(performDataReduction(instrument, measurement, conn));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Build a {@link DataReductionBatch} for the specified measurements using
+   * this reducer's required sensor types as the input columns.
+   *
+   * @param measurements
+   *          The measurements
+   * @return The batch
+   * @throws SensorTypeNotFoundException
+   *           If any required sensor type does not exist
+   */
+  protected DataReductionBatch makeBatch(List<Measurement> measurements)
+    throws SensorTypeNotFoundException {
+
+    List<SensorType> inputTypes = ResourceManager.getInstance()
+      .getSensorsConfiguration().getSensorTypes(getRequiredTypeStrings());
+
+    return new DataReductionBatch(measurements, inputTypes,
+      getCalculationParameters().size());
+  }
+
+  /**
+   * Perform the calculations for a single measurement using this reducer's
+   * {@link BatchDataReducer} implementation. This allows batch reducers to
+   * implement {@link #doCalculation} without duplicating their calculations.
+   *
+   * @param measurement
+   *          The measurement
+   * @param record
+   *          The data reduction result
+   */
+  protected void doCalculationAsBatch(Measurement measurement,
+    DataReductionRecord record) throws Exception {
+
+    DataReductionBatch batch = makeBatch(Arrays.asList(measurement));
+    ((BatchDataReducer) this).doBatchCalculation(batch, 0, 1);
+
+    List<String> parameterNames = getCalculationParameterNames();
+    for (int param = 0; param < parameterNames.size(); param++) {
+      record.put(parameterNames.get(param), batch.getResult(param)[0]);
+    }
+  }
+
+  /**
+   * Apply the QC flags from a measurement's sensor values to its data
+   * reduction record.
+   *
+   * @param instrument
+   *          The instrument that took the measurement
+   * @param measurement
+   *          The measurement
+   * @param record
+   *          The data reduction result
+   * @param sensorTypes
+   *          The sensor types whose flags are applied
+   */
+  private void applyQc(Instrument instrument, Measurement measurement,
+    DataReductionRecord record, List<SensorType> sensorTypes)
+    throws Exception {
 
     Flag cascadeFlag = Flag.GOOD;
     LinkedHashMap<SensorType, String> messages = new LinkedHashMap<SensorType, String>();
 
     // Apply QC flags to the data reduction records
-    for (SensorType sensorType : variable.getAllSensorTypes(true)) {
+    for (SensorType sensorType : sensorTypes) {
 
       MeasurementValue value = measurement.getMeasurementValue(sensorType);
 
@@ -104,8 +223,6 @@ public abstract class DataReducer {
       .map(e -> e.getKey().getShortName() + " " + e.getValue()).toList();
 
     record.setQc(cascadeFlag, qcMessages);
-
-    return record;
   }
 
   /**
@@ -1,16 +1,18 @@
 package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
 
-import java.lang.reflect.Constructor;
-import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
 
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentException;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
  * Factory class for Data Reducers
@@ -50,34 +52,99 @@ public class DataReducerFactory {
   }
 
   /**
-   * Get the Data Reducer for a given variable and initialise it
+   * The reducer metadata for each variable, keyed by variable ID. Built by
+   * {@link #init(SensorsConfiguration)}, and extended by
+   * {@link #getMetadata(Variable)} for variables that are added later.
+   */
+  private static volatile ConcurrentHashMap<Long, DataReducerMetadata> registry = new ConcurrentHashMap<Long, DataReducerMetadata>();
+
+  /**
+   * Build the reducer metadata for all variables in the sensors configuration.
+   * Variables without a registered reducer are skipped.
+   *
+   * @param sensorConfig
+   *          The sensors configuration
+   * @throws DataReductionException
+   *           If any reducer's metadata cannot be built
+   */
+  public static void init(SensorsConfiguration sensorConfig)
+    throws DataReductionException {
+
+    ConcurrentHashMap<Long, DataReducerMetadata> newRegistry = new ConcurrentHashMap<Long, DataReducerMetadata>();
+
+    for (Variable variable : sensorConfig.getInstrumentVariables()) {
+      Class<? extends DataReducer> clazz = reducers.get(variable.getName());
+      if (null != clazz) {
+        newRegistry.put(variable.getId(),
+          new DataReducerMetadata(variable, clazz, sensorConfig));
+      }
+    }
+
+    registry = newRegistry;
+  }
+
+  /**
+   * Get the reducer metadata for a variable.
+   *
+   * <p>
+   * Variables that were not known when the registry was built (e.g. ones
+   * added after startup) have their metadata built on demand and added to the
+   * registry, so it is only built once.
+   * </p>
    *
    * @param variable
    *          The variable
-   * @return The Data Reducer
+   * @return The reducer metadata
    * @throws DataReductionException
-   *           If the reducer cannot be retrieved
+   *           If the variable has no reducer
    */
-  public static DataReducer getReducer(Variable variable,
-    Map<String, Properties> properties) throws DataReductionException {
+  public static DataReducerMetadata getMetadata(Variable variable)
+    throws DataReductionException {
 
     try {
-      Class<? extends DataReducer> clazz = getReducerClass(variable.getName());
+      return registry.computeIfAbsent(variable.getId(), id -> {
+        try {
+          return new DataReducerMetadata(variable,
+            getReducerClass(variable.getName()),
+            ResourceManager.getInstance().getSensorsConfiguration());
+        } catch (DataReductionException e) {
+          throw new MetadataException(e);
+        }
+      });
+    } catch (MetadataException e) {
+      throw e.getCause();
+    }
+  }
 
-      Constructor<? extends DataReducer> constructor = clazz
-        .getConstructor(Variable.class, Map.class);
+  /**
+   * Unchecked wrapper used to pass a {@link DataReductionException} out of
+   * {@link ConcurrentHashMap#computeIfAbsent}.
+   */
+  @SuppressWarnings("serial")
+  private static class MetadataException extends RuntimeException {
 
-      return constructor.newInstance(variable, properties);
-    } catch (Exception e) {
-      throw new DataReductionException(
-        "Cannot get reducer for variable '" + variable.getName() + "'", e);
+    private MetadataException(DataReductionException cause) {
+      super(cause);
     }
-  }
 
-  private static DataReducer getSkeletonReducer(Variable variable)
-    throws DataReductionException {
+    @Override
+    public synchronized DataReductionException getCause() {
+      return (DataReductionException) super.getCause();
+    }
+  }
 
-    return getReducer(variable, null);
+  /**
+   * Get the Data Reducer for a given variable and initialise it
+   *
+   * @param variable
+   *          The variable
+   * @return The Data Reducer
+   * @throws DataReductionException
+   *           If the reducer cannot be retrieved
+   */
+  public static DataReducer getReducer(Variable variable,
+    Map<String, Properties> properties) throws DataReductionException {
+    return getMetadata(variable).newReducer(properties);
   }
 
   public static Class<? extends DataReducer> getReducerClass(String variable)
@@ -97,27 +164,8 @@ public class DataReducerFactory {
     Variable variable, boolean includeCalculationColumns)
     throws DataReductionException {
 
-    DataReducer reducer = getSkeletonReducer(variable);
-
-    List<CalculationParameter> allParameters = reducer
-      .getCalculationParameters();
-
-    List<CalculationParameter> result = new ArrayList<CalculationParameter>(
-      allParameters.size());
-
-    for (CalculationParameter param : allParameters) {
-      boolean use = true;
-
-      if (!includeCalculationColumns && !param.isResult()) {
-        use = false;
-      }
-
-      if (use) {
-        result.add(param);
-      }
-    }
-
-    return result;
+    return getMetadata(variable)
+      .getCalculationParameters(includeCalculationColumns);
   }
 
   public static Map<Variable, List<CalculationParameter>> getCalculationParameters(
@@ -126,13 +174,27 @@ public class DataReducerFactory {
     Map<Variable, List<CalculationParameter>> result = new HashMap<Variable, List<CalculationParameter>>();
 
     for (Variable variable : variables) {
-      DataReducer reducer = getSkeletonReducer(variable);
-      result.put(variable, reducer.getCalculationParameters());
+      result.put(variable, getCalculationParameters(variable, true));
     }
 
     return result;
   }
 
+  /**
+   * Get the sensor types required by a variable's reducer, in the order
+   * declared by the reducer.
+   *
+   * @param variable
+   *          The variable
+   * @return The required sensor types
+   * @throws DataReductionException
+   *           If the variable has no reducer
+   */
+  public static List<SensorType> getRequiredSensorTypes(Variable variable)
+    throws DataReductionException {
+    return getMetadata(variable).getRequiredSensorTypes();
+  }
+
   protected static long makeParameterId(Variable variable, int sequence) {
     return variable.getId() * ID_MULTIPLIER + sequence;
   }
@@ -152,7 +214,6 @@ public class DataReducerFactory {
     long parameterId) throws DataReductionException {
 
     int parameterIndex = (int) (parameterId % ID_MULTIPLIER);
-    return getSkeletonReducer(variable).getCalculationParameters()
-      .get(parameterIndex);
+    return getMetadata(variable).getParameter(parameterId, parameterIndex);
   }
 }
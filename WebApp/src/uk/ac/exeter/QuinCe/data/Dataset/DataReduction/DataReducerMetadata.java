@@ -0,0 +1,182 @@
+package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import java.lang.reflect.Constructor;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+
+/**
+ * Immutable information about the {@link DataReducer} for a {@link Variable}.
+ *
+ * <p>
+ * Instances are built once by {@link DataReducerFactory} and shared between
+ * all threads. They allow the reducer's calculation parameters and required
+ * sensor types to be looked up without constructing a reducer.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class DataReducerMetadata {
+
+  /**
+   * The variable.
+   */
+  private final Variable variable;
+
+  /**
+   * The constructor for the variable's reducer.
+   */
+  private final Constructor<? extends DataReducer> constructor;
+
+  /**
+   * All the reducer's calculation parameters, in display order.
+   */
+  private final List<CalculationParameter> calculationParameters;
+
+  /**
+   * The reducer's calculation parameters that are marked as results.
+   */
+  private final List<CalculationParameter> resultParameters;
+
+  /**
+   * The calculation parameters mapped by their IDs.
+   */
+  private final Map<Long, CalculationParameter> parametersById;
+
+  /**
+   * The sensor types required by the reducer, in the order given by
+   * {@link DataReducer#getRequiredTypeStrings()}.
+   */
+  private final List<SensorType> requiredSensorTypes;
+
+  /**
+   * Build the metadata for a variable's reducer.
+   *
+   * @param variable
+   *          The variable.
+   * @param reducerClass
+   *          The reducer class.
+   * @param sensorConfig
+   *          The sensors configuration.
+   * @throws DataReductionException
+   *           If the reducer cannot be constructed or its required sensor
+   *           types cannot be found.
+   */
+  protected DataReducerMetadata(Variable variable,
+    Class<? extends DataReducer> reducerClass,
+    SensorsConfiguration sensorConfig) throws DataReductionException {
+
+    this.variable = variable;
+
+    try {
+      constructor = reducerClass.getConstructor(Variable.class, Map.class);
+      DataReducer skeleton = constructor.newInstance(variable,
+        new HashMap<String, Properties>());
+
+      calculationParameters = List.copyOf(skeleton.getCalculationParameters());
+      resultParameters = calculationParameters.stream()
+        .filter(CalculationParameter::isResult).toList();
+
+      Map<Long, CalculationParameter> idMap = new HashMap<Long, CalculationParameter>();
+      calculationParameters.forEach(p -> idMap.put(p.getId(), p));
+      parametersById = Collections.unmodifiableMap(idMap);
+
+      requiredSensorTypes = List
+        .copyOf(sensorConfig.getSensorTypes(skeleton.getRequiredTypeStrings()));
+    } catch (Exception e) {
+      throw new DataReductionException(
+        "Cannot get reducer for variable '" + variable.getName() + "'", e);
+    }
+  }
+
+  /**
+   * Create a new instance of the variable's reducer.
+   *
+   * @param properties
+   *          The variable attributes.
+   * @return The reducer.
+   * @throws DataReductionException
+   *           If the reducer cannot be created.
+   */
+  protected DataReducer newReducer(Map<String, Properties> properties)
+    throws DataReductionException {
+    try {
+      return constructor.newInstance(variable, properties);
+    } catch (Exception e) {
+      throw new DataReductionException(
+        "Cannot get reducer for variable '" + variable.getName() + "'", e);
+    }
+  }
+
+  /**
+   * Get the variable.
+   *
+   * @return The variable.
+   */
+  public Variable getVariable() {
+    return variable;
+  }
+
+  /**
+   * Get the reducer class.
+   *
+   * @return The reducer class.
+   */
+  public Class<? extends DataReducer> getReducerClass() {
+    return constructor.getDeclaringClass();
+  }
+
+  /**
+   * Get the reducer's calculation parameters.
+   *
+   * @param includeCalculationColumns
+   *          Indicates whether intermediate calculation parameters should be
+   *          included, or only result parameters.
+   * @return The calculation parameters, in display order.
+   */
+  public List<CalculationParameter> getCalculationParameters(
+    boolean includeCalculationColumns) {
+    return includeCalculationColumns ? calculationParameters
+      : resultParameters;
+  }
+
+  /**
+   * Get a calculation parameter using its ID.
+   *
+   * <p>
+   * Reducers that share a cached parameter list between subclasses may report
+   * IDs made from a different variable, so if the ID is not found the
+   * parameter is located by its sequence number instead.
+   * </p>
+   *
+   * @param parameterId
+   *          The parameter ID.
+   * @param sequence
+   *          The parameter's sequence number within the reducer.
+   * @return The parameter.
+   */
+  public CalculationParameter getParameter(long parameterId, int sequence) {
+    CalculationParameter result = parametersById.get(parameterId);
+    if (null == result) {
+      result = calculationParameters.get(sequence);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the sensor types required by the reducer.
+   *
+   * @return The required sensor types.
+   */
+  public List<SensorType> getRequiredSensorTypes() {
+    return requiredSensorTypes;
+  }
+}
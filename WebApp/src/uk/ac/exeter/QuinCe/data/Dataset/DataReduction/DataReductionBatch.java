@@ -0,0 +1,130 @@
+package uk.ac.exeter.QuinCe.data.Dataset.DataReduction;
+
+import java.util.Arrays;
+import java.util.List;
+
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.MeasurementValue;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+
+/**
+ * A block of {@link Measurement}s laid out as primitive columns for use by a
+ * {@link BatchDataReducer}.
+ *
+ * <p>
+ * Each input column holds the calculated {@link MeasurementValue}s for one
+ * {@link SensorType}, in the order given by the reducer's required type
+ * strings. Each result column holds the values for one
+ * {@link CalculationParameter}, in the order given by
+ * {@link DataReducer#getCalculationParameters()}. Missing inputs and results
+ * that are never set are {@link Double#NaN}.
+ * </p>
+ *
+ * <p>
+ * Batches are not thread safe, but separate batches can be processed
+ * concurrently.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class DataReductionBatch {
+
+  /**
+   * The measurements in the batch, one per row.
+   */
+  private final List<Measurement> measurements;
+
+  /**
+   * The input values, indexed by {@code [column][row]}.
+   */
+  private final double[][] inputs;
+
+  /**
+   * The calculated values, indexed by {@code [parameter][row]}.
+   */
+  private final double[][] results;
+
+  /**
+   * Build a batch from a set of measurements.
+   *
+   * @param measurements
+   *          The measurements.
+   * @param inputTypes
+   *          The sensor types whose values will be extracted into the input
+   *          columns.
+   * @param parameterCount
+   *          The number of calculation parameters to be produced.
+   */
+  public DataReductionBatch(List<Measurement> measurements,
+    List<SensorType> inputTypes, int parameterCount) {
+
+    this.measurements = measurements;
+    int size = measurements.size();
+
+    inputs = new double[inputTypes.size()][size];
+    for (int col = 0; col < inputTypes.size(); col++) {
+      SensorType sensorType = inputTypes.get(col);
+      double[] column = inputs[col];
+
+      for (int row = 0; row < size; row++) {
+        MeasurementValue value = measurements.get(row)
+          .getMeasurementValue(sensorType);
+
+        if (null == value || null == value.getCalculatedValue()) {
+          column[row] = Double.NaN;
+        } else {
+          column[row] = value.getCalculatedValue();
+        }
+      }
+    }
+
+    results = new double[parameterCount][size];
+    for (double[] result : results) {
+      Arrays.fill(result, Double.NaN);
+    }
+  }
+
+  /**
+   * Get the number of rows in the batch.
+   *
+   * @return The row count.
+   */
+  public int size() {
+    return measurements.size();
+  }
+
+  /**
+   * Get the measurement for the specified row.
+   *
+   * @param row
+   *          The row.
+   * @return The measurement.
+   */
+  public Measurement getMeasurement(int row) {
+    return measurements.get(row);
+  }
+
+  /**
+   * Get an input column.
+   *
+   * @param column
+   *          The column index, matching the position of the sensor type in the
+   *          reducer's required type strings.
+   * @return The input values.
+   */
+  public double[] getInput(int column) {
+    return inputs[column];
+  }
+
+  /**
+   * Get a result column for writing.
+   *
+   * @param parameter
+   *          The index of the calculation parameter.
+   * @return The result values.
+   */
+  public double[] getResult(int parameter) {
+    return results[parameter];
+  }
+}
@@ -16,7 +16,8 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
  * @author Steve Jones
  *
  */
-public class UnderwayAtmosphericPco2Reducer extends DataReducer {
+public class UnderwayAtmosphericPco2Reducer extends DataReducer
+  implements BatchDataReducer {
 
   private static List<CalculationParameter> calculationParameters = null;
 
@@ -30,32 +31,42 @@ public class UnderwayAtmosphericPco2Reducer extends DataReducer {
   public void doCalculation(Instrument instrument, Measurement measurement,
     DataReductionRecord record, Connection conn) throws Exception {
 
+    doCalculationAsBatch(measurement, record);
+  }
+
+  @Override
+  public void doBatchCalculation(DataReductionBatch batch, int from, int to) {
+
+    // Inputs, in the order of getRequiredTypeStrings
+    double[] intakeTemperature = batch.getInput(0);
+    double[] salinity = batch.getInput(1);
+    double[] atmosphericPressure = batch.getInput(2);
+    double[] co2InGas = batch.getInput(3);
+
+    // Outputs, in the order of getCalculationParameters
+    double[] seaLevelPressure = batch.getResult(0);
+    double[] pH2O = batch.getResult(1);
+    double[] xCO2 = batch.getResult(2);
+    double[] pCO2 = batch.getResult(3);
+    double[] fCO2 = batch.getResult(4);
+
+    Float sensorHeight = getFloatProperty("atm_pres_sensor_height");
+
     // We use equilibrator temperature as the presumed most realistic gas
     // temperature
-    Double intakeTemperature = measurement
-      .getMeasurementValue("Intake Temperature").getCalculatedValue();
-    Double salinity = measurement.getMeasurementValue("Salinity")
-      .getCalculatedValue();
-    Double atmosphericPressure = measurement
-      .getMeasurementValue("Atmospheric Pressure").getCalculatedValue();
-    Double co2InGas = measurement.getMeasurementValue(getXCO2Parameter())
-      .getCalculatedValue();
-
-    Double seaLevelPressure = Calculators.calcSeaLevelPressure(
-      atmosphericPressure, intakeTemperature,
-      getFloatProperty("atm_pres_sensor_height"));
-
-    Double pH2O = Calculators.calcPH2O(salinity, intakeTemperature);
-
-    Double pCO2 = Calculators.calcpCO2TEWet(co2InGas, seaLevelPressure, pH2O);
-    Double fCO2 = Calculators.calcfCO2(pCO2, co2InGas, seaLevelPressure,
-      intakeTemperature);
-
-    record.put("Sea Level Pressure", seaLevelPressure);
-    record.put("pH₂O", pH2O);
-    record.put("xCO₂", co2InGas);
-    record.put("pCO₂", pCO2);
-    record.put("fCO₂", fCO2);
+    for (int i = from; i < to; i++) {
+      seaLevelPressure[i] = Calculators.calcSeaLevelPressure(
+        atmosphericPressure[i], intakeTemperature[i], sensorHeight);
+
+      pH2O[i] = Calculators.calcPH2O(salinity[i], intakeTemperature[i]);
+
+      pCO2[i] = Calculators.calcpCO2TEWet(co2InGas[i], seaLevelPressure[i],
+        pH2O[i]);
+      fCO2[i] = Calculators.calcfCO2(pCO2[i], co2InGas[i], seaLevelPressure[i],
+        intakeTemperature[i]);
+
+      xCO2[i] = co2InGas[i];
+    }
   }
 
   @Override
@@ -67,22 +78,25 @@ public class UnderwayAtmosphericPco2Reducer extends DataReducer {
   @Override
   public List<CalculationParameter> getCalculationParameters() {
     if (null == calculationParameters) {
-      calculationParameters = new ArrayList<CalculationParameter>(5);
+      List<CalculationParameter> parameters = new ArrayList<CalculationParameter>(
+        5);
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(0),
+      parameters.add(new CalculationParameter(makeParameterId(0),
         "Sea Level Pressure", "Sea Level Pressure", "CAPASS01", "hPa", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(1),
+      parameters.add(new CalculationParameter(makeParameterId(1),
         "pH₂O", "Atmosphere Water Vapour Pressure", "CPVPZZ01", "hPa", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(2),
+      parameters.add(new CalculationParameter(makeParameterId(2),
         "xCO₂", "xCO₂ In Atmosphere", "XCO2DRAT", "μmol mol⁻¹", true));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(3),
+      parameters.add(new CalculationParameter(makeParameterId(3),
         "pCO₂", "pCO₂ In Atmosphere", "ACO2XXXX", "μatm", true));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(4),
+      parameters.add(new CalculationParameter(makeParameterId(4),
         "fCO₂", "fCO₂ In Atmosphere", "FCO2WTAT", "μatm", true));
+
+      calculationParameters = parameters;
     }
 
     return calculationParameters;
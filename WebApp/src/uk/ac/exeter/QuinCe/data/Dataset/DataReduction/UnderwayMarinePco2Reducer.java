@@ -16,7 +16,8 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
  * @author Steve Jones
  *
  */
-public class UnderwayMarinePco2Reducer extends DataReducer {
+public class UnderwayMarinePco2Reducer extends DataReducer
+  implements BatchDataReducer {
 
   private static List<CalculationParameter> calculationParameters = null;
 
@@ -29,37 +30,43 @@ public class UnderwayMarinePco2Reducer extends DataReducer {
   public void doCalculation(Instrument instrument, Measurement measurement,
     DataReductionRecord record, Connection conn) throws Exception {
 
-    Double intakeTemperature = measurement
-      .getMeasurementValue("Intake Temperature").getCalculatedValue();
-    Double salinity = measurement.getMeasurementValue("Salinity")
-      .getCalculatedValue();
-    Double equilibratorTemperature = measurement
-      .getMeasurementValue("Equilibrator Temperature").getCalculatedValue();
-    Double equilibratorPressure = measurement
-      .getMeasurementValue("Equilibrator Pressure").getCalculatedValue();
-    Double co2InGas = measurement.getMeasurementValue(getXCO2Parameter())
-      .getCalculatedValue();
-
-    Double pH2O = Calculators.calcPH2O(salinity, equilibratorTemperature);
-
-    Double pCo2TEWet = Calculators.calcpCO2TEWet(co2InGas, equilibratorPressure,
-      pH2O);
-    Double fCo2TEWet = Calculators.calcfCO2(pCo2TEWet, co2InGas,
-      equilibratorPressure, equilibratorTemperature);
-
-    Double pCO2SST = Calculators.calcCO2AtSST(pCo2TEWet,
-      equilibratorTemperature, intakeTemperature);
-
-    Double fCO2 = Calculators.calcCO2AtSST(fCo2TEWet, equilibratorTemperature,
-      intakeTemperature);
-
-    // Store the calculated values
-    record.put("ΔT", Math.abs(intakeTemperature - equilibratorTemperature));
-    record.put("pH₂O", pH2O);
-    record.put("pCO₂ TE Wet", pCo2TEWet);
-    record.put("fCO₂ TE Wet", fCo2TEWet);
-    record.put("pCO₂ SST", pCO2SST);
-    record.put("fCO₂", fCO2);
+    doCalculationAsBatch(measurement, record);
+  }
+
+  @Override
+  public void doBatchCalculation(DataReductionBatch batch, int from, int to) {
+
+    // Inputs, in the order of getRequiredTypeStrings
+    double[] intakeTemperature = batch.getInput(0);
+    double[] salinity = batch.getInput(1);
+    double[] equilibratorTemperature = batch.getInput(2);
+    double[] equilibratorPressure = batch.getInput(3);
+    double[] co2InGas = batch.getInput(4);
+
+    // Outputs, in the order of getCalculationParameters
+    double[] deltaT = batch.getResult(0);
+    double[] pH2O = batch.getResult(1);
+    double[] pCo2TEWet = batch.getResult(2);
+    double[] fCo2TEWet = batch.getResult(3);
+    double[] pCO2SST = batch.getResult(4);
+    double[] fCO2 = batch.getResult(5);
+
+    for (int i = from; i < to; i++) {
+      pH2O[i] = Calculators.calcPH2O(salinity[i], equilibratorTemperature[i]);
+
+      pCo2TEWet[i] = Calculators.calcpCO2TEWet(co2InGas[i],
+        equilibratorPressure[i], pH2O[i]);
+      fCo2TEWet[i] = Calculators.calcfCO2(pCo2TEWet[i], co2InGas[i],
+        equilibratorPressure[i], equilibratorTemperature[i]);
+
+      pCO2SST[i] = Calculators.calcCO2AtSST(pCo2TEWet[i],
+        equilibratorTemperature[i], intakeTemperature[i]);
+
+      fCO2[i] = Calculators.calcCO2AtSST(fCo2TEWet[i],
+        equilibratorTemperature[i], intakeTemperature[i]);
+
+      deltaT[i] = Math.abs(intakeTemperature[i] - equilibratorTemperature[i]);
+    }
   }
 
   @Override
@@ -71,28 +78,30 @@ public class UnderwayMarinePco2Reducer extends DataReducer {
   @Override
   public List<CalculationParameter> getCalculationParameters() {
     if (null == calculationParameters) {
-      calculationParameters = new ArrayList<CalculationParameter>(6);
+      List<CalculationParameter> parameters = new ArrayList<CalculationParameter>(
+        6);
 
-      calculationParameters
-        .add(new CalculationParameter(makeParameterId(0), "ΔT",
-          "Water-Equilibrator Temperature Difference", "DELTAT", "°C", false));
+      parameters.add(new CalculationParameter(makeParameterId(0), "ΔT",
+        "Water-Equilibrator Temperature Difference", "DELTAT", "°C", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(1),
-        "pH₂O", "Marine Water Vapour Pressure", "RH2OX0EQ", "hPa", false));
+      parameters.add(new CalculationParameter(makeParameterId(1), "pH₂O",
+        "Marine Water Vapour Pressure", "RH2OX0EQ", "hPa", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(2),
+      parameters.add(new CalculationParameter(makeParameterId(2),
         "pCO₂ TE Wet", "pCO₂ In Water - Equilibrator Temperature", "PCO2IG02",
         "μatm", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(3),
+      parameters.add(new CalculationParameter(makeParameterId(3),
         "fCO₂ TE Wet", "fCO₂ In Water - Equilibrator Temperature", "FCO2IG02",
         "μatm", false));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(4),
-        "pCO₂ SST", "pCO₂ In Water", "PCO2TK02", "μatm", true));
+      parameters.add(new CalculationParameter(makeParameterId(4), "pCO₂ SST",
+        "pCO₂ In Water", "PCO2TK02", "μatm", true));
+
+      parameters.add(new CalculationParameter(makeParameterId(5), "fCO₂",
+        "fCO₂ In Water", "FCO2XXXX", "μatm", true));
 
-      calculationParameters.add(new CalculationParameter(makeParameterId(5),
-        "fCO₂", "fCO₂ In Water", "FCO2XXXX", "μatm", true));
+      calculationParameters = parameters;
     }
 
     return calculationParameters;
@@ -27,14 +27,21 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
 
+import uk.ac.exeter.QuinCe.User.NoSuchUserException;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentException;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorGroupsException;
+import uk.ac.exeter.QuinCe.jobs.InvalidJobClassTypeException;
+import uk.ac.exeter.QuinCe.jobs.InvalidJobConstructorException;
+import uk.ac.exeter.QuinCe.jobs.JobClassNotFoundException;
+import uk.ac.exeter.QuinCe.jobs.JobException;
+import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.files.DataSetJob;
+import uk.ac.exeter.QuinCe.jobs.files.DeleteDataSetJob;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
 import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
-import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.Message;
 import uk.ac.exeter.QuinCe.utils.MissingParam;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
@@ -92,7 +99,8 @@ public class DataSetDB {
     + "d.instrument_id = ? AND d.start <= ? AND d.end >= ?";
 
   private static final String NRT_COUNT_QUERY = "SELECT COUNT(*) FROM dataset "
-    + "WHERE nrt = 1 AND instrument_id = ?";
+    + "WHERE nrt = 1 AND instrument_id = ? AND status != "
+    + DataSet.STATUS_DELETING;
 
   private static final String NRT_STATUS_QUERY = "SELECT "
     + "ds.instrument_id, ds.created, ds.end, ds.status, ds.status_date "
@@ -721,8 +729,11 @@ public class DataSetDB {
       try (ResultSet records = stmt.executeQuery()) {
         while (null == result && records.next()) {
           DataSet dataset = dataSetFromRecord(conn, records);
-          result = dataset;
-          break;
+
+          // Datasets that are being deleted are ignored
+          if (dataset.getStatus() != DataSet.STATUS_DELETING) {
+            result = dataset;
+          }
         }
       }
 
@@ -789,7 +800,13 @@ public class DataSetDB {
   }
 
   /**
-   * Delete a dataset and all related records
+   * Delete a dataset and all related records.
+   *
+   * <p>
+   * The dataset is given the {@link DataSet#STATUS_DELETING} status, and a
+   * {@link DeleteDataSetJob} is queued to remove its records in the
+   * background.
+   * </p>
    *
    * @param conn
    *          A database connection
@@ -800,51 +817,64 @@ public class DataSetDB {
    * @throws DatabaseException
    *           If a database error occurs
    * @throws RecordNotFoundException
+   *           If the dataset does not exist
    * @throws InvalidDataSetStatusException
    */
   public static void deleteDataSet(Connection conn, DataSet dataSet)
     throws MissingParamException, DatabaseException,
     InvalidDataSetStatusException, RecordNotFoundException {
 
-    boolean currentAutoCommitStatus = false;
-    PreparedStatement datasetStatement = null;
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkMissing(dataSet, "dataSet");
 
     try {
-
-      currentAutoCommitStatus = conn.getAutoCommit();
       setDatasetStatus(conn, dataSet.getId(), DataSet.STATUS_DELETING);
-      if (!currentAutoCommitStatus) {
-        conn.commit();
-      }
+      dataSet.setStatus(DataSet.STATUS_DELETING);
 
-      if (currentAutoCommitStatus) {
-        conn.setAutoCommit(false);
-      }
-
-      DataSetDataDB.deleteMeasurements(conn, dataSet.getId());
-      DataSetDataDB.deleteSensorValues(conn, dataSet.getId());
+      Properties jobProperties = new Properties();
+      jobProperties.setProperty(DataSetJob.ID_PARAM,
+        String.valueOf(dataSet.getId()));
 
-      datasetStatement = conn.prepareStatement(DELETE_DATASET_QUERY);
-      datasetStatement.setLong(1, dataSet.getId());
-      datasetStatement.execute();
+      JobManager.addJob(conn,
+        InstrumentDB.getInstrumentOwner(conn, dataSet.getInstrumentId()),
+        DeleteDataSetJob.class.getCanonicalName(), jobProperties);
 
-      if (currentAutoCommitStatus) {
-        // Return the connection to its non-transaction state
+      if (!conn.getAutoCommit()) {
         conn.commit();
-        conn.setAutoCommit(true);
-      }
-    } catch (Exception e) {
-      ExceptionUtils.printStackTrace(e);
-      if (currentAutoCommitStatus) {
-        try {
-          conn.rollback();
-          conn.setAutoCommit(true);
-        } catch (SQLException e2) {
-          ExceptionUtils.printStackTrace(e2);
-        }
       }
-    } finally {
-      DatabaseUtils.closeStatements(datasetStatement);
+    } catch (SQLException | NoSuchUserException | JobClassNotFoundException
+      | InvalidJobClassTypeException | InvalidJobConstructorException
+      | JobException e) {
+      throw new DatabaseException("Error while queueing dataset deletion", e);
+    }
+  }
+
+  /**
+   * Remove a dataset record from the database. This must only be called once
+   * all the dataset's measurements and sensor values have been removed.
+   *
+   * @param conn
+   *          A database connection
+   * @param datasetId
+   *          The dataset's database ID
+   * @throws MissingParamException
+   *           If any required parameters are missing
+   * @throws DatabaseException
+   *           If a database error occurs
+   * @see DeleteDataSetJob
+   */
+  public static void deleteDataSetRecord(Connection conn, long datasetId)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkZeroPositive(datasetId, "datasetId");
+
+    try (PreparedStatement stmt = conn
+      .prepareStatement(DELETE_DATASET_QUERY)) {
+      stmt.setLong(1, datasetId);
+      stmt.execute();
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while deleting dataset", e);
     }
   }
 
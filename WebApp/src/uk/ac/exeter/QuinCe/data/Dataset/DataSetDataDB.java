@@ -149,6 +149,15 @@ public class DataSetDataDB {
     + "data_reduction WHERE measurement_id IN "
     + "(SELECT id FROM measurements WHERE dataset_id = ?)";
 
+  /**
+   * Statement to remove the data reduction records for the measurements in a
+   * time range
+   */
+  private static final String DELETE_DATA_REDUCTION_RANGE_STATEMENT = "DELETE FROM "
+    + "data_reduction WHERE measurement_id IN "
+    + "(SELECT id FROM measurements WHERE dataset_id = ? "
+    + "AND date >= ? AND date <= ?)";
+
   private static final String DELETE_MEASUREMENT_RUN_TYPES_STATEMENT = "DELETE FROM "
     + "measurement_run_types WHERE measurement_id IN "
     + "(SELECT id FROM measurements WHERE dataset_id = ?)";
@@ -156,6 +165,51 @@ public class DataSetDataDB {
   private static final String DELETE_MEASUREMENTS_STATEMENT = "DELETE FROM "
     + "measurements WHERE dataset_id = ?";
 
+  /**
+   * The maximum number of records removed by each batch when deleting a
+   * dataset's records.
+   *
+   * @see #deleteMeasurementsBatch(Connection, long, int)
+   * @see #deleteSensorValuesBatch(Connection, long, int)
+   */
+  public static final int DELETE_BATCH_SIZE = 10000;
+
+  private static final String MEASUREMENT_COUNT_QUERY = "SELECT "
+    + "COUNT(*) FROM measurements WHERE dataset_id = ?";
+
+  private static final String SENSOR_VALUE_COUNT_QUERY = "SELECT "
+    + "COUNT(*) FROM sensor_values WHERE dataset_id = ?";
+
+  /**
+   * Query to find the highest measurement ID in the next batch of measurements
+   * to be deleted
+   */
+  private static final String MEASUREMENTS_BATCH_END_QUERY = "SELECT "
+    + "MAX(b.id) FROM (SELECT id FROM measurements WHERE dataset_id = ? "
+    + "ORDER BY id LIMIT ?) b";
+
+  private static final String DELETE_DATA_REDUCTION_BATCH_STATEMENT = "DELETE FROM "
+    + "data_reduction WHERE measurement_id IN "
+    + "(SELECT id FROM measurements WHERE dataset_id = ? AND id <= ?)";
+
+  private static final String DELETE_MEASUREMENT_RUN_TYPES_BATCH_STATEMENT = "DELETE FROM "
+    + "measurement_run_types WHERE measurement_id IN "
+    + "(SELECT id FROM measurements WHERE dataset_id = ? AND id <= ?)";
+
+  private static final String DELETE_MEASUREMENTS_BATCH_STATEMENT = "DELETE FROM "
+    + "measurements WHERE dataset_id = ? AND id <= ?";
+
+  /**
+   * Query to find the highest sensor value ID in the next batch of sensor
+   * values to be deleted
+   */
+  private static final String SENSOR_VALUES_BATCH_END_QUERY = "SELECT "
+    + "MAX(b.id) FROM (SELECT id FROM sensor_values WHERE dataset_id = ? "
+    + "ORDER BY id LIMIT ?) b";
+
+  private static final String DELETE_SENSOR_VALUES_BATCH_STATEMENT = "DELETE FROM "
+    + "sensor_values WHERE dataset_id = ? AND id <= ?";
+
   private static final String GET_SENSOR_VALUES_FOR_COLUMNS_QUERY = "SELECT "
     + "id, file_column, date, value, auto_qc, " // 5
     + "user_qc_flag, user_qc_message " // 8
@@ -387,16 +441,7 @@ public class DataSetDataDB {
           } else {
             updateStmt.setString(1, value.getAutoQcResult().toJson());
             updateStmt.setInt(2, value.getUserQCFlag().getFlagValue());
-
-            // Truncate user QC message (except for LOOKUP flags)
-            String userQCMessage = value.getUserQCMessage();
-            if (!value.getUserQCFlag().equals(Flag.LOOKUP)) {
-              if (userQCMessage.length() > 255) {
-                userQCMessage = userQCMessage.substring(0, 255);
-              }
-            }
-
-            updateStmt.setString(3, userQCMessage);
+            updateStmt.setString(3, getStorableUserQCMessage(value));
             updateStmt.setLong(4, value.getId());
 
             updateStmt.addBatch();
@@ -414,6 +459,26 @@ public class DataSetDataDB {
     SensorValue.clearDirtyFlag(sensorValues);
   }
 
+  /**
+   * Get the user QC message of a {@link SensorValue} in the form that is
+   * stored in the database. Messages are truncated to 255 characters, except
+   * for {@link Flag#LOOKUP} flags whose messages hold lookup IDs.
+   *
+   * @param value
+   *          The sensor value.
+   * @return The message to be stored.
+   */
+  static String getStorableUserQCMessage(SensorValue value) {
+    String userQCMessage = value.getUserQCMessage();
+    if (!value.getUserQCFlag().equals(Flag.LOOKUP)) {
+      if (userQCMessage.length() > 255) {
+        userQCMessage = userQCMessage.substring(0, 255);
+      }
+    }
+
+    return userQCMessage;
+  }
+
   /**
    * Remove all sensor values for a dataset
    *
@@ -915,6 +980,197 @@ public class DataSetDataDB {
     }
   }
 
+  /**
+   * Get the number of measurements in a dataset.
+   *
+   * @param conn
+   *          A database connection
+   * @param datasetId
+   *          The dataset's database ID
+   * @return The number of measurements
+   * @throws MissingParamException
+   *           If any required parameters are missing
+   * @throws DatabaseException
+   *           If a database error occurs
+   */
+  public static long getMeasurementCount(Connection conn, long datasetId)
+    throws MissingParamException, DatabaseException {
+    return getCount(conn, MEASUREMENT_COUNT_QUERY, datasetId);
+  }
+
+  /**
+   * Get the number of sensor values in a dataset.
+   *
+   * @param conn
+   *          A database connection
+   * @param datasetId
+   *          The dataset's database ID
+   * @return The number of sensor values
+   * @throws MissingParamException
+   *           If any required parameters are missing
+   * @throws DatabaseException
+   *           If a database error occurs
+   */
+  public static long getSensorValueCount(Connection conn, long datasetId)
+    throws MissingParamException, DatabaseException {
+    return getCount(conn, SENSOR_VALUE_COUNT_QUERY, datasetId);
+  }
+
+  private static long getCount(Connection conn, String query, long datasetId)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkZeroPositive(datasetId, "datasetId");
+
+    long result = 0;
+
+    try (PreparedStatement stmt = conn.prepareStatement(query)) {
+      stmt.setLong(1, datasetId);
+
+      try (ResultSet records = stmt.executeQuery()) {
+        records.next();
+        result = records.getLong(1);
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while counting dataset records", e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Remove the next batch of measurements from a dataset, along with their
+   * run types and data reduction records.
+   *
+   * <p>
+   * The measurements with the lowest IDs are removed first. The batch is not
+   * committed; the caller should commit it before removing the next batch so
+   * that each transaction stays small.
+   * </p>
+   *
+   * @param conn
+   *          A database connection
+   * @param datasetId
+   *          The dataset's database ID
+   * @param batchSize
+   *          The maximum number of measurements to remove
+   * @return The number of measurements removed. Zero indicates that there are
+   *         no measurements left in the dataset.
+   * @throws MissingParamException
+   *           If any required parameters are missing
+   * @throws DatabaseException
+   *           If a database error occurs
+   */
+  public static int deleteMeasurementsBatch(Connection conn, long datasetId,
+    int batchSize) throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkZeroPositive(datasetId, "datasetId");
+    MissingParam.checkPositive(batchSize, "batchSize");
+
+    int result = 0;
+
+    try {
+      long batchEnd = getBatchEnd(conn, MEASUREMENTS_BATCH_END_QUERY,
+        datasetId, batchSize);
+
+      if (batchEnd > 0) {
+        deleteBatch(conn, DELETE_DATA_REDUCTION_BATCH_STATEMENT, datasetId,
+          batchEnd);
+        deleteBatch(conn, DELETE_MEASUREMENT_RUN_TYPES_BATCH_STATEMENT,
+          datasetId, batchEnd);
+        result = deleteBatch(conn, DELETE_MEASUREMENTS_BATCH_STATEMENT,
+          datasetId, batchEnd);
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while deleting measurements", e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Remove the next batch of sensor values from a dataset.
+   *
+   * <p>
+   * The sensor values with the lowest IDs are removed first. The batch is not
+   * committed; the caller should commit it before removing the next batch so
+   * that each transaction stays small. Measurements should be removed before
+   * sensor values.
+   * </p>
+   *
+   * @param conn
+   *          A database connection
+   * @param datasetId
+   *          The dataset's database ID
+   * @param batchSize
+   *          The maximum number of sensor values to remove
+   * @return The number of sensor values removed. Zero indicates that there are
+   *         no sensor values left in the dataset.
+   * @throws MissingParamException
+   *           If any required parameters are missing
+   * @throws DatabaseException
+   *           If a database error occurs
+   * @see #deleteMeasurementsBatch(Connection, long, int)
+   */
+  public static int deleteSensorValuesBatch(Connection conn, long datasetId,
+    int batchSize) throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkZeroPositive(datasetId, "datasetId");
+    MissingParam.checkPositive(batchSize, "batchSize");
+
+    int result = 0;
+
+    try {
+      long batchEnd = getBatchEnd(conn, SENSOR_VALUES_BATCH_END_QUERY,
+        datasetId, batchSize);
+
+      if (batchEnd > 0) {
+        result = deleteBatch(conn, DELETE_SENSOR_VALUES_BATCH_STATEMENT,
+          datasetId, batchEnd);
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while deleting sensor values", e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the highest record ID in the next batch of records to be deleted.
+   *
+   * @return The highest ID, or zero if there are no records left.
+   */
+  private static long getBatchEnd(Connection conn, String query,
+    long datasetId, int batchSize) throws SQLException {
+
+    long result = 0;
+
+    try (PreparedStatement stmt = conn.prepareStatement(query)) {
+      stmt.setLong(1, datasetId);
+      stmt.setInt(2, batchSize);
+
+      try (ResultSet records = stmt.executeQuery()) {
+        if (records.next()) {
+          result = records.getLong(1);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private static int deleteBatch(Connection conn, String statement,
+    long datasetId, long batchEnd) throws SQLException {
+
+    try (PreparedStatement stmt = conn.prepareStatement(statement)) {
+      stmt.setLong(1, datasetId);
+      stmt.setLong(2, batchEnd);
+      return stmt.executeUpdate();
+    }
+  }
+
   public static List<SensorValue> getSensorValuesForColumns(
     DataSource dataSource, long datasetId, List<Long> columnIds)
     throws MissingParamException, DatabaseException {
@@ -1184,6 +1440,8 @@ public class DataSetDataDB {
       throw new DatabaseException("Error while getting run type periods", e);
     }
 
+    // Build the lookup index now so the periods can be shared read-only
+    result.buildIndex();
     return result;
   }
 
@@ -1242,6 +1500,45 @@ public class DataSetDataDB {
     }
   }
 
+  /**
+   * Remove the data reduction records for the measurements in a dataset whose
+   * times are between the specified start and end times (inclusive).
+   *
+   * @param conn
+   *          A database connection.
+   * @param datasetId
+   *          The dataset's database ID.
+   * @param start
+   *          The start of the time range.
+   * @param end
+   *          The end of the time range.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static void deleteDataReduction(Connection conn, long datasetId,
+    LocalDateTime start, LocalDateTime end)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkPositive(datasetId, "datasetId");
+    MissingParam.checkMissing(start, "start");
+    MissingParam.checkMissing(end, "end");
+
+    try (PreparedStatement drStmt = conn
+      .prepareStatement(DELETE_DATA_REDUCTION_RANGE_STATEMENT)) {
+
+      drStmt.setLong(1, datasetId);
+      drStmt.setLong(2, DateTimeUtils.dateToLong(start));
+      drStmt.setLong(3, DateTimeUtils.dateToLong(end));
+      drStmt.execute();
+
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while deleting data reduction", e);
+    }
+  }
+
   public static List<RunTypeSensorValue> getInternalCalibrationSensorValues(
     Connection conn, Instrument instrument, long datasetId)
     throws MissingParamException, DatabaseException, InvalidFlagException {
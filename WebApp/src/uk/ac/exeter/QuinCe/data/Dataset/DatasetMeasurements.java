@@ -4,11 +4,12 @@ import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
@@ -22,6 +23,13 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
  * {@link #getTimeOrderedMeasurements()}.
  * </p>
  *
+ * <p>
+ * For each variable, the time-ordered measurements are also divided into
+ * {@link RunSegment}s: contiguous blocks of measurements with the same run
+ * type. The segments are built on first use and allow the runs before or after
+ * a given time to be found with a binary search.
+ * </p>
+ *
  * @author stevej
  *
  */
@@ -45,7 +53,23 @@ public class DatasetMeasurements {
   /**
    * The list of all measurement times.
    */
-  private List<LocalDateTime> measurementTimes = null;;
+  private List<LocalDateTime> measurementTimes = null;
+
+  /**
+   * The positions of the measurements in {@link #timeOrderedMeasurements}.
+   */
+  private IdentityHashMap<Measurement, Integer> measurementPositions = null;
+
+  /**
+   * The run segments for each variable, built on demand.
+   */
+  private final ConcurrentHashMap<Long, VariableRuns> runs = new ConcurrentHashMap<Long, VariableRuns>();
+
+  /**
+   * Memoised calculations for the standard runs. This depends on the run
+   * segments, so it is cleared with them.
+   */
+  private final CalibrationRunCache calibrationRunCache = new CalibrationRunCache();
 
   /**
    * Basic constructor.
@@ -103,6 +127,9 @@ public class DatasetMeasurements {
       measurements.get(varRunType).add(measurement);
       timeOrderedMeasurements = null;
       measurementTimes = null;
+      measurementPositions = null;
+      runs.clear();
+      calibrationRunCache.clear();
     }
   }
 
@@ -150,6 +177,57 @@ public class DatasetMeasurements {
     measurementTimes = Collections.unmodifiableList(times);
   }
 
+  /**
+   * Get the memoised calculations for the standard runs in these measurements.
+   *
+   * @return The standard run calculations
+   */
+  public CalibrationRunCache getCalibrationRunCache() {
+    return calibrationRunCache;
+  }
+
+  /**
+   * Get the run segments for a variable, building them if required.
+   *
+   * @param variableId
+   *          The variable's database ID
+   * @return The run segments
+   */
+  private VariableRuns getVariableRuns(long variableId) {
+    VariableRuns result = runs.get(variableId);
+    if (null == result) {
+      synchronized (this) {
+        result = runs.computeIfAbsent(variableId,
+          v -> new VariableRuns(v, getTimeOrderedMeasurements()));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the position of a measurement in the time-ordered list.
+   *
+   * @param measurement
+   *          The measurement
+   * @return The position, or {@code -1} if the measurement is not present
+   */
+  private synchronized int getPosition(Measurement measurement) {
+    if (null == measurementPositions) {
+      List<Measurement> ordered = getTimeOrderedMeasurements();
+      IdentityHashMap<Measurement, Integer> positions = new IdentityHashMap<Measurement, Integer>(
+        ordered.size());
+      for (int i = 0; i < ordered.size(); i++) {
+        positions.put(ordered.get(i), i);
+      }
+      measurementPositions = positions;
+    }
+
+    Integer position = measurementPositions.get(measurement);
+    return null == position ? getTimeOrderedMeasurements().indexOf(measurement)
+      : position;
+  }
+
   public TreeSet<Measurement> getMeasurementsInSameRun(Variable variable,
     Measurement start) {
     return getMeasurementsInSameRun(variable.getId(), start);
@@ -160,49 +238,15 @@ public class DatasetMeasurements {
 
     TreeSet<Measurement> result = new TreeSet<Measurement>(
       Measurement.TIME_COMPARATOR);
-    result.add(start);
-
-    int startPos = getTimeOrderedMeasurements().indexOf(start);
-
-    // Search backwards until will find a measurement that has a different run
-    // type
-    boolean sameRunType = true;
-    int searchPos = startPos;
-    while (sameRunType) {
-      searchPos--;
-      if (searchPos < 0) {
-        sameRunType = false;
-      } else {
-        String searchRunType = getTimeOrderedMeasurements().get(searchPos)
-          .getRunType(variableId);
-        if (searchPos < 0 || null == searchRunType
-          || !searchRunType.equals(start.getRunType(variableId))) {
-          sameRunType = false;
-        } else {
-          result.add(getTimeOrderedMeasurements().get(searchPos));
-        }
-      }
-    }
 
-    // Search forwards until will find a measurement that has a different run
-    // type
-    sameRunType = true;
-    searchPos = startPos;
-    while (sameRunType) {
-      searchPos++;
-      if (searchPos >= getTimeOrderedMeasurements().size()) {
-        sameRunType = false;
-      } else {
-        String searchRunType = getTimeOrderedMeasurements().get(searchPos)
-          .getRunType(variableId);
-        if (searchPos >= getTimeOrderedMeasurements().size()
-          || null == searchRunType
-          || !searchRunType.equals(start.getRunType(variableId))) {
-          sameRunType = false;
-        } else {
-          result.add(getTimeOrderedMeasurements().get(searchPos));
-        }
-      }
+    int startPos = getPosition(start);
+    RunSegment segment = startPos < 0 ? null
+      : getVariableRuns(variableId).getSegmentAt(startPos);
+
+    if (null == segment) {
+      result.add(start);
+    } else {
+      result.addAll(segment.getMeasurements());
     }
 
     return result;
@@ -211,24 +255,257 @@ public class DatasetMeasurements {
   public TreeSet<Measurement> getRunBefore(long variableId, String runType,
     LocalDateTime time) {
 
-    Optional<Measurement> lastBefore = getMeasurements(variableId, runType)
-      .stream().filter(m -> m.getTime().isBefore(time))
-      .reduce((first, second) -> second);
+    RunSegment segment = getRunSegmentBefore(variableId, runType, time);
+    return null == segment ? new TreeSet<Measurement>()
+      : getMeasurementsInSameRun(variableId, segment.getMeasurements().get(0));
+  }
 
-    return lastBefore.isEmpty() ? new TreeSet<Measurement>()
-      : getMeasurementsInSameRun(variableId, lastBefore.get());
+  public TreeSet<Measurement> getRunAfter(long variableId, String runType,
+    LocalDateTime time) {
 
+    RunSegment segment = getRunSegmentAfter(variableId, runType, time);
+    return null == segment ? new TreeSet<Measurement>()
+      : getMeasurementsInSameRun(variableId, segment.getMeasurements().get(0));
   }
 
-  public TreeSet<Measurement> getRunAfter(long variableId, String runType,
+  /**
+   * Get the last run of the specified run type that starts before the
+   * specified time.
+   *
+   * @param variableId
+   *          The variable's database ID
+   * @param runType
+   *          The run type
+   * @param time
+   *          The time
+   * @return The run, or {@code null} if there is no such run
+   */
+  public RunSegment getRunSegmentBefore(long variableId, String runType,
     LocalDateTime time) {
+    return getVariableRuns(variableId).getRunBefore(runType, time);
+  }
 
-    Optional<Measurement> firstAfter = getMeasurements(variableId, runType)
-      .stream().filter(m -> m.getTime().isAfter(time)).findFirst();
+  /**
+   * Get the first run of the specified run type that ends after the specified
+   * time.
+   *
+   * @param variableId
+   *          The variable's database ID
+   * @param runType
+   *          The run type
+   * @param time
+   *          The time
+   * @return The run, or {@code null} if there is no such run
+   */
+  public RunSegment getRunSegmentAfter(long variableId, String runType,
+    LocalDateTime time) {
+    return getVariableRuns(variableId).getRunAfter(runType, time);
+  }
+
+  /**
+   * A contiguous block of measurements in the time-ordered list that have the
+   * same run type for a given variable.
+   *
+   * <p>
+   * The start and end times are taken when the segments are built, so they are
+   * not affected by later changes to the measurement times.
+   * </p>
+   */
+  public static final class RunSegment {
+
+    private final String runType;
+
+    private final int startPosition;
+
+    private final List<Measurement> segmentMeasurements;
+
+    private final LocalDateTime start;
+
+    private final LocalDateTime end;
+
+    private RunSegment(String runType, List<Measurement> allMeasurements,
+      List<LocalDateTime> times, int startPosition, int endPosition) {
+      this.runType = runType;
+      this.startPosition = startPosition;
+      this.segmentMeasurements = Collections.unmodifiableList(
+        allMeasurements.subList(startPosition, endPosition + 1));
+      this.start = times.get(startPosition);
+      this.end = times.get(endPosition);
+    }
+
+    /**
+     * Get the run type of this segment
+     *
+     * @return The run type
+     */
+    public String getRunType() {
+      return runType;
+    }
+
+    /**
+     * Get the measurements in this segment, in time order.
+     *
+     * @return The measurements
+     */
+    public List<Measurement> getMeasurements() {
+      return segmentMeasurements;
+    }
+
+    /**
+     * Get the position of the first measurement in the segment within the
+     * time-ordered list of all measurements.
+     *
+     * @return The start position
+     */
+    public int getStartPosition() {
+      return startPosition;
+    }
+
+    /**
+     * Get the time of the first measurement in the segment
+     *
+     * @return The start time
+     */
+    public LocalDateTime getStart() {
+      return start;
+    }
+
+    /**
+     * Get the time of the last measurement in the segment
+     *
+     * @return The end time
+     */
+    public LocalDateTime getEnd() {
+      return end;
+    }
+  }
+
+  /**
+   * The run segments for a single variable.
+   */
+  private static class VariableRuns {
+
+    /**
+     * The index of the segment containing each position in the time-ordered
+     * measurements list, or {@code -1} if the measurement has no run type for
+     * the variable.
+     */
+    private final int[] segmentIndex;
+
+    /**
+     * All segments in time order
+     */
+    private final List<RunSegment> segments;
 
-    return firstAfter.isEmpty() ? new TreeSet<Measurement>()
-      : getMeasurementsInSameRun(variableId, firstAfter.get());
+    /**
+     * The segments grouped by run type, each in time order
+     */
+    private final Map<String, RunSegment[]> segmentsByRunType;
 
+    private VariableRuns(long variableId, List<Measurement> ordered) {
+
+      List<LocalDateTime> times = new ArrayList<LocalDateTime>(ordered.size());
+      ordered.forEach(m -> times.add(m.getTime()));
+
+      segmentIndex = new int[ordered.size()];
+      segments = new ArrayList<RunSegment>();
+      Map<String, List<RunSegment>> byRunType = new HashMap<String, List<RunSegment>>();
+
+      int position = 0;
+      while (position < ordered.size()) {
+        String runType = ordered.get(position).getRunType(variableId);
+
+        if (null == runType) {
+          segmentIndex[position] = -1;
+          position++;
+        } else {
+          int endPosition = position;
+          while (endPosition + 1 < ordered.size() && runType
+            .equals(ordered.get(endPosition + 1).getRunType(variableId))) {
+            endPosition++;
+          }
+
+          RunSegment segment = new RunSegment(runType, ordered, times,
+            position, endPosition);
+
+          for (int i = position; i <= endPosition; i++) {
+            segmentIndex[i] = segments.size();
+          }
+
+          segments.add(segment);
+          byRunType.computeIfAbsent(runType, r -> new ArrayList<RunSegment>())
+            .add(segment);
+
+          position = endPosition + 1;
+        }
+      }
+
+      segmentsByRunType = new HashMap<String, RunSegment[]>();
+      byRunType.forEach(
+        (k, v) -> segmentsByRunType.put(k, v.toArray(new RunSegment[0])));
+    }
+
+    private RunSegment getSegmentAt(int position) {
+      int index = segmentIndex[position];
+      return index == -1 ? null : segments.get(index);
+    }
+
+    /**
+     * Find the last segment of the run type that starts before the time.
+     */
+    private RunSegment getRunBefore(String runType, LocalDateTime time) {
+      RunSegment result = null;
+
+      RunSegment[] candidates = segmentsByRunType.get(runType);
+      if (null != candidates) {
+        int low = 0;
+        int high = candidates.length - 1;
+
+        // Find the first segment that does not start before the time
+        while (low <= high) {
+          int mid = (low + high) >>> 1;
+          if (candidates[mid].getStart().isBefore(time)) {
+            low = mid + 1;
+          } else {
+            high = mid - 1;
+          }
+        }
+
+        if (low > 0) {
+          result = candidates[low - 1];
+        }
+      }
+
+      return result;
+    }
+
+    /**
+     * Find the first segment of the run type that ends after the time.
+     */
+    private RunSegment getRunAfter(String runType, LocalDateTime time) {
+      RunSegment result = null;
+
+      RunSegment[] candidates = segmentsByRunType.get(runType);
+      if (null != candidates) {
+        int low = 0;
+        int high = candidates.length - 1;
+
+        while (low <= high) {
+          int mid = (low + high) >>> 1;
+          if (candidates[mid].getEnd().isAfter(time)) {
+            high = mid - 1;
+          } else {
+            low = mid + 1;
+          }
+        }
+
+        if (low < candidates.length) {
+          result = candidates[low];
+        }
+      }
+
+      return result;
+    }
   }
 
   private static class VariableRunType {
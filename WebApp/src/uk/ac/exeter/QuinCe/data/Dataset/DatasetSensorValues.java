@@ -11,10 +11,12 @@ import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import com.javadocmd.simplelatlng.LatLng;
 
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Instrument.DiagnosticQCConfig;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.PositionException;
@@ -66,6 +68,20 @@ public class DatasetSensorValues {
    */
   private TreeSet<Long> optionalColumns = new TreeSet<Long>();
 
+  /**
+   * Cache of the resolved QC messages for values with cascaded
+   * ({@link Flag#LOOKUP}) QC.
+   *
+   * @see #getLookupQCMessage(SensorValue)
+   */
+  private volatile LookupQCMessageCache lookupQCMessages = null;
+
+  /**
+   * The IDs of the datasets that the values belong to. Used to check the QC
+   * version for {@link #lookupQCMessages}.
+   */
+  private TreeSet<Long> datasetIds = new TreeSet<Long>();
+
   public DatasetSensorValues(Instrument instrument) {
     valuesById = new HashMap<Long, SensorValue>();
     valuesByColumn = new HashMap<Long, SearchableSensorValuesList>();
@@ -165,10 +181,74 @@ public class DatasetSensorValues {
 
   private void addById(SensorValue sensorValue) {
     valuesById.put(sensorValue.getId(), sensorValue);
+    datasetIds.add(sensorValue.getDatasetId());
+    lookupQCMessages = null;
   }
 
   private void removeById(SensorValue sensorValue) {
     valuesById.remove(sensorValue.getId());
+    lookupQCMessages = null;
+  }
+
+  /**
+   * Get the QC message for a value whose QC has been cascaded from other values
+   * (i.e. its user QC flag is {@link Flag#LOOKUP}).
+   *
+   * <p>
+   * After a cascade, many values share the same set of source values, so the
+   * resolved messages are cached by source set. The cache is discarded when
+   * values are added or removed, or the QC of any {@link SensorValue} in the
+   * dataset changes (see {@link SensorValue#getQCVersion(long)}).
+   * </p>
+   *
+   * @param sensorValue
+   *          The value.
+   * @return The QC message.
+   * @throws RoutineException
+   *           If the source values' QC messages cannot be retrieved.
+   */
+  protected String getLookupQCMessage(SensorValue sensorValue)
+    throws RoutineException {
+
+    long qcVersion = getQCVersion();
+
+    LookupQCMessageCache cache = lookupQCMessages;
+    if (null == cache || cache.qcVersion != qcVersion) {
+      cache = new LookupQCMessageCache(qcVersion);
+      lookupQCMessages = cache;
+    }
+
+    LookupKey key = new LookupKey(sensorValue.isPosition(),
+      sensorValue.getUserQCMessage());
+
+    // Source values can themselves have cascaded QC, so we can't use
+    // computeIfAbsent here
+    String result = cache.messages.get(key);
+    if (null == result) {
+      String message = sensorValue.resolveLookupQCMessage(this);
+      String interned = cache.interned.putIfAbsent(message, message);
+      result = null == interned ? message : interned;
+      cache.messages.put(key, result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the combined QC version of the datasets that the values belong to.
+   * The versions only ever increase, so the total changes whenever any of
+   * them changes.
+   *
+   * @return The combined QC version.
+   */
+  private long getQCVersion() {
+    long result = 0;
+
+    for (long datasetId : datasetIds) {
+      result += SensorValue.getQCVersion(datasetId);
+    }
+
+    return result;
   }
 
   private void addByColumn(SensorValue sensorValue) {
@@ -688,4 +768,31 @@ public class DatasetSensorValues {
 
     return result;
   }
+
+  /**
+   * The key for a cached cascaded QC message. Position values ignore QC
+   * cascaded from other positions, so they are cached separately.
+   */
+  private record LookupKey(boolean position, String sources) {
+  }
+
+  /**
+   * The cached cascaded QC messages for a given QC version.
+   */
+  private static class LookupQCMessageCache {
+
+    private final long qcVersion;
+
+    private final Map<LookupKey, String> messages = new ConcurrentHashMap<LookupKey, String>();
+
+    /**
+     * Interned messages, so identical messages from different source sets share
+     * a single instance.
+     */
+    private final Map<String, String> interned = new ConcurrentHashMap<String, String>();
+
+    private LookupQCMessageCache(long qcVersion) {
+      this.qcVersion = qcVersion;
+    }
+  }
 }
@@ -4,15 +4,11 @@ import java.sql.Connection;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collection;
-import java.util.HashSet;
 import java.util.List;
-import java.util.TreeSet;
-import java.util.stream.Collectors;
-
-import org.apache.commons.math3.stat.descriptive.moment.Mean;
-import org.apache.commons.math3.stat.regression.SimpleRegression;
+import java.util.Set;
 
+import uk.ac.exeter.QuinCe.data.Dataset.CalibrationRunCache.OffsetFit;
+import uk.ac.exeter.QuinCe.data.Dataset.DatasetMeasurements.RunSegment;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.Calculators;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
@@ -22,7 +18,6 @@ import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.PositionException;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorAssignment;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorGroupsException;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
-import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.PlotPageTableValue;
 
@@ -44,7 +39,7 @@ public class DefaultMeasurementValueCalculator
 
   private static final int POST = 1;
 
-  // TODO Need limits on how far interpolation goes before giving up.
+  // Interpolation is limited by SearchableSensorValuesList.getWithInterpolation
 
   @Override
   public MeasurementValue calculate(Instrument instrument, DataSet dataSet,
@@ -295,12 +290,13 @@ public class DefaultMeasurementValueCalculator
     LocalDateTime measurementTime, MeasurementValue value)
     throws RecordNotFoundException {
 
-    CalibrationOffset result = new CalibrationOffset();
-
-    SimpleRegression regression = new SimpleRegression();
+    Set<String> runTypes = calibrationSet.getTargets().keySet();
+    RunSegment[] runs = new RunSegment[runTypes.size()];
+    double[] concentrations = new double[runTypes.size()];
+    int runCount = 0;
 
-    // Loop through each calibration target
-    for (String runType : calibrationSet.getTargets().keySet()) {
+    // Find the closest run for each calibration target
+    for (String runType : runTypes) {
 
       double standardConcentration = calibrationSet.getCalibrationValue(runType,
         sensorType.getShortName());
@@ -308,48 +304,33 @@ public class DefaultMeasurementValueCalculator
       if (sensorType.includeZeroInCalibration()
         || standardConcentration > 0.0D) {
 
-        // Get the measurements for the closest run
-        TreeSet<Measurement> runTypeMeasurements;
-
         if (direction == PRIOR) {
-          runTypeMeasurements = allMeasurements.getRunBefore(
+          runs[runCount] = allMeasurements.getRunSegmentBefore(
             Measurement.GENERIC_RUN_TYPE_VARIABLE, runType, measurementTime);
         } else {
-          runTypeMeasurements = allMeasurements.getRunAfter(
+          runs[runCount] = allMeasurements.getRunSegmentAfter(
             Measurement.GENERIC_RUN_TYPE_VARIABLE, runType, measurementTime);
         }
 
-        /*
-         * Get the mean sensor value for these calibration measurements,
-         * filtering out any bad ones.
-         */
-        List<SensorValue> runSensorValues = runTypeMeasurements.stream()
-          .map(m -> sensorValues.get(m.getTime())).filter(v -> null != v)
-          .filter(v -> !v.getDoubleValue().isNaN())
-          .filter(v -> v.getUserQCFlag().isGood()).collect(Collectors.toList());
-
-        Mean mean = new Mean();
-
-        runSensorValues.stream().map(v -> v.getDoubleValue()).forEach(d -> {
-          mean.increment(d);
-        });
-
-        // If there are values from the run...
-        if (!Double.isNaN(mean.getResult())) {
-
-          result.addUsedSensorValues(runSensorValues);
-
-          double offset = mean.getResult() - standardConcentration;
-
-          regression.addData(standardConcentration, offset);
-        }
+        concentrations[runCount] = standardConcentration;
+        runCount++;
       }
     }
 
-    if (regression.getN() < 2) {
+    /*
+     * All measurements between the same standard runs share the same
+     * regression, so it is only calculated once.
+     */
+    OffsetFit fit = allMeasurements.getCalibrationRunCache().getOffsetFit(
+      sensorValues, Arrays.copyOf(runs, runCount),
+      Arrays.copyOf(concentrations, runCount));
+
+    CalibrationOffset result = new CalibrationOffset(fit);
+
+    if (!fit.canPredict()) {
       result.addComment("Not enough gas standards available");
     } else {
-      result.setOffset(regression.predict(value.getCalculatedValue()));
+      result.setOffset(fit.predict(value.getCalculatedValue()));
     }
 
     return result;
@@ -371,9 +352,9 @@ public class DefaultMeasurementValueCalculator
   class CalibrationOffset {
 
     /**
-     * The {@link SensorValue}s used in the calculation of this calibration.
+     * The regression from which this calibration was calculated.
      */
-    private HashSet<SensorValue> usedValues;
+    private final OffsetFit fit;
 
     /**
      * The calculated offset from the gas standards.
@@ -387,10 +368,13 @@ public class DefaultMeasurementValueCalculator
     private List<String> comments;
 
     /**
-     * Initialise with no used values, invalid offset and no comments.
+     * Initialise with an invalid offset and no comments.
+     *
+     * @param fit
+     *          The regression of the gas standards
      */
-    protected CalibrationOffset() {
-      this.usedValues = new HashSet<SensorValue>();
+    protected CalibrationOffset(OffsetFit fit) {
+      this.fit = fit;
       this.offset = Double.NaN;
       this.comments = new ArrayList<String>();
     }
@@ -438,8 +422,8 @@ public class DefaultMeasurementValueCalculator
      *
      * @return The used {@link SensorValue}s.
      */
-    protected HashSet<SensorValue> getUsedValues() {
-      return usedValues;
+    protected Set<SensorValue> getUsedValues() {
+      return fit.getUsedValues();
     }
 
     /**
@@ -453,17 +437,7 @@ public class DefaultMeasurementValueCalculator
      * @return The calculated calibration time.
      */
     protected LocalDateTime getTime() {
-      return DateTimeUtils.meanTime(usedValues.stream().map(v -> v.getTime()));
-    }
-
-    /**
-     * Add a collection of {@link SensorValue}s.
-     *
-     * @param values
-     *          The {@link SensorValue}s.
-     */
-    protected void addUsedSensorValues(Collection<SensorValue> values) {
-      usedValues.addAll(values);
+      return fit.getTime();
     }
 
     /**
@@ -1,14 +1,58 @@
 package uk.ac.exeter.QuinCe.data.Dataset;
 
 import java.sql.Connection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
 
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorTypeNotFoundException;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 public class MeasurementValueCalculatorFactory {
 
+  /**
+   * The calculator to use for each sensor type, keyed by sensor type ID. Built
+   * once by {@link #init(SensorsConfiguration)} and never modified.
+   *
+   * <p>
+   * The calculators hold no state between calls, so a single instance of each
+   * is shared by all threads.
+   * </p>
+   */
+  private static volatile Map<Long, MeasurementValueCalculator> calculators = Collections
+    .emptyMap();
+
+  /**
+   * Choose the calculator for every sensor type in the sensors configuration.
+   *
+   * <p>
+   * Sensor types whose calculator cannot be built here are left out; their
+   * calculator is created when it is first requested, which will report the
+   * error.
+   * </p>
+   *
+   * @param sensorConfig
+   *          The sensors configuration
+   */
+  public static void init(SensorsConfiguration sensorConfig) {
+
+    Map<Long, MeasurementValueCalculator> newCalculators = new HashMap<Long, MeasurementValueCalculator>();
+
+    for (SensorType sensorType : sensorConfig.getSensorTypes()) {
+      try {
+        newCalculators.put(sensorType.getId(),
+          makeCalculator(sensorConfig, sensorType));
+      } catch (SensorTypeNotFoundException e) {
+        // Leave it to be built on demand
+      }
+    }
+
+    calculators = Collections.unmodifiableMap(newCalculators);
+  }
+
   public static MeasurementValue calculateMeasurementValue(
     Instrument instrument, DataSet dataSet, Measurement measurement,
     SensorType coreSensorType, SensorType requiredSensorType,
@@ -23,29 +67,40 @@ public class MeasurementValueCalculatorFactory {
   private static MeasurementValueCalculator getCalculator(SensorType sensorType)
     throws MeasurementValueCalculatorException {
 
-    try {
-      MeasurementValueCalculator result;
-
-      SensorsConfiguration sensorConfig = ResourceManager.getInstance()
-        .getSensorsConfiguration();
-
-      if (sensorType.getShortName()
-        .equals("Equilibrator Pressure (differential)")) {
-        result = new DiffEqPresMeasurementValueCalculator();
-      } else if (sensorType.getShortName().equals("xCO₂ (with standards)")) {
-        result = new XCO2MeasurementValueCalculator();
-      } else if (sensorConfig.isParent(sensorType)) {
-        result = new ParentSensorTypeMeasurementValueCalculator();
-      } else {
-        result = new DefaultMeasurementValueCalculator();
+    MeasurementValueCalculator result = calculators.get(sensorType.getId());
+
+    if (null == result) {
+      try {
+        result = makeCalculator(
+          ResourceManager.getInstance().getSensorsConfiguration(), sensorType);
+      } catch (Exception e) {
+        throw new MeasurementValueCalculatorException(
+          "Error getting MeasurementValueCalculator for "
+            + sensorType.getShortName(),
+          e);
       }
+    }
+
+    return result;
+  }
 
-      return result;
-    } catch (Exception e) {
-      throw new MeasurementValueCalculatorException(
-        "Error getting MeasurementValueCalculator for "
-          + sensorType.getShortName(),
-        e);
+  private static MeasurementValueCalculator makeCalculator(
+    SensorsConfiguration sensorConfig, SensorType sensorType)
+    throws SensorTypeNotFoundException {
+
+    MeasurementValueCalculator result;
+
+    if (sensorType.getShortName()
+      .equals("Equilibrator Pressure (differential)")) {
+      result = new DiffEqPresMeasurementValueCalculator();
+    } else if (sensorType.getShortName().equals("xCO₂ (with standards)")) {
+      result = new XCO2MeasurementValueCalculator(sensorConfig);
+    } else if (sensorConfig.isParent(sensorType)) {
+      result = new ParentSensorTypeMeasurementValueCalculator();
+    } else {
+      result = new DefaultMeasurementValueCalculator();
     }
+
+    return result;
   }
 }
@@ -10,6 +10,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
 import uk.ac.exeter.QuinCe.data.Dataset.MeasurementValue;
+import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ReadOnlyDataReductionRecord;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Routine;
@@ -94,7 +95,8 @@ public abstract class DataReductionQCRoutine implements Routine {
   public void qc(Connection conn, Instrument instrument, DataSet dataSet,
     Variable variable,
     TreeMap<Measurement, ReadOnlyDataReductionRecord> dataReductionRecords,
-    DatasetSensorValues allSensorValues, FlaggedItems flaggedItems)
+    DatasetSensorValues allSensorValues, RunTypePeriods runTypePeriods,
+    FlaggedItems flaggedItems)
     throws RoutineException {
 
     if (null == settings) {
@@ -102,13 +104,14 @@ public abstract class DataReductionQCRoutine implements Routine {
     }
 
     qcAction(conn, instrument, dataSet, variable, dataReductionRecords,
-      allSensorValues, flaggedItems);
+      allSensorValues, runTypePeriods, flaggedItems);
   }
 
   protected abstract void qcAction(Connection conn, Instrument instrument,
     DataSet dataSet, Variable variable,
     TreeMap<Measurement, ReadOnlyDataReductionRecord> dataReductionRecords,
-    DatasetSensorValues allSensorValues, FlaggedItems flaggedItems)
+    DatasetSensorValues allSensorValues, RunTypePeriods runTypePeriods,
+    FlaggedItems flaggedItems)
     throws RoutineException;
 
   @Override
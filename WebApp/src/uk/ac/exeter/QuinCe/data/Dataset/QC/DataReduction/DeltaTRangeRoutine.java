@@ -7,6 +7,7 @@ import java.util.TreeMap;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ReadOnlyDataReductionRecord;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
@@ -21,7 +22,8 @@ public class DeltaTRangeRoutine extends DataReductionQCRoutine {
   protected void qcAction(Connection conn, Instrument instrument,
     DataSet dataSet, Variable variable,
     TreeMap<Measurement, ReadOnlyDataReductionRecord> dataReductionRecords,
-    DatasetSensorValues allSensorValues, FlaggedItems flaggedItems)
+    DatasetSensorValues allSensorValues, RunTypePeriods runTypePeriods,
+    FlaggedItems flaggedItems)
     throws RoutineException {
 
     for (Map.Entry<Measurement, ReadOnlyDataReductionRecord> entry : dataReductionRecords
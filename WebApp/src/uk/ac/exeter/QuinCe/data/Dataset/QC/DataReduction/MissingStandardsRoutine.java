@@ -7,7 +7,6 @@ import java.util.Set;
 import java.util.TreeMap;
 
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
-import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
 import uk.ac.exeter.QuinCe.data.Dataset.MeasurementValue;
@@ -36,13 +35,11 @@ public class MissingStandardsRoutine extends DataReductionQCRoutine {
   protected void qcAction(Connection conn, Instrument instrument,
     DataSet dataSet, Variable variable,
     TreeMap<Measurement, ReadOnlyDataReductionRecord> dataReductionRecords,
-    DatasetSensorValues allSensorValues, FlaggedItems flaggedItems)
+    DatasetSensorValues allSensorValues, RunTypePeriods runTypePeriods,
+    FlaggedItems flaggedItems)
     throws RoutineException {
 
     try {
-      RunTypePeriods runTypePeriods = DataSetDataDB.getRunTypePeriods(conn,
-        instrument, dataSet.getId());
-
       // All values detected by this routine get the same flag
       RoutineFlag flag = new RoutineFlag(this, Flag.BAD, null, null);
 
@@ -262,4 +262,41 @@ public abstract class AbstractQCRoutinesConfiguration {
 
     return result;
   }
+
+  /**
+   * Get new instances of the QC routines for a given sensor type.
+   *
+   * <p>
+   * The routines returned by {@link #getRoutines(SensorType)} are shared, and
+   * hold the {@link SensorType} they are working on. Tasks that run routines
+   * in parallel must use this method so that each task has its own routine
+   * instances.
+   * </p>
+   *
+   * @param sensorType
+   *          The sensor type
+   * @return New instances of the routines to be run
+   * @throws RoutineException
+   *           If the routines cannot be created
+   */
+  public List<AbstractAutoQCRoutine> getRoutineInstances(
+    SensorType sensorType) throws RoutineException {
+
+    List<AbstractAutoQCRoutine> configured = getRoutines(sensorType);
+    List<AbstractAutoQCRoutine> result = new ArrayList<AbstractAutoQCRoutine>(
+      configured.size());
+
+    for (AbstractAutoQCRoutine routine : configured) {
+      try {
+        result.add(makeInstance(routine.getClass(), routine.parameters));
+      } catch (RoutineException e) {
+        throw e;
+      } catch (Exception e) {
+        throw new RoutineException("Cannot create instance of routine '"
+          + routine.getClass().getSimpleName() + "'", e);
+      }
+    }
+
+    return result;
+  }
 }
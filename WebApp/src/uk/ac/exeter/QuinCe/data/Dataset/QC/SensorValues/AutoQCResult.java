@@ -1,7 +1,10 @@
 package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
 
+import java.io.Serializable;
+import java.util.AbstractSet;
 import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Set;
 
 import com.google.gson.Gson;
@@ -11,7 +14,19 @@ import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
 import uk.ac.exeter.QuinCe.utils.StringUtils;
 
-public class AutoQCResult extends HashSet<RoutineFlag> {
+/**
+ * The flags set on a value by the automatic QC routines.
+ *
+ * <p>
+ * Each routine can set one flag on a value. The flags are held by the name of
+ * the routine that set them, so flags with the same value from different
+ * routines are all kept. This means that removing one routine's flag (e.g.
+ * during incremental QC) never loses another routine's flag, and the result
+ * does not depend on the order in which the routines are run.
+ * </p>
+ */
+public class AutoQCResult extends AbstractSet<RoutineFlag>
+  implements Serializable {
 
   /**
    * Serial Version UID
@@ -20,6 +35,11 @@ public class AutoQCResult extends HashSet<RoutineFlag> {
 
   private static Gson GSON = null;
 
+  /**
+   * The flags, keyed by the name of the routine that set them
+   */
+  private final LinkedHashMap<String, RoutineFlag> flags = new LinkedHashMap<String, RoutineFlag>();
+
   /**
    * Create an empty AutoQCResult
    */
@@ -120,7 +140,21 @@ public class AutoQCResult extends HashSet<RoutineFlag> {
    */
   @Override
   public boolean add(RoutineFlag flag) {
-    removeIf(i -> i.getRoutineName().equals(flag.getRoutineName()));
-    return super.add(flag);
+    return flags.put(flag.getRoutineName(), flag) != flag;
+  }
+
+  @Override
+  public Iterator<RoutineFlag> iterator() {
+    return flags.values().iterator();
+  }
+
+  @Override
+  public int size() {
+    return flags.size();
+  }
+
+  @Override
+  public void clear() {
+    flags.clear();
   }
 }
@@ -139,7 +139,114 @@ public abstract class AutoQCRoutine extends AbstractAutoQCRoutine {
     }
   }
 
-  private Map<String, List<SensorValue>> getValuesByRunType(
+  /**
+   * Get the range of values whose flags from this routine could change if the
+   * values between {@code from} and {@code to} (inclusive) are changed, added
+   * or removed.
+   *
+   * <p>
+   * If {@code from > to}, no values in the list are inside the changed range,
+   * but values may have been removed between {@code to} and {@code from}.
+   * </p>
+   *
+   * <p>
+   * The default implementation returns the whole list, which is correct for
+   * any routine. Routines whose flags only depend on nearby values should
+   * override this and {@link #getContextRange} so that incremental QC only
+   * needs to process the area around the changed values.
+   * </p>
+   *
+   * @param values
+   *          The values being QCed
+   * @param from
+   *          The index of the first changed value
+   * @param to
+   *          The index of the last changed value
+   * @return The affected range
+   */
+  public IndexRange getAffectedRange(List<SensorValue> values, int from,
+    int to) {
+    return new IndexRange(0, values.size() - 1);
+  }
+
+  /**
+   * Get the range of values that must be passed to this routine so that the
+   * flags for the values between {@code first} and {@code last} (inclusive)
+   * are the same as if the whole list had been QCed.
+   *
+   * <p>
+   * The default implementation returns the whole list.
+   * </p>
+   *
+   * @param values
+   *          The values being QCed
+   * @param first
+   *          The index of the first value whose flags are required
+   * @param last
+   *          The index of the last value whose flags are required
+   * @return The context range
+   * @see #getAffectedRange(List, int, int)
+   */
+  public IndexRange getContextRange(List<SensorValue> values, int first,
+    int last) {
+    return new IndexRange(0, values.size() - 1);
+  }
+
+  /**
+   * Get the index of the last non-missing value before the specified index.
+   *
+   * @param values
+   *          The values
+   * @param index
+   *          The index
+   * @return The index of the previous value, or -1 if there isn't one
+   */
+  protected static int previousValue(List<SensorValue> values, int index) {
+    int result = -1;
+
+    for (int i = Math.min(index, values.size()) - 1; i >= 0; i--) {
+      if (!values.get(i).isNaN()) {
+        result = i;
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the index of the first non-missing value after the specified index.
+   *
+   * @param values
+   *          The values
+   * @param index
+   *          The index
+   * @return The index of the next value, or -1 if there isn't one
+   */
+  protected static int nextValue(List<SensorValue> values, int index) {
+    int result = -1;
+
+    for (int i = Math.max(index + 1, 0); i < values.size(); i++) {
+      if (!values.get(i).isNaN()) {
+        result = i;
+        break;
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Split a list of values into groups according to the run type in force at
+   * the time of each value.
+   *
+   * @param values
+   *          The values
+   * @param runTypePeriods
+   *          The run type periods
+   * @return The values grouped by run type
+   */
+  static Map<String, List<SensorValue>> getValuesByRunType(
     List<SensorValue> values, RunTypePeriods runTypePeriods) {
 
     Map<String, List<SensorValue>> result = new HashMap<String, List<SensorValue>>();
@@ -190,4 +297,69 @@ public abstract class AutoQCRoutine extends AbstractAutoQCRoutine {
     return ResourceManager.getInstance().getQCRoutinesConfiguration()
       .getRoutineName(this);
   }
+
+  /**
+   * An inclusive range of indices in a list of values. The range is empty if
+   * {@code first > last}.
+   */
+  public static class IndexRange {
+
+    /**
+     * The first index in the range
+     */
+    public final int first;
+
+    /**
+     * The last index in the range
+     */
+    public final int last;
+
+    public IndexRange(int first, int last) {
+      this.first = first;
+      this.last = last;
+    }
+
+    /**
+     * Determine whether or not the range contains any indices.
+     *
+     * @return {@code true} if the range is empty; {@code false} otherwise
+     */
+    public boolean isEmpty() {
+      return first > last;
+    }
+
+    /**
+     * Determine whether or not the range contains the specified index.
+     *
+     * @param index
+     *          The index
+     * @return {@code true} if the index is in the range; {@code false}
+     *         otherwise
+     */
+    public boolean contains(int index) {
+      return index >= first && index <= last;
+    }
+
+    /**
+     * Get the smallest range that covers this range and another.
+     *
+     * @param other
+     *          The other range
+     * @return The combined range
+     */
+    public IndexRange union(IndexRange other) {
+      IndexRange result;
+
+      if (isEmpty()) {
+        result = other;
+      } else if (other.isEmpty()) {
+        result = this;
+      } else {
+        result = new IndexRange(Math.min(first, other.first),
+          Math.max(last, other.last));
+      }
+
+      return result;
+    }
+  }
 }
@@ -1,7 +1,5 @@
 package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
 
-import java.time.temporal.ChronoUnit;
-import java.util.ArrayList;
 import java.util.List;
 
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
@@ -9,7 +7,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
 
-public class ConstantValueRoutine extends AutoQCRoutine {
+public class ConstantValueRoutine extends SeriesQCRoutine {
 
   /**
    * The maximum time that a value can remain constant (in minutes)
@@ -35,80 +33,96 @@ public class ConstantValueRoutine extends AutoQCRoutine {
   }
 
   @Override
-  protected void qcAction(List<SensorValue> values) throws RoutineException {
+  protected SeriesQCEngine.Operator getOperator(SensorValueSeries series,
+    SeriesQCEngine.Flags flags) {
 
-    List<SensorValue> valueCollection = new ArrayList<SensorValue>();
+    return new SeriesQCEngine.Operator() {
 
-    for (SensorValue value : values) {
-      if (!value.isNaN()) {
-        // If there's no record stored, this is the first of a new constant
-        // value
-        if (valueCollection.size() == 0) {
-          valueCollection.add(value);
-        } else {
-          if (equalsConstant(value, valueCollection.get(0))) {
-            // If it equals the value in the first record, then it's still a
+      /**
+       * The index of the first value in the current constant run
+       */
+      private int runStart = -1;
+
+      /**
+       * The index of the last value in the current constant run
+       */
+      private int runEnd = -1;
+
+      /**
+       * The number of non-missing values in the current constant run
+       */
+      private int runCount = 0;
+
+      @Override
+      public void accept(int i) {
+        if (!series.isNaN(i)) {
+          // If there's no run in progress, this is the first of a new
+          // constant value
+          if (runCount == 0) {
+            startRun(i);
+          } else if (equalsConstant(series.getValue(i),
+            series.getValue(runStart))) {
+            // If it equals the first value in the run, then it's still a
             // constant value
-            valueCollection.add(value);
+            runEnd = i;
+            runCount++;
           } else {
             // The value is no longer constant.
             // See how long it was constant for
-            doDurationCheck(valueCollection);
-
-            // Clear the list of constant records and start again
-            valueCollection.clear();
-            valueCollection.add(value);
+            doDurationCheck(series, flags, runStart, runEnd, runCount);
+            startRun(i);
           }
+        }
+      }
 
+      @Override
+      public void finish() {
+        if (runCount > 1) {
+          doDurationCheck(series, flags, runStart, runEnd, runCount);
         }
       }
-    }
 
-    if (valueCollection.size() > 1) {
-      doDurationCheck(valueCollection);
-    }
+      private void startRun(int i) {
+        runStart = i;
+        runEnd = i;
+        runCount = 1;
+      }
+    };
   }
 
   /**
-   * Determines whether or not the value in the passed record is identical to
-   * that in the list of constant records. Null values always return a 'not
-   * constant' result.
+   * Determines whether or not a value is identical to the first value of a
+   * constant run. Uses the same comparison as {@link Double#equals(Object)}.
    *
-   * @param record
-   *          The record to be checked
-   * @param firstRecord
-   *          The first record of the period of constant values
-   * @return {@code true} if the value in the record equals that in the list of
-   *         constant records; {@code false} otherwise.
-   * @throws RoutineException
-   *           If the value cannot be compared.
+   * @param value
+   *          The value to be checked
+   * @param firstValue
+   *          The first value of the period of constant values
+   * @return {@code true} if the values are identical; {@code false} otherwise.
    */
-  private boolean equalsConstant(SensorValue value, SensorValue firstValue)
-    throws RoutineException {
-
-    boolean result = false;
-
-    try {
-      result = (value.getDoubleValue().equals(firstValue.getDoubleValue()));
-    } catch (NumberFormatException e) {
-      throw new RoutineException("Cannot compare non-numeric values", e);
-    }
-
-    return result;
+  private boolean equalsConstant(double value, double firstValue) {
+    return Double.doubleToLongBits(value) == Double
+      .doubleToLongBits(firstValue);
   }
 
   /**
-   * See how long the value has been constant in the set of stored records. If
-   * the value is constant for longer than the maximum time, flag each record
-   * accordingly.
+   * See how long the value has been constant in a run of values. If the value
+   * is constant for longer than the maximum time, flag each non-missing value
+   * in the run accordingly.
    *
-   * @param constantRecords
-   *          The records to be checked
-   * @throws RoutineException
-   *           If the records cannot be flagged.
+   * @param series
+   *          The series being checked
+   * @param flags
+   *          The flag collector
+   * @param runStart
+   *          The index of the first value in the run
+   * @param runEnd
+   *          The index of the last value in the run
+   * @param runCount
+   *          The number of non-missing values in the run
    */
-  private void doDurationCheck(List<SensorValue> constantValues)
-    throws RoutineException {
+  private void doDurationCheck(SensorValueSeries series,
+    SeriesQCEngine.Flags flags, int runStart, int runEnd, int runCount) {
 
     // For measurements taken a long time apart, the value can easily be
     // constant.
@@ -119,18 +133,111 @@ public class ConstantValueRoutine extends AutoQCRoutine {
     // Therefore we make sure there's more than two consecutive measurements
     // with the
     // constant value.
-    if (constantValues.size() > 2) {
+    if (runCount > 2) {
 
-      long minutesDifference = ChronoUnit.MINUTES.between(
-        constantValues.get(0).getTime(),
-        constantValues.get(constantValues.size() - 1).getTime());
+      long minutesDifference = series.minutesBetween(runStart, runEnd);
 
       if (minutesDifference > maxDuration) {
-        for (SensorValue value : constantValues) {
-          addFlag(value, Flag.BAD, maxDuration, minutesDifference);
+        for (int i = runStart; i <= runEnd; i++) {
+          if (!series.isNaN(i)) {
+            flags.add(i, Flag.BAD, maxDuration, minutesDifference);
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * A change can alter the length of the constant periods either side of the
+   * changed range, or join them together, so the whole of those periods is
+   * affected.
+   */
+  @Override
+  public IndexRange getAffectedRange(List<SensorValue> values, int from,
+    int to) {
+
+    int previous = previousValue(values, from);
+    int next = nextValue(values, to);
+
+    return new IndexRange(
+      previous == -1 ? from : constantStart(values, previous),
+      next == -1 ? to : constantEnd(values, next));
+  }
+
+  /**
+   * The flags depend on the full length of each constant period, so the
+   * context is extended to the start and end of the periods at either end of
+   * the range.
+   */
+  @Override
+  public IndexRange getContextRange(List<SensorValue> values, int first,
+    int last) {
+
+    IndexRange result = new IndexRange(first, last);
+
+    int start = values.get(first).isNaN() ? nextValue(values, first) : first;
+    int end = values.get(last).isNaN() ? previousValue(values, last) : last;
+
+    if (start != -1 && end != -1 && start <= end) {
+      result = result.union(new IndexRange(constantStart(values, start),
+        constantEnd(values, end)));
+    }
+
+    return result;
+  }
+
+  /**
+   * Find the start of the constant period containing the specified value.
+   *
+   * @param values
+   *          The values
+   * @param index
+   *          The index of a non-missing value
+   * @return The index of the first value in the constant period
+   */
+  private int constantStart(List<SensorValue> values, int index) {
+    Double value = values.get(index).getDoubleValue();
+    int result = index;
+
+    for (int i = index - 1; i >= 0; i--) {
+      SensorValue sensorValue = values.get(i);
+      if (!sensorValue.isNaN()) {
+        if (sensorValue.getDoubleValue().equals(value)) {
+          result = i;
+        } else {
+          break;
         }
       }
     }
+
+    return result;
+  }
+
+  /**
+   * Find the end of the constant period containing the specified value.
+   *
+   * @param values
+   *          The values
+   * @param index
+   *          The index of a non-missing value
+   * @return The index of the last value in the constant period
+   */
+  private int constantEnd(List<SensorValue> values, int index) {
+    Double value = values.get(index).getDoubleValue();
+    int result = index;
+
+    for (int i = index + 1; i < values.size(); i++) {
+      SensorValue sensorValue = values.get(i);
+      if (!sensorValue.isNaN()) {
+        if (sensorValue.getDoubleValue().equals(value)) {
+          result = i;
+        } else {
+          break;
+        }
+      }
+    }
+
+    return result;
   }
 
   /**
@@ -1,14 +1,10 @@
 package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
 
-import java.time.temporal.ChronoUnit;
-import java.util.List;
-
-import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
 
-public class GradientTestRoutine extends AutoQCRoutine {
+public class GradientTestRoutine extends SeriesQCRoutine {
 
   /**
    * The maximum delta between values, in units per minute
@@ -35,62 +31,109 @@ public class GradientTestRoutine extends AutoQCRoutine {
   }
 
   @Override
-  protected void qcAction(List<SensorValue> values) throws RoutineException {
+  protected SeriesQCEngine.Operator getOperator(SensorValueSeries series,
+    SeriesQCEngine.Flags flags) {
+
+    return new SeriesQCEngine.Operator() {
+
+      /**
+       * The indices of the non-missing values
+       */
+      private final int[] filtered = new int[series.size()];
+
+      private int filteredCount = 0;
+
+      /**
+       * The smallest non-zero change between consecutive values
+       */
+      private double minimumChange = Double.MAX_VALUE;
 
-    SensorValue prevValue = null;
-    SensorValue currValue = null;
-    SensorValue nextValue = null;
+      @Override
+      public void accept(int i) {
+        if (!series.isNaN(i)) {
+          filtered[filteredCount] = i;
+          filteredCount++;
 
-    List<SensorValue> filteredValues = filterMissingValues(values);
+          // Equivalent to SensorValue.getMinimumChange, which only considers
+          // adjacent values in the unfiltered list
+          if (i > 0 && !series.isNaN(i - 1)) {
+            double valueDelta = Math
+              .abs(series.getValue(i) - series.getValue(i - 1));
+
+            if (valueDelta > 0 && valueDelta < minimumChange) {
+              minimumChange = valueDelta;
+            }
+          }
+        }
+      }
+
+      @Override
+      public void finish() {
+        gradientCheck(series, flags, filtered, filteredCount, minimumChange);
+      }
+    };
+  }
+
+  /**
+   * Perform the gradient check over the non-missing values of a series.
+   *
+   * @param series
+   *          The series
+   * @param flags
+   *          The flag collector
+   * @param filtered
+   *          The indices of the non-missing values
+   * @param filteredCount
+   *          The number of non-missing values
+   * @param minimumChange
+   *          The smallest non-zero change between consecutive values
+   */
+  private void gradientCheck(SensorValueSeries series,
+    SeriesQCEngine.Flags flags, int[] filtered, int filteredCount,
+    double minimumChange) {
 
     // If the smallest change in values is larger than the specified delta,
     // increase the delta accordingly. Otherwise we'll get false positives
     // where the sensor cannot meet the standards of the delta.
-    double minimumChange = SensorValue.getMinimumChange(values);
-
     int i = 1;
-    while (i < filteredValues.size() - 1) {
-      currValue = filteredValues.get(i);
-
-      prevValue = filteredValues.get(i - 1);
-      nextValue = filteredValues.get(i + 1);
+    while (i < filteredCount - 1) {
+      int curr = filtered[i];
+      int prev = filtered[i - 1];
+      int next = filtered[i + 1];
 
       // If the change is equal to the smallest possible change
       // we can't do the gradient check
       double valueDelta = Math
-        .abs(currValue.getDoubleValue() - prevValue.getDoubleValue());
+        .abs(series.getValue(curr) - series.getValue(prev));
       if (valueDelta > minimumChange) {
 
         // time-increment
-        double tDiff = ChronoUnit.NANOS.between(prevValue.getTime(),
-          currValue.getTime()) / (60.0 * 1000000000);
+        double tDiff = series.nanosBetween(prev, curr) / (60.0 * 1000000000);
 
         double deltaPerMin = valueDelta / tDiff;
 
         if (deltaPerMin > maxDeltaPerMinute) { // spike or gradient
-          double deltaNext = Math.abs(
-            nextValue.getDoubleValue() - prevValue.getDoubleValue()) / tDiff;
+          double deltaNext = Math
+            .abs(series.getValue(next) - series.getValue(prev)) / tDiff;
           if (deltaNext < maxDeltaPerMinute) { // Spike
-            addFlag(currValue, Flag.BAD, maxDeltaPerMinute, deltaPerMin);
+            flags.add(curr, Flag.BAD, maxDeltaPerMinute, deltaPerMin);
             i++;
 
           } else { // Gradient
-            addFlag(prevValue, Flag.BAD, maxDeltaPerMinute, deltaPerMin);
+            flags.add(prev, Flag.BAD, maxDeltaPerMinute, deltaPerMin);
 
             while ((deltaPerMin > maxDeltaPerMinute)
-              && (i < filteredValues.size() - 1)) {
-              addFlag(currValue, Flag.BAD, maxDeltaPerMinute, deltaPerMin);
+              && (i < filteredCount - 1)) {
+              flags.add(curr, Flag.BAD, maxDeltaPerMinute, deltaPerMin);
 
               i++;
-              currValue = filteredValues.get(i);
-              prevValue = filteredValues.get(i - 1);
+              curr = filtered[i];
+              prev = filtered[i - 1];
 
-              tDiff = ChronoUnit.NANOS.between(prevValue.getTime(),
-                currValue.getTime()) / (60.0 * 1000000000);
+              tDiff = series.nanosBetween(prev, curr) / (60.0 * 1000000000);
 
               deltaPerMin = Math
-                .abs(currValue.getDoubleValue() - prevValue.getDoubleValue())
-                / tDiff;
+                .abs(series.getValue(curr) - series.getValue(prev)) / tDiff;
             }
           }
         }
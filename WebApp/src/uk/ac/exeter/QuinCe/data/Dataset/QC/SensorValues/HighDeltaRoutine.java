@@ -1,6 +1,5 @@
 package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
 
-import java.time.temporal.ChronoUnit;
 import java.util.List;
 
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
@@ -8,7 +7,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
 
-public class HighDeltaRoutine extends AutoQCRoutine {
+public class HighDeltaRoutine extends SeriesQCRoutine {
 
   /**
    * The maximum delta between values, in units per minute
@@ -34,34 +33,56 @@ public class HighDeltaRoutine extends AutoQCRoutine {
   }
 
   @Override
-  protected void qcAction(List<SensorValue> values) throws RoutineException {
-    SensorValue lastValue = null;
+  protected SeriesQCEngine.Operator getOperator(SensorValueSeries series,
+    SeriesQCEngine.Flags flags) {
 
-    for (SensorValue sensorValue : values) {
-      if (null == lastValue) {
-        if (!sensorValue.isNaN()) {
-          lastValue = sensorValue;
-        }
-      } else {
+    return new SeriesQCEngine.Operator() {
+
+      private int lastIndex = -1;
 
-        // Calculate the change between this record and the previous one
-        if (!sensorValue.isNaN()) {
-          double minutesDifference = ChronoUnit.SECONDS
-            .between(lastValue.getTime(), sensorValue.getTime()) / 60.0;
+      @Override
+      public void accept(int i) {
+        if (!series.isNaN(i)) {
+          if (lastIndex >= 0) {
+            // Calculate the change between this record and the previous one
+            double minutesDifference = series.secondsBetween(lastIndex, i)
+              / 60.0;
 
-          double valueDelta = Math
-            .abs(sensorValue.getDoubleValue() - lastValue.getDoubleValue());
+            double valueDelta = Math
+              .abs(series.getValue(i) - series.getValue(lastIndex));
 
-          double deltaPerMinute = valueDelta / minutesDifference;
+            double deltaPerMinute = valueDelta / minutesDifference;
 
-          if (deltaPerMinute > maxDelta) {
-            addFlag(sensorValue, Flag.BAD, maxDelta, deltaPerMinute);
+            if (deltaPerMinute > maxDelta) {
+              flags.add(i, Flag.BAD, maxDelta, deltaPerMinute);
+            }
           }
 
-          lastValue = sensorValue;
+          lastIndex = i;
         }
       }
-    }
+    };
+  }
+
+  /**
+   * Each value is compared with the previous value, so a change also affects
+   * the first value after the changed range.
+   */
+  @Override
+  public IndexRange getAffectedRange(List<SensorValue> values, int from,
+    int to) {
+    int next = nextValue(values, to);
+    return new IndexRange(from, next == -1 ? to : next);
+  }
+
+  /**
+   * The first value in the range needs the value before it.
+   */
+  @Override
+  public IndexRange getContextRange(List<SensorValue> values, int first,
+    int last) {
+    int previous = previousValue(values, first);
+    return new IndexRange(previous == -1 ? first : previous, last);
   }
 
   /**
@@ -1,13 +1,10 @@
 package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
 
-import java.util.List;
-
-import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
 
-public class OutlierRoutine extends AutoQCRoutine {
+public class OutlierRoutine extends SeriesQCRoutine {
 
   /**
    * The maximum number of standard deviations away from the mean a value can be
@@ -36,42 +33,52 @@ public class OutlierRoutine extends AutoQCRoutine {
   }
 
   @Override
-  protected void qcAction(List<SensorValue> values) throws RoutineException {
-
-    int valueCount = 0;
-    double mean = 0.0;
-    double stdev = 0.0;
-
-    for (SensorValue sensorValue : values) {
-      Double value = sensorValue.getDoubleValue();
-      if (!value.isNaN()) {
-        valueCount++;
-
-        if (valueCount == 1) {
-          mean = value;
-        } else {
-          double d = value - mean;
-          stdev += (valueCount - 1) * d * d / valueCount;
-          mean += d / valueCount;
-        }
-      }
-    }
+  protected SeriesQCEngine.Operator getOperator(SensorValueSeries series,
+    SeriesQCEngine.Flags flags) {
+
+    return new SeriesQCEngine.Operator() {
+
+      private int valueCount = 0;
 
-    if (valueCount > 0) {
-      // Finalise the stdev calculation
-      stdev = Math.sqrt(stdev / valueCount);
+      private double mean = 0.0;
 
-      // Check all values to see if they're outside the limit
-      for (SensorValue sensorValue : values) {
-        if (!sensorValue.isNaN()) {
-          double diffFromMean = Math.abs(sensorValue.getDoubleValue() - mean);
+      private double stdev = 0.0;
 
-          if (diffFromMean > (stdev * stdevLimit)) {
-            addFlag(sensorValue, Flag.BAD, stdevLimit, stdev);
+      @Override
+      public void accept(int i) {
+        if (!series.isNaN(i)) {
+          double value = series.getValue(i);
+          valueCount++;
+
+          if (valueCount == 1) {
+            mean = value;
+          } else {
+            double d = value - mean;
+            stdev += (valueCount - 1) * d * d / valueCount;
+            mean += d / valueCount;
           }
         }
       }
-    }
+
+      @Override
+      public void finish() {
+        if (valueCount > 0) {
+          // Finalise the stdev calculation
+          double finalStdev = Math.sqrt(stdev / valueCount);
+
+          // Check all values to see if they're outside the limit
+          for (int i = 0; i < series.size(); i++) {
+            if (!series.isNaN(i)) {
+              double diffFromMean = Math.abs(series.getValue(i) - mean);
+
+              if (diffFromMean > (finalStdev * stdevLimit)) {
+                flags.add(i, Flag.BAD, stdevLimit, finalStdev);
+              }
+            }
+          }
+        }
+      }
+    };
   }
 
   /**
@@ -23,6 +23,9 @@ public class PositionQCCascadeRoutine {
       TreeSet<LocalDateTime> allTimes = new TreeSet<LocalDateTime>();
       allTimes.addAll(sensorValues.getTimes());
 
+      // The times are in order, so the run type lookups can walk forward
+      RunTypePeriods.Cursor runTypes = runTypePeriods.cursor();
+
       for (LocalDateTime time : allTimes) {
         PlotPageTableValue position = sensorValues
           .getPositionTableValue(SensorType.LONGITUDE_ID, time, true);
@@ -40,7 +43,7 @@ public class PositionQCCascadeRoutine {
             // quality of the position doesn't matter if we're just calibrating
             // or whatever.
             if (sensorType.hasInternalCalibration() && !instrument
-              .isMeasurementRunType(runTypePeriods.getRunType(time))) {
+              .isMeasurementRunType(runTypes.getRunType(time))) {
               setCascade = false;
             }
 
@@ -0,0 +1,151 @@
+package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
+
+/**
+ * A record of the QC state of a set of {@link SensorValue}s, used to find
+ * which values have really changed after automatic QC has been run.
+ *
+ * <p>
+ * Clearing and re-running the automatic QC marks every value it touches as
+ * dirty, even if it ends up with exactly the same flags as before. Comparing
+ * against a snapshot taken beforehand allows the dirty flag to be cleared on
+ * the unchanged values so they are not written back to the database.
+ * </p>
+ *
+ * <p>
+ * The snapshot only holds references to each value's existing flags, so it
+ * is cheap to take for values with no automatic QC flags.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class QCStateSnapshot {
+
+  /**
+   * Shared empty flag list for values with no automatic QC flags.
+   */
+  private static final RoutineFlag[] NO_FLAGS = new RoutineFlag[0];
+
+  /**
+   * The values in the snapshot.
+   */
+  private final List<SensorValue> values;
+
+  /**
+   * The automatic QC flags of each value.
+   */
+  private final RoutineFlag[][] autoQC;
+
+  /**
+   * The user QC flag of each value.
+   */
+  private final Flag[] userFlags;
+
+  /**
+   * The user QC message of each value.
+   */
+  private final String[] userMessages;
+
+  /**
+   * Whether each value was already dirty when the snapshot was taken.
+   */
+  private final boolean[] wasDirty;
+
+  /**
+   * Take a snapshot of the QC state of the specified values.
+   *
+   * @param values
+   *          The values
+   */
+  public QCStateSnapshot(Collection<SensorValue> values) {
+    this.values = new ArrayList<SensorValue>(values);
+    this.autoQC = new RoutineFlag[this.values.size()][];
+    this.userFlags = new Flag[this.values.size()];
+    this.userMessages = new String[this.values.size()];
+    this.wasDirty = new boolean[this.values.size()];
+
+    for (int i = 0; i < this.values.size(); i++) {
+      SensorValue value = this.values.get(i);
+      AutoQCResult flags = value.getAutoQcResult();
+      autoQC[i] = flags.isEmpty() ? NO_FLAGS
+        : flags.toArray(new RoutineFlag[flags.size()]);
+      userFlags[i] = value.getUserQCFlag();
+      userMessages[i] = value.getUserQCMessage();
+      wasDirty[i] = value.isDirty();
+    }
+  }
+
+  /**
+   * Clear the dirty flag on all values whose QC state is the same as when the
+   * snapshot was taken. Values that were already dirty when the snapshot was
+   * taken are left alone.
+   *
+   * @return The number of values that are still dirty
+   */
+  public int clearUnchanged() {
+    List<SensorValue> unchanged = new ArrayList<SensorValue>();
+    int dirtyCount = 0;
+
+    for (int i = 0; i < values.size(); i++) {
+      SensorValue value = values.get(i);
+      if (value.isDirty()) {
+        if (!wasDirty[i] && isUnchanged(i, value)) {
+          unchanged.add(value);
+        } else {
+          dirtyCount++;
+        }
+      }
+    }
+
+    SensorValue.clearDirtyFlag(unchanged);
+    return dirtyCount;
+  }
+
+  private boolean isUnchanged(int index, SensorValue value) {
+    return Objects.equals(userFlags[index], value.getUserQCFlag())
+      && Objects.equals(userMessages[index], value.getUserQCMessage())
+      && sameFlags(autoQC[index], value.getAutoQcResult());
+  }
+
+  /**
+   * Determine whether two sets of automatic QC flags are identical. Each
+   * routine can only set one flag on a value, so the flags are matched by
+   * routine name.
+   *
+   * @param before
+   *          The original flags
+   * @param after
+   *          The current flags
+   * @return {@code true} if the flags are the same; {@code false} otherwise
+   */
+  private static boolean sameFlags(RoutineFlag[] before, AutoQCResult after) {
+    boolean result = before.length == after.size();
+
+    if (result) {
+      for (RoutineFlag flag : before) {
+        if (after.stream().noneMatch(f -> sameFlag(flag, f))) {
+          result = false;
+          break;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  private static boolean sameFlag(RoutineFlag flag1, RoutineFlag flag2) {
+    return flag1.getRoutineName().equals(flag2.getRoutineName())
+      && flag1.getFlagValue() == flag2.getFlagValue()
+      && Objects.equals(flag1.getRequiredValue(), flag2.getRequiredValue())
+      && Objects.equals(flag1.getActualValue(), flag2.getActualValue());
+  }
+}
@@ -7,7 +7,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineFlag;
 
-public class RangeCheckRoutine extends AutoQCRoutine {
+public class RangeCheckRoutine extends SeriesQCRoutine {
 
   /**
    * Questionable minimum parameter index
@@ -103,22 +103,41 @@ public class RangeCheckRoutine extends AutoQCRoutine {
   }
 
   @Override
-  protected void qcAction(List<SensorValue> values) throws RoutineException {
-    for (SensorValue sensorValue : values) {
-      Double value = sensorValue.getDoubleValue();
+  protected SeriesQCEngine.Operator getOperator(SensorValueSeries series,
+    SeriesQCEngine.Flags flags) {
 
-      if (!value.isNaN()) {
+    String badRange = "" + badMin + ":" + badMax;
+    String questionableRange = "" + questionableMin + ":" + questionableMax;
+
+    return i -> {
+      double value = series.getValue(i);
+
+      if (!Double.isNaN(value)) {
         if (hasBadRange && (value < badMin || value > badMax)) {
-          addFlag(sensorValue, Flag.BAD, "" + badMin + ":" + badMax,
-            String.valueOf(value));
+          flags.add(i, Flag.BAD, badRange, String.valueOf(value));
         } else if (hasQuestionableRange
           && (value < questionableMin || value > questionableMax)) {
-          addFlag(sensorValue, Flag.QUESTIONABLE,
-            "" + questionableMin + ":" + questionableMax,
+          flags.add(i, Flag.QUESTIONABLE, questionableRange,
             String.valueOf(value));
         }
       }
-    }
+    };
+  }
+
+  /**
+   * Each value is checked on its own, so only the changed values are
+   * affected.
+   */
+  @Override
+  public IndexRange getAffectedRange(List<SensorValue> values, int from,
+    int to) {
+    return new IndexRange(from, to);
+  }
+
+  @Override
+  public IndexRange getContextRange(List<SensorValue> values, int first,
+    int last) {
+    return new IndexRange(first, last);
   }
 
   /**
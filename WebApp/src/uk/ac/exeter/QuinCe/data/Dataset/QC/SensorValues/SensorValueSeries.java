@@ -0,0 +1,161 @@
+package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+
+/**
+ * A list of {@link SensorValue}s decoded into primitive arrays of times and
+ * values for use by QC routines.
+ *
+ * <p>
+ * {@link SensorValue#getDoubleValue()} parses the value's string on every
+ * call, so routines that repeatedly examine values (and chains of routines
+ * run over the same values) spend much of their time re-parsing. A series
+ * decodes each value exactly once.
+ * </p>
+ *
+ * <p>
+ * Times are stored as nanoseconds since the epoch. The time calculations
+ * truncate in the same way as the equivalent {@link java.time.temporal.ChronoUnit}
+ * calculations on the original {@link LocalDateTime}s.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class SensorValueSeries {
+
+  /**
+   * The number of nanoseconds in a second.
+   */
+  private static final long NANOS_PER_SECOND = 1000000000L;
+
+  /**
+   * The number of nanoseconds in a minute.
+   */
+  private static final long NANOS_PER_MINUTE = 60L * NANOS_PER_SECOND;
+
+  /**
+   * The original sensor values.
+   */
+  private final List<SensorValue> sensorValues;
+
+  /**
+   * The value times, in nanoseconds since the epoch.
+   */
+  private final long[] times;
+
+  /**
+   * The numeric values. Missing values are {@link Double#NaN}.
+   */
+  private final double[] values;
+
+  /**
+   * Decode a list of sensor values.
+   *
+   * @param sensorValues
+   *          The sensor values
+   */
+  public SensorValueSeries(List<SensorValue> sensorValues) {
+    this.sensorValues = sensorValues;
+    this.times = new long[sensorValues.size()];
+    this.values = new double[sensorValues.size()];
+
+    int i = 0;
+    for (SensorValue sensorValue : sensorValues) {
+      times[i] = toNanos(sensorValue.getTime());
+      values[i] = sensorValue.getDoubleValue();
+      i++;
+    }
+  }
+
+  private static long toNanos(LocalDateTime time) {
+    return time.toEpochSecond(ZoneOffset.UTC) * NANOS_PER_SECOND
+      + time.getNano();
+  }
+
+  /**
+   * Get the number of values in the series.
+   *
+   * @return The series size
+   */
+  public int size() {
+    return values.length;
+  }
+
+  /**
+   * Get the original {@link SensorValue} at the specified index.
+   *
+   * @param index
+   *          The index
+   * @return The sensor value
+   */
+  public SensorValue getSensorValue(int index) {
+    return sensorValues.get(index);
+  }
+
+  /**
+   * Get the numeric value at the specified index.
+   *
+   * @param index
+   *          The index
+   * @return The value
+   */
+  public double getValue(int index) {
+    return values[index];
+  }
+
+  /**
+   * Determine whether the value at the specified index is missing.
+   *
+   * @param index
+   *          The index
+   * @return {@code true} if the value is {@link Double#NaN}; {@code false}
+   *         otherwise
+   */
+  public boolean isNaN(int index) {
+    return Double.isNaN(values[index]);
+  }
+
+  /**
+   * Get the time between two values in nanoseconds.
+   *
+   * @param from
+   *          The index of the earlier value
+   * @param to
+   *          The index of the later value
+   * @return The time difference
+   */
+  public long nanosBetween(int from, int to) {
+    return times[to] - times[from];
+  }
+
+  /**
+   * Get the number of whole seconds between two values.
+   *
+   * @param from
+   *          The index of the earlier value
+   * @param to
+   *          The index of the later value
+   * @return The time difference
+   */
+  public long secondsBetween(int from, int to) {
+    return nanosBetween(from, to) / NANOS_PER_SECOND;
+  }
+
+  /**
+   * Get the number of whole minutes between two values.
+   *
+   * @param from
+   *          The index of the earlier value
+   * @param to
+   *          The index of the later value
+   * @return The time difference
+   */
+  public long minutesBetween(int from, int to) {
+    return nanosBetween(from, to) / NANOS_PER_MINUTE;
+  }
+}
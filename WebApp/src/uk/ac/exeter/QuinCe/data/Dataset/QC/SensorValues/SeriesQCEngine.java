@@ -0,0 +1,445 @@
+package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCRoutine.IndexRange;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
+
+/**
+ * Runs a set of {@link AutoQCRoutine}s over a list of {@link SensorValue}s in
+ * a single pass.
+ *
+ * <p>
+ * The values are decoded once into a {@link SensorValueSeries}, and each
+ * index of the series is passed to the {@link Operator} of every
+ * {@link SeriesQCRoutine} in turn. Routines that need statistics over the
+ * whole series (e.g. {@link OutlierRoutine}) or look ahead of the current
+ * value (e.g. {@link GradientTestRoutine}) complete their work in
+ * {@link Operator#finish()} using the decoded arrays.
+ * </p>
+ *
+ * <p>
+ * The flags raised by each routine are collected separately and applied to
+ * the {@link SensorValue}s after all routines have finished. Routines that
+ * are not {@link SeriesQCRoutine}s are run separately in the normal way. The
+ * flags from the series routines and the other routines are applied in the
+ * order the routines were supplied, which gives exactly the same
+ * {@link AutoQCResult}s as running each routine separately via
+ * {@link AutoQCRoutine#qc}. This relies on the routines only examining the
+ * values, and not the flags set by other routines.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class SeriesQCEngine {
+
+  /**
+   * Static methods only.
+   */
+  private SeriesQCEngine() {
+  }
+
+  /**
+   * Run the specified routines over a list of values.
+   *
+   * <p>
+   * The {@link SensorType} is set on each routine before it is run. If the
+   * sensor type is run type aware, the values are split by run type and each
+   * group is processed separately.
+   * </p>
+   *
+   * @param routines
+   *          The routines
+   * @param sensorType
+   *          The sensor type of the values
+   * @param values
+   *          The values to be QCed
+   * @param runTypePeriods
+   *          The instrument's run type periods
+   * @throws RoutineException
+   *           If any routine is not configured correctly, or fails during
+   *           processing
+   */
+  public static void qc(Collection<? extends AbstractAutoQCRoutine> routines,
+    SensorType sensorType, List<SensorValue> values,
+    RunTypePeriods runTypePeriods) throws RoutineException {
+
+    List<SeriesQCRoutine> seriesRoutines = new ArrayList<SeriesQCRoutine>(
+      routines.size());
+
+    for (AbstractAutoQCRoutine routine : routines) {
+      routine.setSensorType(sensorType);
+      routine.checkSetup();
+
+      if (routine instanceof SeriesQCRoutine) {
+        seriesRoutines.add((SeriesQCRoutine) routine);
+      }
+    }
+
+    // Run the series routines over each group of values in a single pass
+    List<SensorValueSeries> groups = new ArrayList<SensorValueSeries>();
+    List<Flags[]> groupFlags = new ArrayList<Flags[]>();
+
+    if (seriesRoutines.size() > 0) {
+      if (!sensorType.isRunTypeAware()) {
+        groups.add(new SensorValueSeries(values));
+      } else {
+        for (List<SensorValue> group : AutoQCRoutine
+          .getValuesByRunType(values, runTypePeriods).values()) {
+          groups.add(new SensorValueSeries(group));
+        }
+      }
+
+      for (SensorValueSeries group : groups) {
+        groupFlags.add(evaluate(group, seriesRoutines));
+      }
+    }
+
+    // Apply the flags and run the other routines in the configured order
+    int seriesIndex = 0;
+    for (AbstractAutoQCRoutine routine : routines) {
+      if (routine instanceof SeriesQCRoutine) {
+        for (int g = 0; g < groups.size(); g++) {
+          groupFlags.get(g)[seriesIndex].apply((AutoQCRoutine) routine,
+            groups.get(g));
+        }
+        seriesIndex++;
+      } else {
+        ((AutoQCRoutine) routine).qc(values, runTypePeriods);
+      }
+    }
+  }
+
+  /**
+   * Incrementally re-run the specified routines after the values between two
+   * times have changed.
+   *
+   * <p>
+   * Each routine is only run over the values whose flags could be affected by
+   * the change (see {@link AutoQCRoutine#getAffectedRange}), plus whatever
+   * surrounding values it needs to calculate those flags correctly (see
+   * {@link AutoQCRoutine#getContextRange}). The routine's existing flags are
+   * removed from the affected values and replaced with the new results; all
+   * other values are left untouched. The result is the same as running
+   * {@link #qc(Collection, SensorType, List, RunTypePeriods)} over all the
+   * values.
+   * </p>
+   *
+   * <p>
+   * Any flags from other sources on values within the changed time range
+   * must be cleared before calling this method.
+   * </p>
+   *
+   * @param routines
+   *          The routines
+   * @param sensorType
+   *          The sensor type of the values
+   * @param values
+   *          All the values for the sensor, in time order
+   * @param runTypePeriods
+   *          The instrument's run type periods
+   * @param changedStart
+   *          The start of the changed time range
+   * @param changedEnd
+   *          The end of the changed time range
+   * @return The number of values processed by the routines
+   * @throws RoutineException
+   *           If any routine is not configured correctly, or fails during
+   *           processing
+   */
+  public static int qc(Collection<? extends AbstractAutoQCRoutine> routines,
+    SensorType sensorType, List<SensorValue> values,
+    RunTypePeriods runTypePeriods, LocalDateTime changedStart,
+    LocalDateTime changedEnd) throws RoutineException {
+
+    int processed = 0;
+
+    if (!sensorType.isRunTypeAware()) {
+      processed = qcRange(routines, sensorType, values, changedStart,
+        changedEnd);
+    } else {
+      for (List<SensorValue> group : AutoQCRoutine
+        .getValuesByRunType(values, runTypePeriods).values()) {
+        processed += qcRange(routines, sensorType, group, changedStart,
+          changedEnd);
+      }
+    }
+
+    return processed;
+  }
+
+  /**
+   * Incrementally QC a single group of values.
+   *
+   * @param routines
+   *          The routines
+   * @param sensorType
+   *          The sensor type of the values
+   * @param values
+   *          The values, in time order
+   * @param changedStart
+   *          The start of the changed time range
+   * @param changedEnd
+   *          The end of the changed time range
+   * @return The number of values processed by the routines
+   * @throws RoutineException
+   *           If any routine fails
+   */
+  private static int qcRange(
+    Collection<? extends AbstractAutoQCRoutine> routines,
+    SensorType sensorType, List<SensorValue> values,
+    LocalDateTime changedStart, LocalDateTime changedEnd)
+    throws RoutineException {
+
+    int processed = 0;
+
+    // The first value at or after the start, and the last value at or before
+    // the end. If there are no values in the range, from will be after to.
+    int from = 0;
+    while (from < values.size()
+      && values.get(from).getTime().isBefore(changedStart)) {
+      from++;
+    }
+
+    int to = values.size() - 1;
+    while (to >= 0 && values.get(to).getTime().isAfter(changedEnd)) {
+      to--;
+    }
+
+    for (AbstractAutoQCRoutine abstractRoutine : routines) {
+      AutoQCRoutine routine = (AutoQCRoutine) abstractRoutine;
+      routine.setSensorType(sensorType);
+      routine.checkSetup();
+
+      IndexRange affected = routine.getAffectedRange(values, from, to);
+      if (!affected.isEmpty()) {
+        IndexRange context = routine
+          .getContextRange(values, affected.first, affected.last)
+          .union(affected);
+
+        String routineName = routine.getName();
+        for (int i = affected.first; i <= affected.last; i++) {
+          values.get(i).removeAutoQCFlag(routineName);
+        }
+
+        List<SensorValue> contextValues = values.subList(context.first,
+          context.last + 1);
+
+        if (routine instanceof SeriesQCRoutine) {
+          SensorValueSeries series = new SensorValueSeries(contextValues);
+          Flags flags = new Flags();
+          Operator operator = ((SeriesQCRoutine) routine).getOperator(series,
+            flags);
+
+          for (int i = 0; i < series.size(); i++) {
+            operator.accept(i);
+          }
+          operator.finish();
+
+          flags.apply(routine, series, affected.first - context.first,
+            affected.last - context.first);
+        } else {
+          // Plain routines can only flag the whole context
+          routine.qcAction(contextValues);
+        }
+
+        processed += contextValues.size();
+      }
+    }
+
+    return processed;
+  }
+
+  /**
+   * Run a set of routines over a single series.
+   *
+   * @param series
+   *          The series
+   * @param routines
+   *          The routines
+   * @throws RoutineException
+   *           If any routine fails
+   */
+  protected static void run(SensorValueSeries series,
+    List<? extends SeriesQCRoutine> routines) throws RoutineException {
+
+    Flags[] flags = evaluate(series, routines);
+
+    for (int r = 0; r < routines.size(); r++) {
+      flags[r].apply(routines.get(r), series);
+    }
+  }
+
+  /**
+   * Run a set of routines over a single series without applying their flags.
+   *
+   * @param series
+   *          The series
+   * @param routines
+   *          The routines
+   * @return The flags raised by each routine, in the same order as the
+   *         routines
+   * @throws RoutineException
+   *           If any routine fails
+   */
+  private static Flags[] evaluate(SensorValueSeries series,
+    List<? extends SeriesQCRoutine> routines) throws RoutineException {
+
+    Operator[] operators = new Operator[routines.size()];
+    Flags[] flags = new Flags[routines.size()];
+
+    for (int r = 0; r < routines.size(); r++) {
+      flags[r] = new Flags();
+      operators[r] = routines.get(r).getOperator(series, flags[r]);
+    }
+
+    for (int i = 0; i < series.size(); i++) {
+      for (Operator operator : operators) {
+        operator.accept(i);
+      }
+    }
+
+    for (Operator operator : operators) {
+      operator.finish();
+    }
+
+    return flags;
+  }
+
+  /**
+   * A streaming QC operator for a single routine.
+   */
+  @FunctionalInterface
+  public interface Operator {
+
+    /**
+     * Process the value at the specified index. Indices are passed in order.
+     *
+     * @param index
+     *          The index
+     * @throws RoutineException
+     *           If the value cannot be processed
+     */
+    void accept(int index) throws RoutineException;
+
+    /**
+     * Complete any processing once all values have been passed to
+     * {@link #accept(int)}.
+     *
+     * @throws RoutineException
+     *           If the processing fails
+     */
+    default void finish() throws RoutineException {
+    }
+  }
+
+  /**
+   * Collects the flags raised by a routine's {@link Operator} until they are
+   * applied to the {@link SensorValue}s.
+   */
+  public static class Flags {
+
+    private final List<PendingFlag> flags = new ArrayList<PendingFlag>();
+
+    private Flags() {
+    }
+
+    /**
+     * Add a flag to the value at the specified index.
+     *
+     * @param index
+     *          The series index
+     * @param flag
+     *          The flag
+     * @param requiredValue
+     *          The value required by the routine
+     * @param actualValue
+     *          The actual value
+     */
+    public void add(int index, Flag flag, String requiredValue,
+      String actualValue) {
+      flags.add(new PendingFlag(index, flag, requiredValue, actualValue));
+    }
+
+    /**
+     * Add a flag to the value at the specified index.
+     *
+     * @param index
+     *          The series index
+     * @param flag
+     *          The flag
+     * @param requiredValue
+     *          The value required by the routine
+     * @param actualValue
+     *          The actual value
+     */
+    public void add(int index, Flag flag, double requiredValue,
+      double actualValue) {
+      add(index, flag, String.valueOf(requiredValue),
+        String.valueOf(actualValue));
+    }
+
+    /**
+     * Add a flag to the value at the specified index.
+     *
+     * @param index
+     *          The series index
+     * @param flag
+     *          The flag
+     * @param requiredValue
+     *          The value required by the routine
+     * @param actualValue
+     *          The actual value
+     */
+    public void add(int index, Flag flag, double requiredValue,
+      long actualValue) {
+      add(index, flag, String.valueOf(requiredValue),
+        String.valueOf(actualValue));
+    }
+
+    private void apply(AutoQCRoutine routine, SensorValueSeries series)
+      throws RoutineException {
+      apply(routine, series, 0, series.size() - 1);
+    }
+
+    private void apply(AutoQCRoutine routine, SensorValueSeries series,
+      int first, int last) throws RoutineException {
+      for (PendingFlag flag : flags) {
+        if (flag.index >= first && flag.index <= last) {
+          routine.addFlag(series.getSensorValue(flag.index), flag.flag,
+            flag.requiredValue, flag.actualValue);
+        }
+      }
+    }
+  }
+
+  /**
+   * A flag waiting to be applied to a {@link SensorValue}.
+   */
+  private static class PendingFlag {
+
+    private final int index;
+
+    private final Flag flag;
+
+    private final String requiredValue;
+
+    private final String actualValue;
+
+    private PendingFlag(int index, Flag flag, String requiredValue,
+      String actualValue) {
+      this.index = index;
+      this.flag = flag;
+      this.requiredValue = requiredValue;
+      this.actualValue = actualValue;
+    }
+  }
+}
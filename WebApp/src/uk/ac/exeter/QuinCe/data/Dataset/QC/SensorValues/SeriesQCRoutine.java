@@ -0,0 +1,43 @@
+package uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues;
+
+import java.util.List;
+
+import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.RoutineException;
+
+/**
+ * An {@link AutoQCRoutine} that works on a decoded {@link SensorValueSeries}
+ * instead of the raw {@link SensorValue}s.
+ *
+ * <p>
+ * Routines of this type provide a {@link SeriesQCEngine.Operator} that is fed
+ * the series one index at a time, which allows the {@link SeriesQCEngine} to
+ * run any number of routines over a single decoding of the values in one
+ * loop. Running the routine on its own via {@link #qc} uses the same
+ * operator, so the results are identical either way.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public abstract class SeriesQCRoutine extends AutoQCRoutine {
+
+  @Override
+  protected void qcAction(List<SensorValue> values) throws RoutineException {
+    SeriesQCEngine.run(new SensorValueSeries(values), List.of(this));
+  }
+
+  /**
+   * Create the operator that will perform this routine's QC on the specified
+   * series. Flags must be added to {@code flags}, not directly to the
+   * {@link SensorValue}s.
+   *
+   * @param series
+   *          The series being QCed
+   * @param flags
+   *          The collector for the flags raised by the routine
+   * @return The operator
+   */
+  protected abstract SeriesQCEngine.Operator getOperator(
+    SensorValueSeries series, SeriesQCEngine.Flags flags);
+}
@@ -0,0 +1,345 @@
+package uk.ac.exeter.QuinCe.data.Dataset;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+
+import javax.sql.DataSource;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
+import uk.ac.exeter.QuinCe.utils.DatabaseException;
+import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+import uk.ac.exeter.QuinCe.utils.MissingParam;
+import uk.ac.exeter.QuinCe.utils.MissingParamException;
+
+/**
+ * Write-behind journal for QC flags set by users.
+ *
+ * <p>
+ * Writing a large number of changed {@link SensorValue}s to the database can
+ * take some time, which is too long for users to wait for while setting QC
+ * flags. Instead, the changes are written to the journal as a single record
+ * (see {@link #journal(Connection, long, Collection)}) and applied to the
+ * {@code sensor_values} table later by the {@link QCFlagJournalWriter}.
+ * </p>
+ *
+ * <p>
+ * Only the user QC flag and message are journalled. Automatic QC flags are
+ * only ever set by jobs, which write them directly, so a journal record
+ * applied after a job has run cannot replace the job's results.
+ * </p>
+ *
+ * <p>
+ * Journal records are applied in the order they were written, and each record
+ * is applied and removed in a single transaction. Any records left when the
+ * application stops are applied when it is restarted. Code that reads the
+ * stored QC flags of a dataset must call {@link #apply(Connection, long)}
+ * first to make sure that all changes have been written. Dataset jobs do this
+ * before they start (see
+ * {@code DataSetJob#applyQCFlagJournal(Connection)}).
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class QCFlagJournalDB {
+
+  /**
+   * Statement to add a journal record
+   */
+  private static final String ADD_ENTRY_STATEMENT = "INSERT INTO "
+    + "qc_flag_journal (dataset_id, created, entries) VALUES (?, ?, ?)";
+
+  /**
+   * Query to get all journal records in the order they were written
+   */
+  private static final String GET_ALL_ENTRIES_QUERY = "SELECT "
+    + "id, entries FROM qc_flag_journal ORDER BY id";
+
+  /**
+   * Query to get a dataset's journal records in the order they were written
+   */
+  private static final String GET_DATASET_ENTRIES_QUERY = "SELECT "
+    + "id, entries FROM qc_flag_journal WHERE dataset_id = ? ORDER BY id";
+
+  /**
+   * Statement to update a sensor value's QC flags from a journal entry
+   */
+  private static final String UPDATE_SENSOR_VALUE_STATEMENT = "UPDATE sensor_values "
+    + "SET user_qc_flag=?, user_qc_message=? WHERE id = ?";
+
+  /**
+   * Statement to remove a journal record once it has been applied
+   */
+  private static final String REMOVE_ENTRY_STATEMENT = "DELETE FROM "
+    + "qc_flag_journal WHERE id = ?";
+
+  /**
+   * Statement to remove all journal records for a dataset
+   */
+  private static final String REMOVE_DATASET_ENTRIES_STATEMENT = "DELETE FROM "
+    + "qc_flag_journal WHERE dataset_id = ?";
+
+  /**
+   * Lock to ensure that journal records are only applied by one thread at a
+   * time, so they are always applied in order.
+   */
+  private static final Object APPLY_LOCK = new Object();
+
+  /**
+   * Write the QC flags of a set of {@link SensorValue}s to the journal.
+   *
+   * <p>
+   * As with {@link DataSetDataDB#storeSensorValues(Connection, Collection)},
+   * only values whose {@code dirty} flag is set are written, and the flag is
+   * cleared once the journal record has been stored. All the values must
+   * already be in the database.
+   * </p>
+   *
+   * @param conn
+   *          A database connection.
+   * @param datasetId
+   *          The ID of the dataset that the values belong to.
+   * @param sensorValues
+   *          The sensor values.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws InvalidSensorValueException
+   *           If any of the values is not in the database, or belongs to a
+   *           different dataset.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static void journal(Connection conn, long datasetId,
+    Collection<SensorValue> sensorValues) throws MissingParamException,
+    InvalidSensorValueException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkZeroPositive(datasetId, "datasetId");
+    MissingParam.checkMissing(sensorValues, "sensorValues", true);
+
+    JsonArray entries = new JsonArray();
+
+    for (SensorValue value : sensorValues) {
+      if (!value.isInDatabase() || !value.canBeSaved()) {
+        throw new InvalidSensorValueException(
+          "Only stored SensorValues can be journalled", value);
+      }
+
+      if (value.getDatasetId() != datasetId) {
+        throw new InvalidSensorValueException(
+          "SensorValue is not from dataset " + datasetId, value);
+      }
+
+      if (value.isDirty()) {
+        JsonArray entry = new JsonArray();
+        entry.add(value.getId());
+        entry.add(value.getUserQCFlag().getFlagValue());
+        entry.add(DataSetDataDB.getStorableUserQCMessage(value));
+        entries.add(entry);
+      }
+    }
+
+    if (entries.size() > 0) {
+      try (PreparedStatement stmt = conn
+        .prepareStatement(ADD_ENTRY_STATEMENT)) {
+
+        stmt.setLong(1, datasetId);
+        stmt.setLong(2, System.currentTimeMillis());
+        stmt.setString(3, entries.toString());
+        stmt.execute();
+      } catch (SQLException e) {
+        throw new DatabaseException("Error storing QC flag journal", e);
+      }
+    }
+
+    SensorValue.clearDirtyFlag(sensorValues);
+  }
+
+  /**
+   * Apply all outstanding journal records to the {@code sensor_values} table.
+   *
+   * @param dataSource
+   *          A data source.
+   * @return The number of records applied.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static int applyAll(DataSource dataSource)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(dataSource, "dataSource");
+
+    try (Connection conn = dataSource.getConnection()) {
+      return applyEntries(conn, -1);
+    } catch (SQLException e) {
+      throw new DatabaseException("Error applying QC flag journal", e);
+    }
+  }
+
+  /**
+   * Apply all outstanding journal records for a dataset to the
+   * {@code sensor_values} table.
+   *
+   * @param dataSource
+   *          A data source.
+   * @param datasetId
+   *          The dataset's database ID.
+   * @return The number of records applied.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static int apply(DataSource dataSource, long datasetId)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(dataSource, "dataSource");
+
+    try (Connection conn = dataSource.getConnection()) {
+      return apply(conn, datasetId);
+    } catch (SQLException e) {
+      throw new DatabaseException("Error applying QC flag journal", e);
+    }
+  }
+
+  /**
+   * Apply all outstanding journal records for a dataset to the
+   * {@code sensor_values} table.
+   *
+   * <p>
+   * Each record is committed separately. The connection is returned to its
+   * original auto-commit state afterwards.
+   * </p>
+   *
+   * @param conn
+   *          A database connection.
+   * @param datasetId
+   *          The dataset's database ID.
+   * @return The number of records applied.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static int apply(Connection conn, long datasetId)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkZeroPositive(datasetId, "datasetId");
+
+    return applyEntries(conn, datasetId);
+  }
+
+  /**
+   * Apply outstanding journal records, either for a single dataset or for all
+   * datasets.
+   *
+   * @param conn
+   *          A database connection.
+   * @param datasetId
+   *          The dataset ID, or {@code -1} for all datasets.
+   * @return The number of records applied.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  private static int applyEntries(Connection conn, long datasetId)
+    throws DatabaseException {
+
+    int applied = 0;
+
+    synchronized (APPLY_LOCK) {
+      boolean autoCommit = true;
+
+      try {
+        autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+
+        try (
+          PreparedStatement readStmt = conn.prepareStatement(
+            datasetId < 0 ? GET_ALL_ENTRIES_QUERY : GET_DATASET_ENTRIES_QUERY);
+          PreparedStatement updateStmt = conn
+            .prepareStatement(UPDATE_SENSOR_VALUE_STATEMENT);
+          PreparedStatement removeStmt = conn
+            .prepareStatement(REMOVE_ENTRY_STATEMENT)) {
+
+          if (datasetId >= 0) {
+            readStmt.setLong(1, datasetId);
+          }
+
+          try (ResultSet records = readStmt.executeQuery()) {
+            while (records.next()) {
+              long id = records.getLong(1);
+              JsonArray entries = JsonParser.parseString(records.getString(2))
+                .getAsJsonArray();
+
+              for (JsonElement element : entries) {
+                JsonArray entry = element.getAsJsonArray();
+                updateStmt.setInt(1, entry.get(1).getAsInt());
+                updateStmt.setString(2, entry.get(2).getAsString());
+                updateStmt.setLong(3, entry.get(0).getAsLong());
+                updateStmt.addBatch();
+              }
+
+              updateStmt.executeBatch();
+
+              removeStmt.setLong(1, id);
+              removeStmt.execute();
+
+              conn.commit();
+              applied++;
+            }
+          }
+        }
+      } catch (SQLException e) {
+        DatabaseUtils.rollBack(conn);
+        throw new DatabaseException("Error applying QC flag journal", e);
+      } finally {
+        try {
+          conn.setAutoCommit(autoCommit);
+        } catch (SQLException e) {
+          // Noop
+        }
+      }
+    }
+
+    return applied;
+  }
+
+  /**
+   * Remove all journal records for a dataset without applying them. Used
+   * when the dataset is being deleted.
+   *
+   * @param conn
+   *          A database connection.
+   * @param datasetId
+   *          The dataset's database ID.
+   * @throws MissingParamException
+   *           If any required parameters are missing.
+   * @throws DatabaseException
+   *           If a database error occurs.
+   */
+  public static void deleteEntries(Connection conn, long datasetId)
+    throws MissingParamException, DatabaseException {
+
+    MissingParam.checkMissing(conn, "conn");
+    MissingParam.checkZeroPositive(datasetId, "datasetId");
+
+    synchronized (APPLY_LOCK) {
+      try (PreparedStatement stmt = conn
+        .prepareStatement(REMOVE_DATASET_ENTRIES_STATEMENT)) {
+        stmt.setLong(1, datasetId);
+        stmt.execute();
+      } catch (SQLException e) {
+        throw new DatabaseException("Error removing QC flag journal", e);
+      }
+    }
+  }
+}
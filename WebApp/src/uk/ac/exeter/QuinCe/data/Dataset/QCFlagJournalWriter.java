@@ -0,0 +1,38 @@
+package uk.ac.exeter.QuinCe.data.Dataset;
+
+import javax.servlet.annotation.WebListener;
+
+import uk.ac.exeter.QuinCe.utils.BackgroundTask;
+import uk.ac.exeter.QuinCe.utils.BackgroundTaskException;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Applies outstanding {@link QCFlagJournalDB} records to the
+ * {@code sensor_values} table.
+ *
+ * <p>
+ * The first run after the application starts applies any records that were
+ * left when it was last stopped.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+@WebListener
+public class QCFlagJournalWriter extends BackgroundTask {
+
+  @Override
+  protected void doTask() throws BackgroundTaskException {
+    try {
+      QCFlagJournalDB
+        .applyAll(ResourceManager.getInstance().getDBDataSource());
+    } catch (Exception e) {
+      throw new BackgroundTaskException(e);
+    }
+  }
+
+  @Override
+  protected long getRunInterval() {
+    return 2;
+  }
+}
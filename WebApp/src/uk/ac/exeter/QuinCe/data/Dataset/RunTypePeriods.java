@@ -2,15 +2,29 @@ package uk.ac.exeter.QuinCe.data.Dataset;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
-import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+/**
+ * A time-ordered list of {@link RunTypePeriod}s.
+ *
+ * <p>
+ * Periods never overlap and are added in time order, so lookups by time use a
+ * binary search over the period start times. The search index is built on the
+ * first lookup after the list changes. For walks through monotonically
+ * increasing times, a {@link Cursor} avoids even the binary search.
+ * </p>
+ */
 @SuppressWarnings("serial")
 public class RunTypePeriods extends ArrayList<RunTypePeriod> {
 
   boolean finished = false;
 
+  /**
+   * The search index of period start times
+   */
+  private transient volatile StartIndex startIndex = null;
+
   public RunTypePeriods() {
     super();
   }
@@ -50,23 +64,58 @@ public class RunTypePeriods extends ArrayList<RunTypePeriod> {
   }
 
   public boolean contains(LocalDateTime time) {
-    boolean result = false;
+    return getPeriodIndex(time) > -1;
+  }
 
-    for (RunTypePeriod period : this) {
-      if (period.encompasses(time)) {
-        result = true;
-        break;
-      }
+  public String getRunType(LocalDateTime time) {
+    int index = getPeriodIndex(time);
+    return index == -1 ? null : get(index).getRunType();
+  }
+
+  /**
+   * Get the index of the period that encompasses the specified time.
+   *
+   * @param time
+   *          The time
+   * @return The period index, or {@code -1} if no period contains the time
+   */
+  public int getPeriodIndex(LocalDateTime time) {
+    int result = -1;
+
+    int candidate = getIndex().floor(time);
+    if (candidate > -1 && get(candidate).encompasses(time)) {
+      result = candidate;
     }
 
     return result;
   }
 
-  public String getRunType(LocalDateTime time) {
-    Optional<RunTypePeriod> period = stream().filter(p -> p.encompasses(time))
-      .findAny();
+  /**
+   * Build the index of period start times. This is done automatically when
+   * needed, but can be called up front so that the index is ready before the
+   * object is shared between threads.
+   */
+  public void buildIndex() {
+    getIndex();
+  }
 
-    return period.isEmpty() ? null : period.get().getRunType();
+  /**
+   * Get a new {@link Cursor} for looking up times in ascending order
+   *
+   * @return The cursor
+   */
+  public Cursor cursor() {
+    return new Cursor();
+  }
+
+  private StartIndex getIndex() {
+    StartIndex result = startIndex;
+    if (null == result || result.modCount != modCount) {
+      result = new StartIndex();
+      startIndex = result;
+    }
+
+    return result;
   }
 
   /**
@@ -89,4 +138,111 @@ public class RunTypePeriods extends ArrayList<RunTypePeriod> {
 
     return result;
   }
+
+  /**
+   * The start times of all periods, in order
+   */
+  private class StartIndex {
+
+    /**
+     * The list modification count when the index was built
+     */
+    private final int modCount;
+
+    private final LocalDateTime[] starts;
+
+    private StartIndex() {
+      this.modCount = RunTypePeriods.this.modCount;
+      this.starts = new LocalDateTime[size()];
+      for (int i = 0; i < starts.length; i++) {
+        starts[i] = get(i).getStart();
+      }
+    }
+
+    /**
+     * Find the last period that starts at or before the specified time
+     *
+     * @param time
+     *          The time
+     * @return The period index, or {@code -1} if all periods start after the
+     *         time
+     */
+    private int floor(LocalDateTime time) {
+      int low = 0;
+      int high = starts.length - 1;
+
+      while (low <= high) {
+        int mid = (low + high) >>> 1;
+        int comparison = starts[mid].compareTo(time);
+        if (comparison == 0) {
+          return mid;
+        } else if (comparison < 0) {
+          low = mid + 1;
+        } else {
+          high = mid - 1;
+        }
+      }
+
+      return high;
+    }
+  }
+
+  /**
+   * Looks up run types for a sequence of times. Each lookup starts from the
+   * period found by the previous one, so walking through ascending times
+   * costs O(1) per lookup. Times that go backwards fall back to a binary
+   * search.
+   *
+   * <p>
+   * Cursors are not thread safe; each thread should use its own.
+   * </p>
+   */
+  public class Cursor {
+
+    private int position = 0;
+
+    private Cursor() {
+    }
+
+    /**
+     * Get the run type at the specified time.
+     *
+     * @param time
+     *          The time
+     * @return The run type, or {@code null} if no period contains the time
+     */
+    public String getRunType(LocalDateTime time) {
+      RunTypePeriod period = getPeriod(time);
+      return null == period ? null : period.getRunType();
+    }
+
+    /**
+     * Get the period that encompasses the specified time
+     *
+     * @param time
+     *          The time
+     * @return The period, or {@code null} if no period contains the time
+     */
+    public RunTypePeriod getPeriod(LocalDateTime time) {
+      RunTypePeriod result = null;
+
+      if (size() > 0) {
+        if (position >= size() || get(position).getStart().isAfter(time)) {
+          position = Math.max(0, getIndex().floor(time));
+        } else {
+          while (position + 1 < size()
+            && !get(position + 1).getStart().isAfter(time)) {
+            position++;
+          }
+        }
+
+        RunTypePeriod candidate = get(position);
+        if (candidate.encompasses(time)) {
+          result = candidate;
+        }
+      }
+
+      return result;
+    }
+  }
 }
@@ -8,7 +8,6 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Objects;
 import java.util.TreeSet;
-import java.util.function.IntPredicate;
 import java.util.stream.Collectors;
 
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
@@ -38,6 +37,12 @@ import uk.ac.exeter.QuinCe.web.datasets.plotPage.SimplePlotPageTableValue;
  * <b>NOTE: It is the user's responsibility to ensure that entries are added in
  * the correct order.</b>
  * </p>
+ * <p>
+ * Interpolation searches use an index of the nearest values in each QC flag
+ * category (see {@link QCFlagIndex}), so they do not need to walk through long
+ * runs of unusable values. The index is rebuilt whenever the list or the QC of
+ * any of its {@link SensorValue}s changes.
+ * </p>
  *
  * @author Steve Jones
  */
@@ -55,6 +60,8 @@ public class SearchableSensorValuesList extends ArrayList<SensorValue> {
 
   private List<LocalDateTime> times = null;
 
+  private volatile QCFlagIndex flagIndex = null;
+
   /**
    * Constructor for an empty list with one supported column ID
    */
@@ -130,6 +137,18 @@ public class SearchableSensorValuesList extends ArrayList<SensorValue> {
     return true;
   }
 
+  @Override
+  public SensorValue set(int index, SensorValue value) {
+    checkColumnId(value);
+    SensorValue result = super.set(index, value);
+
+    // Reset the caches
+    times = null;
+    flagIndex = null;
+
+    return result;
+  }
+
   private void checkColumnId(SensorValue value) {
     if (!columnIds.contains(value.getColumnId())) {
       throw new IllegalArgumentException("Invalid column ID");
@@ -520,69 +539,105 @@ public class SearchableSensorValuesList extends ArrayList<SensorValue> {
   }
 
   private int priorSearch(int startPoint) {
-    return search(startPoint, -1, (x) -> x > -1);
+    return search(startPoint, -1);
   }
 
   private int postSearch(int startPoint) {
-    return search(startPoint, 1, (x) -> x < size());
+    return search(startPoint, 1);
   }
 
-  private int search(int startPoint, int searchStep, IntPredicate limitTest) {
+  /**
+   * Search for the most usable value from the specified start point in the
+   * specified direction, within the interpolation limit.
+   *
+   * <p>
+   * The search stops at the first {@link Flag#GOOD} or
+   * {@link Flag#ASSUMED_GOOD} value, which is returned, or at the first
+   * {@link Flag#FLUSHING} value. If no good value is found, the closest
+   * {@link Flag#QUESTIONABLE} value before the stopping point is returned,
+   * followed by the closest {@link Flag#BAD} or {@link Flag#LOOKUP} value.
+   * </p>
+   *
+   * @param startPoint
+   *          The index to start from.
+   * @param searchStep
+   *          The search direction ({@code -1} or {@code 1}).
+   * @return The index of the found value, or {@code -1} if there is no usable
+   *         value.
+   */
+  private int search(int startPoint, int searchStep) {
 
     int result = -1;
 
-    int closestGood = -1;
-    int closestQuestionable = -1;
-    int closestBad = -1;
+    if (startPoint > -1 && startPoint < size()) {
+      QCFlagIndex index = getFlagIndex();
+      int limit = getInterpolationLimitIndex(startPoint, searchStep);
 
-    int currentIndex = startPoint;
-    mainLoop: while (limitTest.test(currentIndex)
-      && withinTimeInterpolationLimit(startPoint, currentIndex)) {
+      int stop = index.find(index.prevStop, index.nextStop, startPoint,
+        searchStep, limit);
 
-      Flag qcFlag = getQCFlag(currentIndex);
+      if (stop > -1 && getQCFlag(stop).getFlagValue() != Flag.VALUE_FLUSHING) {
+        result = stop;
+      } else {
+        // Look for non-good values before the flushing value or the limit
+        int end = stop > -1 ? stop - searchStep : limit;
 
-      switch (qcFlag.getFlagValue()) {
-      case Flag.VALUE_FLUSHING: {
-        // We stop immediately if we see a Flushing flag
-        break mainLoop;
-      }
-      case Flag.VALUE_GOOD:
-      case Flag.VALUE_ASSUMED_GOOD: {
-        closestGood = currentIndex;
-        break mainLoop;
-      }
-      case Flag.VALUE_BAD:
-      case Flag.VALUE_LOOKUP: {
-        // Only do something if we aren't looking for GOOD flags only
-        if (closestBad == -1) {
-          closestBad = currentIndex;
-        }
-        break;
-      }
-      case Flag.VALUE_QUESTIONABLE: {
-        // Only do something if we aren't looking for GOOD flags only
-        if (closestQuestionable == -1) {
-          closestQuestionable = currentIndex;
+        result = index.find(index.prevQuestionable, index.nextQuestionable,
+          startPoint, searchStep, end);
+
+        if (result == -1) {
+          result = index.find(index.prevBad, index.nextBad, startPoint,
+            searchStep, end);
         }
-        break;
-      }
-      default: {
-        // Ignore all other flags
-      }
       }
+    }
+
+    return result;
+  }
+
+  /**
+   * Find the furthest index from the start point in the specified direction
+   * that is within the interpolation limit of the start point.
+   *
+   * @param startPoint
+   *          The start point.
+   * @param searchStep
+   *          The search direction ({@code -1} or {@code 1}).
+   * @return The furthest index within the interpolation limit.
+   */
+  private int getInterpolationLimitIndex(int startPoint, int searchStep) {
+
+    // Binary search for the last index within the limit. The start point is
+    // always within the limit.
+    int inside = startPoint;
+    int outside = searchStep > 0 ? size() : -1;
 
-      currentIndex = currentIndex + searchStep;
+    while (Math.abs(outside - inside) > 1) {
+      int mid = (inside + outside) >>> 1;
+      if (withinTimeInterpolationLimit(startPoint, mid)) {
+        inside = mid;
+      } else {
+        outside = mid;
+      }
     }
 
-    if (closestGood > -1) {
-      result = closestGood;
-    } else if (closestQuestionable > -1) {
-      result = closestQuestionable;
-    } else if (closestBad > -1) {
-      result = closestBad;
+    return inside;
+  }
+
+  /**
+   * Get the QC flag index for the list, rebuilding it if the list or the QC
+   * flags of its values have changed since it was built.
+   *
+   * @return The QC flag index.
+   */
+  private QCFlagIndex getFlagIndex() {
+    QCFlagIndex index = flagIndex;
+    if (null == index || !index.isValid(this)) {
+      index = new QCFlagIndex(this);
+      flagIndex = index;
     }
 
-    return result;
+    return index;
   }
 
   /**
@@ -597,10 +652,14 @@ public class SearchableSensorValuesList extends ArrayList<SensorValue> {
     return new SensorValue(-1, -1, time, null);
   }
 
+  private static Flag getQCFlag(List<SensorValue> values, int index) {
+    SensorValue value = values.get(index);
+    return value.getUserQCFlag().equals(Flag.NEEDED) ? value.getAutoQcFlag()
+      : value.getUserQCFlag();
+  }
+
   private Flag getQCFlag(int index) {
-    return get(index).getUserQCFlag().equals(Flag.NEEDED)
-      ? get(index).getAutoQcFlag()
-      : get(index).getUserQCFlag();
+    return getQCFlag(this, index);
   }
 
   private boolean withinTimeInterpolationLimit(int startPoint, int testPoint) {
@@ -659,6 +718,224 @@ public class SearchableSensorValuesList extends ArrayList<SensorValue> {
 
     return new Double[] { min, max };
   }
+
+  /**
+   * Index of the nearest values in each QC flag category before and after each
+   * position in a {@link SearchableSensorValuesList}.
+   *
+   * <p>
+   * For each position, the index holds the position of the nearest value on or
+   * before/after it that:
+   * </p>
+   * <ul>
+   * <li>stops a search ({@link Flag#GOOD}, {@link Flag#ASSUMED_GOOD} or
+   * {@link Flag#FLUSHING})</li>
+   * <li>is {@link Flag#QUESTIONABLE}</li>
+   * <li>is {@link Flag#BAD} or {@link Flag#LOOKUP}</li>
+   * </ul>
+   * <p>
+   * A value of {@code -1} indicates that there is no such value. The index is
+   * immutable, so it can be shared between threads; it records the list's
+   * modification count and the QC version of its columns (see
+   * {@link SensorValue#getQCVersion(long, long)}) so it can be discarded when
+   * it goes out of date. Changes to the QC of values in other columns or
+   * datasets do not affect the index.
+   * </p>
+   */
+  private static class QCFlagIndex {
+
+    private static final int OTHER = 0;
+
+    private static final int STOP = 1;
+
+    private static final int QUESTIONABLE = 2;
+
+    private static final int BAD = 3;
+
+    private final int modCount;
+
+    private final long[] datasetIds;
+
+    private final long qcVersion;
+
+    private final int[] prevStop;
+
+    private final int[] nextStop;
+
+    private final int[] prevQuestionable;
+
+    private final int[] nextQuestionable;
+
+    private final int[] prevBad;
+
+    private final int[] nextBad;
+
+    private QCFlagIndex(SearchableSensorValuesList values) {
+      this.modCount = values.modCount;
+      this.datasetIds = values.stream().mapToLong(SensorValue::getDatasetId)
+        .distinct().toArray();
+
+      // Read the version before the flags so any change during the build will
+      // invalidate the index
+      this.qcVersion = getQCVersion(values);
+
+      int size = values.size();
+      prevStop = new int[size];
+      nextStop = new int[size];
+      prevQuestionable = new int[size];
+      nextQuestionable = new int[size];
+      prevBad = new int[size];
+      nextBad = new int[size];
+
+      int[] categories = new int[size];
+      for (int i = 0; i < size; i++) {
+        categories[i] = getCategory(getQCFlag(values, i));
+      }
+
+      int lastStop = -1;
+      int lastQuestionable = -1;
+      int lastBad = -1;
+
+      for (int i = 0; i < size; i++) {
+        switch (categories[i]) {
+        case STOP: {
+          lastStop = i;
+          break;
+        }
+        case QUESTIONABLE: {
+          lastQuestionable = i;
+          break;
+        }
+        case BAD: {
+          lastBad = i;
+          break;
+        }
+        default: {
+          // Ignore all other flags
+        }
+        }
+
+        prevStop[i] = lastStop;
+        prevQuestionable[i] = lastQuestionable;
+        prevBad[i] = lastBad;
+      }
+
+      lastStop = -1;
+      lastQuestionable = -1;
+      lastBad = -1;
+
+      for (int i = size - 1; i >= 0; i--) {
+        switch (categories[i]) {
+        case STOP: {
+          lastStop = i;
+          break;
+        }
+        case QUESTIONABLE: {
+          lastQuestionable = i;
+          break;
+        }
+        case BAD: {
+          lastBad = i;
+          break;
+        }
+        default: {
+          // Ignore all other flags
+        }
+        }
+
+        nextStop[i] = lastStop;
+        nextQuestionable[i] = lastQuestionable;
+        nextBad[i] = lastBad;
+      }
+    }
+
+    private static int getCategory(Flag flag) {
+      int result;
+
+      switch (flag.getFlagValue()) {
+      case Flag.VALUE_FLUSHING:
+      case Flag.VALUE_GOOD:
+      case Flag.VALUE_ASSUMED_GOOD: {
+        result = STOP;
+        break;
+      }
+      case Flag.VALUE_BAD:
+      case Flag.VALUE_LOOKUP: {
+        result = BAD;
+        break;
+      }
+      case Flag.VALUE_QUESTIONABLE: {
+        result = QUESTIONABLE;
+        break;
+      }
+      default: {
+        result = OTHER;
+      }
+      }
+
+      return result;
+    }
+
+    private boolean isValid(SearchableSensorValuesList values) {
+      return modCount == values.modCount && qcVersion == getQCVersion(values);
+    }
+
+    /**
+     * Get the combined QC version of the list's columns in each of the
+     * datasets that its values belong to. The versions only ever increase, so
+     * the total changes whenever any of them changes.
+     *
+     * @param values
+     *          The list.
+     * @return The combined QC version.
+     */
+    private long getQCVersion(SearchableSensorValuesList values) {
+      long result = 0;
+
+      for (long datasetId : datasetIds) {
+        for (long columnId : values.columnIds) {
+          result += SensorValue.getQCVersion(datasetId, columnId);
+        }
+      }
+
+      return result;
+    }
+
+    /**
+     * Find the nearest value in a category from the start point in the
+     * specified direction, up to and including the end point.
+     *
+     * @param prev
+     *          The category's previous value index.
+     * @param next
+     *          The category's next value index.
+     * @param start
+     *          The start point.
+     * @param step
+     *          The search direction ({@code -1} or {@code 1}).
+     * @param end
+     *          The end point.
+     * @return The index of the found value, or {@code -1} if there is no
+     *         matching value.
+     */
+    private int find(int[] prev, int[] next, int start, int step, int end) {
+      int result;
+
+      if (step > 0) {
+        result = next[start];
+        if (result > end) {
+          result = -1;
+        }
+      } else {
+        result = prev[start];
+        if (result < end) {
+          result = -1;
+        }
+      }
+
+      return result;
+    }
+  }
 }
 
 class SensorValueTimeComparator implements Comparator<SensorValue> {
@@ -10,6 +10,7 @@ import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.atomic.AtomicLongArray;
 
 import com.google.gson.Gson;
 
@@ -44,6 +45,35 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
    */
   public static final String MISSING_QC_COMMENT = "Missing";
 
+  /**
+   * The number of counters used to track QC changes.
+   *
+   * @see #getQCVersion(long)
+   * @see #getQCVersion(long, long)
+   */
+  private static final int QC_VERSION_COUNT = 4096;
+
+  /**
+   * Counters incremented whenever the QC of a {@link SensorValue} changes,
+   * held by dataset. Used by caches of QC state (see
+   * {@link DatasetSensorValues}) to detect that they are out of date. Several
+   * datasets share each counter, so a counter can change when the QC of
+   * another dataset changes. This only means that a cache is rebuilt when it
+   * didn't need to be.
+   */
+  private static final AtomicLongArray DATASET_QC_VERSIONS = new AtomicLongArray(
+    QC_VERSION_COUNT);
+
+  /**
+   * Counters incremented whenever the QC of a {@link SensorValue} changes,
+   * held by dataset and column. Used by caches of QC state (see
+   * {@link SearchableSensorValuesList}) to detect that they are out of date.
+   * Several columns share each counter in the same way as
+   * {@link #DATASET_QC_VERSIONS}.
+   */
+  private static final AtomicLongArray COLUMN_QC_VERSIONS = new AtomicLongArray(
+    QC_VERSION_COUNT);
+
   /**
    * The database ID of this value
    */
@@ -306,7 +336,7 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
       userQCMessage = null;
     }
 
-    dirty = true;
+    qcChanged();
   }
 
   /**
@@ -334,7 +364,38 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
       userQCMessage = autoQC.getAllMessages();
     }
 
-    dirty = true;
+    qcChanged();
+  }
+
+  /**
+   * Remove the flag set by the specified automatic QC routine, if there is one.
+   * The user QC is updated in the same way as for
+   * {@link #addAutoQCFlag(RoutineFlag)}.
+   *
+   * @param routineName
+   *          The name of the routine whose flag is to be removed
+   * @throws RoutineException
+   *           If the QC messages cannot be generated
+   */
+  public void removeAutoQCFlag(String routineName) throws RoutineException {
+
+    if (autoQC.removeIf(f -> f.getRoutineName().equals(routineName))) {
+
+      // Update the user QC if it hasn't been set by the user
+      if (userQCFlag.equals(Flag.ASSUMED_GOOD)
+        || userQCFlag.equals(Flag.NEEDED)) {
+
+        if (autoQC.isEmpty()) {
+          userQCFlag = Flag.ASSUMED_GOOD;
+          userQCMessage = null;
+        } else {
+          userQCFlag = Flag.NEEDED;
+          userQCMessage = autoQC.getAllMessages();
+        }
+      }
+
+      qcChanged();
+    }
   }
 
   /**
@@ -378,12 +439,67 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
   public void setUserQC(SensorValue source) {
     userQCFlag = source.userQCFlag;
     userQCMessage = source.userQCMessage;
+    incrementQCVersion();
   }
 
   private void setUserQCAction(Flag flag, String message) {
     userQCFlag = flag;
     userQCMessage = message;
+    qcChanged();
+  }
+
+  /**
+   * Record that this value's QC has changed, so it must be saved and any
+   * cached QC state is out of date.
+   */
+  private void qcChanged() {
     dirty = true;
+    incrementQCVersion();
+  }
+
+  private void incrementQCVersion() {
+    DATASET_QC_VERSIONS.incrementAndGet(getQCVersionIndex(datasetId));
+    COLUMN_QC_VERSIONS
+      .incrementAndGet(getQCVersionIndex(datasetId * 31 + columnId));
+  }
+
+  /**
+   * Get the current QC version for a dataset. This changes whenever the QC of
+   * a {@link SensorValue} in the dataset is changed, so a cache built from the
+   * dataset's QC flags is valid for as long as the version remains the same.
+   * Changes to other datasets do not usually change the version.
+   *
+   * @param datasetId
+   *          The dataset ID
+   * @return The QC version
+   */
+  public static long getQCVersion(long datasetId) {
+    return DATASET_QC_VERSIONS.get(getQCVersionIndex(datasetId));
+  }
+
+  /**
+   * Get the current QC version for a column in a dataset. This changes
+   * whenever the QC of a {@link SensorValue} in the column is changed, so a
+   * cache built from the column's QC flags is valid for as long as the version
+   * remains the same. Changes to other columns and datasets do not usually
+   * change the version.
+   *
+   * @param datasetId
+   *          The dataset ID
+   * @param columnId
+   *          The column ID
+   * @return The QC version
+   */
+  public static long getQCVersion(long datasetId, long columnId) {
+    return COLUMN_QC_VERSIONS
+      .get(getQCVersionIndex(datasetId * 31 + columnId));
+  }
+
+  private static int getQCVersionIndex(long key) {
+    // Fibonacci hashing of the key into the range of the counters
+    long hash = key * 0x9E3779B97F4A7C15L;
+    return (int) (hash >>> (64
+      - Integer.numberOfTrailingZeros(QC_VERSION_COUNT)));
   }
 
   /**
@@ -529,23 +645,40 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
     String result;
 
     if (userQCFlag.equals(Flag.LOOKUP)) {
-      Set<Long> sourceValues = StringUtils.delimitedToLongSet(userQCMessage);
+      result = allSensorValues.getLookupQCMessage(this);
+    } else {
+      result = flagNeeded() ? autoQC.getAllMessages() : userQCMessage;
+    }
 
-      Set<String> messages = new TreeSet<String>();
+    return result;
+  }
 
-      for (SensorValue value : allSensorValues.getById(sourceValues)) {
-        if (!(isPosition() && value.isPosition())) {
-          messages.add(value.getDisplayQCMessage(allSensorValues));
-        }
-      }
+  /**
+   * Build the QC message for a value whose QC has been cascaded from other
+   * values, by combining the messages of the source values. Callers should use
+   * {@link DatasetSensorValues#getLookupQCMessage(SensorValue)}, which caches
+   * the result.
+   *
+   * @param allSensorValues
+   *          The dataset's sensor values, containing the source values.
+   * @return The QC message.
+   * @throws RoutineException
+   *           If the source values' QC messages cannot be retrieved.
+   */
+  protected String resolveLookupQCMessage(DatasetSensorValues allSensorValues)
+    throws RoutineException {
 
-      result = StringUtils.collectionToDelimited(messages, ";");
+    Set<Long> sourceValues = StringUtils.delimitedToLongSet(userQCMessage);
 
-    } else {
-      result = flagNeeded() ? autoQC.getAllMessages() : userQCMessage;
+    Set<String> messages = new TreeSet<String>();
+
+    for (SensorValue value : allSensorValues.getById(sourceValues)) {
+      if (!(isPosition() && value.isPosition())) {
+        messages.add(value.getDisplayQCMessage(allSensorValues));
+      }
     }
 
-    return result;
+    return StringUtils.collectionToDelimited(messages, ";");
   }
 
   public boolean flagNeeded() {
@@ -792,7 +925,7 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
     sources.add(source.getId());
     userQCFlag = Flag.LOOKUP;
     userQCMessage = StringUtils.collectionToDelimited(sources, ",");
-    dirty = true;
+    qcChanged();
   }
 
   public void setCascadingQC(PlotPageTableValue source) {
@@ -804,7 +937,7 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
 
     userQCFlag = Flag.LOOKUP;
     userQCMessage = StringUtils.collectionToDelimited(sources, ",");
-    dirty = true;
+    qcChanged();
   }
 
   /**
@@ -845,7 +978,7 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
         userQCMessage = StringUtils.collectionToDelimited(sources, ",");
       }
 
-      dirty = true;
+      qcChanged();
     }
   }
 
@@ -870,7 +1003,7 @@ public class SensorValue implements Comparable<SensorValue>, Cloneable {
         userQCMessage = StringUtils.collectionToDelimited(sources, ",");
       }
 
-      dirty = true;
+      qcChanged();
     }
   }
 
@@ -9,7 +9,6 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorAssignment;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorTypeNotFoundException;
 import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration;
-import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 public class XCO2MeasurementValueCalculator extends MeasurementValueCalculator {
 
@@ -17,10 +16,8 @@ public class XCO2MeasurementValueCalculator extends MeasurementValueCalculator {
 
   private final SensorType xh2oSensorType;
 
-  public XCO2MeasurementValueCalculator() throws SensorTypeNotFoundException {
-    SensorsConfiguration sensorConfig = ResourceManager.getInstance()
-      .getSensorsConfiguration();
-
+  public XCO2MeasurementValueCalculator(SensorsConfiguration sensorConfig)
+    throws SensorTypeNotFoundException {
     this.xco2SensorType = sensorConfig.getSensorType("xCO₂ (with standards)");
     this.xh2oSensorType = sensorConfig.getSensorType("xH₂O (with standards)");
   }
@@ -4,11 +4,11 @@ import java.lang.reflect.Constructor;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
 
 import javax.sql.DataSource;
 
-import org.apache.commons.lang3.math.NumberUtils;
-
 import uk.ac.exeter.QuinCe.data.Dataset.ColumnHeading;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
@@ -47,6 +47,15 @@ public class ExportOption {
    */
   private String separator;
 
+  /**
+   * Pattern matching the characters that must be replaced in text values. Only
+   * used if the separator is more than one character long; otherwise the
+   * values are scanned directly.
+   *
+   * @see #sanitise(String, StringBuilder)
+   */
+  private Pattern sanitisePattern = null;
+
   /**
    * The string to put in files where a value is missing
    */
@@ -163,6 +172,11 @@ public class ExportOption {
     this.separator = separator;
     this.variables = variables;
 
+    if (separator.length() != 1) {
+      sanitisePattern = Pattern
+        .compile("[\\r\\n]|" + Pattern.quote(separator));
+    }
+
     try {
       this.dataClass = (Class<? extends ExportData>) Class
         .forName(DEFAULT_EXPORT_DATA_CLASS);
@@ -414,29 +428,77 @@ public class ExportOption {
    * Format a field value to fit the export format.
    *
    * <p>
-   * Newlines are replaced with semicolons. Instances of the separator are
-   * replaced with spaces.
+   * Numeric values are formatted to three decimal places. In other values,
+   * newlines and instances of the separator are replaced with spaces.
    * </p>
    *
    * @param fieldValue
-   * @return
+   *          The value.
+   * @return The formatted value.
    */
   public String format(String fieldValue) {
     String result = null;
 
-    if (null == fieldValue) {
-      result = fieldValue;
-    } else if (NumberUtils.isCreatable(fieldValue)) {
-      result = StringUtils.formatNumber(fieldValue);
-    } else {
-      String newlinesRemoved = fieldValue.replaceAll("[\\r\\n]", " ");
-      String separatorsRemoved = newlinesRemoved.replaceAll(separator, " ");
-      return separatorsRemoved;
+    if (null != fieldValue) {
+      StringBuilder formatted = new StringBuilder(fieldValue.length() + 4);
+      format(fieldValue, formatted);
+      result = formatted.toString();
     }
 
     return result;
   }
 
+  /**
+   * Format a field value to fit the export format, appending it directly to
+   * the specified output.
+   *
+   * <p>
+   * This produces the same output as {@link #format(String)} without creating
+   * any intermediate strings. {@code null} values are not written.
+   * </p>
+   *
+   * @param fieldValue
+   *          The value.
+   * @param out
+   *          The output.
+   */
+  public void format(String fieldValue, StringBuilder out) {
+    if (null != fieldValue && !StringUtils.formatNumber(fieldValue, out)) {
+      sanitise(fieldValue, out);
+    }
+  }
+
+  /**
+   * Append a text value to the output, replacing newlines and instances of the
+   * separator with spaces.
+   *
+   * @param value
+   *          The value.
+   * @param out
+   *          The output.
+   */
+  private void sanitise(String value, StringBuilder out) {
+    if (null == sanitisePattern) {
+      char separatorChar = separator.charAt(0);
+      for (int i = 0; i < value.length(); i++) {
+        char c = value.charAt(i);
+        if (c == '\r' || c == '\n' || c == separatorChar) {
+          out.append(' ');
+        } else {
+          out.append(c);
+        }
+      }
+    } else {
+      Matcher matcher = sanitisePattern.matcher(value);
+      int last = 0;
+      while (matcher.find()) {
+        out.append(value, last, matcher.start()).append(' ');
+        last = matcher.end();
+      }
+      out.append(value, last, value.length());
+    }
+  }
+
   /**
    * Determine whether or not a header should be excluded from the export.
    *
@@ -18,6 +18,7 @@ import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
 import uk.ac.exeter.QuinCe.data.Instrument.FileDefinitionException;
 import uk.ac.exeter.QuinCe.data.Instrument.MissingRunTypeException;
 import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeColumnAssignment;
+import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeParsingPlan;
 import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeSpecification;
 import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.DateTimeSpecificationException;
 import uk.ac.exeter.QuinCe.data.Instrument.DataFormats.MissingDateTimeException;
@@ -331,13 +332,16 @@ public class DataFile {
       // IGNORED)
       // (c) The Run Type is recognised
 
+      DateTimeParsingPlan dateTimeParser = fileDefinition
+        .getDateTimeSpecification().getParsingPlan();
+
       LocalDateTime lastDateTime = null;
       for (int lineNumber = firstDataLine; lineNumber < getContentLineCount(); lineNumber++) {
         String line = contents.get(lineNumber);
 
         try {
-          LocalDateTime dateTime = fileDefinition.getDateTimeSpecification()
-            .getDateTime(headerDate, fileDefinition.extractFields(line));
+          LocalDateTime dateTime = dateTimeParser.getDateTime(headerDate,
+            fileDefinition.extractFields(line));
           if (null != lastDateTime) {
             if (dateTime.compareTo(lastDateTime) <= 0) {
               addMessage(lineNumber, "Date/Time is not monotonic");
@@ -578,8 +582,8 @@ public class DataFile {
   public LocalDateTime getRawTime(List<String> line)
     throws DateTimeSpecificationException, MissingDateTimeException {
 
-    return fileDefinition.getDateTimeSpecification().getDateTime(headerDate,
-      line);
+    return fileDefinition.getDateTimeSpecification().getParsingPlan()
+      .getDateTime(headerDate, line);
   }
 
   /**
@@ -639,6 +643,34 @@ public class DataFile {
     return fileDefinition.getLatitudeSpecification().getValue(line);
   }
 
+  /**
+   * Get the full-precision longitude from a line. Returns {@link Double#NaN}
+   * if the longitude is missing.
+   *
+   * @param line
+   *          The line
+   * @return The longitude
+   * @throws PositionException
+   *           If the longitude is invalid
+   */
+  public double getLongitudeValue(List<String> line) throws PositionException {
+    return fileDefinition.getLongitudeSpecification().getDoubleValue(line);
+  }
+
+  /**
+   * Get the full-precision latitude from a line. Returns {@link Double#NaN} if
+   * the latitude is missing.
+   *
+   * @param line
+   *          The line
+   * @return The latitude
+   * @throws PositionException
+   *           If the latitude is invalid
+   */
+  public double getLatitudeValue(List<String> line) throws PositionException {
+    return fileDefinition.getLatitudeSpecification().getDoubleValue(line);
+  }
+
   /**
    * Get a {@link Double} value from a field.
    * <p>
@@ -1,5 +1,6 @@
 package uk.ac.exeter.QuinCe.data.Files;
 
+import java.io.File;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -10,6 +11,7 @@ import java.time.ZoneOffset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -54,7 +56,7 @@ public class DataFileDB {
   /**
    * Statement to add a data file to the database
    *
-   * @see #storeNewFile(DataSource, Properties, DataFile)
+   * @see #storeNewFile(Connection, Properties, DataFile, Map)
    */
   private static final String ADD_FILE_STATEMENT = "INSERT INTO data_file "
     + "(file_definition_id, filename, start_date, end_date, record_count, properties) "
@@ -63,7 +65,7 @@ public class DataFileDB {
   /**
    * Statement to add a data file to the database
    *
-   * @see #replaceFile(DataSource, Properties, DataFile, long)
+   * @see #replaceFile(Connection, Properties, DataFile, long, Map)
    */
   private static final String REPLACE_FILE_STATEMENT = "UPDATE data_file "
     + "SET filename = ?, start_date = ?, end_date = ?, record_count = ?, properties = ? "
@@ -186,57 +188,147 @@ public class DataFileDB {
    *           If an error occurs while storing the file
    * @throws RecordNotFoundException
    * @see #ADD_FILE_STATEMENT
-   * @see FileStore#storeFile(String, DataFile)
+   * @see #storeFiles(DataSource, Properties, Map)
    */
   public static void storeFile(DataSource dataSource, Properties appConfig,
     DataFile dataFile, long replacementId) throws MissingParamException,
     FileExistsException, DatabaseException, RecordNotFoundException {
 
+    MissingParam.checkMissing(dataFile, "dataFile");
+
+    Map<DataFile, Long> dataFiles = new HashMap<DataFile, Long>();
+    dataFiles.put(dataFile, replacementId);
+    storeFiles(dataSource, appConfig, dataFiles);
+  }
+
+  /**
+   * Store a set of files in the database and in the file store in a single
+   * transaction. If any file cannot be stored, none of the files are stored.
+   *
+   * <p>
+   * Each file is mapped to the database ID of the existing file that it
+   * replaces, or {@code -1} if it is a new file. Files are stored in the
+   * iteration order of the map.
+   * </p>
+   *
+   * <p>
+   * The files are written to staging files in the file store while the
+   * database records are written, and are only moved into place once the
+   * transaction has been committed. If the transaction is rolled back, the
+   * staging files are removed and the file store is left unchanged.
+   * </p>
+   *
+   * @param dataSource
+   *          A data source
+   * @param appConfig
+   *          The application configuration
+   * @param dataFiles
+   *          The data files and the IDs of the files they replace
+   * @throws MissingParamException
+   *           If any of the parameters are missing
+   * @throws FileExistsException
+   *           If any of the files already exists in the system
+   * @throws DatabaseException
+   *           If an error occurs while storing the files
+   * @throws RecordNotFoundException
+   *           If a file to be replaced does not exist
+   * @see FileStore#stageFile(String, DataFile)
+   */
+  public static void storeFiles(DataSource dataSource, Properties appConfig,
+    Map<DataFile, Long> dataFiles) throws MissingParamException,
+    FileExistsException, DatabaseException, RecordNotFoundException {
+
     MissingParam.checkMissing(dataSource, "dataSource");
     MissingParam.checkMissing(appConfig, "appConfig");
-    MissingParam.checkMissing(dataFile, "dataFile");
+    MissingParam.checkMissing(dataFiles, "dataFiles", true);
+
+    String fileStore = appConfig.getProperty("filestore");
+
+    // The staged copy of each file that is to be written
+    Map<DataFile, File> stagedFiles = new LinkedHashMap<DataFile, File>();
 
     Connection conn = null;
 
     try {
       conn = dataSource.getConnection();
+      conn.setAutoCommit(false);
 
-      if (replacementId > -1) {
-        if (!fileExists(conn, replacementId)) {
-          throw new RecordNotFoundException(
-            "Tried to replace a file that doesn't exist (id " + replacementId
-              + ")");
-        }
+      for (Map.Entry<DataFile, Long> entry : dataFiles.entrySet()) {
+        DataFile dataFile = entry.getKey();
+        long replacementId = entry.getValue();
 
-        replaceFile(conn, appConfig, dataFile, replacementId);
-      } else {
-        storeNewFile(conn, appConfig, dataFile);
+        if (replacementId > -1) {
+          if (!fileExists(conn, replacementId)) {
+            throw new RecordNotFoundException(
+              "Tried to replace a file that doesn't exist (id "
+                + replacementId + ")");
+          }
+
+          replaceFile(conn, appConfig, dataFile, replacementId, stagedFiles);
+        } else {
+          storeNewFile(conn, appConfig, dataFile, stagedFiles);
+        }
       }
+
+      conn.commit();
     } catch (SQLException e) {
-      throw new DatabaseException("Error while storing file", e);
+      DatabaseUtils.rollBack(conn);
+      discardStagedFiles(stagedFiles);
+      throw new DatabaseException("Error while storing files", e);
+    } catch (FileExistsException | RecordNotFoundException
+      | DatabaseException e) {
+      DatabaseUtils.rollBack(conn);
+      discardStagedFiles(stagedFiles);
+      throw e;
     } finally {
       DatabaseUtils.closeConnection(conn);
     }
+
+    // Now the database records are committed, the files can be moved into
+    // place
+    try {
+      for (Map.Entry<DataFile, File> staged : stagedFiles.entrySet()) {
+        FileStore.commitFile(fileStore, staged.getKey(), staged.getValue());
+      }
+    } catch (FileStoreException e) {
+      discardStagedFiles(stagedFiles);
+      throw new DatabaseException("Error while storing files", e);
+    }
   }
 
   /**
-   * Store a file in the database and in the file store
+   * Remove all the staged files created while storing a set of files.
    *
-   * @param dataSource
-   *          A data source
+   * @param stagedFiles
+   *          The staged files
+   */
+  private static void discardStagedFiles(Map<DataFile, File> stagedFiles) {
+    stagedFiles.values().forEach(FileStore::discardFile);
+  }
+
+  /**
+   * Add a new file to the database and stage its contents in the file store.
+   * The caller must commit the transaction and then move the staged file into
+   * place.
+   *
+   * @param conn
+   *          A database connection
    * @param appConfig
    *          The application configuration
    * @param dataFile
    *          The data file
+   * @param stagedFiles
+   *          The staged files, to which the new file's staged copy is added
    * @throws FileExistsException
    *           If the file already exists in the system
    * @throws DatabaseException
    *           If an error occurs while storing the file
    * @see #ADD_FILE_STATEMENT
-   * @see FileStore#storeFile(String, DataFile)
+   * @see FileStore#stageFile(String, DataFile)
    */
   private static void storeNewFile(Connection conn, Properties appConfig,
-    DataFile dataFile) throws DatabaseException, FileExistsException {
+    DataFile dataFile, Map<DataFile, File> stagedFiles)
+    throws DatabaseException, FileExistsException {
 
     PreparedStatement stmt = null;
     ResultSet generatedKeys = null;
@@ -249,12 +341,6 @@ public class DataFileDB {
           dataFile.getRawStartTime(), dataFile.getRawEndTime());
       }
 
-      boolean initialAutoCommit = conn.getAutoCommit();
-
-      if (initialAutoCommit) {
-        conn.setAutoCommit(false);
-      }
-
       stmt = conn.prepareStatement(ADD_FILE_STATEMENT,
         Statement.RETURN_GENERATED_KEYS);
       stmt.setLong(1, dataFile.getFileDefinition().getDatabaseId());
@@ -271,24 +357,13 @@ public class DataFileDB {
 
         dataFile.setDatabaseId(generatedKeys.getLong(1));
 
-        // Store the file
-        FileStore.storeFile(appConfig.getProperty("filestore"), dataFile);
-
-        conn.commit();
-      }
-
-      if (initialAutoCommit) {
-        conn.setAutoCommit(true);
+        // Stage the file
+        stagedFiles.put(dataFile,
+          FileStore.stageFile(appConfig.getProperty("filestore"), dataFile));
       }
     } catch (FileExistsException e) {
       throw e;
     } catch (Exception e) {
-      try {
-        DatabaseUtils.rollBack(conn);
-      } catch (Exception e2) {
-        // Do nothing
-      }
-
       throw new DatabaseException("An error occurred while storing the file",
         e);
     } finally {
@@ -298,48 +373,46 @@ public class DataFileDB {
   }
 
   /**
-   * Store a file in the database and in the file store
+   * Update an existing file in the database and stage its new contents in the
+   * file store. The caller must commit the transaction and then move the
+   * staged file into place, replacing the old file.
    *
-   * @param dataSource
-   *          A data source
+   * <p>
+   * If the new file is identical to the existing file, nothing is changed.
+   * </p>
+   *
+   * @param conn
+   *          A database connection
    * @param appConfig
    *          The application configuration
    * @param dataFile
    *          The data file
-   * @throws FileExistsException
-   *           If the file already exists in the system
+   * @param replacementId
+   *          The database ID of the file being replaced
+   * @param stagedFiles
+   *          The staged files, to which the new file's staged copy is added
    * @throws DatabaseException
    *           If an error occurs while storing the file
-   * @see #ADD_FILE_STATEMENT
-   * @see FileStore#storeFile(String, DataFile)
+   * @see #REPLACE_FILE_STATEMENT
+   * @see FileStore#stageFile(String, DataFile)
    */
   private static void replaceFile(Connection conn, Properties appConfig,
-    DataFile dataFile, long replacementId)
-    throws DatabaseException, FileExistsException {
+    DataFile dataFile, long replacementId, Map<DataFile, File> stagedFiles)
+    throws DatabaseException {
 
     PreparedStatement stmt = null;
 
     try {
-      boolean storeFile = true;
-
-      if (replacementId > -1) {
-        // Get the existing file. If it's identical to the current file,
-        // we don't need to do anything
-        List<Long> idList = new ArrayList<Long>(1);
-        idList.add(replacementId);
-        DataFile fileToReplace = getDataFiles(conn, appConfig, idList).get(0);
-
-        byte[] existingFile = fileToReplace.getBytes();
-        byte[] newFile = dataFile.getContents().getBytes();
-        storeFile = !Arrays.equals(existingFile, newFile);
-      }
+      // Get the existing file. If it's identical to the current file,
+      // we don't need to do anything
+      List<Long> idList = new ArrayList<Long>(1);
+      idList.add(replacementId);
+      DataFile fileToReplace = getDataFiles(conn, appConfig, idList).get(0);
 
-      if (storeFile) {
-        boolean initialAutoCommit = conn.getAutoCommit();
+      byte[] existingFile = fileToReplace.getBytes();
+      byte[] newFile = dataFile.getContents().getBytes();
 
-        if (initialAutoCommit) {
-          conn.setAutoCommit(false);
-        }
+      if (!Arrays.equals(existingFile, newFile)) {
         stmt = conn.prepareStatement(REPLACE_FILE_STATEMENT);
         stmt.setString(1, dataFile.getFilename());
         stmt.setLong(2, DateTimeUtils.dateToLong(dataFile.getRawStartTime()));
@@ -353,27 +426,16 @@ public class DataFileDB {
         // Set the database ID on the file now the replacement has succeeded
         dataFile.setDatabaseId(replacementId);
 
-        // Store the file - automatically replaces the old one
-        FileStore.storeFile(appConfig.getProperty("filestore"), dataFile);
-
-        conn.commit();
-
-        if (initialAutoCommit) {
-          conn.setAutoCommit(true);
-        }
+        // Stage the file - it replaces the old one when it is moved into
+        // place
+        stagedFiles.put(dataFile,
+          FileStore.stageFile(appConfig.getProperty("filestore"), dataFile));
       }
     } catch (Exception e) {
-      try {
-        DatabaseUtils.rollBack(conn);
-      } catch (Exception e2) {
-        // Do nothing
-      }
-
       throw new DatabaseException("An error occurred while storing the file",
         e);
     } finally {
       DatabaseUtils.closeStatements(stmt);
-      DatabaseUtils.closeConnection(conn);
     }
   }
 
@@ -5,6 +5,8 @@ import java.io.FileInputStream;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Properties;
 
 import javax.sql.DataSource;
@@ -26,19 +28,33 @@ import uk.ac.exeter.QuinCe.utils.MissingParamException;
 public class FileStore {
 
   /**
-   * Store a file in the file store. This will overwrite any existing file.
+   * The suffix added to a file's ID to make the prefix of its staging file
+   */
+  private static final String STAGED_FILE_SUFFIX = ".staged.";
+
+  /**
+   * Write a file's contents to a staging file in the file store. The file is
+   * not visible in the file store until it is moved into place with
+   * {@link #commitFile(String, DataFile, File)}; if it is not needed it must be
+   * removed with {@link #discardFile(File)}.
+   *
+   * <p>
+   * The staging file is written in the same directory as the final file so
+   * that it can be moved into place atomically.
+   * </p>
    *
    * @param fileStore
    *          The location of the file store
    * @param dataFile
    *          The data file
+   * @return The staging file
    * @throws MissingParamException
    *           If any of the parameters are missing
    * @throws FileStoreException
-   *           If an error occurs while storing the file
-   * @see DataFileDB#storeFile(DataSource, Properties, DataFile)
+   *           If an error occurs while writing the file
+   * @see DataFileDB#storeFiles(DataSource, Properties, java.util.Map)
    */
-  protected static void storeFile(String fileStore, DataFile dataFile)
+  protected static File stageFile(String fileStore, DataFile dataFile)
     throws MissingParamException, FileStoreException {
 
     MissingParam.checkMissing(fileStore, "fileStore");
@@ -48,13 +64,12 @@ public class FileStore {
     File file = null;
 
     try {
-      checkInstrumentDirectory(fileStore,
-        dataFile.getFileDefinition().getDatabaseId());
+      long fileDefinitionId = dataFile.getFileDefinition().getDatabaseId();
+      checkInstrumentDirectory(fileStore, fileDefinitionId);
 
-      file = getFileObject(fileStore, dataFile);
-      if (file.exists()) {
-        file.delete();
-      }
+      file = File.createTempFile(
+        dataFile.getDatabaseId() + STAGED_FILE_SUFFIX, null,
+        new File(getStorageDirectory(fileStore, fileDefinitionId)));
 
       fileWriter = new FileWriter(file);
       fileWriter.write(dataFile.getContents());
@@ -68,6 +83,45 @@ public class FileStore {
       throw new FileStoreException("An error occurred while storing the file",
         e);
     }
+
+    return file;
+  }
+
+  /**
+   * Move a staged file into place in the file store, overwriting any existing
+   * file.
+   *
+   * @param fileStore
+   *          The location of the file store
+   * @param dataFile
+   *          The data file
+   * @param stagedFile
+   *          The staging file created by {@link #stageFile(String, DataFile)}
+   * @throws FileStoreException
+   *           If the file cannot be moved into place
+   */
+  protected static void commitFile(String fileStore, DataFile dataFile,
+    File stagedFile) throws FileStoreException {
+
+    try {
+      Files.move(stagedFile.toPath(),
+        getFileObject(fileStore, dataFile).toPath(),
+        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      throw new FileStoreException("An error occurred while storing the file",
+        e);
+    }
+  }
+
+  /**
+   * Remove a staged file that is no longer needed. If the file has already
+   * been moved into place, no action is taken.
+   *
+   * @param stagedFile
+   *          The staging file
+   */
+  protected static void discardFile(File stagedFile) {
+    deleteFile(stagedFile);
   }
 
   /**
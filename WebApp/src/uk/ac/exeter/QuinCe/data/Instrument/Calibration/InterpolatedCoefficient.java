@@ -0,0 +1,117 @@
+package uk.ac.exeter.QuinCe.data.Instrument.Calibration;
+
+/**
+ * A {@link CalculationCoefficient} that is linearly interpolated between its
+ * prior and post calibrations according to another coefficient (typically a
+ * sensor's run time).
+ *
+ * <p>
+ * The interpolation line is computed once when the object is created, so
+ * evaluating it for each measurement is a single fused multiply-add. If only
+ * one of the prior or post calibrations is available, its value is used
+ * unchanged for all measurements, matching
+ * {@link CalculationCoefficient#interpolateBigDecimal}.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class InterpolatedCoefficient {
+
+  /**
+   * The x value of the prior calibration.
+   */
+  private final double x0;
+
+  /**
+   * The y value at {@link #x0}.
+   */
+  private final double y0;
+
+  /**
+   * The slope of the interpolation line.
+   */
+  private final double slope;
+
+  private InterpolatedCoefficient(double x0, double y0, double slope) {
+    this.x0 = x0;
+    this.y0 = y0;
+    this.slope = slope;
+  }
+
+  /**
+   * Build the interpolation for a coefficient.
+   *
+   * @param x0
+   *          The x coefficient of the prior calibration.
+   * @param y0
+   *          The y coefficient of the prior calibration.
+   * @param x1
+   *          The x coefficient of the post calibration.
+   * @param y1
+   *          The y coefficient of the post calibration.
+   * @return The interpolated coefficient.
+   * @throws CalibrationException
+   *           If neither calibration is available.
+   */
+  public static InterpolatedCoefficient getInstance(CalculationCoefficient x0,
+    CalculationCoefficient y0, CalculationCoefficient x1,
+    CalculationCoefficient y1) throws CalibrationException {
+
+    return getInstance(null == x0 ? null : x0.getValue(),
+      null == y0 ? null : y0.getValue(), null == x1 ? null : x1.getValue(),
+      null == y1 ? null : y1.getValue());
+  }
+
+  /**
+   * Build the interpolation for a coefficient from raw values.
+   *
+   * @param x0
+   *          The prior x value.
+   * @param y0
+   *          The prior y value.
+   * @param x1
+   *          The post x value.
+   * @param y1
+   *          The post y value.
+   * @return The interpolated coefficient.
+   * @throws CalibrationException
+   *           If neither the prior nor the post values are available.
+   */
+  public static InterpolatedCoefficient getInstance(Double x0, Double y0,
+    Double x1, Double y1) throws CalibrationException {
+
+    boolean priorNull = null == x0 || null == y0;
+    boolean postNull = null == x1 || null == y1;
+
+    InterpolatedCoefficient result;
+
+    if (!priorNull && !postNull) {
+      if (x0.equals(x1)) {
+        result = new InterpolatedCoefficient(0D, y0, 0D);
+      } else {
+        result = new InterpolatedCoefficient(x0, y0, (y1 - y0) / (x1 - x0));
+      }
+    } else if (!priorNull) {
+      result = new InterpolatedCoefficient(0D, y0, 0D);
+    } else if (!postNull) {
+      result = new InterpolatedCoefficient(0D, y1, 0D);
+    } else {
+      throw new CalibrationException(
+        "No calibrations available for interpolation");
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the value of the coefficient at the specified x value.
+   *
+   * @param x
+   *          The x value.
+   * @return The interpolated coefficient.
+   */
+  public double valueAt(double x) {
+    return Math.fma(slope, x - x0, y0);
+  }
+}
@@ -9,41 +9,51 @@ public class DDDMMmmmParser extends HDMParser {
 
   private static final int MINUTES = 2;
 
-  private boolean hasHemisphere;
+  private static final Pattern HEMISPHERE_PATTERN = Pattern
+    .compile("([\\d]*)(\\d\\d\\.[\\d]*)");
+
+  private static final Pattern SIGNED_PATTERN = Pattern
+    .compile("([-\\d]*)(\\d\\d\\.[\\d]*)");
+
+  private final boolean hasHemisphere;
+
+  private final Pattern pattern;
 
   protected DDDMMmmmParser() {
     super();
     hasHemisphere = false;
+    pattern = SIGNED_PATTERN;
   }
 
   protected DDDMMmmmParser(HemisphereMultiplier hemisphereMultiplier) {
     super(hemisphereMultiplier);
     hasHemisphere = true;
+    pattern = HEMISPHERE_PATTERN;
   }
 
   @Override
-  protected void parseAction(String value) throws PositionParseException {
+  protected HDMValue parseAction(String value) throws PositionParseException {
 
-    String pattern;
+    Matcher matcher = pattern.matcher(value);
 
-    if (hasHemisphere) {
-      pattern = "([\\d]*)(\\d\\d\\.[\\d]*)";
-    } else {
-      pattern = "([-\\d]*)(\\d\\d\\.[\\d]*)";
+    if (!matcher.matches()) {
+      throw new PositionParseException(value);
     }
 
-    Pattern p = Pattern.compile(pattern);
-    Matcher matcher = p.matcher(value);
+    int degrees;
+    double minutes;
 
-    if (!matcher.matches()) {
+    try {
+      degrees = Integer.parseInt(matcher.group(DEGREES));
+      minutes = Double.parseDouble(matcher.group(MINUTES));
+    } catch (NumberFormatException e) {
       throw new PositionParseException(value);
     }
 
-    degrees = Integer.parseInt(matcher.group(DEGREES));
-    minutes = Double.parseDouble(matcher.group(MINUTES));
-
     if (hasHemisphere && degrees < 0) {
       throw new PositionParseException(value);
     }
+
+    return new HDMValue(null, degrees, minutes);
   }
 }
@@ -17,7 +17,10 @@ import java.util.Properties;
  */
 public class DateTimeColumnAssignment {
 
-  private static final String ISO_FORMAT = "ISO";
+  /**
+   * Format string for ISO offset date/times
+   */
+  static final String ISO_FORMAT = "ISO";
 
   /**
    * Properties key for format strings
@@ -0,0 +1,1184 @@
+package uk.ac.exeter.QuinCe.data.Instrument.DataFormats;
+
+import java.time.DateTimeException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import uk.ac.exeter.QuinCe.data.Files.DataFile;
+import uk.ac.exeter.QuinCe.data.Files.ValueNotNumericException;
+import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
+
+/**
+ * A compiled, immutable form of a {@link DateTimeSpecification} used to
+ * extract timestamps from the lines of a data file.
+ *
+ * <p>
+ * The specification's assignments are resolved once when the plan is built:
+ * the parsing mode is fixed, column indices are copied and the
+ * {@link DateTimeFormatter}s are created up front. Common fixed-width layouts
+ * (ISO offset date/times, {@code yyyy-MM-dd HH:mm:ss[.S*]},
+ * {@code yyyy-MM-dd}, {@code HH:mm:ss[.S*]} and UNIX times) are parsed by hand;
+ * any value the fast parsers cannot handle is passed to the formatter, so the
+ * results and error messages are the same as for the general case.
+ * </p>
+ *
+ * <p>
+ * Plans hold no mutable parsing state and can be shared between threads.
+ * </p>
+ *
+ * @author Steve Jones
+ * @see DateTimeSpecification#getParsingPlan()
+ */
+public final class DateTimeParsingPlan {
+
+  /**
+   * The number of parse errors whose stack traces are printed in full by each
+   * plan
+   */
+  private static final long ERROR_REPORT_LIMIT = 10;
+
+  /**
+   * Once {@link #ERROR_REPORT_LIMIT} has been reached, a summary line is
+   * printed every time this many further errors have occurred
+   */
+  private static final long ERROR_REPORT_INTERVAL = 10000;
+
+  /**
+   * Mode for timestamps calculated from the file header date
+   */
+  private static final int MODE_HOURS_FROM_START = 0;
+
+  /**
+   * Mode for a single date/time column
+   */
+  private static final int MODE_DATE_TIME = 1;
+
+  /**
+   * Mode for UNIX times
+   */
+  private static final int MODE_UNIX = 2;
+
+  /**
+   * Mode for a year plus a Julian day with decimal time
+   */
+  private static final int MODE_JDAY_TIME = 3;
+
+  /**
+   * Mode for separate date and time values
+   */
+  private static final int MODE_SEPARATE = 4;
+
+  /**
+   * Date part is a single date string
+   */
+  private static final int DATE_STRING = 0;
+
+  /**
+   * Date part is a year and Julian day
+   */
+  private static final int DATE_YEAR_JDAY = 1;
+
+  /**
+   * Date part is separate year, month and day fields
+   */
+  private static final int DATE_YMD = 2;
+
+  /**
+   * The value does not have a hand-rolled parser
+   */
+  private static final int LAYOUT_NONE = 0;
+
+  /**
+   * ISO offset date/time, e.g. {@code 2020-01-01T12:00:00Z}
+   */
+  private static final int LAYOUT_ISO = 1;
+
+  /**
+   * {@code yyyy-MM-dd HH:mm:ss} or {@code yyyy-MM-dd'T'HH:mm:ss}, optionally
+   * with fractional seconds
+   */
+  private static final int LAYOUT_YMD_HMS = 2;
+
+  /**
+   * {@code yyyy-MM-dd}
+   */
+  private static final int LAYOUT_YMD = 3;
+
+  /**
+   * {@code HH:mm:ss}, optionally with fractional seconds
+   */
+  private static final int LAYOUT_HMS = 4;
+
+  /**
+   * Multipliers to convert fractional second digits to nanoseconds, indexed
+   * by the number of digits
+   */
+  private static final int[] NANO_MULTIPLIERS = { 0, 100000000, 10000000,
+    1000000, 100000, 10000, 1000, 100, 10, 1 };
+
+  /**
+   * The parsing mode
+   */
+  private final int mode;
+
+  /**
+   * The way the date is extracted in {@link #MODE_SEPARATE}
+   */
+  private final int dateMode;
+
+  /**
+   * Indicates whether the time is a single string in {@link #MODE_SEPARATE}
+   */
+  private final boolean timeString;
+
+  /**
+   * The column for the primary value of the plan, i.e. the date/time, UNIX
+   * time, hours from start or Julian day/time
+   */
+  private final int mainColumn;
+
+  private final int dateColumn;
+
+  private final int timeColumn;
+
+  private final int yearColumn;
+
+  private final int monthColumn;
+
+  private final int dayColumn;
+
+  private final int jdayColumn;
+
+  private final int hourColumn;
+
+  private final int minuteColumn;
+
+  private final int secondColumn;
+
+  /**
+   * The formatter for the date/time or date column
+   */
+  private final DateTimeFormatter formatter;
+
+  /**
+   * The formatter for the time column
+   */
+  private final DateTimeFormatter timeFormatter;
+
+  /**
+   * The fast layout for the date/time or date column
+   */
+  private final int layout;
+
+  /**
+   * The fast layout for the time column
+   */
+  private final int timeLayout;
+
+  /**
+   * The separator between the date and time for {@link #LAYOUT_YMD_HMS}
+   */
+  private final char dateTimeSeparator;
+
+  /**
+   * Indicates whether the fast layouts may contain fractional seconds
+   */
+  private final boolean fractionAllowed;
+
+  /**
+   * Indicates whether the time column may contain fractional seconds
+   */
+  private final boolean timeFractionAllowed;
+
+  /**
+   * The number of parse errors encountered by this plan
+   */
+  private final AtomicLong errorCount = new AtomicLong(0);
+
+  /**
+   * Compile a plan from a date/time specification
+   *
+   * @param spec
+   *          The specification
+   */
+  DateTimeParsingPlan(DateTimeSpecification spec) {
+
+    String mainFormat = null;
+    String timeFormat = null;
+
+    mainColumn = getColumn(spec, selectMainAssignment(spec));
+    dateColumn = getColumn(spec, DateTimeSpecification.DATE);
+    timeColumn = getColumn(spec, DateTimeSpecification.TIME);
+    yearColumn = getColumn(spec, DateTimeSpecification.YEAR);
+    monthColumn = getColumn(spec, DateTimeSpecification.MONTH);
+    dayColumn = getColumn(spec, DateTimeSpecification.DAY);
+    jdayColumn = getColumn(spec, DateTimeSpecification.JDAY);
+    hourColumn = getColumn(spec, DateTimeSpecification.HOUR);
+    minuteColumn = getColumn(spec, DateTimeSpecification.MINUTE);
+    secondColumn = getColumn(spec, DateTimeSpecification.SECOND);
+
+    if (spec.isAssigned(DateTimeSpecification.HOURS_FROM_START)) {
+      mode = MODE_HOURS_FROM_START;
+      dateMode = DATE_STRING;
+      timeString = false;
+    } else if (spec.isAssigned(DateTimeSpecification.DATE_TIME)) {
+      mode = MODE_DATE_TIME;
+      dateMode = DATE_STRING;
+      timeString = false;
+      mainFormat = getFormatString(spec, DateTimeSpecification.DATE_TIME);
+    } else if (spec.isAssigned(DateTimeSpecification.UNIX)) {
+      mode = MODE_UNIX;
+      dateMode = DATE_STRING;
+      timeString = false;
+    } else if (spec.isAssigned(DateTimeSpecification.JDAY_TIME)) {
+      mode = MODE_JDAY_TIME;
+      dateMode = DATE_STRING;
+      timeString = false;
+    } else {
+      mode = MODE_SEPARATE;
+
+      if (spec.isAssigned(DateTimeSpecification.DATE)) {
+        dateMode = DATE_STRING;
+        mainFormat = getFormatString(spec, DateTimeSpecification.DATE);
+      } else if (spec.isAssigned(DateTimeSpecification.JDAY)) {
+        dateMode = DATE_YEAR_JDAY;
+      } else {
+        dateMode = DATE_YMD;
+      }
+
+      timeString = spec.isAssigned(DateTimeSpecification.TIME);
+      if (timeString) {
+        timeFormat = getFormatString(spec, DateTimeSpecification.TIME);
+      }
+    }
+
+    formatter = getFormatter(spec,
+      mode == MODE_DATE_TIME ? DateTimeSpecification.DATE_TIME
+        : DateTimeSpecification.DATE);
+    timeFormatter = getFormatter(spec, DateTimeSpecification.TIME);
+
+    if (null == mainFormat) {
+      layout = LAYOUT_NONE;
+      dateTimeSeparator = ' ';
+      fractionAllowed = false;
+    } else if (mainFormat.equals(DateTimeColumnAssignment.ISO_FORMAT)) {
+      layout = mode == MODE_DATE_TIME ? LAYOUT_ISO : LAYOUT_NONE;
+      dateTimeSeparator = 'T';
+      fractionAllowed = true;
+    } else {
+      String baseFormat = stripFraction(mainFormat);
+      fractionAllowed = !baseFormat.equals(mainFormat);
+
+      if (mode == MODE_DATE_TIME
+        && baseFormat.equals("yyyy-MM-dd HH:mm:ss")) {
+        layout = LAYOUT_YMD_HMS;
+        dateTimeSeparator = ' ';
+      } else if (mode == MODE_DATE_TIME
+        && baseFormat.equals("yyyy-MM-dd'T'HH:mm:ss")) {
+        layout = LAYOUT_YMD_HMS;
+        dateTimeSeparator = 'T';
+      } else if (mode == MODE_SEPARATE && !fractionAllowed
+        && baseFormat.equals("yyyy-MM-dd")) {
+        layout = LAYOUT_YMD;
+        dateTimeSeparator = ' ';
+      } else {
+        layout = LAYOUT_NONE;
+        dateTimeSeparator = ' ';
+      }
+    }
+
+    if (null != timeFormat
+      && !timeFormat.equals(DateTimeColumnAssignment.ISO_FORMAT)
+      && stripFraction(timeFormat).equals("HH:mm:ss")) {
+      timeLayout = LAYOUT_HMS;
+      timeFractionAllowed = !timeFormat.equals("HH:mm:ss");
+    } else {
+      timeLayout = LAYOUT_NONE;
+      timeFractionAllowed = false;
+    }
+  }
+
+  /**
+   * Get the date and time from a line in a file
+   *
+   * @param headerDate
+   *          The date from the file header
+   * @param line
+   *          The line
+   * @return The date/time
+   * @throws DateTimeSpecificationException
+   *           If the date/time in the line is invalid
+   * @throws MissingDateTimeException
+   *           If the date/time in the line is missing
+   */
+  public LocalDateTime getDateTime(LocalDateTime headerDate, List<String> line)
+    throws DateTimeSpecificationException, MissingDateTimeException {
+
+    LocalDateTime result;
+
+    switch (mode) {
+    case MODE_HOURS_FROM_START: {
+      if (null == headerDate) {
+        throw new DateTimeSpecificationException("File header date is null");
+      }
+      result = getHoursFromStartDate(headerDate, line);
+      break;
+    }
+    case MODE_DATE_TIME: {
+      result = getDateTime(line);
+      break;
+    }
+    case MODE_UNIX: {
+      result = getUnixTime(line);
+      break;
+    }
+    case MODE_JDAY_TIME: {
+      result = getYearJDayTime(line);
+      break;
+    }
+    default: {
+      LocalDate date;
+
+      switch (dateMode) {
+      case DATE_STRING: {
+        date = getDate(line);
+        break;
+      }
+      case DATE_YEAR_JDAY: {
+        date = getYearJDay(line);
+        break;
+      }
+      default: {
+        date = getYMDDate(line);
+      }
+      }
+
+      LocalTime time = timeString ? getTime(line) : getHMSTime(line);
+      result = LocalDateTime.of(date, time);
+    }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the date of a line using the Hours From Start Date specification
+   *
+   * @param headerDate
+   *          The file's start date from the header
+   * @param line
+   *          The line whose date is to be extracted
+   * @return The date
+   * @throws DateTimeSpecificationException
+   *           If the hours column is empty or invalid
+   */
+  private LocalDateTime getHoursFromStartDate(LocalDateTime headerDate,
+    List<String> line) throws DateTimeSpecificationException {
+
+    Double hours;
+
+    try {
+      hours = DataFile.extractDoubleFieldValue(line.get(mainColumn), null);
+    } catch (ValueNotNumericException e) {
+      throw new DateTimeSpecificationException("Hours column is not numeric");
+    }
+
+    if (null == hours) {
+      throw new DateTimeSpecificationException("Hours column is empty");
+    }
+
+    long wholeHours = hours.longValue();
+    double hourFraction = hours - wholeHours;
+    int secondsFraction = (int) (hourFraction * 3600);
+    long lineSeconds = (wholeHours * 3600) + secondsFraction;
+
+    try {
+      return headerDate.plusSeconds(lineSeconds);
+    } catch (DateTimeException e) {
+      throw reportError(e, "Invalid hours value: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Get value of a date/time field
+   *
+   * @param line
+   *          The line whose date is to be extracted
+   * @return The date/time
+   * @throws DateTimeSpecificationException
+   *           If the date/time field is empty or cannot be parsed
+   */
+  private LocalDateTime getDateTime(List<String> line)
+    throws DateTimeSpecificationException {
+
+    String fieldValue = DataFile.extractStringFieldValue(line.get(mainColumn),
+      null);
+
+    if (null == fieldValue) {
+      throw new DateTimeSpecificationException("Date/time column is empty");
+    }
+
+    LocalDateTime result = null;
+
+    switch (layout) {
+    case LAYOUT_ISO: {
+      result = parseIso(fieldValue);
+      break;
+    }
+    case LAYOUT_YMD_HMS: {
+      result = parseYmdHms(fieldValue, dateTimeSeparator, fractionAllowed);
+      break;
+    }
+    default: {
+      // Use the formatter
+    }
+    }
+
+    if (null == result) {
+      try {
+        result = LocalDateTime.parse(fieldValue, formatter);
+      } catch (DateTimeException e) {
+        throw reportError(e, "Invalid date/time value '" + fieldValue + "'");
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get value of a UNIX time field. Fractional seconds are supported.
+   *
+   * @param line
+   *          The line whose date is to be extracted
+   * @return The date/time
+   * @throws DateTimeSpecificationException
+   *           If the date/time field is empty or cannot be parsed
+   */
+  private LocalDateTime getUnixTime(List<String> line)
+    throws DateTimeSpecificationException {
+
+    String fieldValue = DataFile.extractStringFieldValue(line.get(mainColumn),
+      null);
+
+    if (null == fieldValue) {
+      throw new DateTimeSpecificationException("Date/time column is empty");
+    }
+
+    int length = fieldValue.length();
+    int pos = 0;
+    boolean negative = false;
+
+    if (length > 0
+      && (fieldValue.charAt(0) == '-' || fieldValue.charAt(0) == '+')) {
+      negative = fieldValue.charAt(0) == '-';
+      pos++;
+    }
+
+    long seconds = 0;
+    int digitCount = 0;
+    while (pos < length && isDigit(fieldValue.charAt(pos))) {
+      seconds = seconds * 10 + (fieldValue.charAt(pos) - '0');
+      digitCount++;
+      pos++;
+    }
+
+    // A long can safely hold 18 digits
+    boolean tooLong = digitCount > 18;
+
+    int nanos = 0;
+    if (pos < length && fieldValue.charAt(pos) == '.') {
+      pos++;
+      int fractionDigits = 0;
+      while (pos < length && isDigit(fieldValue.charAt(pos))) {
+        if (fractionDigits < 9) {
+          nanos = nanos * 10 + (fieldValue.charAt(pos) - '0');
+          fractionDigits++;
+        }
+        digitCount++;
+        pos++;
+      }
+      nanos = nanos * NANO_MULTIPLIERS[fractionDigits];
+    }
+
+    if (digitCount == 0 || pos < length || tooLong) {
+      throw reportError(null, "Invalid date/time value '" + fieldValue + "'");
+    }
+
+    if (negative) {
+      seconds = -seconds;
+      if (nanos > 0) {
+        seconds--;
+        nanos = 1000000000 - nanos;
+      }
+    }
+
+    try {
+      return LocalDateTime.ofEpochSecond(seconds, nanos, ZoneOffset.UTC);
+    } catch (DateTimeException e) {
+      throw reportError(e, "Invalid date/time value '" + fieldValue + "'");
+    }
+  }
+
+  /**
+   * Get the date/time of a Year/Julian DateTime formatted line
+   *
+   * @param line
+   *          The line
+   * @return The date/time
+   * @throws DateTimeSpecificationException
+   *           If any required fields are empty or invalid
+   */
+  private LocalDateTime getYearJDayTime(List<String> line)
+    throws DateTimeSpecificationException {
+
+    Integer year;
+
+    try {
+      year = extractInt(line.get(yearColumn));
+    } catch (ValueNotNumericException e) {
+      throw new DateTimeSpecificationException("Year column is not numeric");
+    }
+
+    if (null == year) {
+      throw new DateTimeSpecificationException("Year column is empty");
+    }
+
+    Double jdayTime;
+    try {
+      jdayTime = DataFile.extractDoubleFieldValue(line.get(mainColumn), null);
+    } catch (ValueNotNumericException e) {
+      throw new DateTimeSpecificationException(
+        "Julian date/time value is not numeric");
+    }
+
+    if (null == jdayTime) {
+      throw new DateTimeSpecificationException(
+        "Julian date/time column is empty");
+    }
+
+    try {
+      LocalDateTime result = LocalDateTime.of(year, 1, 1, 0, 0);
+      result = result.plusDays(jdayTime.intValue() - 1);
+
+      double secondsFraction = jdayTime - jdayTime.intValue();
+      return result.plusSeconds((int) (secondsFraction * 86400));
+    } catch (DateTimeException e) {
+      throw reportError(e, "Invalid date/time value: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Get a date from a line containing a date-only string
+   *
+   * @param line
+   *          The line
+   * @return The date
+   * @throws MissingDateTimeException
+   *           If the line does not contain the date field or it is empty
+   * @throws DateTimeSpecificationException
+   *           If the date field is invalid
+   */
+  private LocalDate getDate(List<String> line)
+    throws DateTimeSpecificationException, MissingDateTimeException {
+
+    if (line.size() <= dateColumn) {
+      throw new MissingDateTimeException();
+    }
+
+    String fieldValue = DataFile.extractStringFieldValue(line.get(dateColumn),
+      null);
+
+    if (null == fieldValue || fieldValue.equalsIgnoreCase("")
+      || fieldValue.equalsIgnoreCase("NaN")) {
+      throw new MissingDateTimeException();
+    }
+
+    LocalDate result = null;
+
+    if (layout == LAYOUT_YMD && fieldValue.length() == 10
+      && fieldValue.charAt(4) == '-' && fieldValue.charAt(7) == '-') {
+      int year = parseDigits(fieldValue, 0, 4);
+      int month = parseDigits(fieldValue, 5, 2);
+      int day = parseDigits(fieldValue, 8, 2);
+      if (year > 0 && month >= 0 && day >= 0) {
+        try {
+          result = LocalDate.of(year, month, day);
+        } catch (DateTimeException e) {
+          // Leave it to the formatter
+        }
+      }
+    }
+
+    if (null == result) {
+      try {
+        result = LocalDate.parse(fieldValue, formatter);
+      } catch (Exception e) {
+        throw reportError(e, "Invalid date value '" + fieldValue + "'");
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the date from a line containing a year and Julian day
+   *
+   * @param line
+   *          The line
+   * @return The date
+   * @throws DateTimeSpecificationException
+   *           If any date fields are empty or invalid
+   */
+  private LocalDate getYearJDay(List<String> line)
+    throws DateTimeSpecificationException {
+
+    Integer year;
+    Integer jday;
+
+    try {
+      year = extractInt(line.get(yearColumn));
+      jday = extractInt(line.get(jdayColumn));
+    } catch (ValueNotNumericException e) {
+      throw new DateTimeSpecificationException(
+        "One or more date values is not numeric");
+    }
+
+    if (null == year) {
+      throw new DateTimeSpecificationException("Year column is empty");
+    }
+
+    if (null == jday) {
+      throw new DateTimeSpecificationException("Julian day column is empty");
+    }
+
+    try {
+      return LocalDate.ofYearDay(year, jday);
+    } catch (DateTimeException e) {
+      throw reportError(e, "Invalid date/time: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Get a date from a line containing year/month/day fields
+   *
+   * @param line
+   *          The line
+   * @return The date
+   * @throws DateTimeSpecificationException
+   *           If the date fields are empty or invalid
+   */
+  private LocalDate getYMDDate(List<String> line)
+    throws DateTimeSpecificationException {
+
+    Integer year;
+    Integer month;
+    Integer day;
+
+    try {
+      year = extractInt(line.get(yearColumn));
+      month = extractInt(line.get(monthColumn));
+      day = extractInt(line.get(dayColumn));
+    } catch (ValueNotNumericException e) {
+      throw new DateTimeSpecificationException(
+        "One or more date values is not numeric");
+    }
+
+    if (null == year) {
+      throw new DateTimeSpecificationException("Year column is empty");
+    } else if (year < 100) {
+      // Two-digit years are taken to be in the 2000s, as in the Java
+      // date formats
+      year += 2000;
+    }
+
+    if (null == month) {
+      throw new DateTimeSpecificationException("Month column is empty");
+    }
+
+    if (null == day) {
+      throw new DateTimeSpecificationException("Day column is empty");
+    }
+
+    try {
+      return LocalDate.of(year, month, day);
+    } catch (DateTimeException e) {
+      throw reportError(e, "Invalid date value: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Get the time from a line with a single time column
+   *
+   * @param line
+   *          The line
+   * @return The time
+   * @throws DateTimeSpecificationException
+   *           If the time field is empty or invalid
+   */
+  private LocalTime getTime(List<String> line)
+    throws DateTimeSpecificationException {
+
+    String fieldValue = DataFile.extractStringFieldValue(line.get(timeColumn),
+      null);
+
+    if (null == fieldValue) {
+      throw new DateTimeSpecificationException("Time column is empty");
+    }
+
+    LocalTime result = null;
+
+    if (timeLayout == LAYOUT_HMS) {
+      result = parseHms(fieldValue, 0, timeFractionAllowed);
+    }
+
+    if (null == result) {
+      try {
+        result = LocalTime.parse(fieldValue, timeFormatter);
+      } catch (DateTimeException e) {
+        throw new DateTimeSpecificationException(
+          "Invalid time value '" + fieldValue + "'");
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the time from a line containing hour/minute/second fields
+   *
+   * @param line
+   *          The line
+   * @return The time
+   * @throws DateTimeSpecificationException
+   *           If any fields are empty or invalid
+   */
+  private LocalTime getHMSTime(List<String> line)
+    throws DateTimeSpecificationException {
+
+    Integer hour;
+    Integer minute;
+    Integer second;
+
+    try {
+      hour = extractInt(line.get(hourColumn));
+      minute = extractInt(line.get(minuteColumn));
+      second = extractInt(line.get(secondColumn));
+    } catch (ValueNotNumericException e) {
+      throw new DateTimeSpecificationException(
+        "One or more time values are not numeric");
+    }
+
+    if (null == hour) {
+      throw new DateTimeSpecificationException("Hour column is empty");
+    }
+
+    if (null == minute) {
+      throw new DateTimeSpecificationException("Minute column is empty");
+    }
+
+    if (null == second) {
+      throw new DateTimeSpecificationException("Second column is empty");
+    }
+
+    try {
+      return LocalTime.of(hour, minute, second);
+    } catch (DateTimeException e) {
+      throw reportError(e, "Invalid time value: " + e.getMessage());
+    }
+  }
+
+  /**
+   * Parse a {@code yyyy-MM-dd?HH:mm:ss[.S*]} string, where {@code ?} is the
+   * specified separator. Returns {@code null} if the string does not match the
+   * layout exactly, so that the caller can fall back to a formatter.
+   *
+   * @param value
+   *          The string
+   * @param separator
+   *          The date/time separator
+   * @param allowFraction
+   *          Whether fractional seconds are permitted
+   * @return The parsed date/time, or {@code null}
+   */
+  private static LocalDateTime parseYmdHms(String value, char separator,
+    boolean allowFraction) {
+
+    LocalDateTime result = null;
+
+    if (value.length() >= 19 && value.charAt(4) == '-'
+      && value.charAt(7) == '-' && value.charAt(10) == separator) {
+
+      int year = parseDigits(value, 0, 4);
+      int month = parseDigits(value, 5, 2);
+      int day = parseDigits(value, 8, 2);
+
+      // Year-of-era patterns cannot parse year zero
+      if (year > 0 && month >= 0 && day >= 0) {
+        int timeEnd = findTimeEnd(value, 11, allowFraction);
+        if (timeEnd == value.length()) {
+          result = makeDateTime(year, month, day, value, 11);
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Parse an ISO offset date/time string of the form
+   * {@code yyyy-MM-ddTHH:mm:ss[.S*]} followed by {@code Z} or
+   * {@code +HH:MM}/{@code -HH:MM}. As with the ISO formatter, the offset is
+   * validated but does not affect the local date/time. Returns {@code null} if
+   * the string does not match the layout so that the caller can fall back to
+   * the full ISO formatter.
+   *
+   * @param value
+   *          The string
+   * @return The parsed date/time, or {@code null}
+   */
+  private static LocalDateTime parseIso(String value) {
+
+    LocalDateTime result = null;
+
+    if (value.length() >= 20 && value.charAt(4) == '-'
+      && value.charAt(7) == '-'
+      && (value.charAt(10) == 'T' || value.charAt(10) == 't')) {
+
+      int year = parseDigits(value, 0, 4);
+      int month = parseDigits(value, 5, 2);
+      int day = parseDigits(value, 8, 2);
+      int timeEnd = findTimeEnd(value, 11, true);
+
+      if (year >= 0 && month >= 0 && day >= 0 && timeEnd > 0
+        && validIsoOffset(value, timeEnd)) {
+        result = makeDateTime(year, month, day, value, 11);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Determine whether the remainder of a string from the specified position is
+   * a valid {@code Z}, {@code +HH:MM} or {@code -HH:MM} offset.
+   *
+   * @param value
+   *          The string
+   * @param start
+   *          The start of the offset
+   * @return {@code true} if the offset is valid; {@code false} otherwise
+   */
+  private static boolean validIsoOffset(String value, int start) {
+    boolean result = false;
+
+    int length = value.length() - start;
+    if (length == 1) {
+      char c = value.charAt(start);
+      result = c == 'Z' || c == 'z';
+    } else if (length == 6) {
+      char sign = value.charAt(start);
+      if ((sign == '+' || sign == '-') && value.charAt(start + 3) == ':') {
+        int hours = parseDigits(value, start + 1, 2);
+        int minutes = parseDigits(value, start + 4, 2);
+        result = hours >= 0 && minutes >= 0 && minutes < 60
+          && (hours < 18 || (hours == 18 && minutes == 0));
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Parse a {@code HH:mm:ss[.S*]} string starting at the specified position.
+   * The time must run to the end of the string. Returns {@code null} if the
+   * string does not match the layout.
+   *
+   * @param value
+   *          The string
+   * @param start
+   *          The position of the first hour digit
+   * @param allowFraction
+   *          Whether fractional seconds are permitted
+   * @return The time, or {@code null}
+   */
+  private static LocalTime parseHms(String value, int start,
+    boolean allowFraction) {
+
+    LocalTime result = null;
+
+    if (findTimeEnd(value, start, allowFraction) == value.length()) {
+      int hour = parseDigits(value, start, 2);
+      int minute = parseDigits(value, start + 3, 2);
+      int second = parseDigits(value, start + 6, 2);
+      try {
+        result = LocalTime.of(hour, minute, second,
+          parseNanos(value, start + 8));
+      } catch (DateTimeException e) {
+        // Leave it to the formatter
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Build a date/time from the parsed date fields and a {@code HH:mm:ss[.S*]}
+   * time at the specified position. The time layout must already have been
+   * checked with {@link #findTimeEnd(String, int, boolean)}.
+   *
+   * @return The date/time, or {@code null} if any field is out of range
+   */
+  private static LocalDateTime makeDateTime(int year, int month, int day,
+    String value, int timeStart) {
+
+    LocalDateTime result = null;
+
+    try {
+      result = LocalDateTime.of(year, month, day,
+        parseDigits(value, timeStart, 2), parseDigits(value, timeStart + 3, 2),
+        parseDigits(value, timeStart + 6, 2),
+        parseNanos(value, timeStart + 8));
+    } catch (DateTimeException e) {
+      // Leave it to the formatter
+    }
+
+    return result;
+  }
+
+  /**
+   * Check that a string contains a {@code HH:mm:ss[.S*]} time at the specified
+   * position, and return the position of the first character after it. The
+   * fraction may contain between 1 and 9 digits.
+   *
+   * @param value
+   *          The string
+   * @param start
+   *          The position of the first hour digit
+   * @param allowFraction
+   *          Whether fractional seconds are permitted
+   * @return The end of the time, or {@code -1} if the layout does not match
+   */
+  private static int findTimeEnd(String value, int start,
+    boolean allowFraction) {
+
+    int result = -1;
+
+    if (value.length() >= start + 8 && value.charAt(start + 2) == ':'
+      && value.charAt(start + 5) == ':' && isDigit(value.charAt(start))
+      && isDigit(value.charAt(start + 1)) && isDigit(value.charAt(start + 3))
+      && isDigit(value.charAt(start + 4)) && isDigit(value.charAt(start + 6))
+      && isDigit(value.charAt(start + 7))) {
+
+      result = start + 8;
+
+      if (value.length() > result && value.charAt(result) == '.') {
+        int fractionEnd = result + 1;
+        while (fractionEnd < value.length()
+          && isDigit(value.charAt(fractionEnd))) {
+          fractionEnd++;
+        }
+
+        int fractionDigits = fractionEnd - result - 1;
+        if (allowFraction && fractionDigits > 0 && fractionDigits <= 9) {
+          result = fractionEnd;
+        } else {
+          result = -1;
+        }
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Parse the optional fractional seconds starting at the specified position.
+   * The layout must already have been checked with
+   * {@link #findTimeEnd(String, int, boolean)}.
+   *
+   * @param value
+   *          The string
+   * @param pos
+   *          The position immediately after the whole seconds
+   * @return The nanoseconds
+   */
+  private static int parseNanos(String value, int pos) {
+    int nanos = 0;
+
+    if (value.length() > pos && value.charAt(pos) == '.') {
+      int digits = 0;
+      int i = pos + 1;
+      while (i < value.length() && isDigit(value.charAt(i))) {
+        nanos = nanos * 10 + (value.charAt(i) - '0');
+        digits++;
+        i++;
+      }
+
+      nanos = nanos * NANO_MULTIPLIERS[digits];
+    }
+
+    return nanos;
+  }
+
+  /**
+   * Parse a fixed number of ASCII digits from a string.
+   *
+   * @param value
+   *          The string
+   * @param start
+   *          The position of the first digit
+   * @param count
+   *          The number of digits
+   * @return The parsed number, or {@code -1} if any character is not a digit
+   */
+  private static int parseDigits(String value, int start, int count) {
+    int result = 0;
+
+    for (int i = start; i < start + count; i++) {
+      char c = value.charAt(i);
+      if (!isDigit(c)) {
+        result = -1;
+        break;
+      }
+      result = result * 10 + (c - '0');
+    }
+
+    return result;
+  }
+
+  /**
+   * Extract an integer field value. Plain ASCII integers are parsed directly;
+   * anything else goes through
+   * {@link DataFile#extractIntFieldValue(String, String)}.
+   *
+   * @param field
+   *          The field
+   * @return The value, or {@code null} if the field is empty
+   * @throws ValueNotNumericException
+   *           If the field is not an integer
+   */
+  private static Integer extractInt(String field)
+    throws ValueNotNumericException {
+
+    Integer result = null;
+
+    int length = null == field ? 0 : field.length();
+    if (length > 0 && length < 10) {
+      int value = 0;
+      boolean plain = true;
+      for (int i = 0; i < length; i++) {
+        char c = field.charAt(i);
+        if (!isDigit(c)) {
+          plain = false;
+          break;
+        }
+        value = value * 10 + (c - '0');
+      }
+
+      if (plain) {
+        result = value;
+      }
+    }
+
+    if (null == result) {
+      result = DataFile.extractIntFieldValue(field, null);
+    }
+
+    return result;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Record a parse error and build the exception to be thrown for it. The
+   * first few errors for each plan are printed in full; after that only a
+   * periodic count is printed so that a bad file does not flood the logs.
+   *
+   * @param cause
+   *          The underlying exception, if there is one
+   * @param message
+   *          The error message
+   * @return The exception to be thrown
+   */
+  private DateTimeSpecificationException reportError(Exception cause,
+    String message) {
+
+    long count = errorCount.incrementAndGet();
+    if (null != cause && count <= ERROR_REPORT_LIMIT) {
+      ExceptionUtils.printStackTrace(cause);
+    } else if (count % ERROR_REPORT_INTERVAL == 0) {
+      System.err.println(
+        count + " date/time parse errors so far; latest: " + message);
+    }
+
+    return new DateTimeSpecificationException(message);
+  }
+
+  /**
+   * Get the number of parse errors encountered by this plan
+   *
+   * @return The error count
+   */
+  public long getErrorCount() {
+    return errorCount.get();
+  }
+
+  /**
+   * Get the assignment whose column holds the main value for the plan
+   *
+   * @param spec
+   *          The specification
+   * @return The assignment index
+   */
+  private static int selectMainAssignment(DateTimeSpecification spec) {
+    int result = DateTimeSpecification.DATE_TIME;
+
+    if (spec.isAssigned(DateTimeSpecification.HOURS_FROM_START)) {
+      result = DateTimeSpecification.HOURS_FROM_START;
+    } else if (spec.isAssigned(DateTimeSpecification.DATE_TIME)) {
+      result = DateTimeSpecification.DATE_TIME;
+    } else if (spec.isAssigned(DateTimeSpecification.UNIX)) {
+      result = DateTimeSpecification.UNIX;
+    } else if (spec.isAssigned(DateTimeSpecification.JDAY_TIME)) {
+      result = DateTimeSpecification.JDAY_TIME;
+    }
+
+    return result;
+  }
+
+  private static int getColumn(DateTimeSpecification spec, int index) {
+    DateTimeColumnAssignment assignment = spec.getAssignment(index);
+    return null == assignment ? DateTimeColumnAssignment.NOT_ASSIGNED
+      : assignment.getColumn();
+  }
+
+  private static String getFormatString(DateTimeSpecification spec,
+    int index) {
+    DateTimeColumnAssignment assignment = spec.getAssignment(index);
+    return null == assignment ? null : assignment.getDateFormatString();
+  }
+
+  private static DateTimeFormatter getFormatter(DateTimeSpecification spec,
+    int index) {
+    DateTimeColumnAssignment assignment = spec.getAssignment(index);
+    return null == assignment ? null : assignment.getFormatter();
+  }
+
+  /**
+   * Remove a trailing {@code .S+} fractional seconds marker from a format
+   * string
+   *
+   * @param format
+   *          The format string
+   * @return The format without fractional seconds
+   */
+  private static String stripFraction(String format) {
+    return format.replaceFirst("\\.S+$", "");
+  }
+}
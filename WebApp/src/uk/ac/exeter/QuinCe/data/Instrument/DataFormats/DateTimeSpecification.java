@@ -1,11 +1,6 @@
 package uk.ac.exeter.QuinCe.data.Instrument.DataFormats;
 
-import java.time.DateTimeException;
-import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
-import java.time.ZoneOffset;
-import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.LinkedHashMap;
 import java.util.List;
@@ -13,10 +8,7 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.TreeMap;
 
-import uk.ac.exeter.QuinCe.data.Files.DataFile;
 import uk.ac.exeter.QuinCe.data.Files.DataFileException;
-import uk.ac.exeter.QuinCe.data.Files.ValueNotNumericException;
-import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 
 /**
  * Defines how the date and time are stored in a data file
@@ -172,6 +164,11 @@ public class DateTimeSpecification {
    */
   private boolean fileHasHeader;
 
+  /**
+   * The compiled parsing plan. Not serialized; rebuilt on demand.
+   */
+  private transient volatile DateTimeParsingPlan parsingPlan = null;
+
   /**
    * Constructs an empty specification
    *
@@ -670,6 +667,7 @@ public class DateTimeSpecification {
 
     DateTimeColumnAssignment assignment = assignments.get(assignmentIndex);
     assignment.setColumn(column);
+    parsingPlan = null;
 
     if (assignmentIndex == DATE_TIME || assignmentIndex == DATE
       || assignmentIndex == TIME) {
@@ -698,6 +696,7 @@ public class DateTimeSpecification {
     assignment.setDateFormatString(format);
     assignment.setPrefix(headerPrefix);
     assignment.setSuffix(headerSuffix);
+    parsingPlan = null;
   }
 
   /**
@@ -721,6 +720,10 @@ public class DateTimeSpecification {
       }
     }
 
+    if (assignmentRemoved) {
+      parsingPlan = null;
+    }
+
     return assignmentRemoved;
 
   }
@@ -746,434 +749,29 @@ public class DateTimeSpecification {
    * @throws MissingDateTimeException
    * @throws DataFileException
    *           If the date/time in the line is missing or invalid
+   * @see #getParsingPlan()
    */
   public LocalDateTime getDateTime(LocalDateTime headerDate, List<String> line)
     throws DateTimeSpecificationException, MissingDateTimeException {
-    LocalDateTime result = null;
-
-    if (isAssigned(HOURS_FROM_START)) {
-      if (null == headerDate) {
-        throw new DateTimeSpecificationException("File header date is null");
-      }
-      result = getHoursFromStartDate(headerDate, line);
-    } else if (isAssigned(DATE_TIME)) {
-      result = getDateTime(line);
-    } else if (isAssigned(UNIX)) {
-      result = getUnixTime(line);
-    } else if (isAssigned(JDAY_TIME)) {
-      result = getYearJDayTime(line);
-    } else {
-
-      LocalDate date = null;
-      LocalTime time = null;
-
-      if (isAssigned(DATE)) {
-        date = getDate(line);
-      } else if (isAssigned(JDAY)) {
-        date = getYearJDay(line);
-      } else {
-        date = getYMDDate(line);
-      }
-
-      if (isAssigned(TIME)) {
-        time = getTime(line);
-      } else {
-        time = getHMSTime(line);
-      }
-
-      result = LocalDateTime.of(date, time);
-    }
-
-    return result;
-  }
-
-  /**
-   * Get the date of a line using the Hours From Start Date specification
-   *
-   * @param headerDate
-   *          The file's start date from the header
-   * @param line
-   *          The line whose date is to be extracted
-   * @return The date
-   * @throws DataFileException
-   *           If the hours column is empty
-   */
-  private LocalDateTime getHoursFromStartDate(LocalDateTime headerDate,
-    List<String> line) throws DateTimeSpecificationException {
-
-    DateTimeColumnAssignment assignment = getAssignment(HOURS_FROM_START);
-    Double hours;
-
-    try {
-      hours = DataFile.extractDoubleFieldValue(line.get(assignment.getColumn()),
-        null);
-    } catch (ValueNotNumericException e) {
-      throw new DateTimeSpecificationException("Hours column is not numeric");
-    }
-
-    if (null == hours) {
-      throw new DateTimeSpecificationException("Hours column is empty");
-    }
-
-    long wholeHours = hours.longValue();
-    double hourFraction = hours - wholeHours;
-    int secondsFraction = (int) (hourFraction * 3600);
-    long lineSeconds = (wholeHours * 3600) + secondsFraction;
-
-    LocalDateTime result;
-    try {
-      result = headerDate.plusSeconds(lineSeconds);
-    } catch (DateTimeException e) {
-      ExceptionUtils.printStackTrace(e);
-      throw new DateTimeSpecificationException(
-        "Invalid hours value: " + e.getMessage());
-    }
-
-    return result;
-  }
-
-  /**
-   * Get value of a date/time field
-   *
-   * @param line
-   *          The line whose date is to be extracted
-   * @return The date/time
-   * @throws DataFileException
-   *           If the date/time field is empty or cannot be parsed
-   */
-  private LocalDateTime getDateTime(List<String> line)
-    throws DateTimeSpecificationException {
-    LocalDateTime result;
-
-    DateTimeColumnAssignment assignment = getAssignment(DATE_TIME);
-    String fieldValue = DataFile
-      .extractStringFieldValue(line.get(assignment.getColumn()), null);
-
-    if (null == fieldValue) {
-      throw new DateTimeSpecificationException("Date/time column is empty");
-    } else {
-      try {
-        result = LocalDateTime.parse(fieldValue, assignment.getFormatter());
-      } catch (DateTimeParseException e) {
-        ExceptionUtils.printStackTrace(e);
-        throw new DateTimeSpecificationException(
-          "Invalid date/time value '" + fieldValue + "'");
-      }
-    }
-
-    return result;
-  }
-
-  /**
-   * Get value of a UNIX time field
-   *
-   * @param line
-   *          The line whose date is to be extracted
-   * @return The date/time
-   * @throws DataFileException
-   *           If the date/time field is empty or cannot be parsed
-   */
-  private LocalDateTime getUnixTime(List<String> line)
-    throws DateTimeSpecificationException {
-    LocalDateTime result;
-
-    DateTimeColumnAssignment assignment = getAssignment(UNIX);
-    String fieldValue = DataFile
-      .extractStringFieldValue(line.get(assignment.getColumn()), null);
-
-    if (null == fieldValue) {
-      throw new DateTimeSpecificationException("Date/time column is empty");
-    } else {
-      try {
-        result = LocalDateTime.ofEpochSecond(Integer.parseInt(fieldValue), 0,
-          ZoneOffset.UTC);
-      } catch (DateTimeParseException e) {
-        ExceptionUtils.printStackTrace(e);
-        throw new DateTimeSpecificationException(
-          "Invalid date/time value '" + fieldValue + "'");
-      }
-    }
-
-    return result;
-  }
-
-  /**
-   * Get the date/time of a Year/Julian DateTime formatted line
-   *
-   * @param line
-   *          The line
-   * @return The date/time
-   * @throws DataFileException
-   *           If any required fields are empty
-   */
-  private LocalDateTime getYearJDayTime(List<String> line)
-    throws DateTimeSpecificationException {
-    int yearField = getAssignment(YEAR).getColumn();
-    int jdayTimeField = getAssignment(JDAY_TIME).getColumn();
-
-    Integer year;
-
-    try {
-      year = DataFile.extractIntFieldValue(line.get(yearField), null);
-    } catch (ValueNotNumericException e) {
-      throw new DateTimeSpecificationException("Year column is not numeric");
-    }
-
-    if (null == year) {
-      throw new DateTimeSpecificationException("Year column is empty");
-    }
-
-    Double jdayTime = null;
-    try {
-      jdayTime = DataFile.extractDoubleFieldValue(line.get(jdayTimeField),
-        null);
-      if (null == jdayTime) {
-        throw new DateTimeSpecificationException(
-          "Julian date/time column is empty");
-      }
-    } catch (ValueNotNumericException e) {
-      throw new DateTimeSpecificationException(
-        "Julian date/time value is not numeric");
-    }
-
-    LocalDateTime result;
-
-    try {
-      result = LocalDateTime.of(year, 1, 1, 0, 0);
-      result = result.plusDays(jdayTime.intValue() - 1);
-
-      double secondsFraction = jdayTime - jdayTime.intValue();
-      result = result.plusSeconds((int) (secondsFraction * 86400));
-    } catch (DateTimeException e) {
-      ExceptionUtils.printStackTrace(e);
-      throw new DateTimeSpecificationException(
-        "Invalid date/time value: " + e.getMessage());
-    }
-
-    return result;
-  }
-
-  /**
-   * Get a date from a line containing a date-only string
-   *
-   * @param line
-   *          The line
-   * @return The date
-   * @throws MissingDateTimeException
-   *           If the line does not contain the date/time field(s) or are empty
-   * @throws DataFileException
-   *           If the date field(s) is invalid
-   */
-  private LocalDate getDate(List<String> line)
-    throws DateTimeSpecificationException, MissingDateTimeException {
-    LocalDate result;
-
-    DateTimeColumnAssignment assignment = getAssignment(DATE);
-
-    if (line.size() <= assignment.getColumn()) {
-      throw new MissingDateTimeException();
-    } else {
-      String fieldValue = DataFile
-        .extractStringFieldValue(line.get(assignment.getColumn()), null);
-
-      if (null == fieldValue || fieldValue.equalsIgnoreCase("")
-        || fieldValue.equalsIgnoreCase("NaN")) {
-        throw new MissingDateTimeException();
-      } else {
-        try {
-          result = LocalDate.parse(fieldValue, assignment.getFormatter());
-        } catch (Exception e) {
-          ExceptionUtils.printStackTrace(e);
-          throw new DateTimeSpecificationException(
-            "Invalid date value '" + fieldValue + "'");
-        }
-      }
-    }
-
-    return result;
+    return getParsingPlan().getDateTime(headerDate, line);
   }
 
   /**
-   * Get the date from a line containing a year and Julian day
+   * Get the compiled parsing plan for this specification.
    *
-   * @param line
-   *          The line
-   * @return The date
-   * @throws DataFileException
-   *           If any date fields are empty or invalid
-   */
-  private LocalDate getYearJDay(List<String> line)
-    throws DateTimeSpecificationException {
-    int yearField = getAssignment(YEAR).getColumn();
-    int jdayField = getAssignment(JDAY).getColumn();
-
-    Integer year;
-    Integer jday;
-
-    try {
-      year = DataFile.extractIntFieldValue(line.get(yearField), null);
-      jday = DataFile.extractIntFieldValue(line.get(jdayField), null);
-    } catch (ValueNotNumericException e) {
-      throw new DateTimeSpecificationException(
-        "One or more date values is not numeric");
-    }
-
-    if (null == year) {
-      throw new DateTimeSpecificationException("Year column is empty");
-    }
-
-    if (null == jday) {
-      throw new DateTimeSpecificationException("Julian day column is empty");
-    }
-
-    LocalDate result;
-    try {
-      result = LocalDate.ofYearDay(year, jday);
-    } catch (DateTimeException e) {
-      ExceptionUtils.printStackTrace(e);
-      throw new DateTimeSpecificationException(
-        "Invalid date/time: " + e.getMessage());
-    }
-
-    return result;
-  }
-
-  /**
-   * Get a date from a line containing year/month/day fields
+   * <p>
+   * The plan is built on first use and reused until the assignments are
+   * changed through this class. Callers parsing many lines should retrieve
+   * the plan once and use it directly.
+   * </p>
    *
-   * @param line
-   *          The line
-   * @return The date
-   * @throws DataFileException
-   *           If the date fields are empty or invalid
+   * @return The parsing plan
    */
-  private LocalDate getYMDDate(List<String> line)
-    throws DateTimeSpecificationException {
-    int yearField = getAssignment(YEAR).getColumn();
-    int monthField = getAssignment(MONTH).getColumn();
-    int dayField = getAssignment(DAY).getColumn();
-
-    Integer year;
-    Integer month;
-    Integer day;
-
-    try {
-      year = DataFile.extractIntFieldValue(line.get(yearField), null);
-      month = DataFile.extractIntFieldValue(line.get(monthField), null);
-      day = DataFile.extractIntFieldValue(line.get(dayField), null);
-    } catch (ValueNotNumericException e) {
-      throw new DateTimeSpecificationException(
-        "One or more date values is not numeric");
-    }
-
-    if (null == year) {
-      throw new DateTimeSpecificationException("Year column is empty");
-    } else if (year < 100) {
-      // If date is two digits, add 2000 to it. so 15 -> 2015
-      // This matches the Java specification of two-digit years
-      // It means we can't handle two-digit years before 2000, but
-      // I think we can safely say that's not supported.
-      year += 2000;
-    }
-
-    if (null == month) {
-      throw new DateTimeSpecificationException("Month column is empty");
-    }
-
-    if (null == day) {
-      throw new DateTimeSpecificationException("Day column is empty");
-    }
-
-    LocalDate result;
-    try {
-      result = LocalDate.of(year, month, day);
-    } catch (DateTimeException e) {
-      ExceptionUtils.printStackTrace(e);
-      throw new DateTimeSpecificationException(
-        "Invalid date value: " + e.getMessage());
-    }
-
-    return result;
-  }
-
-  /**
-   * Get the time from a line with a single time column
-   *
-   * @param line
-   *          The line
-   * @return The time
-   * @throws DataFileException
-   *           If the time field is empty or invalid
-   */
-  private LocalTime getTime(List<String> line)
-    throws DateTimeSpecificationException {
-    LocalTime result;
-
-    DateTimeColumnAssignment assignment = getAssignment(TIME);
-    String fieldValue = DataFile
-      .extractStringFieldValue(line.get(assignment.getColumn()), null);
-
-    if (null == fieldValue) {
-      throw new DateTimeSpecificationException("Time column is empty");
-    } else {
-      try {
-        result = LocalTime.parse(fieldValue, assignment.getFormatter());
-      } catch (DateTimeParseException e) {
-        throw new DateTimeSpecificationException(
-          "Invalid time value '" + fieldValue + "'");
-      }
-    }
-
-    return result;
-  }
-
-  /**
-   * Get the time from a line containing hour/minute/second fields
-   *
-   * @param line
-   *          The line
-   * @return The time
-   * @throws DataFileException
-   *           If any fields are empty or invalid
-   */
-  private LocalTime getHMSTime(List<String> line)
-    throws DateTimeSpecificationException {
-    int hourField = getAssignment(HOUR).getColumn();
-    int minuteField = getAssignment(MINUTE).getColumn();
-    int secondField = getAssignment(SECOND).getColumn();
-
-    Integer hour;
-    Integer minute;
-    Integer second;
-
-    try {
-      hour = DataFile.extractIntFieldValue(line.get(hourField), null);
-      minute = DataFile.extractIntFieldValue(line.get(minuteField), null);
-      second = DataFile.extractIntFieldValue(line.get(secondField), null);
-    } catch (ValueNotNumericException e) {
-      throw new DateTimeSpecificationException(
-        "One or more time values are not numeric");
-    }
-
-    if (null == hour) {
-      throw new DateTimeSpecificationException("Hour column is empty");
-    }
-
-    if (null == minute) {
-      throw new DateTimeSpecificationException("Minute column is empty");
-    }
-
-    if (null == second) {
-      throw new DateTimeSpecificationException("Second column is empty");
-    }
-
-    LocalTime result;
-    try {
-      result = LocalTime.of(hour, minute, second);
-    } catch (DateTimeException e) {
-      ExceptionUtils.printStackTrace(e);
-      throw new DateTimeSpecificationException(
-        "Invalid time value: " + e.getMessage());
+  public DateTimeParsingPlan getParsingPlan() {
+    DateTimeParsingPlan result = parsingPlan;
+    if (null == result) {
+      result = new DateTimeParsingPlan(this);
+      parsingPlan = result;
     }
 
     return result;
@@ -1,34 +1,30 @@
 package uk.ac.exeter.QuinCe.data.Instrument.DataFormats;
 
+import java.util.regex.Pattern;
+
 public class HDMOneFieldParser extends HDMParser {
 
-  private String hemisphere;
+  private static final Pattern WHITESPACE = Pattern.compile("\\s+");
 
   protected HDMOneFieldParser(HemisphereMultiplier hemisphereMultiplier) {
     super(hemisphereMultiplier);
   }
 
   @Override
-  protected String getHemisphere(String value, String dummy) throws PositionParseException {
-    if (!parsed) {
-      parse(value);
-    }
-
-    return hemisphere;
-  }
-
-  @Override
-  protected void parseAction(String value) throws PositionParseException {
+  protected HDMValue parseAction(String value) throws PositionParseException {
 
     // Split on whitespace
-    String[] split = value.split("\\s+");
+    String[] split = WHITESPACE.split(value);
 
     if (split.length != 3) {
       throw new PositionParseException(value);
     }
 
-    hemisphere = split[0];
-    degrees = Integer.parseInt(split[1]);
-    minutes = Double.parseDouble(split[2]);
+    try {
+      return new HDMValue(split[0], Integer.parseInt(split[1]),
+        Double.parseDouble(split[2]));
+    } catch (NumberFormatException e) {
+      throw new PositionParseException(value);
+    }
   }
 }
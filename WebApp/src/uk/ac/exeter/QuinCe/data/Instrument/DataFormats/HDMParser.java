@@ -2,12 +2,6 @@ package uk.ac.exeter.QuinCe.data.Instrument.DataFormats;
 
 public abstract class HDMParser extends PositionParser {
 
-  protected boolean parsed = false;
-
-  protected int degrees;
-
-  protected double minutes;
-
   protected HDMParser() {
     super();
   }
@@ -17,18 +11,54 @@ public abstract class HDMParser extends PositionParser {
   }
 
   @Override
-  protected double getNumericValue(String value) throws PositionParseException {
-    if (!parsed) {
-      parse(value);
+  public double parsePosition(String value, String hemisphere) throws PositionParseException {
+
+    HDMValue parsed = parseAction(value);
+    double numericValue = calculateDecimalDegrees(parsed.degrees, parsed.minutes);
+
+    if (null != hemisphereMultiplier) {
+      String parsedHemisphere = null == parsed.hemisphere ? hemisphere : parsed.hemisphere;
+      numericValue = hemisphereMultiplier.apply(numericValue, parsedHemisphere);
     }
 
-    return calculateDecimalDegrees(degrees, minutes);
+    return numericValue;
   }
 
-  protected void parse(String value) throws PositionParseException {
-    parseAction(value);
-    parsed = true;
+  @Override
+  protected double getNumericValue(String value) throws PositionParseException {
+    HDMValue parsed = parseAction(value);
+    return calculateDecimalDegrees(parsed.degrees, parsed.minutes);
   }
 
-  protected abstract void parseAction(String value) throws PositionParseException;
+  /**
+   * Split a value into its hemisphere, degrees and minutes.
+   *
+   * @param value
+   *          The value
+   * @return The parsed components
+   * @throws PositionParseException
+   *           If the value cannot be parsed
+   */
+  protected abstract HDMValue parseAction(String value) throws PositionParseException;
+
+  /**
+   * The components of a parsed position value
+   */
+  protected static class HDMValue {
+
+    /**
+     * The hemisphere, if it was part of the value
+     */
+    protected final String hemisphere;
+
+    protected final int degrees;
+
+    protected final double minutes;
+
+    protected HDMValue(String hemisphere, int degrees, double minutes) {
+      this.hemisphere = hemisphere;
+      this.degrees = degrees;
+      this.minutes = minutes;
+    }
+  }
 }
@@ -22,10 +22,11 @@ public class HemisphereMultiplier {
   public double apply(double value, String hemisphere) throws InvalidHemisphereException {
 
     double multiplier;
+    String lowerHemisphere = hemisphere.toLowerCase();
 
-    if (oneValues.contains(hemisphere.toLowerCase())) {
+    if (oneValues.contains(lowerHemisphere)) {
       multiplier = 1D;
-    } else if (minusOneValues.contains(hemisphere.toLowerCase())) {
+    } else if (minusOneValues.contains(lowerHemisphere)) {
       multiplier = -1D;
     } else {
       throw new InvalidHemisphereException(hemisphere);
@@ -150,6 +150,11 @@ public class LongitudeSpecification extends PositionSpecification {
     return value.equals("-180.000") ? "180.000" : super.fixNegatives(value);
   }
 
+  @Override
+  protected double fixNegatives(double value) {
+    return value == -180D ? 180D : super.fixNegatives(value);
+  }
+
   private HemisphereMultiplier makeHemisphereMultiplier() {
     return new HemisphereMultiplier(Arrays.asList("E", "East"),
       Arrays.asList("W", "West"));
@@ -1,5 +1,13 @@
 package uk.ac.exeter.QuinCe.data.Instrument.DataFormats;
 
+/**
+ * Base class for parsers that convert position strings to decimal degrees.
+ *
+ * <p>
+ * Parsers hold no per-value state, so a single instance can be reused for
+ * every line of a file and shared between threads.
+ * </p>
+ */
 public abstract class PositionParser {
 
   protected HemisphereMultiplier hemisphereMultiplier = null;
@@ -16,16 +24,12 @@ public abstract class PositionParser {
     double numericValue = getNumericValue(value);
 
     if (null != hemisphereMultiplier) {
-      numericValue = hemisphereMultiplier.apply(numericValue, getHemisphere(value, hemisphere));
+      numericValue = hemisphereMultiplier.apply(numericValue, hemisphere);
     }
 
     return numericValue;
   }
 
-  protected String getHemisphere(String value, String hemisphere) throws PositionParseException {
-    return hemisphere;
-  }
-
   protected abstract double getNumericValue(String value) throws PositionParseException;
 
   protected double calculateDecimalDegrees(int degrees, double minutes) throws PositionParseException {
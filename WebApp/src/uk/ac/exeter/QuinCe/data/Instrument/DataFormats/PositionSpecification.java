@@ -34,6 +34,12 @@ public abstract class PositionSpecification {
    */
   protected int format;
 
+  /**
+   * The parser for the current format. Parsers are stateless, so one instance
+   * is reused for every line. Not serialized; rebuilt on demand.
+   */
+  private transient volatile PositionParser parser = null;
+
   /**
    * Creates an empty position specification
    */
@@ -88,6 +94,7 @@ public abstract class PositionSpecification {
     }
 
     this.format = format;
+    parser = null;
   }
 
   /**
@@ -174,6 +181,7 @@ public abstract class PositionSpecification {
     valueColumn = -1;
     clearHemisphereColumn();
     format = NO_FORMAT;
+    parser = null;
   }
 
   /**
@@ -184,44 +192,70 @@ public abstract class PositionSpecification {
   }
 
   /**
-   * Get the position value from a given line
+   * Get the position value from a given line, formatted to three decimal
+   * places
    *
    * @param line
    *          The line
    * @return The position value
    * @throws PositionException
    *           If the position cannot be extracted, or is invalid
+   * @see #getDoubleValue(List)
    */
   public String getValue(List<String> line) throws PositionException {
+    double value = getDoubleValue(line);
+    return Double.isNaN(value) ? null : formatValue(value);
+  }
 
-    String result;
+  /**
+   * Get the full-precision position value from a given line. Returns
+   * {@link Double#NaN} if the position is missing.
+   *
+   * @param line
+   *          The line
+   * @return The position value
+   * @throws PositionException
+   *           If the position cannot be extracted, or is invalid
+   */
+  public double getDoubleValue(List<String> line) throws PositionException {
+
+    double result = Double.NaN;
 
     String stringValue = line.get(getValueColumn()).trim();
-    if (stringValue.length() == 0 || stringValue.equalsIgnoreCase("NaN")
-      || stringValue.equalsIgnoreCase("NA")) {
-      result = null;
-    } else {
+    if (stringValue.length() > 0 && !stringValue.equalsIgnoreCase("NaN")
+      && !stringValue.equalsIgnoreCase("NA")) {
+
       String hemisphereValue = null;
       if (getHemisphereColumn() > -1) {
         hemisphereValue = line.get(getHemisphereColumn()).trim();
       }
 
-      PositionParser parser = getParser();
-      double parsedValue = parser.parsePosition(stringValue, hemisphereValue);
+      double parsedValue = getCompiledParser().parsePosition(stringValue,
+        hemisphereValue);
 
       if (!MathUtils.checkRange(parsedValue, getMin(), getMax())) {
         throw new PositionParseException(parsedValue);
       }
 
-      // Handle the corner case where rounding ends up with a value of negative
-      // zero
-      result = fixNegatives(StringUtils.formatNumber(parsedValue));
-
+      result = fixNegatives(parsedValue);
     }
 
     return result;
   }
 
+  /**
+   * Format a position value to three decimal places for storage
+   *
+   * @param value
+   *          The value
+   * @return The formatted value
+   */
+  public String formatValue(double value) {
+    // Handle the corner case where rounding ends up with a value of negative
+    // zero
+    return fixNegatives(StringUtils.formatNumber(value));
+  }
+
   protected String fixNegatives(String value) {
 
     String result = value;
@@ -235,6 +269,34 @@ public abstract class PositionSpecification {
     return result;
   }
 
+  /**
+   * Replace negative zero with zero
+   *
+   * @param value
+   *          The value
+   * @return The corrected value
+   */
+  protected double fixNegatives(double value) {
+    return value == 0D ? 0D : value;
+  }
+
+  /**
+   * Get the parser for this specification's format, creating it if necessary
+   *
+   * @return The parser
+   * @throws PositionException
+   *           If the format is not recognised
+   */
+  private PositionParser getCompiledParser() throws PositionException {
+    PositionParser result = parser;
+    if (null == result) {
+      result = getParser();
+      parser = result;
+    }
+
+    return result;
+  }
+
   protected abstract PositionParser getParser() throws PositionException;
 
   protected abstract double getMin();
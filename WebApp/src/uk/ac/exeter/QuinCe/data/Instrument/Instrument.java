@@ -144,6 +144,11 @@ public class Instrument {
    */
   private DiagnosticQCConfig diagnosticQC;
 
+  /**
+   * The interned run types and their classifications. Created on first use.
+   */
+  private volatile RunTypeClassifier runTypeClassifier = null;
+
   /**
    * Create an instrument from an existing database record.
    *
@@ -398,6 +403,65 @@ public class Instrument {
   public RunTypeCategory getRunTypeCategory(long variableId,
     String runTypeValue) throws RunTypeCategoryException {
 
+    RunTypeCategory result;
+
+    RunTypeClassifier classifier = getRunTypeClassifier();
+    int variableIndex = classifier.getVariableIndex(variableId);
+
+    if (variableIndex >= 0) {
+      result = classifier.get(runTypeValue).getCategory(variableIndex);
+    } else if (variableId == Measurement.GENERIC_RUN_TYPE_VARIABLE) {
+      result = classifier.get(runTypeValue).getGenericCategory();
+    } else {
+      result = calculateRunTypeCategory(variableId, runTypeValue);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the canonical instance of a run type string, so that values extracted
+   * from many data file lines share a single {@link String} object.
+   *
+   * @param runType
+   *          The run type
+   * @return The canonical run type string
+   */
+  public String internRunType(String runType) {
+    return null == runType ? null
+      : getRunTypeClassifier().get(runType).runType;
+  }
+
+  /**
+   * Get the run type classifier for this instrument, creating it if
+   * necessary.
+   *
+   * @return The run type classifier
+   */
+  private RunTypeClassifier getRunTypeClassifier() {
+    RunTypeClassifier result = runTypeClassifier;
+    if (null == result) {
+      result = new RunTypeClassifier(this);
+      runTypeClassifier = result;
+    }
+
+    return result;
+  }
+
+  /**
+   * Calculate the Run Type category for a given Run Type value without using
+   * the run type classifier.
+   *
+   * @param variableId
+   *          The variable ID
+   * @param runTypeValue
+   *          The Run Type value
+   * @return The Run Type category
+   * @throws RunTypeCategoryException
+   */
+  protected RunTypeCategory calculateRunTypeCategory(long variableId,
+    String runTypeValue) throws RunTypeCategoryException {
+
     RunTypeCategory result = null;
 
     // Fixed run types are those defined in code (see Measurement.java), and
@@ -709,7 +773,12 @@ public class Instrument {
     boolean result = false;
 
     if (null != runType) {
-      if (null != variable.getRunType()
+      RunTypeClassifier classifier = getRunTypeClassifier();
+      int variableIndex = classifier.getVariableIndex(variable.getId());
+
+      if (variableIndex >= 0) {
+        result = classifier.get(runType).isForVariable(variableIndex);
+      } else if (null != variable.getRunType()
         && variable.getRunType().equals(runType)) {
         result = true;
       } else if (getRunTypeCategory(variable.getId(), runType)
@@ -0,0 +1,280 @@
+package uk.ac.exeter.QuinCe.data.Instrument;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.IntStream;
+
+import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Instrument.RunTypes.RunTypeAssignments;
+import uk.ac.exeter.QuinCe.data.Instrument.RunTypes.RunTypeCategory;
+import uk.ac.exeter.QuinCe.data.Instrument.RunTypes.RunTypeCategoryException;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
+
+/**
+ * Interns an {@link Instrument}'s run types and holds the classification of
+ * each run type against each of the instrument's {@link Variable}s.
+ *
+ * <p>
+ * All the run types known when the classifier is created (the fixed run types
+ * from {@link Measurement}, the variables' own run types and the run types in
+ * the instrument's file definitions) are classified up front. Any other run
+ * type string is classified the first time it is seen. Classifications are
+ * immutable, so lookups are a map read followed by array reads and can be made
+ * from multiple threads.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+class RunTypeClassifier {
+
+  /**
+   * The instrument whose run types are being classified.
+   */
+  private final Instrument instrument;
+
+  /**
+   * The IDs of the instrument's variables. The position of a variable in this
+   * array is its index in each {@link RunTypeClass}.
+   */
+  private final long[] variableIds;
+
+  /**
+   * The instrument's variable IDs in ascending order, for looking up variable
+   * indexes.
+   */
+  private final long[] sortedVariableIds;
+
+  /**
+   * The index in {@link #variableIds} of each entry in
+   * {@link #sortedVariableIds}.
+   */
+  private final int[] sortedVariableIndexes;
+
+  /**
+   * The fixed run types of the instrument's variables, in the same order as
+   * {@link #variableIds}.
+   */
+  private final String[] variableRunTypes;
+
+  /**
+   * The classified run types.
+   */
+  private final ConcurrentHashMap<String, RunTypeClass> classes = new ConcurrentHashMap<String, RunTypeClass>();
+
+  /**
+   * Build the classifier for an instrument.
+   *
+   * @param instrument
+   *          The instrument.
+   */
+  protected RunTypeClassifier(Instrument instrument) {
+    this.instrument = instrument;
+
+    List<Variable> variables = instrument.getVariables();
+    variableIds = new long[variables.size()];
+    variableRunTypes = new String[variables.size()];
+    for (int i = 0; i < variables.size(); i++) {
+      variableIds[i] = variables.get(i).getId();
+      variableRunTypes[i] = variables.get(i).getRunType();
+    }
+
+    sortedVariableIndexes = IntStream.range(0, variableIds.length).boxed()
+      .sorted(Comparator.comparingLong(i -> variableIds[i]))
+      .mapToInt(Integer::intValue).toArray();
+
+    sortedVariableIds = new long[variableIds.length];
+    for (int i = 0; i < sortedVariableIndexes.length; i++) {
+      sortedVariableIds[i] = variableIds[sortedVariableIndexes[i]];
+    }
+
+    get(Measurement.IGNORED_RUN_TYPE);
+    get(Measurement.INTERNAL_CALIBRATION_RUN_TYPE);
+    get(Measurement.MEASUREMENT_RUN_TYPE);
+
+    for (String variableRunType : variableRunTypes) {
+      if (null != variableRunType) {
+        get(variableRunType);
+      }
+    }
+
+    if (null != instrument.getFileDefinitions()) {
+      for (FileDefinition fileDef : instrument.getFileDefinitions()) {
+        RunTypeAssignments runTypes = fileDef.getRunTypes();
+        if (null != runTypes) {
+          runTypes.keySet().forEach(this::get);
+        }
+      }
+    }
+  }
+
+  /**
+   * Get the classification of a run type, classifying it if it has not been
+   * seen before.
+   *
+   * @param runType
+   *          The run type.
+   * @return The classification.
+   */
+  protected RunTypeClass get(String runType) {
+    RunTypeClass result = classes.get(runType);
+    if (null == result) {
+      result = classes.computeIfAbsent(runType, this::classify);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the index of a variable in the classifications.
+   *
+   * @param variableId
+   *          The variable's database ID.
+   * @return The index, or {@code -1} if the variable is not measured by the
+   *         instrument.
+   */
+  protected int getVariableIndex(long variableId) {
+    int position = Arrays.binarySearch(sortedVariableIds, variableId);
+    return position < 0 ? -1 : sortedVariableIndexes[position];
+  }
+
+  private RunTypeClass classify(String runType) {
+
+    RunTypeCategory[] categories = new RunTypeCategory[variableIds.length];
+    String[] errors = new String[variableIds.length];
+    boolean[] forVariable = new boolean[variableIds.length];
+
+    for (int i = 0; i < variableIds.length; i++) {
+      boolean variableRunType = null != variableRunTypes[i]
+        && variableRunTypes[i].equals(runType);
+
+      try {
+        categories[i] = instrument.calculateRunTypeCategory(variableIds[i],
+          runType);
+        forVariable[i] = variableRunType
+          || categories[i].getType() == variableIds[i];
+      } catch (RunTypeCategoryException e) {
+        errors[i] = String.valueOf(e.getMessage());
+        forVariable[i] = variableRunType;
+      }
+    }
+
+    RunTypeCategory genericCategory = null;
+    String genericError = null;
+    try {
+      genericCategory = instrument.calculateRunTypeCategory(
+        Measurement.GENERIC_RUN_TYPE_VARIABLE, runType);
+    } catch (RunTypeCategoryException e) {
+      genericError = String.valueOf(e.getMessage());
+    }
+
+    return new RunTypeClass(runType, categories, errors, forVariable,
+      genericCategory, genericError);
+  }
+
+  /**
+   * The classification of a single run type.
+   */
+  protected static class RunTypeClass {
+
+    /**
+     * The canonical instance of the run type string.
+     */
+    protected final String runType;
+
+    /**
+     * The run type's category for each variable.
+     */
+    private final RunTypeCategory[] categories;
+
+    /**
+     * The error raised when calculating each variable's category, if any.
+     */
+    private final String[] errors;
+
+    /**
+     * Indicates whether the run type is used by each variable. Only valid if
+     * there is no error for the variable, or the flag is {@code true}.
+     */
+    private final boolean[] forVariable;
+
+    /**
+     * The category of the run type for the generic run type variable.
+     */
+    private final RunTypeCategory genericCategory;
+
+    /**
+     * The error raised when calculating the generic category, if any.
+     */
+    private final String genericError;
+
+    private RunTypeClass(String runType, RunTypeCategory[] categories,
+      String[] errors, boolean[] forVariable, RunTypeCategory genericCategory,
+      String genericError) {
+
+      this.runType = runType;
+      this.categories = categories;
+      this.errors = errors;
+      this.forVariable = forVariable;
+      this.genericCategory = genericCategory;
+      this.genericError = genericError;
+    }
+
+    /**
+     * Get the category of the run type for a variable.
+     *
+     * @param variableIndex
+     *          The variable's index.
+     * @return The category.
+     * @throws RunTypeCategoryException
+     *           If the category could not be determined.
+     */
+    protected RunTypeCategory getCategory(int variableIndex)
+      throws RunTypeCategoryException {
+
+      if (null != errors[variableIndex]) {
+        throw new RunTypeCategoryException(errors[variableIndex]);
+      }
+
+      return categories[variableIndex];
+    }
+
+    /**
+     * Get the category of the run type for the generic run type variable.
+     *
+     * @return The category.
+     * @throws RunTypeCategoryException
+     *           If the category could not be determined.
+     */
+    protected RunTypeCategory getGenericCategory()
+      throws RunTypeCategoryException {
+
+      if (null != genericError) {
+        throw new RunTypeCategoryException(genericError);
+      }
+
+      return genericCategory;
+    }
+
+    /**
+     * Determine whether the run type is used by a variable.
+     *
+     * @param variableIndex
+     *          The variable's index.
+     * @return {@code true} if the run type is for the variable.
+     * @throws RunTypeCategoryException
+     *           If the run type's category could not be determined.
+     */
+    protected boolean isForVariable(int variableIndex)
+      throws RunTypeCategoryException {
+
+      if (!forVariable[variableIndex] && null != errors[variableIndex]) {
+        throw new RunTypeCategoryException(errors[variableIndex]);
+      }
+
+      return forVariable[variableIndex];
+    }
+  }
+}
@@ -1,7 +1,6 @@
 package uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition;
 
 import java.sql.Connection;
-import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashMap;
@@ -72,7 +71,7 @@ public class SensorAssignments
 
     super();
     this.variableIDs = variableIDs;
-    populateAssignments(conn);
+    populateAssignments();
   }
 
   /**
@@ -95,7 +94,7 @@ public class SensorAssignments
     DatabaseException {
     super();
     this.variableIDs = variableIDs;
-    populateAssignments(dataSource);
+    populateAssignments();
   }
 
   /**
@@ -126,46 +125,15 @@ public class SensorAssignments
     return new SensorAssignments(conn, ids);
   }
 
-  /**
-   * Initialise the data structure. Passes through to
-   * {@link #populateAssignments(Connection)}.
-   *
-   * @param dataSource
-   *          A data source
-   * @throws DatabaseException
-   *           If any database lookups fail
-   * @throws SensorConfigurationException
-   *           If any variables can't be found
-   * @throws SensorTypeNotFoundException
-   *           If any internally listed SensorTypes don't exist
-   */
-  private void populateAssignments(DataSource dataSource)
-    throws SensorTypeNotFoundException, SensorConfigurationException,
-    DatabaseException {
-
-    try (Connection conn = dataSource.getConnection()) {
-      populateAssignments(conn);
-    } catch (SQLException e) {
-      throw new DatabaseException("Error setting up sensor assignments", e);
-    }
-  }
-
   /**
    * Initialise the data structure
    *
-   * @param conn
-   *          A database connection
-   * @throws DatabaseException
-   *           If any database lookups fail
    * @throws SensorConfigurationException
    *           If any variables can't be found
-   * @throws SensorTypeNotFoundException
-   *           If any internally listed SensorTypes don't exist
    */
-  private void populateAssignments(Connection conn) throws DatabaseException,
-    SensorTypeNotFoundException, SensorConfigurationException {
+  private void populateAssignments() throws SensorConfigurationException {
 
-    for (SensorType type : getSensorConfig().getNonCoreSensors(conn)) {
+    for (SensorType type : getSensorConfig().getNonCoreSensors()) {
       put(type, new TreeSet<SensorAssignment>());
 
       // Add the Run Type if required
@@ -466,26 +434,20 @@ public class SensorAssignments
 
     Set<SensorType> dependents = new HashSet<SensorType>();
 
-    for (SensorType testType : getSensorConfig().getSensorTypes()) {
-      // A sensor can't depend on itself
-      if (!testType.equals(sensorType)) {
-
-        if (testType.getDependsOn() == sensorType.getId()) {
-          if (testType.hasDependsQuestion()) {
-
-            // See if the Depends Question has been answered true
-            if (null != get(testType)) {
-              for (SensorAssignment assignment : get(testType)) {
-                if (assignment.getDependsQuestionAnswer()) {
-                  dependents.add(testType);
-                  break;
-                }
-              }
+    for (SensorType testType : getSensorConfig().getDependents(sensorType)) {
+      if (testType.hasDependsQuestion()) {
+
+        // See if the Depends Question has been answered true
+        if (null != get(testType)) {
+          for (SensorAssignment assignment : get(testType)) {
+            if (assignment.getDependsQuestionAnswer()) {
+              dependents.add(testType);
+              break;
             }
-          } else {
-            dependents.add(testType);
           }
         }
+      } else {
+        dependents.add(testType);
       }
     }
 
@@ -6,6 +6,7 @@ import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -45,13 +46,6 @@ public class SensorsConfiguration {
     + "diagnostic, display_order, units, column_code, column_heading " // 14
     + "FROM sensor_types";
 
-  /**
-   * Query to get non-core sensor types
-   */
-  private static final String GET_NON_CORE_TYPES_QUERY = "SELECT "
-    + "id FROM sensor_types WHERE id NOT IN "
-    + "(SELECT DISTINCT sensor_type FROM variable_sensors WHERE core = 1)";
-
   /**
    * Query to get the sensor types required by all variables
    */
@@ -74,6 +68,25 @@ public class SensorsConfiguration {
    */
   private Map<Long, Variable> instrumentVariables;
 
+  /**
+   * The children of each parent sensor type, keyed by the parent's ID. Built
+   * once when the configuration is loaded and never modified.
+   */
+  private Map<Long, Set<SensorType>> children;
+
+  /**
+   * The sensor types that depend on each sensor type, keyed by the ID of the
+   * type they depend on. Built once when the configuration is loaded and never
+   * modified.
+   */
+  private Map<Long, Set<SensorType>> dependents;
+
+  /**
+   * The sensor types that are not core sensor types for any variable. Built
+   * once when the configuration is loaded and never modified.
+   */
+  private Set<SensorType> nonCoreSensors;
+
   public SensorsConfiguration(DataSource dataSource)
     throws SensorConfigurationException, MissingParamException {
 
@@ -85,7 +98,9 @@ public class SensorsConfiguration {
       loadSensorTypes(conn);
       loadInstrumentVariables(conn);
       checkReferences();
+      buildRelations();
       checkParentsAndChildren();
+      buildNonCoreSensors();
       buildSpecialSensors();
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
@@ -279,6 +294,69 @@ public class SensorsConfiguration {
     }
   }
 
+  /**
+   * Build the lookup tables of the relationships between sensor types.
+   */
+  private void buildRelations() {
+    Map<Long, Set<SensorType>> newChildren = new HashMap<Long, Set<SensorType>>();
+    Map<Long, Set<SensorType>> newDependents = new HashMap<Long, Set<SensorType>>();
+
+    for (SensorType type : sensorTypes.values()) {
+      // Position sensor types cannot have children
+      if (type.hasParent() && !SensorType.isPosition(type.getParent())) {
+        newChildren
+          .computeIfAbsent(type.getParent(), k -> new HashSet<SensorType>())
+          .add(type);
+      }
+
+      if (type.dependsOnOtherType() && type.getDependsOn() != type.getId()) {
+        newDependents
+          .computeIfAbsent(type.getDependsOn(), k -> new HashSet<SensorType>())
+          .add(type);
+      }
+    }
+
+    newChildren.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+    newDependents.replaceAll((k, v) -> Collections.unmodifiableSet(v));
+
+    children = Collections.unmodifiableMap(newChildren);
+    dependents = Collections.unmodifiableMap(newDependents);
+  }
+
+  /**
+   * Build the set of sensor types that are not core types for any variable.
+   * Parent types are replaced by their children, and child types are
+   * accompanied by their siblings.
+   *
+   * @throws SensorTypeNotFoundException
+   *           If a referenced parent type does not exist
+   */
+  private void buildNonCoreSensors() throws SensorTypeNotFoundException {
+
+    Set<Long> coreTypes = new HashSet<Long>();
+    for (Variable variable : instrumentVariables.values()) {
+      if (null != variable.getCoreSensorType()) {
+        coreTypes.add(variable.getCoreSensorType().getId());
+      }
+    }
+
+    Set<SensorType> result = new TreeSet<SensorType>();
+
+    for (SensorType type : sensorTypes.values()) {
+      if (!coreTypes.contains(type.getId())) {
+        if (isParent(type)) {
+          result.addAll(getChildren(type));
+        } else if (getParent(type) != null) {
+          result.addAll(getChildren(getParent(type)));
+        } else {
+          result.add(type);
+        }
+      }
+    }
+
+    nonCoreSensors = Collections.unmodifiableSet(result);
+  }
+
   /**
    * Build the special sensor types used internally by the application
    */
@@ -324,21 +402,8 @@ public class SensorsConfiguration {
    * @return The child types
    */
   public Set<SensorType> getChildren(SensorType parent) {
-
-    Set<SensorType> children = new HashSet<SensorType>();
-
-    // Ignore position sensor types
-    if (!parent.equals(SensorType.LONGITUDE_SENSOR_TYPE)
-      && !parent.equals(SensorType.LATITUDE_SENSOR_TYPE)) {
-
-      for (SensorType type : sensorTypes.values()) {
-        if (type.getParent() == parent.getId()) {
-          children.add(type);
-        }
-      }
-    }
-
-    return children;
+    return children.getOrDefault(parent.getId(),
+      Collections.<SensorType>emptySet());
   }
 
   /**
@@ -365,7 +430,7 @@ public class SensorsConfiguration {
    * @return {@code true} if the SensorType has children; {@code false} if not
    */
   public boolean isParent(SensorType sensorType) {
-    return getChildren(sensorType).size() > 0;
+    return children.containsKey(sensorType.getId());
   }
 
   /**
@@ -423,53 +488,27 @@ public class SensorsConfiguration {
   }
 
   /**
-   * Get all sensor types that are not defined as core sensor types
+   * Get all sensor types that are not defined as core sensor types. Parent
+   * types are replaced by their children.
    *
-   * @param conn
-   *          A database connection
    * @return The non-core sensor types
-   * @throws DatabaseException
-   *           If a database error occurs
-   * @throws SensorTypeNotFoundException
-   *           If any types do not exist in the configuration
    */
-  public Set<SensorType> getNonCoreSensors(Connection conn)
-    throws DatabaseException, SensorTypeNotFoundException {
-
-    Set<SensorType> result = new TreeSet<SensorType>();
-    PreparedStatement stmt = null;
-    ResultSet records = null;
-
-    try {
-      stmt = conn.prepareStatement(GET_NON_CORE_TYPES_QUERY);
-      records = stmt.executeQuery();
-      while (records.next()) {
-        long typeId = records.getLong(1);
-        SensorType type = getSensorType(typeId);
-
-        // If this is a parent type, add the children
-        if (isParent(type)) {
-          for (SensorType child : getChildren(type)) {
-            result.add(child);
-          }
-        } else if (getParent(type) != null) {
-          // If this is a child, add it and all its siblings
-          for (SensorType child : getChildren(getParent(type))) {
-            result.add(child);
-          }
-        } else {
-          result.add(sensorTypes.get(records.getLong(1)));
-        }
-      }
-    } catch (SQLException e) {
-      throw new DatabaseException(
-        "Error while retrieving non-core sensor types", e);
-    } finally {
-      DatabaseUtils.closeResultSets(records);
-      DatabaseUtils.closeStatements(stmt);
-    }
+  public Set<SensorType> getNonCoreSensors() {
+    return nonCoreSensors;
+  }
 
-    return result;
+  /**
+   * Get the sensor types that depend on the specified sensor type (i.e. whose
+   * {@link SensorType#getDependsOn()} is the specified type). If there are no
+   * dependents the set will be empty.
+   *
+   * @param sensorType
+   *          The sensor type
+   * @return The dependent sensor types
+   */
+  public Set<SensorType> getDependents(SensorType sensorType) {
+    return dependents.getOrDefault(sensorType.getId(),
+      Collections.<SensorType>emptySet());
   }
 
   /**
@@ -831,6 +870,15 @@ public class SensorsConfiguration {
     return result;
   }
 
+  /**
+   * Get all the {@link Variable}s defined in the system.
+   *
+   * @return The variables.
+   */
+  public Collection<Variable> getInstrumentVariables() {
+    return Collections.unmodifiableCollection(instrumentVariables.values());
+  }
+
   /**
    * Get a list of {@link Variable}s using their IDs.
    *
@@ -94,6 +94,11 @@ public abstract class Job {
    */
   private String finishState = FINISHED_STATUS;
 
+  /**
+   * The instrumentation for this run of the job
+   */
+  protected final JobMetrics metrics;
+
   /**
    * Constructs a job object, and validates the parameters passed to it
    *
@@ -124,6 +129,7 @@ public abstract class Job {
     // Extract the data source into its own variable, since it's what we use
     // most
     this.dataSource = resourceManager.getDBDataSource();
+    this.metrics = new JobMetrics(id, getClass());
 
     validateParameters();
   }
@@ -186,6 +192,61 @@ public abstract class Job {
     }
   }
 
+  /**
+   * Report the progress for the job, as a percentage. Jobs can call this as
+   * often as they like: the progress is always available through the job's
+   * {@link JobMetrics}, but is only written to the database periodically.
+   *
+   * @param progress
+   *          The progress
+   * @throws BadProgressException
+   *           If the progress is not between 0 and 100
+   * @throws NoSuchJobException
+   *           If the job is not in the database
+   * @throws DatabaseException
+   *           If an error occurs while updating the database
+   * @throws MissingParamException
+   *           If any required parameters are missing in internal calls
+   * @see JobMetrics#progressWriteDue(double, long)
+   */
+  protected void updateProgress(double progress) throws MissingParamException,
+    BadProgressException, NoSuchJobException, DatabaseException {
+    if (metrics.progressWriteDue(progress, System.currentTimeMillis())) {
+      setProgress(progress);
+    }
+  }
+
+  /**
+   * Report the progress for the job as the proportion of a number of items
+   * that have been processed, scaled to fit within a range of percentages.
+   * This allows jobs with multiple stages to report progress for each stage in
+   * turn.
+   *
+   * @param done
+   *          The number of items processed
+   * @param total
+   *          The total number of items
+   * @param from
+   *          The progress percentage at the start of the range
+   * @param to
+   *          The progress percentage at the end of the range
+   * @throws BadProgressException
+   *           If the progress is not between 0 and 100
+   * @throws NoSuchJobException
+   *           If the job is not in the database
+   * @throws DatabaseException
+   *           If an error occurs while updating the database
+   * @throws MissingParamException
+   *           If any required parameters are missing in internal calls
+   * @see #updateProgress(double)
+   */
+  protected void updateProgress(long done, long total, double from, double to)
+    throws MissingParamException, BadProgressException, NoSuchJobException,
+    DatabaseException {
+    double fraction = total <= 0 ? 1D : Math.min(1D, (double) done / total);
+    updateProgress(from + (to - from) * fraction);
+  }
+
   /**
    * Log the fact that the job has been started in the appropriate locations.
    * Initially this is just in the job manager, but it can be extended by other
@@ -302,6 +363,15 @@ public abstract class Job {
     return id;
   }
 
+  /**
+   * Get the instrumentation for this run of the job
+   *
+   * @return The job metrics
+   */
+  public JobMetrics getMetrics() {
+    return metrics;
+  }
+
   /**
    * Destroys the job object, releasing the database connection.
    */
@@ -79,9 +79,38 @@ public class JobManager {
   private static final String FIND_JOB_QUERY = "SELECT COUNT(*) FROM job WHERE id = ?";
 
   /**
-   * Statement to retrieve the list of jobs
+   * Start of the query to retrieve a page of the job list. Stack traces are not
+   * retrieved; only a flag to indicate whether each job has one.
+   *
+   * @see #getJobList(DataSource, String, JobSummary, int)
+   */
+  private static final String JOB_LIST_QUERY = "SELECT id, owner, class, "
+    + "created, status, started, ended, progress, stack_trace IS NOT NULL "
+    + "FROM job";
+
+  /**
+   * Job list condition to restrict the list to a single status
+   */
+  private static final String JOB_LIST_STATUS_CONDITION = "status = ?";
+
+  /**
+   * Job list condition to retrieve the jobs that follow a given job in the
+   * list, which is ordered by creation time and ID (newest first).
    */
-  private static final String JOB_LIST_QUERY = "SELECT id, owner, class, created, status, started, ended, progress, stack_trace FROM job ORDER BY created DESC";
+  private static final String JOB_LIST_AFTER_CONDITION = "created <= ? AND "
+    + "(created < ? OR id < ?)";
+
+  /**
+   * Ordering and limit for the job list
+   */
+  private static final String JOB_LIST_ORDER = " ORDER BY created DESC, "
+    + "id DESC LIMIT ?";
+
+  /**
+   * Query to retrieve the stack trace of a job
+   */
+  private static final String GET_STACK_TRACE_QUERY = "SELECT stack_trace "
+    + "FROM job WHERE id = ?";
 
   /**
    * SQL statement for setting a job's status
@@ -131,7 +160,7 @@ public class JobManager {
   /**
    * Statement to get the number of jobs of each status
    */
-  private static final String GET_JOB_COUNTS_QUERY = "SELECT status, COUNT(status) FROM job GROUP BY status";
+  private static final String GET_JOB_COUNTS_QUERY = "SELECT status, COUNT(*) FROM job GROUP BY status";
 
   /**
    * Statement to retrieve the status of a given job
@@ -161,10 +190,20 @@ public class JobManager {
   private static final String GET_QUEUED_RUNNING_JOBS_QUERY = "SELECT id, class, properties FROM job WHERE status = 'WAITING' OR status = 'RUNNING'";
 
   /**
-   * Statement to delete finished jobs that are older than a specified number of
-   * days
+   * Statement to delete jobs with a given status that ended before a specified
+   * time. Jobs are deleted in batches so the table is not locked for long
+   * periods.
+   *
+   * @see #deleteOldJobs(DataSource, String, int)
+   */
+  private static final String DELETE_OLD_JOBS_STATEMENT = "DELETE FROM job "
+    + "WHERE status = ? AND ended < ? LIMIT ?";
+
+  /**
+   * The maximum number of jobs removed by each execution of
+   * {@link #DELETE_OLD_JOBS_STATEMENT}
    */
-  private static final String DELETE_OLD_FINISHED_JOBS_STATEMENT = "DELETE FROM job WHERE status = 'FINISHED' AND ended < (NOW() - INTERVAL ? DAY)";
+  private static final int DELETE_BATCH_SIZE = 1000;
 
   /**
    * Query to get the IDs of active jobs of a given job class
@@ -1006,66 +1045,162 @@ public class JobManager {
   }
 
   /**
-   * Retrieve summaries of the complete list of jobs in the system.
+   * Retrieve a page of job summaries, newest first.
+   *
+   * <p>
+   * Pages are located using the last job of the previous page rather than an
+   * offset, so each page can be read directly from the {@code job} table's
+   * indexes however far through the list it is. Pass {@code null} as
+   * {@code after} to get the first page.
+   * </p>
+   *
+   * <p>
+   * The jobs' stack traces are not retrieved; use
+   * {@link #getStackTrace(DataSource, long)} to get the stack trace for a
+   * single job.
+   * </p>
    *
    * @param dataSource
    *          A data source
-   * @return The list of jobs
+   * @param status
+   *          The status of the jobs to retrieve, or {@code null} for all jobs
+   * @param after
+   *          The last job of the previous page, or {@code null} to get the
+   *          first page
+   * @param limit
+   *          The maximum number of jobs to retrieve
+   * @return The jobs
    * @throws DatabaseException
    *           If a database error occurs
    * @throws MissingParamException
    *           If any required parameters are missing
+   * @throws UnrecognisedStatusException
+   *           If the status is not a valid job status
    */
-  @Deprecated
-  public static List<JobSummary> getJobList(DataSource dataSource)
-    throws DatabaseException, MissingParamException {
+  public static List<JobSummary> getJobList(DataSource dataSource,
+    String status, JobSummary after, int limit) throws DatabaseException,
+    MissingParamException, UnrecognisedStatusException {
 
     MissingParam.checkMissing(dataSource, "dataSource");
+    MissingParam.checkPositive(limit, "limit");
 
-    List<JobSummary> result = new ArrayList<JobSummary>();
+    if (null != status && !checkJobStatus(status)) {
+      throw new UnrecognisedStatusException(status);
+    }
 
-    Connection conn = null;
-    PreparedStatement stmt = null;
-    ResultSet records = null;
+    List<String> conditions = new ArrayList<String>(2);
+    if (null != status) {
+      conditions.add(JOB_LIST_STATUS_CONDITION);
+    }
 
-    try {
+    if (null != after) {
+      conditions.add(JOB_LIST_AFTER_CONDITION);
+    }
 
-      conn = dataSource.getConnection();
-      stmt = conn.prepareStatement(JOB_LIST_QUERY);
+    StringBuilder sql = new StringBuilder(JOB_LIST_QUERY);
+    if (conditions.size() > 0) {
+      sql.append(" WHERE ");
+      sql.append(String.join(" AND ", conditions));
+    }
+    sql.append(JOB_LIST_ORDER);
 
-      records = stmt.executeQuery();
-      while (records.next()) {
-        long id = records.getLong(1);
-        long userID = records.getLong(2);
-        User owner = UserDB.getUser(dataSource, userID);
-        String className = records.getString(3);
-        Date created = new Date(records.getTimestamp(4).getTime());
-        String status = records.getString(5);
-        Date started = null;
-
-        if (null != records.getTimestamp(6)) {
-          started = new Date(records.getTimestamp(6).getTime());
-        }
+    List<JobSummary> result = new ArrayList<JobSummary>(limit);
 
-        Date ended = null;
+    // Each owner is only looked up once
+    Map<Long, User> owners = new HashMap<Long, User>();
 
-        if (null != records.getTimestamp(7)) {
-          ended = new Date(records.getTimestamp(7).getTime());
-        }
+    try (Connection conn = dataSource.getConnection();
+      PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
 
-        double progress = records.getDouble(8);
-        String stackTrace = records.getString(9);
+      int param = 1;
+      if (null != status) {
+        stmt.setString(param++, status);
+      }
 
-        result.add(new JobSummary(id, owner, className, created, status,
-          started, ended, progress, stackTrace));
+      if (null != after) {
+        Timestamp afterCreated = new Timestamp(after.getCreated().getTime());
+        stmt.setTimestamp(param++, afterCreated);
+        stmt.setTimestamp(param++, afterCreated);
+        stmt.setLong(param++, after.getId());
       }
 
+      stmt.setInt(param, limit);
+
+      try (ResultSet records = stmt.executeQuery()) {
+        while (records.next()) {
+          long id = records.getLong(1);
+          long userID = records.getLong(2);
+
+          if (!owners.containsKey(userID)) {
+            owners.put(userID, UserDB.getUser(conn, userID));
+          }
+
+          String className = records.getString(3);
+          Date created = new Date(records.getTimestamp(4).getTime());
+          String jobStatus = records.getString(5);
+          Date started = null;
+
+          if (null != records.getTimestamp(6)) {
+            started = new Date(records.getTimestamp(6).getTime());
+          }
+
+          Date ended = null;
+
+          if (null != records.getTimestamp(7)) {
+            ended = new Date(records.getTimestamp(7).getTime());
+          }
+
+          double progress = records.getDouble(8);
+          boolean hasStackTrace = records.getBoolean(9);
+
+          result.add(new JobSummary(id, owners.get(userID), className,
+            created, jobStatus, started, ended, progress, hasStackTrace));
+        }
+      }
     } catch (SQLException e) {
       throw new DatabaseException("Error while retrieving job list", e);
-    } finally {
-      DatabaseUtils.closeResultSets(records);
-      DatabaseUtils.closeStatements(stmt);
-      DatabaseUtils.closeConnection(conn);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the stack trace recorded for a job.
+   *
+   * @param dataSource
+   *          A data source
+   * @param jobId
+   *          The job's database ID
+   * @return The stack trace, or {@code null} if the job does not have one
+   * @throws MissingParamException
+   *           If any required parameters are missing
+   * @throws NoSuchJobException
+   *           If the job doesn't exist in the database
+   * @throws DatabaseException
+   *           If a database error occurs
+   */
+  public static String getStackTrace(DataSource dataSource, long jobId)
+    throws MissingParamException, NoSuchJobException, DatabaseException {
+
+    MissingParam.checkMissing(dataSource, "dataSource");
+    MissingParam.checkPositive(jobId, "jobId");
+
+    String result = null;
+
+    try (Connection conn = dataSource.getConnection();
+      PreparedStatement stmt = conn.prepareStatement(GET_STACK_TRACE_QUERY)) {
+
+      stmt.setLong(1, jobId);
+
+      try (ResultSet record = stmt.executeQuery()) {
+        if (!record.next()) {
+          throw new NoSuchJobException(jobId);
+        }
+
+        result = record.getString(1);
+      }
+    } catch (SQLException e) {
+      throw new DatabaseException("Error while retrieving job stack trace", e);
     }
 
     return result;
@@ -1667,53 +1802,71 @@ public class JobManager {
   }
 
   /**
-   * Delete old jobs from the system.
+   * Delete old jobs with a given status from the system.
    *
    * <p>
-   * This method will delete jobs from the system that are no longer required.
-   * It will only delete jobs that successfully finished (i.e. have the status
-   * {@link Job#FINISHED_STATUS}). Jobs that finished with an error or were
-   * killed will be left in the system so that they can be invetigated. These
-   * must be deleted manually.
+   * Only jobs that have ended (i.e. have the status {@link Job#FINISHED_STATUS},
+   * {@link Job#ERROR_STATUS} or {@link Job#KILLED_STATUS}) can be deleted. The
+   * {@code age} parameter indicates how old (in days) jobs must be before they
+   * are deleted. The age will be taken from the time that the job ended. Jobs
+   * that ended more recently than this threshold will be left alone.
    * </p>
    *
    * <p>
-   * The {@code age} parameter indicates how old (in days) jobs must be before
-   * they are deleted. The age will be taken from the time that the job
-   * finished. Jobs that finished more recently than this threshold will be left
-   * alone.
+   * Jobs are deleted in batches of {@link #DELETE_BATCH_SIZE}.
    * </p>
    *
    * @param dataSource
    *          A data source
+   * @param status
+   *          The status of the jobs to delete
    * @param age
    *          The age of the jobs to delete, in days
+   * @return The number of jobs deleted
    * @throws DatabaseException
    *           If a database error occurs
    * @throws MissingParamException
    *           If any parameters are missing or invalid
+   * @throws UnrecognisedStatusException
+   *           If the status is not one of the ended job statuses
    */
-  public static void deleteFinishedJobs(DataSource dataSource, int age)
-    throws DatabaseException, MissingParamException {
+  public static int deleteOldJobs(DataSource dataSource, String status,
+    int age)
+    throws DatabaseException, MissingParamException, UnrecognisedStatusException {
 
     MissingParam.checkMissing(dataSource, "dataSource");
+    MissingParam.checkMissing(status, "status");
     MissingParam.checkPositive(age, "age");
 
-    Connection conn = null;
-    PreparedStatement stmt = null;
+    if (!status.equals(Job.FINISHED_STATUS) && !status.equals(Job.ERROR_STATUS)
+      && !status.equals(Job.KILLED_STATUS)) {
+      throw new UnrecognisedStatusException(status);
+    }
 
-    try {
-      conn = dataSource.getConnection();
-      stmt = conn.prepareStatement(DELETE_OLD_FINISHED_JOBS_STATEMENT);
-      stmt.setInt(1, age);
-      stmt.execute();
+    Timestamp cutoff = new Timestamp(
+      System.currentTimeMillis() - age * 86400000L);
+
+    int deleted = 0;
+
+    try (Connection conn = dataSource.getConnection();
+      PreparedStatement stmt = conn
+        .prepareStatement(DELETE_OLD_JOBS_STATEMENT)) {
+
+      stmt.setString(1, status);
+      stmt.setTimestamp(2, cutoff);
+      stmt.setInt(3, DELETE_BATCH_SIZE);
+
+      int batchCount;
+      do {
+        batchCount = stmt.executeUpdate();
+        deleted += batchCount;
+      } while (batchCount == DELETE_BATCH_SIZE);
 
     } catch (SQLException e) {
       throw new DatabaseException("Error while deleting old jobs", e);
-    } finally {
-      DatabaseUtils.closeStatements(stmt);
-      DatabaseUtils.closeConnection(conn);
     }
+
+    return deleted;
   }
 
   public static List<Long> getExistingJobs(Connection conn, String jobClass)
@@ -0,0 +1,477 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Instrumentation for a single run of a {@link Job}.
+ *
+ * <p>
+ * A job's work is divided into named stages (e.g. reading files, running QC,
+ * storing results). For each stage we record the wall clock time, the CPU time
+ * used by the job's thread, and the time spent waiting on the database. The
+ * job can also maintain named counters (rows read, sensor values written
+ * etc.) and accumulate timings for individual operations such as QC routines.
+ * </p>
+ *
+ * <p>
+ * The metrics also decide when a job's progress should be written to the
+ * database, so that jobs can report progress as often as they like without
+ * hammering the {@code job} table (see {@link #progressWriteDue}).
+ * </p>
+ *
+ * <p>
+ * Metrics are updated by the job's thread and read by the web application and
+ * JMX, so all access is synchronized. CPU time is only measured for the job's
+ * own thread; work farmed out to other threads will appear as wall clock time
+ * only.
+ * </p>
+ *
+ * @author Steve Jones
+ * @see JobMetricsRegistry
+ */
+public class JobMetrics implements JobMetricsMXBean {
+
+  /**
+   * Counter for the number of file lines read.
+   */
+  public static final String ROWS_READ = "Rows read";
+
+  /**
+   * Counter for the number of sensor values written to the database.
+   */
+  public static final String SENSOR_VALUES_WRITTEN = "Sensor values written";
+
+  /**
+   * Counter for the number of sensor values QCed.
+   */
+  public static final String SENSOR_VALUES_QCED = "Sensor values QCed";
+
+  /**
+   * Counter for the number of measurements located.
+   */
+  public static final String MEASUREMENTS_LOCATED = "Measurements located";
+
+  /**
+   * Counter for the number of measurements passed through data reduction.
+   */
+  public static final String MEASUREMENTS_REDUCED = "Measurements reduced";
+
+  /**
+   * Counter for the number of dataset records deleted.
+   */
+  public static final String RECORDS_DELETED = "Records deleted";
+
+  /**
+   * The minimum time between progress updates being written to the database.
+   */
+  public static final long PROGRESS_WRITE_INTERVAL = 5000L;
+
+  /**
+   * The minimum change in progress (in percent) before it is written to the
+   * database.
+   */
+  public static final double PROGRESS_WRITE_STEP = 1D;
+
+  /**
+   * Thread CPU time measurement.
+   */
+  private static final ThreadMXBean THREAD_BEAN = ManagementFactory
+    .getThreadMXBean();
+
+  /**
+   * The job's database ID.
+   */
+  private final long jobId;
+
+  /**
+   * The simple name of the job's class.
+   */
+  private final String jobClass;
+
+  /**
+   * The time that the job started.
+   */
+  private final long startTime;
+
+  /**
+   * The time that the job finished, or -1 if it is still running.
+   */
+  private long endTime = -1L;
+
+  /**
+   * The job's status.
+   */
+  private String status = Job.RUNNING_STATUS;
+
+  /**
+   * The stages run by the job, in the order they were started.
+   */
+  private final LinkedHashMap<String, StageMetrics> stages = new LinkedHashMap<String, StageMetrics>();
+
+  /**
+   * The stage currently being run.
+   */
+  private StageMetrics currentStage = null;
+
+  /**
+   * The job's counters.
+   */
+  private final TreeMap<String, Long> counters = new TreeMap<String, Long>();
+
+  /**
+   * Accumulated timings of operations within the job, in nanoseconds.
+   */
+  private final TreeMap<String, Long> timings = new TreeMap<String, Long>();
+
+  /**
+   * The most recently reported progress.
+   */
+  private double progress = 0D;
+
+  /**
+   * The last progress value written to the database.
+   */
+  private double writtenProgress = -1D;
+
+  /**
+   * The time that progress was last written to the database.
+   */
+  private long progressWriteTime = -1L;
+
+  /**
+   * The last time that any activity was recorded.
+   */
+  private long lastActivity;
+
+  /**
+   * The peak heap usage seen while the job was running.
+   */
+  private long peakHeap = 0L;
+
+  /**
+   * Create the metrics for a job that is about to start.
+   *
+   * @param jobId
+   *          The job's database ID
+   * @param jobClass
+   *          The job's class
+   */
+  public JobMetrics(long jobId, Class<? extends Job> jobClass) {
+    this.jobId = jobId;
+    this.jobClass = jobClass.getSimpleName();
+    this.startTime = System.currentTimeMillis();
+    this.lastActivity = startTime;
+    sampleHeap();
+  }
+
+  /**
+   * Start a new stage of the job. Any currently running stage is ended first.
+   * Starting a stage with the same name as a previous stage adds to that
+   * stage's totals.
+   *
+   * @param stage
+   *          The stage name
+   */
+  public synchronized void startStage(String stage) {
+    endStage();
+
+    StageMetrics stageMetrics = stages.get(stage);
+    if (null == stageMetrics) {
+      stageMetrics = new StageMetrics(stage);
+      stages.put(stage, stageMetrics);
+    }
+
+    stageMetrics.start(System.nanoTime(), threadCpuTime());
+    currentStage = stageMetrics;
+    activity();
+  }
+
+  /**
+   * End the currently running stage, if there is one.
+   */
+  public synchronized void endStage() {
+    if (null != currentStage) {
+      currentStage.end(System.nanoTime(), threadCpuTime());
+      currentStage = null;
+      activity();
+    }
+  }
+
+  /**
+   * Add to one of the job's counters.
+   *
+   * @param counter
+   *          The counter name
+   * @param amount
+   *          The amount to add
+   */
+  public synchronized void increment(String counter, long amount) {
+    counters.merge(counter, amount, Long::sum);
+    activity();
+  }
+
+  /**
+   * Add to the accumulated time for a named operation.
+   *
+   * @param operation
+   *          The operation name
+   * @param nanos
+   *          The time taken, in nanoseconds
+   */
+  public synchronized void addTiming(String operation, long nanos) {
+    timings.merge(operation, nanos, Long::sum);
+    activity();
+  }
+
+  /**
+   * Record time spent waiting on the database in the current stage. The time
+   * is measured from the specified start time (from
+   * {@link System#nanoTime()}) to now.
+   *
+   * @param startNanos
+   *          The time that the database operation started
+   */
+  public synchronized void addDatabaseTime(long startNanos) {
+    if (null != currentStage) {
+      currentStage.databaseNanos += System.nanoTime() - startNanos;
+    }
+    activity();
+  }
+
+  /**
+   * Record the job's progress, and decide whether it should be written to the
+   * database. Progress is written when it reaches 100%, or when at least
+   * {@link #PROGRESS_WRITE_INTERVAL} milliseconds have passed since the last
+   * write and the progress has changed by at least
+   * {@link #PROGRESS_WRITE_STEP}.
+   *
+   * <p>
+   * If this method returns {@code true}, the caller must write the progress
+   * to the database.
+   * </p>
+   *
+   * @param progress
+   *          The progress
+   * @param now
+   *          The current time
+   * @return {@code true} if the progress should be written to the database;
+   *         {@code false} if not
+   */
+  public synchronized boolean progressWriteDue(double progress, long now) {
+    this.progress = progress;
+    activity();
+
+    boolean due = false;
+
+    if (progress != writtenProgress) {
+      if (progress >= 100D || progressWriteTime < 0) {
+        due = true;
+      } else if (now - progressWriteTime >= PROGRESS_WRITE_INTERVAL
+        && Math.abs(progress - writtenProgress) >= PROGRESS_WRITE_STEP) {
+        due = true;
+      }
+    }
+
+    if (due) {
+      writtenProgress = progress;
+      progressWriteTime = now;
+    }
+
+    return due;
+  }
+
+  /**
+   * Mark the job as finished.
+   *
+   * @param status
+   *          The job's final status
+   */
+  protected synchronized void finish(String status) {
+    endStage();
+    this.status = status;
+    this.endTime = System.currentTimeMillis();
+  }
+
+  /**
+   * Record that something has happened in the job, and sample the heap.
+   */
+  private void activity() {
+    lastActivity = System.currentTimeMillis();
+    sampleHeap();
+  }
+
+  /**
+   * Update the peak heap usage.
+   */
+  private void sampleHeap() {
+    Runtime runtime = Runtime.getRuntime();
+    long used = runtime.totalMemory() - runtime.freeMemory();
+    if (used > peakHeap) {
+      peakHeap = used;
+    }
+  }
+
+  /**
+   * Get the CPU time of the current thread, if the JVM supports it.
+   *
+   * @return The CPU time in nanoseconds, or -1 if it is not available
+   */
+  private static long threadCpuTime() {
+    return THREAD_BEAN.isCurrentThreadCpuTimeSupported()
+      ? THREAD_BEAN.getCurrentThreadCpuTime()
+      : -1L;
+  }
+
+  @Override
+  public long getJobId() {
+    return jobId;
+  }
+
+  @Override
+  public String getJobClass() {
+    return jobClass;
+  }
+
+  @Override
+  public synchronized String getStatus() {
+    return status;
+  }
+
+  @Override
+  public synchronized String getCurrentStage() {
+    return null == currentStage ? null : currentStage.name;
+  }
+
+  @Override
+  public synchronized double getProgress() {
+    return progress;
+  }
+
+  @Override
+  public synchronized long getElapsedMillis() {
+    long end = endTime < 0 ? System.currentTimeMillis() : endTime;
+    return end - startTime;
+  }
+
+  @Override
+  public synchronized long getIdleMillis() {
+    return endTime < 0 ? System.currentTimeMillis() - lastActivity : 0L;
+  }
+
+  @Override
+  public synchronized long getPeakHeapBytes() {
+    return peakHeap;
+  }
+
+  @Override
+  public synchronized Map<String, Long> getCounters() {
+    return Collections.unmodifiableMap(new TreeMap<String, Long>(counters));
+  }
+
+  /**
+   * Get the value of a single counter.
+   *
+   * @param counter
+   *          The counter name
+   * @return The counter value
+   */
+  public synchronized long getCounter(String counter) {
+    return counters.getOrDefault(counter, 0L);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getTimingMillis() {
+    Map<String, Long> result = new TreeMap<String, Long>();
+    timings.forEach((k, v) -> result.put(k, toMillis(v)));
+    return Collections.unmodifiableMap(result);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getStageWallMillis() {
+    long nanoNow = System.nanoTime();
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    stages.values().forEach(s -> result.put(s.name, toMillis(s.wall(nanoNow))));
+    return Collections.unmodifiableMap(result);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getStageCpuMillis() {
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    stages.values().forEach(s -> result.put(s.name, toMillis(s.cpuNanos)));
+    return Collections.unmodifiableMap(result);
+  }
+
+  @Override
+  public synchronized Map<String, Long> getStageDatabaseMillis() {
+    Map<String, Long> result = new LinkedHashMap<String, Long>();
+    stages.values()
+      .forEach(s -> result.put(s.name, toMillis(s.databaseNanos)));
+    return Collections.unmodifiableMap(result);
+  }
+
+  /**
+   * Get the names of the stages run by the job, in the order they were
+   * started.
+   *
+   * @return The stage names
+   */
+  public synchronized List<String> getStages() {
+    return new ArrayList<String>(stages.keySet());
+  }
+
+  private static long toMillis(long nanos) {
+    return TimeUnit.NANOSECONDS.toMillis(nanos);
+  }
+
+  /**
+   * The accumulated times for a single stage of a job.
+   */
+  private static class StageMetrics {
+
+    private final String name;
+
+    private long wallNanos = 0L;
+
+    private long cpuNanos = 0L;
+
+    private long databaseNanos = 0L;
+
+    private long startNanos = -1L;
+
+    private long startCpu = -1L;
+
+    private StageMetrics(String name) {
+      this.name = name;
+    }
+
+    private void start(long nanoTime, long cpuTime) {
+      startNanos = nanoTime;
+      startCpu = cpuTime;
+    }
+
+    private void end(long nanoTime, long cpuTime) {
+      wallNanos += nanoTime - startNanos;
+      if (startCpu >= 0 && cpuTime >= 0) {
+        cpuNanos += cpuTime - startCpu;
+      }
+      startNanos = -1L;
+      startCpu = -1L;
+    }
+
+    /**
+     * Get the wall clock time for the stage, including the current run if
+     * the stage is in progress.
+     */
+    private long wall(long nanoNow) {
+      return startNanos < 0 ? wallNanos : wallNanos + nanoNow - startNanos;
+    }
+  }
+}
@@ -0,0 +1,113 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+import java.util.Map;
+
+/**
+ * JMX view of the {@link JobMetrics} for a running job.
+ *
+ * <p>
+ * Each running job is registered with the platform MBean server by the
+ * {@link JobMetricsRegistry} under the name
+ * {@code uk.ac.exeter.QuinCe:type=Job,id=<job id>}.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public interface JobMetricsMXBean {
+
+  /**
+   * Get the job's database ID.
+   *
+   * @return The job ID
+   */
+  long getJobId();
+
+  /**
+   * Get the simple name of the job's class.
+   *
+   * @return The job class
+   */
+  String getJobClass();
+
+  /**
+   * Get the job's status.
+   *
+   * @return The status
+   */
+  String getStatus();
+
+  /**
+   * Get the name of the stage that the job is currently running.
+   *
+   * @return The current stage, or {@code null} if no stage has been started
+   */
+  String getCurrentStage();
+
+  /**
+   * Get the most recently reported progress of the job as a percentage.
+   *
+   * @return The progress
+   */
+  double getProgress();
+
+  /**
+   * Get the time since the job started.
+   *
+   * @return The elapsed time in milliseconds
+   */
+  long getElapsedMillis();
+
+  /**
+   * Get the time since the job last reported any activity (progress, counter
+   * updates, timings or stage changes). A steadily increasing value for a
+   * running job indicates that it may be stuck.
+   *
+   * @return The idle time in milliseconds
+   */
+  long getIdleMillis();
+
+  /**
+   * Get the highest heap usage seen while the job was running.
+   *
+   * @return The peak heap usage in bytes
+   */
+  long getPeakHeapBytes();
+
+  /**
+   * Get the job's counters, such as the number of rows read or sensor values
+   * written.
+   *
+   * @return The counters
+   */
+  Map<String, Long> getCounters();
+
+  /**
+   * Get the accumulated timings of individual operations within the job, such
+   * as each QC routine.
+   *
+   * @return The timings in milliseconds
+   */
+  Map<String, Long> getTimingMillis();
+
+  /**
+   * Get the wall clock time spent in each stage.
+   *
+   * @return The stage times in milliseconds
+   */
+  Map<String, Long> getStageWallMillis();
+
+  /**
+   * Get the CPU time used by the job thread in each stage.
+   *
+   * @return The stage CPU times in milliseconds
+   */
+  Map<String, Long> getStageCpuMillis();
+
+  /**
+   * Get the time spent waiting on the database in each stage.
+   *
+   * @return The stage database times in milliseconds
+   */
+  Map<String, Long> getStageDatabaseMillis();
+}
@@ -0,0 +1,153 @@
+package uk.ac.exeter.QuinCe.jobs;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
+
+/**
+ * Keeps track of the {@link JobMetrics} for all jobs running in this
+ * application instance, plus a short history of recently completed jobs.
+ *
+ * <p>
+ * Running jobs are also registered as MXBeans with the platform MBean server
+ * so they can be inspected with standard JMX tools.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class JobMetricsRegistry {
+
+  /**
+   * The JMX domain for job MXBeans.
+   */
+  public static final String JMX_DOMAIN = "uk.ac.exeter.QuinCe";
+
+  /**
+   * The number of completed jobs to keep.
+   */
+  private static final int HISTORY_SIZE = 50;
+
+  /**
+   * The metrics for running jobs.
+   */
+  private static Map<Long, JobMetrics> running = new ConcurrentHashMap<Long, JobMetrics>();
+
+  /**
+   * The metrics for recently completed jobs, most recent first.
+   */
+  private static ArrayDeque<JobMetrics> history = new ArrayDeque<JobMetrics>(
+    HISTORY_SIZE);
+
+  /**
+   * Static methods only.
+   */
+  private JobMetricsRegistry() {
+  }
+
+  /**
+   * Register the metrics for a job that is starting.
+   *
+   * @param metrics
+   *          The job's metrics
+   */
+  protected static void register(JobMetrics metrics) {
+    running.put(metrics.getJobId(), metrics);
+
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = getObjectName(metrics.getJobId());
+      if (!server.isRegistered(name)) {
+        server.registerMBean(metrics, name);
+      }
+    } catch (Exception e) {
+      // JMX is a convenience, so failure here must not stop the job
+      ExceptionUtils.printStackTrace(e);
+    }
+  }
+
+  /**
+   * Mark a job as complete, moving its metrics to the history.
+   *
+   * @param metrics
+   *          The job's metrics
+   * @param status
+   *          The job's final status
+   */
+  protected static void complete(JobMetrics metrics, String status) {
+    metrics.finish(status);
+    running.remove(metrics.getJobId());
+
+    synchronized (history) {
+      if (history.size() == HISTORY_SIZE) {
+        history.removeLast();
+      }
+      history.addFirst(metrics);
+    }
+
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      ObjectName name = getObjectName(metrics.getJobId());
+      if (server.isRegistered(name)) {
+        server.unregisterMBean(name);
+      }
+    } catch (Exception e) {
+      ExceptionUtils.printStackTrace(e);
+    }
+  }
+
+  /**
+   * Get the metrics for all running jobs, ordered by job ID.
+   *
+   * @return The running jobs' metrics
+   */
+  public static List<JobMetrics> getRunningJobs() {
+    List<JobMetrics> result = new ArrayList<JobMetrics>(running.values());
+    result.sort(Comparator.comparingLong(JobMetrics::getJobId));
+    return result;
+  }
+
+  /**
+   * Get the metrics for recently completed jobs, most recent first.
+   *
+   * @return The completed jobs' metrics
+   */
+  public static List<JobMetrics> getCompletedJobs() {
+    synchronized (history) {
+      return new ArrayList<JobMetrics>(history);
+    }
+  }
+
+  /**
+   * Get the metrics for a specific job, if it is running or has recently
+   * completed.
+   *
+   * @param jobId
+   *          The job ID
+   * @return The job's metrics, or {@code null} if they are not available
+   */
+  public static JobMetrics getJob(long jobId) {
+    JobMetrics result = running.get(jobId);
+    if (null == result) {
+      synchronized (history) {
+        result = history.stream().filter(m -> m.getJobId() == jobId)
+          .findFirst().orElse(null);
+      }
+    }
+
+    return result;
+  }
+
+  private static ObjectName getObjectName(long jobId) throws Exception {
+    return new ObjectName(JMX_DOMAIN + ":type=Job,id=" + jobId);
+  }
+}
@@ -2,8 +2,6 @@ package uk.ac.exeter.QuinCe.jobs;
 
 import java.util.Date;
 
-import org.apache.commons.text.StringEscapeUtils;
-
 import uk.ac.exeter.QuinCe.User.User;
 
 /**
@@ -58,9 +56,11 @@ public class JobSummary {
   private double progress;
 
   /**
-   * The stack trace for the job (if an error occurred while it was running)
+   * Indicates whether a stack trace was recorded for the job (if an error
+   * occurred while it was running). The stack trace itself is retrieved
+   * separately using {@link JobManager#getStackTrace}.
    */
-  private String stackTrace;
+  private boolean hasStackTrace;
 
   /**
    * Basic constructor - simply takes in all values for the summary
@@ -81,13 +81,13 @@ public class JobSummary {
    *          The date/time that the job finished
    * @param progress
    *          The current progress of the job
-   * @param stackTrace
-   *          The stack trace for the job
+   * @param hasStackTrace
+   *          Indicates whether a stack trace was recorded for the job
    */
   @Deprecated
   public JobSummary(long id, User owner, String className, Date created,
     String status, Date started, Date ended, double progress,
-    String stackTrace) {
+    boolean hasStackTrace) {
     this.id = id;
     this.owner = owner;
     this.className = className;
@@ -96,7 +96,7 @@ public class JobSummary {
     this.started = started;
     this.ended = ended;
     this.progress = progress;
-    this.stackTrace = stackTrace;
+    this.hasStackTrace = hasStackTrace;
   }
 
   /**
@@ -176,26 +176,12 @@ public class JobSummary {
   }
 
   /**
-   * Get the stack trace for the job
-   *
-   * @return The stack trace for the job
-   */
-  public String getStackTrace() {
-    return stackTrace;
-  }
-
-  /**
-   * Get the stack trace for the job, formatted in HTML
+   * Determine whether a stack trace was recorded for the job
    *
-   * @return The stack trace for the job in HTML
+   * @return {@code true} if the job has a stack trace; {@code false} if it does
+   *         not
    */
-  public String getStackTraceAsHtml() {
-    String result = StringEscapeUtils.escapeHtml4(stackTrace);
-
-    if (null != stackTrace) {
-      result = result.replace("\n", "<br/>");
-    }
-
-    return result;
+  public boolean getHasStackTrace() {
+    return hasStackTrace;
   }
 }
@@ -79,6 +79,9 @@ public class JobThread extends Thread implements Comparable<JobThread> {
    * itself to the thread pool
    */
   public void run() {
+    String finalStatus = Job.ERROR_STATUS;
+    JobMetricsRegistry.register(job.getMetrics());
+
     try {
       setName(String.valueOf(job.getID()) + '_' + System.currentTimeMillis());
 
@@ -91,10 +94,12 @@ public class JobThread extends Thread implements Comparable<JobThread> {
       switch (job.getFinishState()) {
       case (Job.KILLED_STATUS): {
         job.logKilled();
+        finalStatus = Job.KILLED_STATUS;
         break;
       }
       case (Job.FINISHED_STATUS): {
         job.logFinished();
+        finalStatus = Job.FINISHED_STATUS;
         break;
       }
       default: {
@@ -127,6 +132,7 @@ public class JobThread extends Thread implements Comparable<JobThread> {
         ExceptionUtils.printStackTrace(e2);
       }
     } finally {
+      JobMetricsRegistry.complete(job.getMetrics(), finalStatus);
       job.destroy();
       setName(WAITING_THREAD_NAME);
       try {
@@ -1,5 +1,9 @@
 package uk.ac.exeter.QuinCe.jobs;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+
 import javax.servlet.annotation.WebListener;
 import javax.sql.DataSource;
 
@@ -8,11 +12,16 @@ import uk.ac.exeter.QuinCe.utils.BackgroundTaskException;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
- * Background task to remove old finished jobs from the system.
+ * Background task to remove old jobs from the system.
  *
  * <p>
- * Finished jobs more than 28 days old are removed. Jobs that were killed or had
- * errors are not removed.
+ * Jobs that have finished, failed with an error or been killed are removed
+ * once they are older than the retention period for their status. The
+ * retention periods (in days) are set in the application configuration using
+ * the keys {@code jobs.retention.finished}, {@code jobs.retention.error} and
+ * {@code jobs.retention.killed}. If a key is not set, the default for that
+ * status is used (see {@link #DEFAULT_RETENTION}). A retention period of zero
+ * or less means that jobs with that status are never removed.
  * </p>
  *
  * <p>
@@ -20,21 +29,70 @@ import uk.ac.exeter.QuinCe.web.system.ResourceManager;
  * </p>
  *
  * @author Steve Jones
- * @see JobManager#deleteFinishedJobs(DataSource, int)
+ * @see JobManager#deleteOldJobs(DataSource, String, int)
  */
 @WebListener
 public class JobTidier extends BackgroundTask {
 
+  /**
+   * Prefix for the configuration keys holding the retention periods
+   */
+  private static final String RETENTION_KEY_PREFIX = "jobs.retention.";
+
+  /**
+   * The default retention periods (in days) for each ended job status
+   */
+  private static final Map<String, Integer> DEFAULT_RETENTION;
+
+  static {
+    DEFAULT_RETENTION = new LinkedHashMap<String, Integer>();
+    DEFAULT_RETENTION.put(Job.FINISHED_STATUS, 28);
+    DEFAULT_RETENTION.put(Job.ERROR_STATUS, 90);
+    DEFAULT_RETENTION.put(Job.KILLED_STATUS, 28);
+  }
+
   @Override
   protected void doTask() throws BackgroundTaskException {
     try {
-      JobManager.deleteFinishedJobs(
-        ResourceManager.getInstance().getDBDataSource(), 28);
+      ResourceManager resourceManager = ResourceManager.getInstance();
+
+      for (String status : DEFAULT_RETENTION.keySet()) {
+        int retention = getRetention(resourceManager.getConfig(), status);
+        if (retention > 0) {
+          JobManager.deleteOldJobs(resourceManager.getDBDataSource(), status,
+            retention);
+        }
+      }
     } catch (Exception e) {
       throw new BackgroundTaskException(e);
     }
   }
 
+  /**
+   * Get the retention period for jobs with the specified status from the
+   * application configuration.
+   *
+   * @param config
+   *          The application configuration
+   * @param status
+   *          The job status
+   * @return The retention period in days
+   * @throws NumberFormatException
+   *           If the configured retention period is not an integer
+   */
+  protected static int getRetention(Properties config, String status) {
+    int result = DEFAULT_RETENTION.get(status);
+
+    String configValue = config
+      .getProperty(RETENTION_KEY_PREFIX + status.toLowerCase());
+
+    if (null != configValue && configValue.trim().length() > 0) {
+      result = Integer.parseInt(configValue.trim());
+    }
+
+    return result;
+  }
+
   @Override
   protected long getRunInterval() {
     return 86400;
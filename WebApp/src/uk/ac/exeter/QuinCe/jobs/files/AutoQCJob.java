@@ -2,11 +2,17 @@ package uk.ac.exeter.QuinCe.jobs.files;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
@@ -22,11 +28,12 @@ import uk.ac.exeter.QuinCe.data.Dataset.QC.ExternalStandards.ExternalStandardsQC
 import uk.ac.exeter.QuinCe.data.Dataset.QC.ExternalStandards.ExternalStandardsRoutinesConfiguration;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AbstractAutoQCRoutine;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCResult;
-import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.AutoQCRoutine;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.DiagnosticsQCRoutine;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.PositionQCCascadeRoutine;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.PositionQCRoutine;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.QCStateSnapshot;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.QCRoutinesConfiguration;
+import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.SeriesQCEngine;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.SpeedQCRoutine;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.Calibration.CalibrationSet;
@@ -38,12 +45,15 @@ import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.Job;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobMetrics;
 import uk.ac.exeter.QuinCe.jobs.JobThread;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.utils.WorkerPools;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
@@ -76,11 +86,70 @@ import uk.ac.exeter.QuinCe.web.system.ResourceManager;
  */
 public class AutoQCJob extends DataSetJob {
 
+  /**
+   * Optional parameter giving the start of the time range whose values have
+   * changed since automatic QC was last run (in milliseconds since the
+   * epoch). If this and {@link #CHANGED_END_PARAM} are set, the QC routines
+   * are only re-run around the changed values.
+   *
+   * @see #setChangedRange(Properties, LocalDateTime, LocalDateTime)
+   */
+  public static final String CHANGED_START_PARAM = "changedStart";
+
+  /**
+   * Optional parameter giving the end of the time range whose values have
+   * changed since automatic QC was last run (in milliseconds since the
+   * epoch).
+   *
+   * @see #CHANGED_START_PARAM
+   */
+  public static final String CHANGED_END_PARAM = "changedEnd";
+
   /**
    * Name of the job, used for reporting
    */
   private final String jobName = "Sensor Quality Control";
 
+  /**
+   * Metrics stage for loading the sensor values
+   */
+  private static final String STAGE_LOAD = "Load sensor values";
+
+  /**
+   * Metrics stage for the position QC routines
+   */
+  private static final String STAGE_POSITION_QC = "Position QC";
+
+  /**
+   * Metrics stage for the sensor and external standards QC routines
+   */
+  private static final String STAGE_SENSOR_QC = "Sensor QC";
+
+  /**
+   * Metrics stage for the diagnostics QC and position cascade
+   */
+  private static final String STAGE_DIAGNOSTICS_QC = "Diagnostics QC";
+
+  /**
+   * Metrics stage for storing the QC results
+   */
+  private static final String STAGE_STORE = "Store QC flags";
+
+  /**
+   * The pool used to QC sensor columns in parallel.
+   */
+  private static final ForkJoinPool QC_POOL = WorkerPools.newPool();
+
+  /**
+   * The job progress once the sensor QC routines have run
+   */
+  private static final double SENSOR_QC_PROGRESS = 80D;
+
+  /**
+   * The job progress once the diagnostics QC has run
+   */
+  private static final double DIAGNOSTICS_PROGRESS = 90D;
+
   private List<String> measurementRunTypes;
 
   /**
@@ -111,6 +180,54 @@ public class AutoQCJob extends DataSetJob {
     super(resourceManager, config, jobId, properties);
   }
 
+  /**
+   * Add the time range of changed values to a set of job parameters, so the
+   * job only re-runs the QC routines around those values.
+   *
+   * @param properties
+   *          The job parameters
+   * @param start
+   *          The time of the first changed value
+   * @param end
+   *          The time of the last changed value
+   */
+  public static void setChangedRange(Properties properties,
+    LocalDateTime start, LocalDateTime end) {
+
+    properties.setProperty(CHANGED_START_PARAM,
+      String.valueOf(DateTimeUtils.dateToLong(start)));
+
+    // Milliseconds are truncated, so make sure the end time is included
+    properties.setProperty(CHANGED_END_PARAM,
+      String.valueOf(DateTimeUtils.dateToLong(end) + 1));
+  }
+
+  @Override
+  protected void validateParameters() throws InvalidJobParametersException {
+    super.validateParameters();
+
+    String start = properties.getProperty(CHANGED_START_PARAM);
+    String end = properties.getProperty(CHANGED_END_PARAM);
+
+    if ((null == start) != (null == end)) {
+      throw new InvalidJobParametersException(
+        "Both or neither of " + CHANGED_START_PARAM + " and "
+          + CHANGED_END_PARAM + " must be set");
+    }
+
+    if (null != start) {
+      try {
+        if (Long.parseLong(start) > Long.parseLong(end)) {
+          throw new InvalidJobParametersException(
+            CHANGED_START_PARAM + " is after " + CHANGED_END_PARAM);
+        }
+      } catch (NumberFormatException e) {
+        throw new InvalidJobParametersException(
+          "Changed time range is not numeric");
+      }
+    }
+  }
+
   /**
    * Runs the configured QC routines on the file specified in the job
    * parameters.
@@ -126,6 +243,7 @@ public class AutoQCJob extends DataSetJob {
 
     try {
       conn = dataSource.getConnection();
+      applyQCFlagJournal(conn);
 
       // After automatic QC, all measurements must be recalculated.
       // Therefore before we start, destroy any existing measurements
@@ -149,6 +267,8 @@ public class AutoQCJob extends DataSetJob {
         .getQCRoutinesConfiguration();
 
       // Get the sensor values grouped by data file column
+      metrics.startStage(STAGE_LOAD);
+      long dbStart = System.nanoTime();
       DatasetSensorValues sensorValues = DataSetDataDB.getSensorValues(conn,
         instrument, dataSet.getId(), true, true);
 
@@ -171,6 +291,23 @@ public class AutoQCJob extends DataSetJob {
       // Get the Run Type Periods for the dataset
       RunTypePeriods runTypePeriods = DataSetDataDB.getRunTypePeriods(conn,
         instrument, dataSet.getId());
+      metrics.addDatabaseTime(dbStart);
+
+      // If only a range of values has changed, we only need to QC around
+      // those values
+      LocalDateTime changedStart = null;
+      LocalDateTime changedEnd = null;
+      if (properties.containsKey(CHANGED_START_PARAM)) {
+        changedStart = DateTimeUtils
+          .longToDate(properties.getProperty(CHANGED_START_PARAM));
+        changedEnd = DateTimeUtils
+          .longToDate(properties.getProperty(CHANGED_END_PARAM));
+      }
+
+      // Record the current QC state so we only write back values that
+      // actually change
+      QCStateSnapshot qcSnapshot = new QCStateSnapshot(sensorValues.getAll());
+      QCStateSnapshot positionQCSnapshot = null;
 
       // First run the position QC, unless the instrument has a fixed position.
       // This will potentially set QC flags on all sensor values, and those
@@ -181,105 +318,112 @@ public class AutoQCJob extends DataSetJob {
       // call.
       if (!dataSet.fixedPosition()) {
 
+        metrics.startStage(STAGE_POSITION_QC);
+        dbStart = System.nanoTime();
         positionValues = DataSetDataDB.getPositionSensorValues(conn, instrument,
           dataSet.getId());
+        metrics.addDatabaseTime(dbStart);
 
+        positionQCSnapshot = new QCStateSnapshot(
+          positionValues.getAllPositionValues());
         SensorValue.clearAutoQC(positionValues.getAllPositionValues());
 
+        long routineStart = System.nanoTime();
         PositionQCRoutine positionQC = new PositionQCRoutine(positionValues);
         positionQC.qc(null, null);
+        metrics.addTiming(PositionQCRoutine.class.getSimpleName(),
+          System.nanoTime() - routineStart);
 
+        routineStart = System.nanoTime();
         SpeedQCRoutine speedQC = new SpeedQCRoutine(positionValues);
         speedQC.qc(null, null);
+        metrics.addTiming(SpeedQCRoutine.class.getSimpleName(),
+          System.nanoTime() - routineStart);
       }
 
-      // Run the auto QC routines for each column
-      for (long columnId : sensorValues.getColumnIds()) {
+      // Run the auto QC routines for each column. Each column's routines only
+      // read and flag that column's values, so the columns are processed in
+      // parallel. The results are merged in column order.
+      metrics.startStage(STAGE_SENSOR_QC);
+
+      // The external standards are the same for every column, and must be
+      // loaded before the parallel section because the connection can't be
+      // shared between threads
+      ExternalStandardsRoutinesConfiguration externalStandardsRoutinesConfig = instrument
+        .hasInternalCalibrations()
+          ? ResourceManager.getInstance()
+            .getExternalStandardsRoutinesConfiguration()
+          : null;
+
+      dbStart = System.nanoTime();
+      CalibrationSet calibrationSet = instrument.hasInternalCalibrations()
+        ? ExternalStandardDB.getInstance().getMostRecentCalibrations(conn,
+          instrument, dataSet.getStart())
+        : null;
+      metrics.addDatabaseTime(dbStart);
+
+      // Build the shared lookup indexes before the parallel section so the
+      // tasks only ever read them
+      runTypeValues.getTimes();
+      runTypePeriods.buildIndex();
+
+      List<Callable<ColumnQCResult>> columnTasks = new ArrayList<Callable<ColumnQCResult>>();
+
+      final LocalDateTime qcStart = changedStart;
+      final LocalDateTime qcEnd = changedEnd;
 
+      for (long columnId : sensorValues.getColumnIds()) {
         SensorType sensorType = sensorAssignments
           .getSensorTypeForDBColumn(columnId);
+        SearchableSensorValuesList columnValues = sensorValues
+          .getColumnValues(columnId);
 
-        // Where sensors have internal calibrations, their values need to be //
-        // QCed in separate groups.
-        Map<String, SearchableSensorValuesList> valuesForQC = new HashMap<String, SearchableSensorValuesList>();
-
-        if (!sensorType.hasInternalCalibration()) {
-          // All the values can be QCed as a single group
-          valuesForQC.put("", sensorValues.getColumnValues(columnId));
-        } else {
-          for (SensorValue value : sensorValues.getColumnValues(columnId)) {
-
-            SensorValue runType = runTypeValues.timeSearch(value.getTime());
-
-            if (!valuesForQC.containsKey(runType.getValue())) {
-              valuesForQC.put(runType.getValue(),
-                new SearchableSensorValuesList(columnId));
-            }
-
-            valuesForQC.get(runType.getValue()).add(value);
-          }
-        }
-
-        // QC each group of sensor values in turn
-        for (Map.Entry<String, SearchableSensorValuesList> values : valuesForQC
-          .entrySet()) {
-
-          SensorValue.clearAutoQC(values.getValue());
-
-          List<SensorValue> filteredValues = values.getValue().stream()
-            .filter(x -> !(x.getUserQCFlag().equals(Flag.BAD)
-              | x.getUserQCFlag().equals(Flag.QUESTIONABLE)))
-            .collect(Collectors.toList());
-
-          if (values.getKey().equals("")
-            || measurementRunTypes.contains(values.getKey())) {
-            // Loop through all routines
-            for (AbstractAutoQCRoutine routine : qcRoutinesConfig
-              .getRoutines(sensorType)) {
-
-              routine.setSensorType(sensorType);
-              ((AutoQCRoutine) routine).qc(filteredValues, runTypePeriods);
-            }
-          }
-
-        }
+        columnTasks.add(() -> qcColumn(columnId, sensorType, columnValues,
+          runTypeValues, runTypePeriods, qcRoutinesConfig,
+          externalStandardsRoutinesConfig, calibrationSet, qcStart, qcEnd));
       }
 
-      // External Standards routines
-      if (instrument.hasInternalCalibrations()) {
-        ExternalStandardsRoutinesConfiguration externalStandardsRoutinesConfig = ResourceManager
-          .getInstance().getExternalStandardsRoutinesConfiguration();
-
-        for (long columnId : sensorValues.getColumnIds()) {
-
-          SensorType sensorType = sensorAssignments
-            .getSensorTypeForDBColumn(columnId);
-
-          CalibrationSet calibrationSet = ExternalStandardDB.getInstance()
-            .getMostRecentCalibrations(conn, instrument, dataSet.getStart());
+      List<Future<ColumnQCResult>> columnResults = QC_POOL
+        .invokeAll(columnTasks);
 
-          if (sensorType.hasInternalCalibration()) {
-            for (AbstractAutoQCRoutine routine : externalStandardsRoutinesConfig
-              .getRoutines(sensorType)) {
+      int columnsDone = 0;
+      for (Future<ColumnQCResult> columnResult : columnResults) {
+        ColumnQCResult result = getTaskResult(columnResult);
+        result.timings.forEach((k, v) -> metrics.addTiming(k, v));
+        metrics.increment(JobMetrics.SENSOR_VALUES_QCED, result.valuesQCed);
 
-              routine.setSensorType(sensorType);
-              ((ExternalStandardsQCRoutine) routine).qc(calibrationSet,
-                runTypeValues, sensorValues.getColumnValues(columnId));
-            }
-          }
-        }
+        columnsDone++;
+        updateProgress(columnsDone, columnResults.size(), 0D,
+          SENSOR_QC_PROGRESS);
       }
 
       // Diagnostics QC
+      metrics.startStage(STAGE_DIAGNOSTICS_QC);
+      updateProgress(SENSOR_QC_PROGRESS);
+      long routineStart = System.nanoTime();
       DiagnosticsQCRoutine diagnosticsQC = new DiagnosticsQCRoutine();
       diagnosticsQC.run(instrument, sensorValues, runTypePeriods);
+      metrics.addTiming(DiagnosticsQCRoutine.class.getSimpleName(),
+        System.nanoTime() - routineStart);
 
       // Cascade position QC to SensorValues
+      routineStart = System.nanoTime();
       PositionQCCascadeRoutine positionQCCascade = new PositionQCCascadeRoutine();
       positionQCCascade.run(instrument, sensorValues, runTypePeriods);
+      metrics.addTiming(PositionQCCascadeRoutine.class.getSimpleName(),
+        System.nanoTime() - routineStart);
 
       // Send all sensor values to be stored. The storeSensorValues method only
-      // writes those values whose 'dirty' flag is set.
+      // writes those values whose 'dirty' flag is set, so first un-dirty any
+      // values whose QC hasn't actually changed.
+      metrics.startStage(STAGE_STORE);
+      updateProgress(DIAGNOSTICS_PROGRESS);
+      long changedValues = qcSnapshot.clearUnchanged();
+      if (null != positionQCSnapshot) {
+        changedValues += positionQCSnapshot.clearUnchanged();
+      }
+      metrics.increment(JobMetrics.SENSOR_VALUES_WRITTEN, changedValues);
+      dbStart = System.nanoTime();
       DataSetDataDB.storeSensorValues(conn, sensorValues.getAll());
 
       if (null != positionValues) {
@@ -297,6 +441,8 @@ public class AutoQCJob extends DataSetJob {
         LocateMeasurementsJob.class.getCanonicalName(), jobProperties);
 
       conn.commit();
+      metrics.addDatabaseTime(dbStart);
+      metrics.endStage();
 
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
@@ -329,6 +475,169 @@ public class AutoQCJob extends DataSetJob {
     }
   }
 
+  /**
+   * Run the automatic QC routines for a single column of sensor values.
+   *
+   * <p>
+   * Where the sensor has internal calibrations, the values are QCed in
+   * separate groups for each run type, and only measurement run types are
+   * checked by the standard routines. The external standards routines are then
+   * run over all the column's values.
+   * </p>
+   *
+   * <p>
+   * This method only modifies the supplied column's values and uses its own
+   * instances of the QC routines, so it can be run in parallel for different
+   * columns. The shared run type lists must not be modified while it runs.
+   * </p>
+   *
+   * @param columnId
+   *          The column's database ID
+   * @param sensorType
+   *          The column's sensor type
+   * @param columnValues
+   *          The column's values
+   * @param runTypeValues
+   *          The dataset's run type values
+   * @param runTypePeriods
+   *          The dataset's run type periods
+   * @param qcRoutinesConfig
+   *          The QC routines configuration
+   * @param externalStandardsRoutinesConfig
+   *          The external standards routines configuration, or {@code null} if
+   *          the instrument has no internal calibrations
+   * @param calibrationSet
+   *          The external standards for the dataset, or {@code null} if the
+   *          instrument has no internal calibrations
+   * @param changedStart
+   *          The start of the range of changed values, or {@code null} if the
+   *          whole column is to be QCed
+   * @param changedEnd
+   *          The end of the range of changed values, or {@code null} if the
+   *          whole column is to be QCed
+   * @return The timings and value counts for the column
+   * @throws Exception
+   *           If any of the QC routines fail
+   */
+  private ColumnQCResult qcColumn(long columnId, SensorType sensorType,
+    SearchableSensorValuesList columnValues,
+    SearchableSensorValuesList runTypeValues, RunTypePeriods runTypePeriods,
+    QCRoutinesConfiguration qcRoutinesConfig,
+    ExternalStandardsRoutinesConfiguration externalStandardsRoutinesConfig,
+    CalibrationSet calibrationSet, LocalDateTime changedStart,
+    LocalDateTime changedEnd) throws Exception {
+
+    ColumnQCResult result = new ColumnQCResult();
+
+    // Values with internal calibrations are always QCed in full, because the
+    // external standards routines can flag values anywhere in the dataset
+    // when the standards change.
+    boolean incremental = null != changedStart
+      && !sensorType.hasInternalCalibration();
+
+    // Where sensors have internal calibrations, their values need to be
+    // QCed in separate groups.
+    Map<String, SearchableSensorValuesList> valuesForQC = new HashMap<String, SearchableSensorValuesList>();
+
+    if (!sensorType.hasInternalCalibration()) {
+      // All the values can be QCed as a single group
+      valuesForQC.put("", columnValues);
+    } else {
+      for (SensorValue value : columnValues) {
+
+        SensorValue runType = runTypeValues.timeSearch(value.getTime());
+
+        if (!valuesForQC.containsKey(runType.getValue())) {
+          valuesForQC.put(runType.getValue(),
+            new SearchableSensorValuesList(columnId));
+        }
+
+        valuesForQC.get(runType.getValue()).add(value);
+      }
+    }
+
+    // QC each group of sensor values in turn
+    for (Map.Entry<String, SearchableSensorValuesList> values : valuesForQC
+      .entrySet()) {
+
+      if (incremental) {
+        SensorValue.clearAutoQC(values.getValue().stream()
+          .filter(x -> DateTimeUtils.isBetween(x.getTime(), changedStart,
+            changedEnd))
+          .collect(Collectors.toList()));
+      } else {
+        SensorValue.clearAutoQC(values.getValue());
+      }
+
+      List<SensorValue> filteredValues = values.getValue().stream()
+        .filter(x -> !(x.getUserQCFlag().equals(Flag.BAD)
+          | x.getUserQCFlag().equals(Flag.QUESTIONABLE)))
+        .collect(Collectors.toList());
+
+      if (values.getKey().equals("")
+        || measurementRunTypes.contains(values.getKey())) {
+
+        long routineStart = System.nanoTime();
+
+        if (incremental) {
+          // Only re-run the routines around the changed values
+          result.valuesQCed += SeriesQCEngine.qc(
+            qcRoutinesConfig.getRoutineInstances(sensorType), sensorType,
+            filteredValues, runTypePeriods, changedStart, changedEnd);
+        } else {
+          // Run all routines over the values in a single pass
+          SeriesQCEngine.qc(
+            qcRoutinesConfig.getRoutineInstances(sensorType), sensorType,
+            filteredValues, runTypePeriods);
+          result.valuesQCed += filteredValues.size();
+        }
+
+        result.addTiming(SeriesQCEngine.class.getSimpleName(),
+          System.nanoTime() - routineStart);
+      }
+    }
+
+    // External Standards routines
+    if (null != externalStandardsRoutinesConfig
+      && sensorType.hasInternalCalibration()) {
+
+      for (AbstractAutoQCRoutine routine : externalStandardsRoutinesConfig
+        .getRoutineInstances(sensorType)) {
+
+        long routineStart = System.nanoTime();
+        routine.setSensorType(sensorType);
+        ((ExternalStandardsQCRoutine) routine).qc(calibrationSet,
+          runTypeValues, columnValues);
+        result.addTiming(routine, System.nanoTime() - routineStart);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the result of a column QC task, unwrapping any exception thrown by the
+   * task.
+   *
+   * @param future
+   *          The task
+   * @return The task result
+   * @throws Exception
+   *           If the task failed
+   */
+  private ColumnQCResult getTaskResult(Future<ColumnQCResult> future)
+    throws Exception {
+    try {
+      return future.get();
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      } else {
+        throw e;
+      }
+    }
+  }
+
   @Override
   public String getJobName() {
     return jobName;
@@ -359,4 +668,22 @@ public class AutoQCJob extends DataSetJob {
       throw new JobFailedException(id, "Error while resetting dataset", e);
     }
   }
+
+  /**
+   * The routine timings and value counts from QCing a single column.
+   */
+  private static class ColumnQCResult {
+
+    private final Map<String, Long> timings = new HashMap<String, Long>();
+
+    private long valuesQCed = 0;
+
+    private void addTiming(AbstractAutoQCRoutine routine, long nanos) {
+      addTiming(routine.getClass().getSimpleName(), nanos);
+    }
+
+    private void addTiming(String operation, long nanos) {
+      timings.merge(operation, nanos, Long::sum);
+    }
+  }
 }
@@ -3,10 +3,16 @@ package uk.ac.exeter.QuinCe.jobs.files;
 import java.sql.Connection;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
@@ -16,6 +22,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.InvalidDataSetStatusException;
 import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
 import uk.ac.exeter.QuinCe.data.Dataset.MeasurementValueCalculatorFactory;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.BatchDataReducer;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducer;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducerFactory;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReductionRecord;
@@ -27,12 +34,15 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.Variable;
 import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobMetrics;
 import uk.ac.exeter.QuinCe.jobs.JobThread;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.utils.WorkerPools;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
 
 /**
@@ -42,11 +52,76 @@ import uk.ac.exeter.QuinCe.web.system.ResourceManager;
  */
 public class DataReductionJob extends DataSetJob {
 
+  /**
+   * Optional parameter giving the start of the time window to be reprocessed
+   * (in milliseconds since the epoch). If this and {@link #WINDOW_END_PARAM}
+   * are set, only the measurements inside the window are reduced and QCed;
+   * the results for all other measurements are left untouched.
+   *
+   * @see #setWindow(Properties, LocalDateTime, LocalDateTime)
+   */
+  public static final String WINDOW_START_PARAM = "windowStart";
+
+  /**
+   * Optional parameter giving the end of the time window to be reprocessed
+   * (in milliseconds since the epoch).
+   *
+   * @see #WINDOW_START_PARAM
+   */
+  public static final String WINDOW_END_PARAM = "windowEnd";
+
   /**
    * Name of the job, used for reporting
    */
   private final String jobName = "Data Reduction";
 
+  /**
+   * The number of measurements processed in each chunk by
+   * {@link BatchDataReducer}s. Variables with more measurements than this are
+   * reduced in parallel.
+   */
+  private static final int BATCH_CHUNK_SIZE = 10000;
+
+  /**
+   * Metrics stage for loading the sensor values and measurements
+   */
+  private static final String STAGE_LOAD = "Load data";
+
+  /**
+   * Metrics stage for calculating measurement values
+   */
+  private static final String STAGE_MEASUREMENT_VALUES = "Measurement values";
+
+  /**
+   * Metrics stage for running the data reducers
+   */
+  private static final String STAGE_REDUCTION = "Data reduction";
+
+  /**
+   * Metrics stage for storing the data reduction results
+   */
+  private static final String STAGE_STORE = "Store data reduction";
+
+  /**
+   * The number of measurements to process between progress updates
+   */
+  private static final int PROGRESS_MEASUREMENTS = 100;
+
+  /**
+   * The job progress once all measurement values have been calculated
+   */
+  private static final double MEASUREMENT_VALUES_PROGRESS = 60D;
+
+  /**
+   * The job progress once all data reduction has been performed
+   */
+  private static final double REDUCTION_PROGRESS = 90D;
+
+  /**
+   * The pool used to run chunks of batch data reduction in parallel.
+   */
+  private static final ForkJoinPool REDUCTION_POOL = WorkerPools.newPool();
+
   /**
    * Constructor for a data reduction job to be run on a specific data file. The
    * job record must already have been created in the database.
@@ -76,6 +151,130 @@ public class DataReductionJob extends DataSetJob {
     super(resourceManager, config, jobId, properties);
   }
 
+  /**
+   * Add a time window to a set of job parameters, so the job only reprocesses
+   * the measurements inside that window. The window is passed on to the
+   * {@link DataReductionQCJob} that follows.
+   *
+   * @param properties
+   *          The job parameters
+   * @param start
+   *          The start of the window
+   * @param end
+   *          The end of the window
+   */
+  public static void setWindow(Properties properties, LocalDateTime start,
+    LocalDateTime end) {
+
+    properties.setProperty(WINDOW_START_PARAM,
+      String.valueOf(DateTimeUtils.dateToLong(start)));
+    properties.setProperty(WINDOW_END_PARAM,
+      String.valueOf(DateTimeUtils.dateToLong(end)));
+  }
+
+  /**
+   * Get the time window set in a set of job parameters.
+   *
+   * <p>
+   * If the window covers the whole of the dataset, {@code null} is returned so
+   * that the whole dataset is processed. This also makes sure that
+   * measurements whose times have been moved outside the dataset's range by
+   * the sensor offsets are included.
+   * </p>
+   *
+   * @param properties
+   *          The job parameters
+   * @param dataSet
+   *          The dataset being processed
+   * @return The {@code [start, end]} of the window, or {@code null} if no
+   *         window is set or the whole dataset is to be processed.
+   * @see #setWindow(Properties, LocalDateTime, LocalDateTime)
+   */
+  public static LocalDateTime[] getWindow(Properties properties,
+    DataSet dataSet) {
+
+    LocalDateTime[] result = null;
+
+    if (properties.containsKey(WINDOW_START_PARAM)) {
+      LocalDateTime start = DateTimeUtils
+        .longToDate(properties.getProperty(WINDOW_START_PARAM));
+      LocalDateTime end = DateTimeUtils
+        .longToDate(properties.getProperty(WINDOW_END_PARAM));
+
+      if (start.isAfter(dataSet.getStart()) || end.isBefore(dataSet.getEnd())) {
+        result = new LocalDateTime[] { start, end };
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the measurements that are inside a time window.
+   *
+   * @param measurements
+   *          The measurements
+   * @param window
+   *          The {@code [start, end]} of the window, or {@code null} if there
+   *          is no window
+   * @return The measurements inside the window, or all the measurements if
+   *         there is no window
+   * @see #getWindow(Properties, DataSet)
+   */
+  public static List<Measurement> filterWindow(List<Measurement> measurements,
+    LocalDateTime[] window) {
+
+    List<Measurement> result;
+
+    if (null == window) {
+      result = measurements;
+    } else {
+      result = measurements.stream()
+        .filter(
+          m -> DateTimeUtils.isBetween(m.getTime(), window[0], window[1]))
+        .collect(Collectors.toList());
+    }
+
+    return result;
+  }
+
+  /**
+   * Check the time window parameters, if they are present.
+   *
+   * @param properties
+   *          The job parameters
+   * @throws InvalidJobParametersException
+   *           If the window parameters are invalid
+   */
+  static void validateWindow(Properties properties)
+    throws InvalidJobParametersException {
+
+    String start = properties.getProperty(WINDOW_START_PARAM);
+    String end = properties.getProperty(WINDOW_END_PARAM);
+
+    if ((null == start) != (null == end)) {
+      throw new InvalidJobParametersException("Both or neither of "
+        + WINDOW_START_PARAM + " and " + WINDOW_END_PARAM + " must be set");
+    }
+
+    if (null != start) {
+      try {
+        if (Long.parseLong(start) > Long.parseLong(end)) {
+          throw new InvalidJobParametersException(
+            WINDOW_START_PARAM + " is after " + WINDOW_END_PARAM);
+        }
+      } catch (NumberFormatException e) {
+        throw new InvalidJobParametersException("Time window is not numeric");
+      }
+    }
+  }
+
+  @Override
+  protected void validateParameters() throws InvalidJobParametersException {
+    super.validateParameters();
+    validateWindow(properties);
+  }
+
   @Override
   protected void execute(JobThread thread) throws JobFailedException {
 
@@ -83,7 +282,12 @@ public class DataReductionJob extends DataSetJob {
 
     try {
       conn = dataSource.getConnection();
-      reset(conn);
+      applyQCFlagJournal(conn);
+
+      // If a window is set, only the measurements inside it are reprocessed
+      LocalDateTime[] window = getWindow(properties, getDataset(conn));
+      reset(conn, window);
+
       DataSet dataSet = getDataset(conn);
       Instrument instrument = getInstrument(conn);
       SensorsConfiguration sensorConfig = ResourceManager.getInstance()
@@ -97,18 +301,30 @@ public class DataReductionJob extends DataSetJob {
       conn.setAutoCommit(false);
 
       // Load all the sensor values for this dataset
+      metrics.startStage(STAGE_LOAD);
+      long dbStart = System.nanoTime();
       DatasetSensorValues allSensorValues = DataSetDataDB.getSensorValues(conn,
         instrument, dataSet.getId(), false, false);
 
       // Get all the measurements grouped by run type
       DatasetMeasurements allMeasurements = DataSetDataDB
         .getMeasurementsByRunType(conn, instrument, dataSet.getId());
+      metrics.addDatabaseTime(dbStart);
 
       ArrayList<DataReductionRecord> dataReductionRecords = new ArrayList<DataReductionRecord>();
 
+      // The measurements to be processed. All measurements are still loaded
+      // because the calculations for each measurement may use the ones
+      // around it.
+      List<Measurement> measurementsToProcess = filterWindow(
+        allMeasurements.getTimeOrderedMeasurements(), window);
+
       // First we calculate measurement values for all measurements
-      for (Measurement measurement : allMeasurements
-        .getTimeOrderedMeasurements()) {
+      metrics.startStage(STAGE_MEASUREMENT_VALUES);
+      int measurementCount = measurementsToProcess.size();
+      int measurementsDone = 0;
+
+      for (Measurement measurement : measurementsToProcess) {
 
         // Work out which variables this measurement is relevant for.
         Set<Variable> variablesToProcess = new TreeSet<Variable>();
@@ -181,7 +397,9 @@ public class DataReductionJob extends DataSetJob {
 
           // Otherwise store the measurement values for processing.
           if (measurement.hasMeasurementValue(variable.getCoreSensorType())) {
+            dbStart = System.nanoTime();
             DataSetDataDB.storeMeasurementValues(conn, measurement);
+            metrics.addDatabaseTime(dbStart);
 
             // Store this variable for use below
             if (null == usedVariable) {
@@ -203,11 +421,22 @@ public class DataReductionJob extends DataSetJob {
           LocalDateTime offsetMeasurementTime = dataSet.getSensorOffsets()
             .offsetToFirstGroup(measurement.getTime(), coreAssignment);
           measurement.setTime(offsetMeasurementTime);
+          dbStart = System.nanoTime();
           DataSetDataDB.updateMeasurementTime(conn, measurement);
+          metrics.addDatabaseTime(dbStart);
+        }
+
+        measurementsDone++;
+        if (measurementsDone % PROGRESS_MEASUREMENTS == 0) {
+          updateProgress(measurementsDone, measurementCount, 0D,
+            MEASUREMENT_VALUES_PROGRESS);
         }
       }
 
       // Now run all the data reducers
+      metrics.startStage(STAGE_REDUCTION);
+      updateProgress(MEASUREMENT_VALUES_PROGRESS);
+
       for (Variable variable : instrument.getVariables()) {
         DataReducer reducer = DataReducerFactory.getReducer(variable,
           dataSet.getAllProperties());
@@ -215,22 +444,35 @@ public class DataReductionJob extends DataSetJob {
         reducer.preprocess(conn, instrument, dataSet,
           allMeasurements.getTimeOrderedMeasurements());
 
-        for (Measurement measurement : allMeasurements
-          .getTimeOrderedMeasurements()) {
+        List<Measurement> variableMeasurements = new ArrayList<Measurement>();
+
+        for (Measurement measurement : measurementsToProcess) {
 
           if (instrument.isRunTypeForVariable(variable,
             measurement.getRunType(variable))
             || instrument.isRunTypeForVariable(variable,
               measurement.getRunType(Measurement.GENERIC_RUN_TYPE_VARIABLE))) {
 
-            DataReductionRecord dataReductionRecord = reducer
-              .performDataReduction(instrument, measurement, conn);
-
-            dataReductionRecords.add(dataReductionRecord);
+            variableMeasurements.add(measurement);
           }
         }
+
+        if (reducer instanceof BatchDataReducer
+          && variableMeasurements.size() > BATCH_CHUNK_SIZE) {
+          dataReductionRecords.addAll(
+            reduceInParallel(instrument, reducer, variableMeasurements));
+        } else {
+          dataReductionRecords.addAll(reducer.performDataReduction(instrument,
+            variableMeasurements, conn));
+        }
+
+        metrics.increment(JobMetrics.MEASUREMENTS_REDUCED,
+          variableMeasurements.size());
       }
 
+      metrics.startStage(STAGE_STORE);
+      updateProgress(REDUCTION_PROGRESS);
+      dbStart = System.nanoTime();
       DataSetDataDB.storeDataReduction(conn, dataReductionRecords);
 
       // If the thread was interrupted, undo everything
@@ -246,6 +488,9 @@ public class DataReductionJob extends DataSetJob {
         Properties jobParams = new Properties();
         jobParams.put(LocateMeasurementsJob.ID_PARAM,
           String.valueOf(Long.parseLong(properties.getProperty(ID_PARAM))));
+        if (null != window) {
+          setWindow(jobParams, window[0], window[1]);
+        }
         JobManager.addJob(dataSource, JobManager.getJobOwner(dataSource, id),
           DataReductionQCJob.class.getCanonicalName(), jobParams);
 
@@ -257,6 +502,8 @@ public class DataReductionJob extends DataSetJob {
       }
 
       conn.commit();
+      metrics.addDatabaseTime(dbStart);
+      metrics.endStage();
     } catch (Exception e) {
       DatabaseUtils.rollBack(conn);
       ExceptionUtils.printStackTrace(e);
@@ -282,6 +529,58 @@ public class DataReductionJob extends DataSetJob {
     }
   }
 
+  /**
+   * Run a {@link BatchDataReducer} over a large set of measurements by
+   * splitting them into chunks and processing the chunks in parallel.
+   *
+   * <p>
+   * The results are returned in the same order as the measurements.
+   * </p>
+   *
+   * @param instrument
+   *          The instrument that took the measurements
+   * @param reducer
+   *          The reducer
+   * @param measurements
+   *          The measurements
+   * @return The data reduction records
+   * @throws Exception
+   *           If any chunk fails
+   */
+  private List<DataReductionRecord> reduceInParallel(Instrument instrument,
+    DataReducer reducer, List<Measurement> measurements) throws Exception {
+
+    List<Callable<List<DataReductionRecord>>> chunks = new ArrayList<Callable<List<DataReductionRecord>>>();
+
+    int size = measurements.size();
+
+    for (int start = 0; start < size; start += BATCH_CHUNK_SIZE) {
+      List<Measurement> chunk = measurements.subList(start,
+        Math.min(start + BATCH_CHUNK_SIZE, size));
+
+      // Batch reducers do not use the database connection
+      chunks.add(() -> reducer.performDataReduction(instrument, chunk, null));
+    }
+
+    List<DataReductionRecord> result = new ArrayList<DataReductionRecord>(
+      size);
+
+    try {
+      for (Future<List<DataReductionRecord>> chunkResult : REDUCTION_POOL
+        .invokeAll(chunks)) {
+        result.addAll(chunkResult.get());
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof Exception) {
+        throw (Exception) e.getCause();
+      } else {
+        throw e;
+      }
+    }
+
+    return result;
+  }
+
   @Override
   public String getJobName() {
     return jobName;
@@ -311,4 +610,36 @@ public class DataReductionJob extends DataSetJob {
       throw new JobFailedException(id, "Error while resetting dataset", e);
     }
   }
+
+  /**
+   * Reset the data set processing for the measurements inside a time window.
+   *
+   * Delete the data reduction records for those measurements and reset the
+   * status. If there is no window, the whole dataset is reset (see
+   * {@link #reset(Connection)}).
+   *
+   * @param conn
+   *          A database connection
+   * @param window
+   *          The {@code [start, end]} of the window, or {@code null}
+   * @throws JobFailedException
+   *           If the dataset cannot be reset
+   * @see #getWindow(Properties, DataSet)
+   */
+  protected void reset(Connection conn, LocalDateTime[] window)
+    throws JobFailedException {
+
+    if (null == window) {
+      reset(conn);
+    } else {
+      try {
+        DataSetDataDB.deleteDataReduction(conn, getDataset(conn).getId(),
+          window[0], window[1]);
+        DataSetDB.setDatasetStatus(conn, getDataset(conn).getId(),
+          DataSet.STATUS_DATA_REDUCTION);
+      } catch (Exception e) {
+        throw new JobFailedException(id, "Error while resetting dataset", e);
+      }
+    }
+  }
 }
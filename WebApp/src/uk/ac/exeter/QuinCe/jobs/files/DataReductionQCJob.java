@@ -12,6 +12,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
+import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducer;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducerFactory;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.ReadOnlyDataReductionRecord;
@@ -66,6 +67,12 @@ public class DataReductionQCJob extends DataSetJob {
     super(resourceManager, config, jobId, parameters);
   }
 
+  @Override
+  protected void validateParameters() throws InvalidJobParametersException {
+    super.validateParameters();
+    DataReductionJob.validateWindow(properties);
+  }
+
   @Override
   protected void execute(JobThread thread) throws JobFailedException {
 
@@ -73,6 +80,7 @@ public class DataReductionQCJob extends DataSetJob {
 
     try {
       conn = dataSource.getConnection();
+      applyQCFlagJournal(conn);
       conn.setAutoCommit(false);
       DataSet dataSet = getDataset(conn);
       Instrument instrument = getInstrument(conn);
@@ -89,9 +97,18 @@ public class DataReductionQCJob extends DataSetJob {
       List<Measurement> measurements = DataSetDataDB.getMeasurements(conn,
         dataSet.getId());
 
+      // If data reduction was only run inside a time window, only the
+      // records inside that window need to be QCed
+      measurements = DataReductionJob.filterWindow(measurements,
+        DataReductionJob.getWindow(properties, dataSet));
+
       Map<Long, Map<Variable, ReadOnlyDataReductionRecord>> records = DataSetDataDB
         .getDataReductionData(conn, instrument, dataSet);
 
+      // The run type periods are shared by all routines and variables
+      RunTypePeriods runTypePeriods = DataSetDataDB.getRunTypePeriods(conn,
+        instrument, dataSet.getId());
+
       FlaggedItems flaggedItems = new FlaggedItems();
 
       for (Variable var : instrument.getVariables()) {
@@ -114,7 +131,7 @@ public class DataReductionQCJob extends DataSetJob {
         if (null != routines) {
           for (DataReductionQCRoutine routine : routines) {
             routine.qc(conn, instrument, dataSet, var, variableRecords,
-              allSensorValues, flaggedItems);
+              allSensorValues, runTypePeriods, flaggedItems);
           }
         }
       }
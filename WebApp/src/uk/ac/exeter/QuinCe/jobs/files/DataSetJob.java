@@ -1,16 +1,22 @@
 package uk.ac.exeter.QuinCe.jobs.files;
 
 import java.sql.Connection;
+import java.sql.SQLException;
 import java.util.Properties;
 
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
+import uk.ac.exeter.QuinCe.data.Dataset.QCFlagJournalDB;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
 import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.Job;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
+import uk.ac.exeter.QuinCe.jobs.JobMetrics;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
+import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
 import uk.ac.exeter.QuinCe.web.system.ResourceManager;
@@ -83,6 +89,106 @@ public abstract class DataSetJob extends Job {
     return instrument;
   }
 
+  /**
+   * Write any QC flags set by users that are still in the
+   * {@link QCFlagJournalDB} to the job's dataset. Jobs must call this before
+   * they read the dataset's sensor values so they work with the latest user
+   * QC flags.
+   *
+   * @param conn
+   *          A database connection
+   * @throws JobFailedException
+   *           If the journal cannot be applied
+   */
+  protected void applyQCFlagJournal(Connection conn)
+    throws JobFailedException {
+    try {
+      QCFlagJournalDB.apply(conn, getDatsetId());
+    } catch (Exception e) {
+      throw new JobFailedException(id, "Error applying QC flag journal", e);
+    }
+  }
+
+  /**
+   * Remove all the measurements, data reduction results and sensor values for
+   * the job's dataset.
+   *
+   * <p>
+   * Records are removed in ID order in batches of
+   * {@link DataSetDataDB#DELETE_BATCH_SIZE}, and each batch is committed
+   * separately. This keeps every transaction small so that other jobs and
+   * users are not blocked while a large dataset is cleared. If the job is
+   * interrupted, the records that have already been removed stay removed and
+   * the next run carries on with the rest.
+   * </p>
+   *
+   * <p>
+   * The job progress is reported between the {@code from} and {@code to}
+   * percentages.
+   * </p>
+   *
+   * @param conn
+   *          A database connection
+   * @param from
+   *          The job progress at the start of the deletion
+   * @param to
+   *          The job progress once all records have been removed
+   * @throws JobFailedException
+   *           If the records cannot be removed
+   */
+  protected void deleteDataSetRecords(Connection conn, double from, double to)
+    throws JobFailedException {
+
+    boolean initialAutoCommitState = true;
+
+    try {
+      initialAutoCommitState = conn.getAutoCommit();
+      if (initialAutoCommitState) {
+        conn.setAutoCommit(false);
+      }
+
+      long datasetId = getDatsetId();
+
+      // Any QC flags that haven't been written yet are no longer needed
+      QCFlagJournalDB.deleteEntries(conn, datasetId);
+      conn.commit();
+
+      long total = DataSetDataDB.getMeasurementCount(conn, datasetId)
+        + DataSetDataDB.getSensorValueCount(conn, datasetId);
+      long deleted = 0;
+
+      // Measurements first, since they are linked to the sensor values
+      int batchCount;
+      do {
+        batchCount = DataSetDataDB.deleteMeasurementsBatch(conn, datasetId,
+          DataSetDataDB.DELETE_BATCH_SIZE);
+        conn.commit();
+        deleted += batchCount;
+        metrics.increment(JobMetrics.RECORDS_DELETED, batchCount);
+        updateProgress(deleted, total, from, to);
+      } while (batchCount > 0);
+
+      do {
+        batchCount = DataSetDataDB.deleteSensorValuesBatch(conn, datasetId,
+          DataSetDataDB.DELETE_BATCH_SIZE);
+        conn.commit();
+        deleted += batchCount;
+        metrics.increment(JobMetrics.RECORDS_DELETED, batchCount);
+        updateProgress(deleted, total, from, to);
+      } while (batchCount > 0);
+    } catch (Exception e) {
+      DatabaseUtils.rollBack(conn);
+      throw new JobFailedException(id, "Error while deleting dataset records",
+        e);
+    } finally {
+      try {
+        conn.setAutoCommit(initialAutoCommitState);
+      } catch (SQLException e) {
+        ExceptionUtils.printStackTrace(e);
+      }
+    }
+  }
+
   @Override
   protected void validateParameters() throws InvalidJobParametersException {
 
@@ -0,0 +1,113 @@
+package uk.ac.exeter.QuinCe.jobs.files;
+
+import java.sql.Connection;
+import java.util.Properties;
+
+import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
+import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
+import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
+import uk.ac.exeter.QuinCe.jobs.JobFailedException;
+import uk.ac.exeter.QuinCe.jobs.JobThread;
+import uk.ac.exeter.QuinCe.utils.DatabaseException;
+import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
+import uk.ac.exeter.QuinCe.utils.MissingParamException;
+import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Job to remove a dataset and all its records from the database.
+ *
+ * <p>
+ * The dataset must already have the {@link DataSet#STATUS_DELETING} status
+ * (see {@link DataSetDB#deleteDataSet(Connection, DataSet)}). Its records are
+ * removed in small batches so that other jobs and users are not held up while
+ * a large dataset is deleted. If the job is interrupted it can simply be run
+ * again, and it will continue from where it stopped.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class DeleteDataSetJob extends DataSetJob {
+
+  /**
+   * Name of the job, used for reporting
+   */
+  private final String jobName = "Dataset Deletion";
+
+  /**
+   * Metrics stage for removing the dataset's records
+   */
+  private static final String STAGE_DELETE = "Delete records";
+
+  /**
+   * Initialise the job object so it is ready to run
+   *
+   * @param resourceManager
+   *          The system resource manager
+   * @param config
+   *          The application configuration
+   * @param jobId
+   *          The id of the job in the database
+   * @param parameters
+   *          The job parameters, containing the dataset ID
+   * @throws InvalidJobParametersException
+   *           If the parameters are not valid for the job
+   * @throws MissingParamException
+   *           If any of the parameters are invalid
+   * @throws RecordNotFoundException
+   *           If the job record cannot be found in the database
+   * @throws DatabaseException
+   *           If a database error occurs
+   */
+  public DeleteDataSetJob(ResourceManager resourceManager, Properties config,
+    long jobId, Properties properties) throws MissingParamException,
+    InvalidJobParametersException, DatabaseException, RecordNotFoundException {
+    super(resourceManager, config, jobId, properties);
+  }
+
+  @Override
+  protected void execute(JobThread thread) throws JobFailedException {
+
+    Connection conn = null;
+
+    try {
+      conn = dataSource.getConnection();
+
+      DataSet dataSet = null;
+      try {
+        dataSet = DataSetDB.getDataSet(conn, getDatsetId());
+      } catch (RecordNotFoundException e) {
+        // The dataset was removed by an earlier run of this job that was
+        // interrupted before it finished. There is nothing left to do.
+      }
+
+      if (null != dataSet) {
+        if (dataSet.getStatus() != DataSet.STATUS_DELETING) {
+          throw new JobFailedException(id,
+            "Dataset " + dataSet.getId() + " is not marked for deletion");
+        }
+
+        metrics.startStage(STAGE_DELETE);
+        deleteDataSetRecords(conn, 0D, 100D);
+        metrics.endStage();
+
+        DataSetDB.deleteDataSetRecord(conn, dataSet.getId());
+      }
+    } catch (JobFailedException e) {
+      throw e;
+    } catch (Exception e) {
+      ExceptionUtils.printStackTrace(e);
+      DatabaseUtils.rollBack(conn);
+      throw new JobFailedException(id, e);
+    } finally {
+      DatabaseUtils.closeConnection(conn);
+    }
+  }
+
+  @Override
+  public String getJobName() {
+    return jobName;
+  }
+}
@@ -33,6 +33,7 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
 import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobMetrics;
 import uk.ac.exeter.QuinCe.jobs.JobThread;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
@@ -55,6 +56,46 @@ public class ExtractDataSetJob extends DataSetJob {
    */
   private final String jobName = "Dataset Extraction";
 
+  /**
+   * Metrics stage for loading the dataset and its files
+   */
+  private static final String STAGE_LOAD = "Load files";
+
+  /**
+   * Metrics stage for extracting sensor values from the files
+   */
+  private static final String STAGE_READ = "Read files";
+
+  /**
+   * Metrics stage for applying run types and flushing flags
+   */
+  private static final String STAGE_RUN_TYPES = "Apply run types";
+
+  /**
+   * Metrics stage for storing the extracted values
+   */
+  private static final String STAGE_STORE = "Store sensor values";
+
+  /**
+   * The number of lines to read between progress updates
+   */
+  private static final int PROGRESS_LINES = 1000;
+
+  /**
+   * The job progress once any previously extracted records have been removed
+   */
+  private static final double RESET_PROGRESS = 5D;
+
+  /**
+   * The job progress once all files have been read
+   */
+  private static final double READ_PROGRESS = 80D;
+
+  /**
+   * The job progress once run types have been applied
+   */
+  private static final double FLAG_PROGRESS = 85D;
+
   /**
    * Initialise the job object so it is ready to run
    *
@@ -110,12 +151,22 @@ public class ExtractDataSetJob extends DataSetJob {
       }
 
       // Reset the data set and all associated data
+      metrics.startStage(STAGE_LOAD);
+      long dbStart = System.nanoTime();
       reset(conn);
       conn.commit();
 
       List<DataFile> files = DataFileDB.getDataFiles(conn,
         ResourceManager.getInstance().getConfig(),
         dataSet.getSourceFiles(conn));
+      metrics.addDatabaseTime(dbStart);
+
+      long totalLines = 0;
+      for (DataFile file : files) {
+        totalLines += file.getRecordCount();
+      }
+
+      long linesRead = 0;
 
       TreeSet<SensorValue> sensorValues = new TreeSet<SensorValue>();
 
@@ -136,6 +187,8 @@ public class ExtractDataSetJob extends DataSetJob {
       double minLat = Double.MAX_VALUE;
       double maxLat = -Double.MAX_VALUE;
 
+      metrics.startStage(STAGE_READ);
+
       for (DataFile file : files) {
         FileDefinition fileDefinition = file.getFileDefinition();
 
@@ -160,55 +213,49 @@ public class ExtractDataSetJob extends DataSetJob {
 
               if (!dataSet.fixedPosition() && fileDefinition.hasPosition()) {
 
-                String longitude = null;
+                double longitude = Double.NaN;
                 try {
-                  longitude = file.getLongitude(line);
+                  longitude = file.getLongitudeValue(line);
                 } catch (PositionException e) {
                   dataSet.addProcessingMessage(jobName, file, currentLine, e);
                 }
 
-                if (null != longitude) {
+                if (!Double.isNaN(longitude)) {
                   sensorValues.add(new SensorValue(dataSet.getId(),
-                    FileDefinition.LONGITUDE_COLUMN_ID, time, longitude));
+                    FileDefinition.LONGITUDE_COLUMN_ID, time,
+                    fileDefinition.getLongitudeSpecification()
+                      .formatValue(longitude)));
 
                   // Update the dataset bounds
-                  try {
-                    double lonDouble = Double.parseDouble(longitude);
-                    if (lonDouble < minLon) {
-                      minLon = lonDouble;
-                    }
+                  if (longitude < minLon) {
+                    minLon = longitude;
+                  }
 
-                    if (lonDouble > maxLon) {
-                      maxLon = lonDouble;
-                    }
-                  } catch (NumberFormatException e) {
-                    // Ignore it now. QC will pick it up later.
+                  if (longitude > maxLon) {
+                    maxLon = longitude;
                   }
                 }
 
-                String latitude = null;
+                double latitude = Double.NaN;
                 try {
-                  latitude = file.getLatitude(line);
+                  latitude = file.getLatitudeValue(line);
                 } catch (PositionException e) {
                   dataSet.addProcessingMessage(jobName, file, currentLine, e);
                 }
 
-                if (null != latitude) {
+                if (!Double.isNaN(latitude)) {
                   sensorValues.add(new SensorValue(dataSet.getId(),
-                    FileDefinition.LATITUDE_COLUMN_ID, time, latitude));
+                    FileDefinition.LATITUDE_COLUMN_ID, time,
+                    fileDefinition.getLatitudeSpecification()
+                      .formatValue(latitude)));
 
                   // Update the dataset bounds
-                  try {
-                    double latDouble = Double.parseDouble(latitude);
-                    if (latDouble < minLat) {
-                      minLat = latDouble;
-                    }
+                  if (latitude < minLat) {
+                    minLat = latitude;
+                  }
 
-                    if (latDouble > maxLat) {
-                      maxLat = latDouble;
-                    }
-                  } catch (NumberFormatException e) {
-                    // Ignore it now. QC will pick it up later.
+                  if (latitude > maxLat) {
+                    maxLat = latitude;
                   }
                 }
               }
@@ -229,7 +276,8 @@ public class ExtractDataSetJob extends DataSetJob {
                         .getRunType(line, true);
 
                       if (null != runTypeValue) {
-                        String runType = runTypeValue.getRunName();
+                        String runType = instrument
+                          .internRunType(runTypeValue.getRunName());
 
                         sensorValues.add(new SensorValue(dataSet.getId(),
                           assignment.getDatabaseId(), time, runType));
@@ -273,10 +321,21 @@ public class ExtractDataSetJob extends DataSetJob {
           }
 
           currentLine++;
+          linesRead++;
+
+          if (linesRead % PROGRESS_LINES == 0) {
+            metrics.increment(JobMetrics.ROWS_READ, PROGRESS_LINES);
+            updateProgress(linesRead, totalLines, RESET_PROGRESS,
+              READ_PROGRESS);
+          }
         }
       }
 
+      metrics.increment(JobMetrics.ROWS_READ, linesRead % PROGRESS_LINES);
+
       // The last run type will cover the rest of time
+      metrics.startStage(STAGE_RUN_TYPES);
+      updateProgress(READ_PROGRESS);
       runTypePeriods.finish();
 
       // Now flag all the values that have internal calibrations and are within
@@ -332,8 +391,13 @@ public class ExtractDataSetJob extends DataSetJob {
       }
 
       // Store the remaining values
+      metrics.startStage(STAGE_STORE);
+      updateProgress(FLAG_PROGRESS);
+      dbStart = System.nanoTime();
       if (sensorValues.size() > 0) {
         DataSetDataDB.storeSensorValues(conn, sensorValues);
+        metrics.increment(JobMetrics.SENSOR_VALUES_WRITTEN,
+          sensorValues.size());
       }
 
       // Adjust the Dataset limits to the actual extracted data
@@ -357,6 +421,8 @@ public class ExtractDataSetJob extends DataSetJob {
         AutoQCJob.class.getCanonicalName(), jobProperties);
 
       conn.commit();
+      metrics.addDatabaseTime(dbStart);
+      metrics.endStage();
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
       DatabaseUtils.rollBack(conn);
@@ -430,10 +496,9 @@ public class ExtractDataSetJob extends DataSetJob {
    */
   protected void reset(Connection conn) throws JobFailedException {
 
+    deleteDataSetRecords(conn, 0D, RESET_PROGRESS);
+
     try {
-      DataSetDataDB.deleteDataReduction(conn, getDataset(conn).getId());
-      DataSetDataDB.deleteMeasurements(conn, getDataset(conn).getId());
-      DataSetDataDB.deleteSensorValues(conn, getDataset(conn).getId());
       DataSetDB.setDatasetStatus(conn, getDataset(conn).getId(),
         DataSet.STATUS_WAITING);
     } catch (Exception e) {
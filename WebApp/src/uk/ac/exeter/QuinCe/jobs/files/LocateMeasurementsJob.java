@@ -21,6 +21,7 @@ import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.jobs.InvalidJobParametersException;
 import uk.ac.exeter.QuinCe.jobs.JobFailedException;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobMetrics;
 import uk.ac.exeter.QuinCe.jobs.JobThread;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
@@ -45,6 +46,21 @@ public class LocateMeasurementsJob extends DataSetJob {
    */
   private final String jobName = "Locate Measurements";
 
+  /**
+   * Metrics stage for locating measurements
+   */
+  private static final String STAGE_LOCATE = "Locate measurements";
+
+  /**
+   * Metrics stage for storing the located measurements
+   */
+  private static final String STAGE_STORE = "Store measurements";
+
+  /**
+   * The job progress once all measurements have been located
+   */
+  private static final double LOCATE_PROGRESS = 90D;
+
   /**
    * Constructor that allows the {@link JobManager} to create an instance of
    * this job.
@@ -80,6 +96,7 @@ public class LocateMeasurementsJob extends DataSetJob {
 
     try {
       conn = dataSource.getConnection();
+      applyQCFlagJournal(conn);
 
       DataSet dataSet = getDataset(conn);
       Instrument instrument = getInstrument(conn);
@@ -102,11 +119,20 @@ public class LocateMeasurementsJob extends DataSetJob {
       // Now locate the measurements
       Map<LocalDateTime, Measurement> measurements = new HashMap<LocalDateTime, Measurement>();
 
+      metrics.startStage(STAGE_LOCATE);
+      int locatorsDone = 0;
       for (MeasurementLocator locator : measurementLocators) {
         addMeasurements(measurements,
           locator.locateMeasurements(conn, instrument, dataSet));
+        locatorsDone++;
+        updateProgress(locatorsDone, measurementLocators.size(), 0D,
+          LOCATE_PROGRESS);
       }
 
+      metrics.increment(JobMetrics.MEASUREMENTS_LOCATED, measurements.size());
+
+      metrics.startStage(STAGE_STORE);
+      long dbStart = System.nanoTime();
       DataSetDataDB.storeMeasurements(conn, measurements.values());
 
       // Trigger the Build Measurements job
@@ -119,6 +145,8 @@ public class LocateMeasurementsJob extends DataSetJob {
         DataReductionJob.class.getCanonicalName(), jobProperties);
 
       conn.commit();
+      metrics.addDatabaseTime(dbStart);
+      metrics.endStage();
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
       DatabaseUtils.rollBack(conn);
@@ -62,7 +62,7 @@ public class TenSecondJob extends Job {
       System.out.println("Job " + id + ": Chunk " + i + " of " + chunkCount);
       try {
         Thread.sleep(10000);
-        setProgress(((double) i / (double) chunkCount) * 100);
+        updateProgress(((double) i / (double) chunkCount) * 100);
       } catch (InterruptedException e) {
         // Don't care
       } catch (Exception e) {
@@ -0,0 +1,437 @@
+package uk.ac.exeter.QuinCe.utils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.text.DecimalFormat;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+import org.apache.commons.lang3.math.NumberUtils;
+
+/**
+ * Formats numbers with a fixed number of decimal places, rounding
+ * {@link RoundingMode#HALF_UP}, without grouping separators and using
+ * {@code en_US} symbols.
+ *
+ * <p>
+ * The output is identical to a {@link DecimalFormat} configured the same way,
+ * but instances are immutable and can be shared between threads. Numbers are
+ * written directly to an {@link Appendable} without creating intermediate
+ * objects:
+ * </p>
+ * <ul>
+ * <li>{@code double}s are rounded from their exact binary value, which gives
+ * the same result as {@link DecimalFormat} up to 15 significant digits.</li>
+ * <li>Numeric {@link String}s are rounded from their decimal digits, which is
+ * what {@link DecimalFormat} does when formatting a {@link BigDecimal} built
+ * from the string.</li>
+ * </ul>
+ * <p>
+ * Values that the fast paths cannot handle (very large numbers, NaN,
+ * infinities, and strings in exponent, hex or other unusual formats) are
+ * passed to a per-thread {@link DecimalFormat}.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public final class FixedPrecisionFormatter {
+
+  /**
+   * The maximum number of significant digits output by the fast
+   * {@code double} path.
+   *
+   * <p>
+   * {@link DecimalFormat} formats {@code double}s from their shortest decimal
+   * representation, which can have up to 17 significant digits, and pads with
+   * zeros beyond it. Within 15 significant digits, rounding the exact binary
+   * value gives the same result.
+   * </p>
+   */
+  private static final int FAST_PATH_DIGITS = 15;
+
+  /**
+   * The maximum supported number of decimal places.
+   */
+  private static final int MAX_DECIMAL_PLACES = 9;
+
+  /**
+   * The number of decimal places.
+   */
+  private final int decimalPlaces;
+
+  /**
+   * The scale factor for the fractional part, i.e.
+   * {@code 10^decimalPlaces}.
+   */
+  private final long scale;
+
+  /**
+   * The largest magnitude handled by the fast {@code double} path.
+   *
+   * @see #FAST_PATH_DIGITS
+   */
+  private final double fastPathLimit;
+
+  /**
+   * Formatters for values that cannot be handled by the fast paths.
+   * {@link DecimalFormat} is not thread-safe, so each thread has its own.
+   */
+  private final ThreadLocal<DecimalFormat> fallback;
+
+  /**
+   * Create a formatter for the specified number of decimal places.
+   *
+   * @param decimalPlaces
+   *          The number of decimal places.
+   * @throws IllegalArgumentException
+   *           If the number of decimal places is not between 0 and 9.
+   */
+  public FixedPrecisionFormatter(int decimalPlaces) {
+    if (decimalPlaces < 0 || decimalPlaces > MAX_DECIMAL_PLACES) {
+      throw new IllegalArgumentException(
+        "Decimal places must be between 0 and " + MAX_DECIMAL_PLACES);
+    }
+
+    this.decimalPlaces = decimalPlaces;
+
+    long power = 1L;
+    for (int i = 0; i < decimalPlaces; i++) {
+      power *= 10;
+    }
+    this.scale = power;
+    this.fastPathLimit = Math.pow(10, FAST_PATH_DIGITS - decimalPlaces);
+
+    this.fallback = ThreadLocal.withInitial(() -> makeDecimalFormat());
+  }
+
+  private DecimalFormat makeDecimalFormat() {
+    DecimalFormat format = new DecimalFormat();
+    format.setMinimumFractionDigits(decimalPlaces);
+    format.setMaximumFractionDigits(decimalPlaces);
+    format.setGroupingUsed(false);
+    format.setRoundingMode(RoundingMode.HALF_UP);
+    format.setDecimalFormatSymbols(
+      new DecimalFormatSymbols(new Locale("en", "US")));
+    return format;
+  }
+
+  /**
+   * Format a {@code double} value.
+   *
+   * @param value
+   *          The value.
+   * @return The formatted value.
+   */
+  public String format(double value) {
+    StringBuilder result = new StringBuilder(24);
+    format(value, result);
+    return result.toString();
+  }
+
+  /**
+   * Format a {@code double} value, writing it to the specified output.
+   *
+   * @param value
+   *          The value.
+   * @param out
+   *          The output.
+   * @throws UncheckedIOException
+   *           If the output cannot be written.
+   */
+  public void format(double value, Appendable out) {
+    try {
+      double abs = Math.abs(value);
+
+      if (!(abs < fastPathLimit)) {
+        // Large values, NaN and infinities
+        out.append(fallback.get().format(value));
+      } else {
+        long integer = (long) abs;
+        double fraction = abs - integer;
+
+        // Find the scaled fraction rounded down, checking the result against
+        // the exact product using fused multiply-adds.
+        long scaled = (long) (fraction * scale);
+        if (Math.fma(fraction, scale, -scaled) < 0) {
+          scaled--;
+        } else if (Math.fma(fraction, scale, -(scaled + 1)) >= 0) {
+          scaled++;
+        }
+
+        // Round half up
+        if (Math.fma(fraction, scale, -(scaled + 0.5D)) >= 0) {
+          scaled++;
+        }
+
+        if (scaled >= scale) {
+          integer++;
+          scaled -= scale;
+        }
+
+        // DecimalFormat keeps the sign of negative values that round to zero,
+        // including negative zero
+        if (value < 0 || (value == 0 && 1 / value < 0)) {
+          out.append('-');
+        }
+
+        appendDigits(integer, 1, out);
+        if (decimalPlaces > 0) {
+          out.append('.');
+          appendDigits(scaled, decimalPlaces, out);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Format a numeric string. If the string is not a number it is returned
+   * unchanged.
+   *
+   * @param value
+   *          The value.
+   * @return The formatted value.
+   */
+  public String format(String value) {
+    String result = value;
+
+    if (null != value) {
+      StringBuilder formatted = new StringBuilder(value.length() + 4);
+      if (formatIfNumeric(value, formatted)) {
+        result = formatted.toString();
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * Format a string if it is a number (as determined by
+   * {@link NumberUtils#isCreatable(String)}), writing it to the specified
+   * output. If the string is not a number nothing is written.
+   *
+   * @param value
+   *          The value.
+   * @param out
+   *          The output.
+   * @return {@code true} if the value was a number and has been written;
+   *         {@code false} if it was not a number.
+   * @throws UncheckedIOException
+   *           If the output cannot be written.
+   */
+  public boolean formatIfNumeric(CharSequence value, Appendable out) {
+    boolean result = false;
+
+    try {
+      if (null != value) {
+        if (isPlainDecimal(value)) {
+          formatPlainDecimal(value, out);
+          result = true;
+        } else if (NumberUtils.isCreatable(value.toString())) {
+          try {
+            String formatted = fallback.get()
+              .format(new BigDecimal(value.toString()));
+            out.append(formatted);
+            result = true;
+          } catch (NumberFormatException e) {
+            // Hex, octal and type-suffixed numbers can't be formatted
+          }
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+
+    return result;
+  }
+
+  /**
+   * Determine whether a string is a plain decimal number: an optional minus
+   * sign, one or more digits (without a leading zero unless it is the only
+   * integer digit) and an optional decimal point followed by one or more
+   * digits.
+   *
+   * <p>
+   * Leading zeros are excluded because {@link NumberUtils#isCreatable(String)}
+   * treats such numbers as octal.
+   * </p>
+   *
+   * @param value
+   *          The string.
+   * @return {@code true} if the string is a plain decimal; {@code false}
+   *         otherwise.
+   */
+  private static boolean isPlainDecimal(CharSequence value) {
+    int length = value.length();
+    int pos = 0;
+
+    if (pos < length && value.charAt(pos) == '-') {
+      pos++;
+    }
+
+    int integerStart = pos;
+    while (pos < length && isDigit(value.charAt(pos))) {
+      pos++;
+    }
+
+    int integerDigits = pos - integerStart;
+    boolean valid = integerDigits > 0
+      && !(integerDigits > 1 && value.charAt(integerStart) == '0');
+
+    if (valid && pos < length) {
+      if (value.charAt(pos) != '.') {
+        valid = false;
+      } else {
+        pos++;
+        int fractionStart = pos;
+        while (pos < length && isDigit(value.charAt(pos))) {
+          pos++;
+        }
+
+        valid = pos > fractionStart && pos == length;
+      }
+    }
+
+    return valid;
+  }
+
+  /**
+   * Round and write a string that has been checked by
+   * {@link #isPlainDecimal(CharSequence)}.
+   *
+   * <p>
+   * The digits are treated as a single sequence of the integer digits followed
+   * by the fraction digits, padded or truncated to the required number of
+   * decimal places. If rounding up is required, the last digit that is not
+   * {@code 9} is incremented and all the digits after it become {@code 0}.
+   * </p>
+   */
+  private void formatPlainDecimal(CharSequence value, Appendable out)
+    throws IOException {
+
+    int length = value.length();
+    boolean negative = value.charAt(0) == '-';
+    int integerStart = negative ? 1 : 0;
+
+    int point = integerStart;
+    while (point < length && value.charAt(point) != '.') {
+      point++;
+    }
+
+    int integerDigits = point - integerStart;
+    int fractionStart = point + 1;
+    int fractionDigits = point < length ? length - fractionStart : 0;
+
+    boolean roundUp = fractionDigits > decimalPlaces
+      && value.charAt(fractionStart + decimalPlaces) >= '5';
+
+    // BigDecimal has no negative zero, so the sign is only kept if there is a
+    // non-zero digit
+    if (negative) {
+      boolean nonZero = false;
+      for (int i = integerStart; i < length; i++) {
+        char c = value.charAt(i);
+        if (c != '0' && c != '.') {
+          nonZero = true;
+          break;
+        }
+      }
+
+      if (nonZero) {
+        out.append('-');
+      }
+    }
+
+    // The combined sequence of digits that will be output
+    int digitCount = integerDigits + decimalPlaces;
+
+    // The position of the digit to be incremented when rounding up. If all
+    // the digits are 9, a leading 1 is needed
+    int increment = -1;
+    if (roundUp) {
+      for (int i = digitCount - 1; i >= 0; i--) {
+        if (getDigit(value, i, integerStart, integerDigits, fractionStart,
+          fractionDigits) != '9') {
+          increment = i;
+          break;
+        }
+      }
+
+      if (increment == -1) {
+        out.append('1');
+      }
+    }
+
+    for (int i = 0; i < digitCount; i++) {
+      if (i == integerDigits) {
+        out.append('.');
+      }
+
+      char digit = getDigit(value, i, integerStart, integerDigits,
+        fractionStart, fractionDigits);
+
+      if (roundUp) {
+        if (i == increment) {
+          digit++;
+        } else if (i > increment) {
+          digit = '0';
+        }
+      }
+
+      out.append(digit);
+    }
+  }
+
+  /**
+   * Get a digit from the combined sequence of integer and fraction digits,
+   * padding the fraction with zeros.
+   */
+  private static char getDigit(CharSequence value, int index, int integerStart,
+    int integerDigits, int fractionStart, int fractionDigits) {
+
+    char result;
+
+    if (index < integerDigits) {
+      result = value.charAt(integerStart + index);
+    } else {
+      int fractionIndex = index - integerDigits;
+      result = fractionIndex < fractionDigits
+        ? value.charAt(fractionStart + fractionIndex)
+        : '0';
+    }
+
+    return result;
+  }
+
+  private static boolean isDigit(char c) {
+    return c >= '0' && c <= '9';
+  }
+
+  /**
+   * Write a non-negative number, padded with leading zeros to the specified
+   * minimum number of digits.
+   */
+  private static void appendDigits(long value, int minDigits, Appendable out)
+    throws IOException {
+
+    long divisor = 1L;
+    int digits = 1;
+    while (divisor <= value / 10) {
+      divisor *= 10;
+      digits++;
+    }
+
+    for (int i = digits; i < minDigits; i++) {
+      out.append('0');
+    }
+
+    while (divisor > 0) {
+      out.append((char) ('0' + (value / divisor) % 10));
+      divisor /= 10;
+    }
+  }
+}
@@ -4,17 +4,12 @@ import java.io.IOException;
 import java.io.PrintWriter;
 import java.io.StringReader;
 import java.io.StringWriter;
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.text.DecimalFormat;
-import java.text.DecimalFormatSymbols;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
-import java.util.Locale;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SortedSet;
@@ -23,8 +18,6 @@ import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
-import org.apache.commons.lang3.math.NumberUtils;
-
 /**
  * Miscellaneous string utilities.
  *
@@ -35,17 +28,12 @@ import org.apache.commons.lang3.math.NumberUtils;
  */
 public final class StringUtils extends org.apache.commons.lang3.StringUtils {
 
-  private static DecimalFormat threeDecimalPoints;
-
-  static {
-    threeDecimalPoints = new DecimalFormat();
-    threeDecimalPoints.setMinimumFractionDigits(3);
-    threeDecimalPoints.setMaximumFractionDigits(3);
-    threeDecimalPoints.setGroupingUsed(false);
-    threeDecimalPoints.setRoundingMode(RoundingMode.HALF_UP);
-    threeDecimalPoints.setDecimalFormatSymbols(
-      new DecimalFormatSymbols(new Locale("en", "US")));
-  }
+  /**
+   * Formatter for numbers to three decimal places. It is immutable, so it can
+   * be shared between threads.
+   */
+  private static final FixedPrecisionFormatter THREE_DECIMAL_PLACES = new FixedPrecisionFormatter(
+    3);
 
   /**
    * Private constructor to prevent instantiation
@@ -455,20 +443,30 @@ public final class StringUtils extends org.apache.commons.lang3.StringUtils {
   }
 
   public static String formatNumber(String value) {
-    String result = value;
-
-    if (NumberUtils.isCreatable(value)) {
-      result = threeDecimalPoints.format(new BigDecimal(value));
-    }
+    return THREE_DECIMAL_PLACES.format(value);
+  }
 
-    return result;
+  /**
+   * Format a numeric string to three decimal places, writing it directly to
+   * the specified output. If the string is not a number nothing is written.
+   *
+   * @param value
+   *          The value.
+   * @param out
+   *          The output.
+   * @return {@code true} if the value was a number and has been written;
+   *         {@code false} if it was not a number.
+   * @see FixedPrecisionFormatter#formatIfNumeric(CharSequence, Appendable)
+   */
+  public static boolean formatNumber(String value, Appendable out) {
+    return THREE_DECIMAL_PLACES.formatIfNumeric(value, out);
   }
 
   public static String formatNumber(Double value) {
     String result = null;
 
     if (null != value) {
-      result = threeDecimalPoints.format(value);
+      result = THREE_DECIMAL_PLACES.format(value.doubleValue());
     }
 
     return result;
@@ -0,0 +1,113 @@
+package uk.ac.exeter.QuinCe.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import uk.ac.exeter.QuinCe.web.system.ResourceManager;
+
+/**
+ * Creates the thread pools used to run parts of jobs and other tasks in
+ * parallel, and shuts them down when the application stops.
+ *
+ * <p>
+ * Pools are normally held in static fields, so they would otherwise keep
+ * running after the application is undeployed. All pools created by
+ * {@link #newPool()} are shut down by {@link #shutdown()}, which is called
+ * when the application is stopped (see
+ * {@link ResourceManager#contextDestroyed(javax.servlet.ServletContextEvent)}).
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class WorkerPools {
+
+  /**
+   * The time to wait for each pool's threads to stop during shutdown, in
+   * seconds
+   */
+  private static final long SHUTDOWN_WAIT = 10;
+
+  /**
+   * The application's registry, used by {@link #newPool()} and
+   * {@link #shutdown()}
+   */
+  private static final WorkerPools APPLICATION_POOLS = new WorkerPools();
+
+  /**
+   * The pools that have been created by this registry
+   */
+  private final List<ForkJoinPool> pools = new ArrayList<ForkJoinPool>();
+
+  /**
+   * Create an empty registry of pools. The application's pools are held in a
+   * single shared registry accessed through {@link #newPool()} and
+   * {@link #shutdown()}; separate registries allow pools to be shut down
+   * without affecting the rest of the application.
+   */
+  public WorkerPools() {
+    // Nothing to do
+  }
+
+  /**
+   * Create a pool in the application's registry with one thread per
+   * available processor.
+   *
+   * @return The pool
+   */
+  public static ForkJoinPool newPool() {
+    return APPLICATION_POOLS.createPool();
+  }
+
+  /**
+   * Shut down all the pools created by {@link #newPool()}. Running tasks are
+   * interrupted.
+   */
+  public static void shutdown() {
+    APPLICATION_POOLS.shutdownPools();
+  }
+
+  /**
+   * Create a pool in this registry with one thread per available processor.
+   *
+   * @return The pool
+   */
+  public ForkJoinPool createPool() {
+    ForkJoinPool pool = new ForkJoinPool(
+      Runtime.getRuntime().availableProcessors());
+
+    synchronized (pools) {
+      pools.add(pool);
+    }
+
+    return pool;
+  }
+
+  /**
+   * Shut down all the pools created by {@link #createPool()} on this registry.
+   * Running tasks are interrupted.
+   */
+  public void shutdownPools() {
+    List<ForkJoinPool> toShutdown;
+
+    synchronized (pools) {
+      toShutdown = new ArrayList<ForkJoinPool>(pools);
+      pools.clear();
+    }
+
+    for (ForkJoinPool pool : toShutdown) {
+      pool.shutdownNow();
+    }
+
+    for (ForkJoinPool pool : toShutdown) {
+      try {
+        pool.awaitTermination(SHUTDOWN_WAIT, TimeUnit.SECONDS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        break;
+      }
+    }
+  }
+}
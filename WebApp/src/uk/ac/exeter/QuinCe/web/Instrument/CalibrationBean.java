@@ -28,6 +28,7 @@ import uk.ac.exeter.QuinCe.data.Instrument.Calibration.InvalidCalibrationTargetE
 import uk.ac.exeter.QuinCe.jobs.Job;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
 import uk.ac.exeter.QuinCe.jobs.files.AutoQCJob;
+import uk.ac.exeter.QuinCe.jobs.files.DataReductionJob;
 import uk.ac.exeter.QuinCe.jobs.files.ExtractDataSetJob;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
@@ -136,6 +137,26 @@ public abstract class CalibrationBean extends BaseManagedBean {
    */
   private TreeMap<DataSet, Boolean> affectedDatasets = null;
 
+  /**
+   * The start of the time period affected by the current edit action. A
+   * {@code null} value means that all times before {@link #affectedEnd} are
+   * affected.
+   *
+   * <p>
+   * This is always the previous calibration for the same target, even if
+   * {@link #changeAffectsDatasetsAfterOnly()} is set, because values between
+   * two calibrations may be interpolated from both of them.
+   * </p>
+   */
+  private LocalDateTime affectedStart = null;
+
+  /**
+   * The end of the time period affected by the current edit action. A
+   * {@code null} value means that all times after {@link #affectedStart} are
+   * affected.
+   */
+  private LocalDateTime affectedEnd = null;
+
   /**
    * Empty constructor
    */
@@ -276,6 +297,16 @@ public abstract class CalibrationBean extends BaseManagedBean {
           // See GitHub Issue #1369
           jobProperties.setProperty(AutoQCJob.ID_PARAM,
             String.valueOf(dataSet.getId()));
+
+          // Data reduction can be limited to the affected part of the
+          // dataset. Other jobs must process the whole dataset.
+          if (DataReductionJob.class.isAssignableFrom(reprocessJobClass)) {
+            LocalDateTime[] window = getReprocessWindow(dataSet);
+            if (null != window) {
+              DataReductionJob.setWindow(jobProperties, window[0], window[1]);
+            }
+          }
+
           JobManager.addJob(getDataSource(), getUser(),
             reprocessJobClass.getCanonicalName(), jobProperties);
 
@@ -288,6 +319,32 @@ public abstract class CalibrationBean extends BaseManagedBean {
     return nav;
   }
 
+  /**
+   * Get the part of a {@link DataSet} that is affected by the current edit
+   * action. Only valid after {@link #calcAffectedDataSets()} has been called.
+   *
+   * @param dataSet
+   *          The dataset.
+   * @return The {@code [start, end]} of the affected period, or {@code null}
+   *         if the whole dataset is affected.
+   */
+  public LocalDateTime[] getReprocessWindow(DataSet dataSet) {
+    LocalDateTime[] result = null;
+
+    boolean startInside = null != affectedStart
+      && affectedStart.isAfter(dataSet.getStart());
+    boolean endInside = null != affectedEnd
+      && affectedEnd.isBefore(dataSet.getEnd());
+
+    if (startInside || endInside) {
+      result = new LocalDateTime[] {
+        startInside ? affectedStart : dataSet.getStart(),
+        endInside ? affectedEnd : dataSet.getEnd() };
+    }
+
+    return result;
+  }
+
   /**
    * Get the status to set on a {@link DataSet} that is being reprocessed.
    *
@@ -668,6 +725,9 @@ public abstract class CalibrationBean extends BaseManagedBean {
 
     LocalDateTime datasetSearchEnd = surroundingCalibrations[1];
 
+    affectedStart = surroundingCalibrations[0];
+    affectedEnd = datasetSearchEnd;
+
     List<DataSet> datasetsToTest = DataSetDB.getDatasetsBetweenDates(
       getDataSource(), instrument.getId(), datasetSearchStart,
       datasetSearchEnd);
@@ -725,6 +785,20 @@ public abstract class CalibrationBean extends BaseManagedBean {
     List<DataSet> affectedByNewPosition = DataSetDB.getDatasetsBetweenDates(
       getDataSource(), instrument.getId(), afterAffectedStartTime, afterNew);
 
+    // The affected period covers both the original and new positions
+    if (null == beforeOriginal || null == beforeNew) {
+      affectedStart = null;
+    } else {
+      affectedStart = beforeOriginal.isBefore(beforeNew) ? beforeOriginal
+        : beforeNew;
+    }
+
+    if (null == afterOriginal || null == afterNew) {
+      affectedEnd = null;
+    } else {
+      affectedEnd = afterOriginal.isAfter(afterNew) ? afterOriginal : afterNew;
+    }
+
     // Combine the two sets of datasets
     TreeSet<DataSet> datasetsToTest = new TreeSet<DataSet>(
       affectedByOriginalGone);
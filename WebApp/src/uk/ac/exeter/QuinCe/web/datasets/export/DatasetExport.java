@@ -5,6 +5,7 @@ import java.time.LocalDateTime;
 import com.google.gson.JsonObject;
 
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.data.Export.ExportOption;
 import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
 import uk.ac.exeter.QuinCe.web.datasets.plotPage.PlotPageTableValue;
 
@@ -54,6 +55,22 @@ public class DatasetExport {
     contentBytes = null;
   }
 
+  /**
+   * Append a field value formatted for the specified export option. The value
+   * is written directly to the content without building an intermediate
+   * string.
+   *
+   * @param exportOption
+   *          The export option.
+   * @param value
+   *          The value.
+   * @see ExportOption#format(String, StringBuilder)
+   */
+  protected void append(ExportOption exportOption, String value) {
+    exportOption.format(value, content);
+    contentBytes = null;
+  }
+
   protected byte[] getContent() {
     if (null == contentBytes) {
       contentBytes = content.toString().getBytes();
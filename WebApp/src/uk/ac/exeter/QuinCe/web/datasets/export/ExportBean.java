@@ -556,7 +556,7 @@ public class ExportBean extends BaseManagedBean {
         if (null == value.getValue()) {
           export.append(exportOption.getMissingValue());
         } else {
-          export.append(exportOption.format(value.getValue()));
+          export.append(exportOption, value.getValue());
         }
 
         // QC Flag
@@ -575,9 +575,10 @@ public class ExportBean extends BaseManagedBean {
             // If the value is NULL, the QC flag is empty. So only put in the
             // flag if it's not null.
             if (null != value.getValue()) {
-              export.append('"'
-                + exportOption.format(value.getQcMessage(allSensorValues, true))
-                + '"');
+              export.append('"');
+              export.append(exportOption,
+                value.getQcMessage(allSensorValues, true));
+              export.append('"');
             }
           }
         }
@@ -61,6 +61,10 @@ public class InternalCalibrationBean extends PlotPageBean {
       Properties jobProperties = new Properties();
       jobProperties.setProperty(DataReductionJob.ID_PARAM,
         String.valueOf(datasetId));
+      if (null != data.getChangedStart()) {
+        AutoQCJob.setChangedRange(jobProperties, data.getChangedStart(),
+          data.getChangedEnd());
+      }
       JobManager.addJob(getDataSource(), getUser(),
         AutoQCJob.class.getCanonicalName(), jobProperties);
     } catch (Exception e) {
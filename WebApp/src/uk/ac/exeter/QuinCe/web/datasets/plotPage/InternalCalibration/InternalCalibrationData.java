@@ -14,6 +14,7 @@ import javax.sql.DataSource;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
+import uk.ac.exeter.QuinCe.data.Dataset.QCFlagJournalDB;
 import uk.ac.exeter.QuinCe.data.Dataset.RunTypeSensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
@@ -88,6 +89,9 @@ public class InternalCalibrationData extends PlotPageData {
 
     try (Connection conn = dataSource.getConnection()) {
 
+      // Make sure all QC flags set on the Manual QC page have been written
+      QCFlagJournalDB.apply(conn, dataset.getId());
+
       datasetSensorValues = DataSetDataDB.getSensorValues(conn, instrument,
         dataset.getId(), false, true);
 
@@ -255,7 +259,7 @@ public class InternalCalibrationData extends PlotPageData {
 
   private List<SensorValue> getSelectedSensorValues() {
     return dataStructure.getSensorValues(selectedColumn,
-      DateTimeUtils.longsToDates(selectedRows));
+      DateTimeUtils.longsToDates(getSelection().getSelectedRowIds()));
   }
 
   protected void applyFlag(Flag flag, String message)
@@ -274,6 +278,7 @@ public class InternalCalibrationData extends PlotPageData {
       throw new DatabaseException("Error while applying QC flag", e);
     }
 
+    qcFlagsChanged(sensorValues);
     initPlots();
   }
 
@@ -304,6 +309,7 @@ public class InternalCalibrationData extends PlotPageData {
       try (Connection conn = dataSource.getConnection()) {
         DataSetDataDB.storeSensorValues(conn, sensorValues);
       }
+      qcFlagsChanged(sensorValues);
       initPlots();
     } catch (Exception e) {
       error("Error while updating QC flags", e);
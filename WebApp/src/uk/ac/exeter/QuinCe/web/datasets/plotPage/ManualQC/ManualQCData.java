@@ -22,6 +22,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.DataSetDataDB;
 import uk.ac.exeter.QuinCe.data.Dataset.DatasetSensorValues;
 import uk.ac.exeter.QuinCe.data.Dataset.Measurement;
 import uk.ac.exeter.QuinCe.data.Dataset.MeasurementValue;
+import uk.ac.exeter.QuinCe.data.Dataset.QCFlagJournalDB;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.CalculationParameter;
 import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducerFactory;
@@ -189,6 +190,9 @@ public class ManualQCData extends PlotPageData {
   public void loadDataAction() throws Exception {
 
     try (Connection conn = dataSource.getConnection()) {
+      // Make sure all QC flags set in previous sessions have been written
+      QCFlagJournalDB.apply(conn, dataset.getId());
+
       sensorValues = DataSetDataDB.getSensorValues(conn, instrument,
         dataset.getId(), false, true);
 
@@ -593,11 +597,13 @@ public class ManualQCData extends PlotPageData {
         }
       }
 
+      // The flags are written to the database in the background
       try (Connection conn = dataSource.getConnection()) {
-        DataSetDataDB.storeSensorValues(conn, changedValues);
+        QCFlagJournalDB.journal(conn, dataset.getId(), changedValues);
       }
+      qcFlagsChanged(changedValues);
       clearSelection();
-      initPlots();
+      updatePlotFlags(changedValues);
     } catch (Exception e) {
       error("Error while updating QC flags", e);
     }
@@ -610,13 +616,12 @@ public class ManualQCData extends PlotPageData {
    */
   private List<SensorValue> getSelectedSensorValues() {
 
+    List<Long> selectedRows = getSelection().getSelectedRowIds();
     List<SensorValue> values = new ArrayList<SensorValue>(selectedRows.size());
 
-    if (null != selectedRows) {
-      for (Long rowId : selectedRows) {
-        values.add(sensorValues.getSensorValue(DateTimeUtils.longToDate(rowId),
-          selectedColumn));
-      }
+    for (Long rowId : selectedRows) {
+      values.add(sensorValues.getSensorValue(DateTimeUtils.longToDate(rowId),
+        selectedColumn));
     }
 
     return values;
@@ -722,13 +727,15 @@ public class ManualQCData extends PlotPageData {
         }
       }
 
-      // Store the updated sensor values
+      // Store the updated sensor values. They are written to the database
+      // in the background
       try (Connection conn = dataSource.getConnection()) {
-        DataSetDataDB.storeSensorValues(conn, changedValues);
+        QCFlagJournalDB.journal(conn, dataset.getId(), changedValues);
       }
 
+      qcFlagsChanged(changedValues);
       clearSelection();
-      initPlots();
+      updatePlotFlags(changedValues);
 
     } catch (Exception e) {
       error("Error storing QC data", e);
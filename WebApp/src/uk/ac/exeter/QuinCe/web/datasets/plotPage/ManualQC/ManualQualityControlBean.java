@@ -11,6 +11,7 @@ import com.google.gson.Gson;
 
 import uk.ac.exeter.QuinCe.data.Dataset.DataSet;
 import uk.ac.exeter.QuinCe.data.Dataset.DataSetDB;
+import uk.ac.exeter.QuinCe.data.Dataset.QCFlagJournalDB;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
 import uk.ac.exeter.QuinCe.jobs.files.AutoQCJob;
 import uk.ac.exeter.QuinCe.jobs.files.DataReductionJob;
@@ -50,10 +51,17 @@ public class ManualQualityControlBean extends PlotPageBean {
   @Override
   protected void processDirtyData() {
     try {
+      // The QC job must see all the flags set by the user
+      QCFlagJournalDB.apply(getDataSource(), datasetId);
+
       DataSetDB.setDatasetStatus(getDataSource(), datasetId,
         DataSet.STATUS_SENSOR_QC);
       Properties jobProperties = new Properties();
       jobProperties.put(DataReductionJob.ID_PARAM, String.valueOf(datasetId));
+      if (null != data.getChangedStart()) {
+        AutoQCJob.setChangedRange(jobProperties, data.getChangedStart(),
+          data.getChangedEnd());
+      }
       JobManager.addJob(getDataSource(), getUser(),
         AutoQCJob.class.getCanonicalName(), jobProperties);
     } catch (Exception e) {
@@ -59,11 +59,13 @@ public class MapRecordJsonSerializer implements JsonSerializer<MapRecord> {
     }
     case FLAG: {
       properties.addProperty("type", FLAG);
+      properties.addProperty("rowID", src.id);
       properties.addProperty("flag", src.getFlag(false).getFlagValue());
       break;
     }
     case FLAG_IGNORE_NEEDED: {
       properties.addProperty("type", FLAG);
+      properties.addProperty("rowID", src.id);
       properties.addProperty("flag", src.getFlag(true).getFlagValue());
       break;
     }
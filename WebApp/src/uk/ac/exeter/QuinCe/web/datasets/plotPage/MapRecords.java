@@ -55,7 +55,7 @@ public class MapRecords extends ArrayList<MapRecord> {
     super(size);
   }
 
-  public String getDisplayJson(GeoBounds bounds, List<Long> selectedRows,
+  public String getDisplayJson(GeoBounds bounds, RowSelection selectedRows,
     boolean useNeededFlags, boolean hideNonGoodFlags) {
 
     Set<MapRecord> boundedRecords = new TreeSet<MapRecord>();
@@ -106,7 +106,7 @@ public class MapRecords extends ArrayList<MapRecord> {
           decimated.add(record);
         }
 
-        if (selectedRows.contains(record.getRowId())) {
+        if (selectedRows.isSelected(record.getRowId())) {
           selected.add(record);
         }
       }
@@ -152,6 +152,80 @@ public class MapRecords extends ArrayList<MapRecord> {
     return json.toString();
   }
 
+  /**
+   * Get the flag features for a set of rows, for updating a map after the
+   * rows' QC flags have been changed.
+   *
+   * <p>
+   * The result is a JSON object whose {@code rows} property lists the row
+   * IDs, and whose {@code flags} property is a feature collection of the rows
+   * that are within the bounds and should be shown as flags. Any existing flag
+   * features for the listed rows should be replaced by these.
+   * </p>
+   *
+   * @param bounds
+   *          The map bounds.
+   * @param rowIds
+   *          The row IDs.
+   * @param useNeededFlags
+   *          Indicates whether or not NEEDED flags should be shown.
+   * @return The flag features.
+   */
+  public String getFlagJson(GeoBounds bounds, Collection<Long> rowIds,
+    boolean useNeededFlags) {
+
+    List<MapRecord> flags = new ArrayList<MapRecord>();
+    JsonArray rows = new JsonArray();
+
+    for (long rowId : rowIds) {
+      rows.add(rowId);
+
+      MapRecord record = find(rowId);
+      if (null != record && bounds.inBounds(record.position)
+        && showAsFlag(record, useNeededFlags)) {
+        flags.add(record);
+      }
+    }
+
+    Gson gson = useNeededFlags ? flagGson : flagNrtGson;
+
+    JsonObject json = new JsonObject();
+    json.addProperty("full", false);
+    json.add("rows", rows);
+    json.add("flags", gson.toJsonTree(makeFeatureCollection(gson, flags)));
+    return json.toString();
+  }
+
+  /**
+   * Find the record for a row. Records are added in time order, so they can
+   * be searched by row ID.
+   *
+   * @param rowId
+   *          The row ID.
+   * @return The record, or {@code null} if there is no record for the row.
+   */
+  private MapRecord find(long rowId) {
+    MapRecord result = null;
+
+    int low = 0;
+    int high = size() - 1;
+
+    while (null == result && low <= high) {
+      int mid = (low + high) >>> 1;
+      long midId = get(mid).getRowId();
+
+      if (midId < rowId) {
+        low = mid + 1;
+      } else if (midId > rowId) {
+        high = mid - 1;
+      } else {
+        result = get(mid);
+      }
+    }
+
+    return result;
+  }
+
   private boolean showAsFlag(MapRecord record, boolean useNeededFlag) {
     return (useNeededFlag && record.flagNeeded()) || !record.isGood();
   }
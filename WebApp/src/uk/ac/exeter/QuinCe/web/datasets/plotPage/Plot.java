@@ -1,19 +1,17 @@
 package uk.ac.exeter.QuinCe.web.datasets.plotPage;
 
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
-import java.util.TreeMap;
 import java.util.TreeSet;
 import java.util.stream.Collectors;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
+import com.google.gson.JsonObject;
 
 import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
 import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
-import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
-import uk.ac.exeter.QuinCe.utils.MathUtils;
 
 public class Plot {
 
@@ -53,6 +51,13 @@ public class Plot {
 
   private boolean hideFlags = false;
 
+  /**
+   * The plot values whose flags were changed by the last call to
+   * {@link #refreshFlags(Collection, boolean)}. If this is {@code null} the
+   * plot must be reloaded in full.
+   */
+  private List<PlotValue> flagUpdates = null;
+
   static {
     Y2_GSON = new GsonBuilder()
       .registerTypeAdapter(PlotValue.class, new Y2AxisPlotValueSerializer())
@@ -187,61 +192,45 @@ public class Plot {
 
   protected void makePlotValues() throws Exception {
 
-    TreeMap<LocalDateTime, PlotPageTableValue> xValues = data
-      .getColumnValues(xAxis);
-
-    TreeMap<LocalDateTime, PlotPageTableValue> yValues = data
-      .getColumnValues(yAxis);
+    PlotColumnVector xValues = data.getColumnVector(xAxis);
+    PlotColumnVector yValues = data.getColumnVector(yAxis);
+    PlotColumnVector y2Values = null == y2Axis ? null
+      : data.getColumnVector(y2Axis);
 
-    TreeMap<LocalDateTime, PlotPageTableValue> y2Values = null == y2Axis
-      ? new TreeMap<LocalDateTime, PlotPageTableValue>()
-      : data.getColumnValues(y2Axis);
+    boolean timeAxis = xAxis.getId() == FileDefinition.TIME_COLUMN_ID;
 
     plotValues = new TreeSet<PlotValue>();
 
-    for (LocalDateTime time : xValues.keySet()) {
-      if (yValues.containsKey(time)) {
+    // All the vectors are in time order, so we step through the Y and Y2
+    // vectors alongside the X vector
+    int yRow = 0;
+    int y2Row = 0;
 
-        PlotPageTableValue x = xValues.get(time);
-        PlotPageTableValue y = yValues.get(time);
-        PlotPageTableValue y2 = y2Values.get(time);
+    for (int xRow = 0; xRow < xValues.size(); xRow++) {
+      long time = xValues.getTimeMillis(xRow);
 
-        PlotValue plotValue = null;
-
-        if (null != y && null != y.getValue()) {
+      while (yRow < yValues.size() && yValues.getTimeMillis(yRow) < time) {
+        yRow++;
+      }
 
-          Double yValue = null;
-          boolean yGhost = false;
-          Flag yFlag = null;
-          if (null != y) {
-            yValue = MathUtils.nullableParseDouble(y.getValue());
-            yGhost = y.getQcFlag().equals(Flag.FLUSHING);
-            yFlag = y.getQcFlag();
-            if (useNeededFlags && y.getFlagNeeded()) {
-              yFlag = Flag.NEEDED;
-            }
-          }
+      if (yRow < yValues.size() && yValues.getTimeMillis(yRow) == time) {
 
-          Double y2Value = null;
-          boolean y2Ghost = false;
-          Flag y2Flag = null;
-          if (null != y2) {
-            y2Value = MathUtils.nullableParseDouble(y2.getValue());
-            y2Ghost = y2.getQcFlag().equals(Flag.FLUSHING);
-            y2Flag = y2.getQcFlag();
-            // We never show NEEDED flags for Y2 axis
+        int matchedY2Row = -1;
+        if (null != y2Values) {
+          while (y2Row < y2Values.size()
+            && y2Values.getTimeMillis(y2Row) < time) {
+            y2Row++;
           }
 
-          if (xAxis.getId() == FileDefinition.TIME_COLUMN_ID) {
-            plotValue = new PlotValue(DateTimeUtils.dateToLong(time), time,
-              yValue, yGhost, yFlag, y2Value, y2Ghost, y2Flag);
-          } else if (null != x && null != x.getValue() && null != y) {
-            plotValue = new PlotValue(DateTimeUtils.dateToLong(time),
-              MathUtils.nullableParseDouble(x.getValue()), yValue, yGhost,
-              yFlag, y2Value, y2Ghost, y2Flag);
+          if (y2Row < y2Values.size()
+            && y2Values.getTimeMillis(y2Row) == time) {
+            matchedY2Row = y2Row;
           }
         }
 
+        PlotValue plotValue = makePlotValue(timeAxis, xValues, xRow, yValues,
+          yRow, y2Values, matchedY2Row);
+
         if (null != plotValue) {
           plotValues.add(plotValue);
         }
@@ -249,6 +238,177 @@ public class Plot {
     }
   }
 
+  /**
+   * Build the {@link PlotValue} for a row.
+   *
+   * @param timeAxis
+   *          Indicates whether the X axis is time.
+   * @param xValues
+   *          The X axis values.
+   * @param xRow
+   *          The row in the X axis values.
+   * @param yValues
+   *          The Y axis values.
+   * @param yRow
+   *          The row in the Y axis values, which must be at the same time as
+   *          the X axis row.
+   * @param y2Values
+   *          The Y2 axis values, or {@code null} if there is no Y2 axis.
+   * @param y2Row
+   *          The row in the Y2 axis values at the same time as the X axis
+   *          row, or {@code -1} if there is no such row.
+   * @return The plot value, or {@code null} if the row is not plotted.
+   */
+  private PlotValue makePlotValue(boolean timeAxis, PlotColumnVector xValues,
+    int xRow, PlotColumnVector yValues, int yRow, PlotColumnVector y2Values,
+    int y2Row) {
+
+    PlotValue plotValue = null;
+
+    if (hasValue(yValues, yRow)) {
+      long time = xValues.getTimeMillis(xRow);
+
+      Double yValue = yValues.getValue(yRow);
+      Flag yFlag = yValues.getFlag(yRow);
+      boolean yGhost = yFlag.equals(Flag.FLUSHING);
+      if (useNeededFlags && yValues.getFlagNeeded(yRow)) {
+        yFlag = Flag.NEEDED;
+      }
+
+      Double y2Value = null;
+      boolean y2Ghost = false;
+      Flag y2Flag = null;
+      if (null != y2Values && y2Row >= 0
+        && y2Values.getState(y2Row) != PlotColumnVector.NO_ENTRY) {
+        y2Value = y2Values.getValue(y2Row);
+        y2Flag = y2Values.getFlag(y2Row);
+        y2Ghost = y2Flag.equals(Flag.FLUSHING);
+        // We never show NEEDED flags for Y2 axis
+      }
+
+      if (timeAxis) {
+        plotValue = new PlotValue(time, xValues.getTime(xRow), yValue, yGhost,
+          yFlag, y2Value, y2Ghost, y2Flag);
+      } else if (hasValue(xValues, xRow)) {
+        plotValue = new PlotValue(time, xValues.getValue(xRow), yValue,
+          yGhost, yFlag, y2Value, y2Ghost, y2Flag);
+      }
+    }
+
+    return plotValue;
+  }
+
+  /**
+   * Update the plot values after the QC flags of some rows have been changed.
+   * The column vectors must already have been refreshed (see
+   * {@link PlotPageData#qcFlagsChanged(Collection)}).
+   *
+   * <p>
+   * Only the plot values for the changed rows are rebuilt, and these are made
+   * available to the front end through {@link #getFlagUpdates()}. This is
+   * only possible for plots against time with a single Y axis, where a row's
+   * position in the plot does not change. Other plots, plots that are hiding
+   * flagged values, and position plots whose values may be re-interpolated
+   * must be reloaded in full.
+   * </p>
+   *
+   * @param rowIds
+   *          The IDs of the changed rows.
+   * @param positionChanged
+   *          Indicates whether any position flags were changed.
+   */
+  protected void refreshFlags(Collection<Long> rowIds,
+    boolean positionChanged) {
+
+    flagUpdates = null;
+
+    if (null != plotValues && null != xAxis && null != yAxis
+      && xAxis.getId() == FileDefinition.TIME_COLUMN_ID && null == y2Axis
+      && !hideFlags && !(positionChanged && isPositionColumn(yAxis))) {
+
+      try {
+        PlotColumnVector xValues = data.getColumnVector(xAxis);
+        PlotColumnVector yValues = data.getColumnVector(yAxis);
+
+        List<PlotValue> updates = new ArrayList<PlotValue>(rowIds.size());
+
+        for (long rowId : rowIds) {
+          int xRow = xValues.find(rowId);
+          int yRow = yValues.find(rowId);
+
+          if (xRow >= 0 && yRow >= 0) {
+            PlotValue value = makePlotValue(true, xValues, xRow, yValues,
+              yRow, null, -1);
+
+            if (null != value) {
+              // Replace the existing value. Values are ordered by time and ID,
+              // which are unchanged.
+              plotValues.remove(value);
+              plotValues.add(value);
+              updates.add(value);
+            }
+          }
+        }
+
+        flagUpdates = updates;
+      } catch (Exception e) {
+        data.error(e);
+      }
+    }
+  }
+
+  private boolean isPositionColumn(PlotPageColumnHeading column) {
+    return column.getId() == FileDefinition.LONGITUDE_COLUMN_ID
+      || column.getId() == FileDefinition.LATITUDE_COLUMN_ID;
+  }
+
+  /**
+   * Get the changes made by the last call to
+   * {@link #refreshFlags(Collection, boolean)} as JSON.
+   *
+   * <p>
+   * The JSON object's {@code full} property is {@code true} if the plot must
+   * be reloaded in full. Otherwise the {@code data} and {@code flags}
+   * properties contain the updated rows for the main and flag plots, in the
+   * same format as {@link #getMainData()} and {@link #getFlagData()}. Rows in
+   * the flag update that have no values are no longer flagged and should be
+   * removed from the flag plot.
+   * </p>
+   *
+   * @return The updates.
+   */
+  public String getFlagUpdates() {
+    JsonObject json = new JsonObject();
+    json.addProperty("full", null == flagUpdates);
+
+    if (null != flagUpdates) {
+      Gson mainGson = new GsonBuilder().registerTypeAdapter(PlotValue.class,
+        new MainPlotValueSerializer(false)).create();
+      Gson flagGson = new GsonBuilder().registerTypeAdapter(PlotValue.class,
+        new FlagPlotValueSerializer(false)).create();
+
+      json.add("data", mainGson.toJsonTree(flagUpdates));
+      json.add("flags", flagGson.toJsonTree(flagUpdates));
+    }
+
+    return json.toString();
+  }
+
+  /**
+   * Determine whether a row in a column vector has a non-{@code null} value.
+   *
+   * @param vector
+   *          The column vector.
+   * @param row
+   *          The row.
+   * @return {@code true} if the row has a value.
+   */
+  private boolean hasValue(PlotColumnVector vector, int row) {
+    byte state = vector.getState(row);
+    return state != PlotColumnVector.NO_ENTRY
+      && state != PlotColumnVector.NULL_VALUE;
+  }
+
   /**
    * Initialise the plot and its data. Called from the front end when the QC
    * page is loaded.
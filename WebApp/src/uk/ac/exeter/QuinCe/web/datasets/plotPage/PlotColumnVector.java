@@ -0,0 +1,241 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.TreeMap;
+
+import uk.ac.exeter.QuinCe.data.Dataset.QC.Flag;
+import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
+import uk.ac.exeter.QuinCe.utils.MathUtils;
+
+/**
+ * The values of a single {@link PlotPageData} column held as time-ordered
+ * arrays, so that plots can be built without rebuilding the column's
+ * {@link PlotPageTableValue}s or parsing their values each time an axis
+ * changes.
+ *
+ * <p>
+ * Values and times never change once the vector is built. QC flags are copied
+ * from the source {@link PlotPageTableValue}s, and must be refreshed with
+ * {@link #refreshFlags(LocalDateTime)} when the flags of the underlying values
+ * are changed.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+class PlotColumnVector {
+
+  /**
+   * Row state indicating that the column has no entry object for the row.
+   */
+  protected static final byte NO_ENTRY = 0;
+
+  /**
+   * Row state indicating that the row's entry has a {@code null} value.
+   */
+  protected static final byte NULL_VALUE = 1;
+
+  /**
+   * Row state indicating that the row's value is an empty string, which is
+   * parsed as a {@code null} number.
+   */
+  protected static final byte EMPTY_VALUE = 2;
+
+  /**
+   * Row state indicating that the row has a numeric value.
+   */
+  protected static final byte NUMERIC_VALUE = 3;
+
+  /**
+   * The row times.
+   */
+  private final LocalDateTime[] times;
+
+  /**
+   * The row times as epoch milliseconds, used for searching.
+   */
+  private final long[] timeMillis;
+
+  /**
+   * The source values, used to refresh QC flags.
+   */
+  private final PlotPageTableValue[] sources;
+
+  /**
+   * The state of each row.
+   */
+  private final byte[] states;
+
+  /**
+   * The numeric value of each row. Only valid for {@link #NUMERIC_VALUE} rows.
+   */
+  private final double[] values;
+
+  /**
+   * The QC flag of each row.
+   */
+  private final Flag[] flags;
+
+  /**
+   * Indicates whether each row needs a user QC flag.
+   */
+  private final boolean[] flagNeeded;
+
+  /**
+   * Build a vector from a column's values.
+   *
+   * @param columnValues
+   *          The column values.
+   */
+  protected PlotColumnVector(
+    TreeMap<LocalDateTime, PlotPageTableValue> columnValues) {
+
+    int size = columnValues.size();
+    times = new LocalDateTime[size];
+    timeMillis = new long[size];
+    sources = new PlotPageTableValue[size];
+    states = new byte[size];
+    values = new double[size];
+    flags = new Flag[size];
+    flagNeeded = new boolean[size];
+
+    int row = 0;
+    for (Map.Entry<LocalDateTime, PlotPageTableValue> entry : columnValues
+      .entrySet()) {
+
+      times[row] = entry.getKey();
+      timeMillis[row] = DateTimeUtils.dateToLong(entry.getKey());
+
+      PlotPageTableValue source = entry.getValue();
+      sources[row] = source;
+
+      if (null == source) {
+        states[row] = NO_ENTRY;
+      } else if (null == source.getValue()) {
+        states[row] = NULL_VALUE;
+      } else {
+        Double parsed = MathUtils.nullableParseDouble(source.getValue());
+        if (null == parsed) {
+          states[row] = EMPTY_VALUE;
+        } else {
+          states[row] = NUMERIC_VALUE;
+          values[row] = parsed;
+        }
+      }
+
+      readFlags(row);
+      row++;
+    }
+  }
+
+  private void readFlags(int row) {
+    if (null != sources[row]) {
+      flags[row] = sources[row].getQcFlag();
+      flagNeeded[row] = sources[row].getFlagNeeded();
+    }
+  }
+
+  /**
+   * Get the number of rows in the vector.
+   *
+   * @return The number of rows.
+   */
+  protected int size() {
+    return times.length;
+  }
+
+  /**
+   * Get the time of a row.
+   *
+   * @param row
+   *          The row.
+   * @return The row's time.
+   */
+  protected LocalDateTime getTime(int row) {
+    return times[row];
+  }
+
+  /**
+   * Get the time of a row as epoch milliseconds.
+   *
+   * @param row
+   *          The row.
+   * @return The row's time.
+   */
+  protected long getTimeMillis(int row) {
+    return timeMillis[row];
+  }
+
+  /**
+   * Get the state of a row.
+   *
+   * @param row
+   *          The row.
+   * @return The row state.
+   */
+  protected byte getState(int row) {
+    return states[row];
+  }
+
+  /**
+   * Get the value of a row in the same form as
+   * {@link MathUtils#nullableParseDouble(String)} applied to its source value.
+   *
+   * @param row
+   *          The row.
+   * @return The value.
+   */
+  protected Double getValue(int row) {
+    return states[row] == NUMERIC_VALUE ? values[row] : null;
+  }
+
+  /**
+   * Get the QC flag of a row.
+   *
+   * @param row
+   *          The row.
+   * @return The QC flag.
+   */
+  protected Flag getFlag(int row) {
+    return flags[row];
+  }
+
+  /**
+   * Determine whether a row needs a user QC flag.
+   *
+   * @param row
+   *          The row.
+   * @return {@code true} if the row needs a flag.
+   */
+  protected boolean getFlagNeeded(int row) {
+    return flagNeeded[row];
+  }
+
+  /**
+   * Find the row for a time.
+   *
+   * @param millis
+   *          The time as epoch milliseconds.
+   * @return The row, or a negative value as per
+   *         {@link Arrays#binarySearch(long[], long)} if there is no row for
+   *         the time.
+   */
+  protected int find(long millis) {
+    return Arrays.binarySearch(timeMillis, millis);
+  }
+
+  /**
+   * Re-read the QC flags for the row at the specified time, if there is one.
+   *
+   * @param time
+   *          The time.
+   */
+  protected void refreshFlags(LocalDateTime time) {
+    int row = find(DateTimeUtils.dateToLong(time));
+    if (row >= 0) {
+      readFlags(row);
+    }
+  }
+}
@@ -1,23 +1,23 @@
 package uk.ac.exeter.QuinCe.web.datasets.plotPage;
 
-import java.lang.reflect.Type;
 import java.sql.Connection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 import java.util.TreeMap;
-import java.util.TreeSet;
 
 import javax.sql.DataSource;
 
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
 import com.javadocmd.simplelatlng.LatLng;
 
 import uk.ac.exeter.QuinCe.data.Dataset.ColumnHeading;
@@ -29,6 +29,7 @@ import uk.ac.exeter.QuinCe.data.Dataset.RunTypePeriods;
 import uk.ac.exeter.QuinCe.data.Dataset.SensorValue;
 import uk.ac.exeter.QuinCe.data.Instrument.FileDefinition;
 import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
+import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorType;
 import uk.ac.exeter.QuinCe.utils.DateTimeUtils;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.StringUtils;
@@ -66,12 +67,6 @@ public abstract class PlotPageData {
    */
   protected RunTypePeriods runTypePeriods;
 
-  /**
-   * Json serialization type for lists of longs
-   */
-  Type longList = new TypeToken<List<Long>>() {
-  }.getType();
-
   /**
    * Gson instance for serializing table data
    */
@@ -103,9 +98,16 @@ public abstract class PlotPageData {
   protected long selectedColumn = -1L;
 
   /**
-   * The IDs of the selected rows
+   * The selected rows
+   *
+   * @see #getSelection()
+   */
+  private RowSelection selection = null;
+
+  /**
+   * The row IDs list that {@link #selection} was built from
    */
-  protected List<Long> selectedRows = new ArrayList<Long>();
+  private List<Long> selectionRowIds = null;
 
   /**
    * The ID of the row that was just selected/deselected
@@ -147,6 +149,22 @@ public abstract class PlotPageData {
    */
   private Map<PlotPageColumnHeading, MapRecords> mapCache = new HashMap<PlotPageColumnHeading, MapRecords>();
 
+  /**
+   * Cache of column values as time-ordered vectors for plots, keyed by column
+   * ID.
+   */
+  private Map<Long, PlotColumnVector> columnVectorCache = new HashMap<Long, PlotColumnVector>();
+
+  /**
+   * The time of the earliest value whose QC flags have been changed.
+   */
+  private LocalDateTime changedStart = null;
+
+  /**
+   * The time of the latest value whose QC flags have been changed.
+   */
+  private LocalDateTime changedEnd = null;
+
   /**
    * The indicator of the root field group.
    *
@@ -185,6 +203,7 @@ public abstract class PlotPageData {
    */
   public void loadData() {
     try {
+      columnVectorCache.clear();
       loadDataAction();
 
       DataSource dataSource = ResourceManager.getInstance().getDBDataSource();
@@ -686,31 +705,51 @@ public abstract class PlotPageData {
   }
 
   /**
-   * Get the current list of selected rows.
+   * Get the current selection of rows.
+   *
+   * <p>
+   * If the page's rows have changed since the selection was made, a new empty
+   * selection is created.
+   * </p>
    *
    * @return The selected rows.
    */
-  public String getSelectedRows() {
-    return new Gson().toJson(selectedRows);
+  protected RowSelection getSelection() {
+    List<Long> rowIds = getRowIDs();
+
+    if (null == selection || rowIds != selectionRowIds) {
+      selection = new RowSelection(rowIds);
+      selectionRowIds = rowIds;
+    }
+
+    return selection;
   }
 
   /**
-   * Set the list of currently selected rows.
+   * Get the currently selected rows as a JSON array of {@code [first, last]}
+   * row ID ranges.
    *
-   * <p>
-   * Converts all supplied values to Strings. The method assumes that the
-   * strings are already sorted.
-   * </p>
+   * @return The selected rows.
+   * @see RowSelection#toJson()
+   */
+  public String getSelectedRows() {
+    return getSelection().toJson();
+  }
+
+  /**
+   * Set the currently selected rows from a JSON array of
+   * {@code [first, last]} row ID ranges.
    *
    * @param selectedRows
    *          The selected rows.
+   * @see RowSelection#setFromJson(String)
    */
   public void setSelectedRows(String selectedRows) {
-    this.selectedRows = new Gson().fromJson(selectedRows, longList);
+    getSelection().setFromJson(selectedRows);
   }
 
   public void clearSelection() {
-    this.selectedRows = new ArrayList<Long>();
+    getSelection().clear();
   }
 
   /**
@@ -781,12 +820,10 @@ public abstract class PlotPageData {
    */
   public void selectRange() throws Exception {
 
-    TreeSet<Long> newSelectedRows = new TreeSet<Long>(selectedRows);
-
-    List<Long> allRows = getRowIDs();
+    RowSelection selection = getSelection();
 
-    int rangeStart = allRows.indexOf(prevClickedRow);
-    int rangeEnd = allRows.indexOf(clickedRow);
+    int rangeStart = selection.indexOf(prevClickedRow);
+    int rangeEnd = selection.indexOf(clickedRow);
 
     if (rangeEnd < rangeStart) {
       int temp = rangeStart;
@@ -798,21 +835,20 @@ public abstract class PlotPageData {
       rangeStart = 0;
     }
 
-    if (rangeEnd >= allRows.size()) {
-      rangeEnd = allRows.size() - 1;
+    if (rangeEnd >= selection.getRowCount()) {
+      rangeEnd = selection.getRowCount() - 1;
     }
 
     for (int i = rangeStart; i <= rangeEnd; i++) {
       if (lastSelectionAction == DESELECT) {
-        newSelectedRows.remove(allRows.get(i));
+        selection.setIndex(i, false);
       } else {
-        if (canSelectCell(allRows.get(i), selectedColumn)) {
-          newSelectedRows.add(allRows.get(i));
+        if (canSelectCell(selection.getRowId(i), selectedColumn)) {
+          selection.setIndex(i, true);
         }
       }
     }
 
-    selectedRows = new ArrayList<Long>(newSelectedRows);
     prevClickedRow = clickedRow;
   }
 
@@ -861,6 +897,124 @@ public abstract class PlotPageData {
   protected abstract TreeMap<LocalDateTime, PlotPageTableValue> getColumnValues(
     PlotPageColumnHeading column) throws Exception;
 
+  /**
+   * Get the values for a given column as a {@link PlotColumnVector}. The vector
+   * is built from {@link #getColumnValues(PlotPageColumnHeading)} the first
+   * time a column is requested, and cached after that.
+   *
+   * @param column
+   *          The column.
+   * @return The column values.
+   * @see #qcFlagsChanged(Collection)
+   */
+  protected PlotColumnVector getColumnVector(PlotPageColumnHeading column)
+    throws Exception {
+
+    PlotColumnVector result = columnVectorCache.get(column.getId());
+    if (null == result) {
+      result = new PlotColumnVector(getColumnValues(column));
+      columnVectorCache.put(column.getId(), result);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the time of the earliest value whose QC flags have been changed.
+   *
+   * @return The earliest changed time, or {@code null} if no flags have been
+   *         changed
+   */
+  public LocalDateTime getChangedStart() {
+    return changedStart;
+  }
+
+  /**
+   * Get the time of the latest value whose QC flags have been changed.
+   *
+   * @return The latest changed time, or {@code null} if no flags have been
+   *         changed
+   */
+  public LocalDateTime getChangedEnd() {
+    return changedEnd;
+  }
+
+  /**
+   * Update the cached column vectors after the QC flags of a set of
+   * {@link SensorValue}s have been changed.
+   *
+   * <p>
+   * The flags are re-read for the rows at the changed values' times, and the
+   * overall range of changed times is recorded so that the automatic QC can be
+   * limited to that range (see {@link #getChangedStart()}). Position
+   * values are interpolated from their neighbours using their QC flags, so
+   * changing a position flag can affect other rows; in that case the position
+   * columns are discarded and rebuilt when they are next used.
+   * </p>
+   *
+   * @param changedValues
+   *          The changed values.
+   */
+  protected void qcFlagsChanged(Collection<SensorValue> changedValues) {
+
+    boolean positionChanged = false;
+    Set<LocalDateTime> changedTimes = new HashSet<LocalDateTime>();
+
+    for (SensorValue value : changedValues) {
+      changedTimes.add(value.getTime());
+      if (null == changedStart || value.getTime().isBefore(changedStart)) {
+        changedStart = value.getTime();
+      }
+      if (null == changedEnd || value.getTime().isAfter(changedEnd)) {
+        changedEnd = value.getTime();
+      }
+      if (SensorType.isPosition(value.getColumnId())) {
+        positionChanged = true;
+      }
+    }
+
+    if (positionChanged) {
+      columnVectorCache.remove(FileDefinition.LONGITUDE_COLUMN_ID);
+      columnVectorCache.remove(FileDefinition.LATITUDE_COLUMN_ID);
+    }
+
+    for (PlotColumnVector vector : columnVectorCache.values()) {
+      changedTimes.forEach(vector::refreshFlags);
+    }
+  }
+
+  /**
+   * Update the plots and maps after the QC flags of a set of
+   * {@link SensorValue}s have been changed and passed to
+   * {@link #qcFlagsChanged(Collection)}.
+   *
+   * <p>
+   * Only the points for the changed rows are rebuilt where possible. The
+   * changes are sent to the front end by {@link Plot#getFlagUpdates()} and
+   * {@link QCMap#getFlagUpdates()}.
+   * </p>
+   *
+   * @param changedValues
+   *          The changed values.
+   */
+  protected void updatePlotFlags(Collection<SensorValue> changedValues) {
+
+    boolean positionChanged = false;
+    Set<Long> changedRows = new HashSet<Long>();
+
+    for (SensorValue value : changedValues) {
+      changedRows.add(DateTimeUtils.dateToLong(value.getTime()));
+      if (SensorType.isPosition(value.getColumnId())) {
+        positionChanged = true;
+      }
+    }
+
+    plot1.refreshFlags(changedRows, positionChanged);
+    plot2.refreshFlags(changedRows, positionChanged);
+    map1.refreshFlags(changedRows, positionChanged);
+    map2.refreshFlags(changedRows, positionChanged);
+  }
+
   /**
    * Get the {@link ColumnHeading} for the specified column ID.
    *
@@ -958,10 +1112,33 @@ public abstract class PlotPageData {
       buildMapCache(column);
     }
 
-    return mapCache.get(column).getDisplayJson(bounds, selectedRows,
+    return mapCache.get(column).getDisplayJson(bounds, getSelection(),
       useNeededFlags, hideNonGoodFlags);
   }
 
+  /**
+   * Get the map flag features for a set of rows within the specified bounds.
+   *
+   * @param column
+   *          The map column.
+   * @param bounds
+   *          The map bounds.
+   * @param rowIds
+   *          The row IDs.
+   * @param useNeededFlags
+   *          Indicates whether or not NEEDED flags should be shown.
+   * @return The flag features, or {@code null} if the map data has not been
+   *         built for the column.
+   * @see MapRecords#getFlagJson(GeoBounds, Collection, boolean)
+   */
+  protected String getMapFlagJson(PlotPageColumnHeading column,
+    GeoBounds bounds, Collection<Long> rowIds, boolean useNeededFlags) {
+
+    MapRecords records = mapCache.get(column);
+    return null == records ? null
+      : records.getFlagJson(bounds, rowIds, useNeededFlags);
+  }
+
   private void buildMapCache(PlotPageColumnHeading column) throws Exception {
 
     MapRecords records = new MapRecords(size());
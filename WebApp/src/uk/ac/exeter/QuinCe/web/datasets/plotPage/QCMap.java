@@ -1,5 +1,7 @@
 package uk.ac.exeter.QuinCe.web.datasets.plotPage;
 
+import java.util.Collection;
+
 import org.apache.commons.lang3.StringUtils;
 
 import com.google.gson.Gson;
@@ -34,6 +36,13 @@ public class QCMap {
 
   private boolean hideFlags = false;
 
+  /**
+   * The flag changes from the last call to
+   * {@link #refreshFlags(Collection, boolean)}, or {@code null} if the map
+   * must be reloaded in full.
+   */
+  private String flagUpdates = null;
+
   static {
     gson = new Gson();
   }
@@ -108,6 +117,44 @@ public class QCMap {
     }
   }
 
+  /**
+   * Build the map updates for rows whose QC flags have changed.
+   *
+   * <p>
+   * Only the flag features of the changed rows are rebuilt. If the map is
+   * hiding flagged values, or position flags have changed so points may have
+   * moved, the map must be reloaded in full.
+   * </p>
+   *
+   * @param rowIds
+   *          The IDs of the changed rows.
+   * @param positionChanged
+   *          Indicates whether any position flags were changed.
+   */
+  protected void refreshFlags(Collection<Long> rowIds,
+    boolean positionChanged) {
+
+    flagUpdates = null;
+
+    if (null != dataColumn && !hideFlags && !positionChanged) {
+      flagUpdates = data.getMapFlagJson(dataColumn, bounds, rowIds,
+        useNeededFlags);
+    }
+  }
+
+  /**
+   * Get the map changes from the last call to
+   * {@link #refreshFlags(Collection, boolean)}. See
+   * {@link MapRecords#getFlagJson(GeoBounds, Collection, boolean)} for the
+   * format; if the map must be reloaded in full, the result is
+   * <code>{"full":true}</code>.
+   *
+   * @return The map changes.
+   */
+  public String getFlagUpdates() {
+    return null == flagUpdates ? "{\"full\":true}" : flagUpdates;
+  }
+
   public void setHideFlags(boolean hideFlags) {
     this.hideFlags = hideFlags;
   }
@@ -0,0 +1,230 @@
+package uk.ac.exeter.QuinCe.web.datasets.plotPage;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+
+import com.google.gson.Gson;
+
+/**
+ * The set of rows selected on a {@link PlotPageData} page.
+ *
+ * <p>
+ * The selection is held as a bitmap of positions in the page's list of row
+ * IDs (see {@link PlotPageData#getRowIDs()}), which must be sorted in
+ * ascending order with no duplicates. This means that checking whether a row
+ * is selected does not need to search the selection, and large selections
+ * take very little memory.
+ * </p>
+ *
+ * <p>
+ * Selections are exchanged with the browser as a JSON array of
+ * {@code [first, last]} row ID pairs, each of which covers all the rows from
+ * {@code first} to {@code last} inclusive. A contiguous selection is therefore
+ * sent as a single pair however many rows it contains.
+ * </p>
+ *
+ * @author Steve Jones
+ *
+ */
+public class RowSelection {
+
+  /**
+   * The row IDs for the page, in ascending order.
+   */
+  private final long[] rowIds;
+
+  /**
+   * The positions in {@link #rowIds} of the selected rows.
+   */
+  private final BitSet selected;
+
+  /**
+   * Create an empty selection for the specified rows.
+   *
+   * @param rowIds
+   *          The row IDs, in ascending order.
+   */
+  public RowSelection(List<Long> rowIds) {
+    if (null == rowIds) {
+      this.rowIds = new long[0];
+    } else {
+      this.rowIds = rowIds.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    this.selected = new BitSet(this.rowIds.length);
+  }
+
+  /**
+   * Get the position of a row in the page's row list.
+   *
+   * @param rowId
+   *          The row ID.
+   * @return The row's position, or {@code -1} if the row is not on the page.
+   */
+  public int indexOf(long rowId) {
+    int index = Arrays.binarySearch(rowIds, rowId);
+    return index < 0 ? -1 : index;
+  }
+
+  /**
+   * Determine whether or not a row is selected.
+   *
+   * @param rowId
+   *          The row ID.
+   * @return {@code true} if the row is selected; {@code false} if it is not
+   *         selected or is not on the page.
+   */
+  public boolean isSelected(long rowId) {
+    int index = indexOf(rowId);
+    return index >= 0 && selected.get(index);
+  }
+
+  /**
+   * Determine whether or not the row at the specified position is selected.
+   *
+   * @param index
+   *          The row position.
+   * @return {@code true} if the row is selected; {@code false} if it is not.
+   */
+  public boolean isSelectedIndex(int index) {
+    return selected.get(index);
+  }
+
+  /**
+   * Select or deselect the row at the specified position.
+   *
+   * @param index
+   *          The row position.
+   * @param select
+   *          {@code true} to select the row; {@code false} to deselect it.
+   */
+  public void setIndex(int index, boolean select) {
+    selected.set(index, select);
+  }
+
+  /**
+   * Get the row ID at the specified position.
+   *
+   * @param index
+   *          The row position.
+   * @return The row ID.
+   */
+  public long getRowId(int index) {
+    return rowIds[index];
+  }
+
+  /**
+   * Get the number of rows on the page.
+   *
+   * @return The number of rows.
+   */
+  public int getRowCount() {
+    return rowIds.length;
+  }
+
+  /**
+   * Get the number of selected rows.
+   *
+   * @return The number of selected rows.
+   */
+  public int size() {
+    return selected.cardinality();
+  }
+
+  /**
+   * Determine whether or not the selection is empty.
+   *
+   * @return {@code true} if no rows are selected; {@code false} otherwise.
+   */
+  public boolean isEmpty() {
+    return selected.isEmpty();
+  }
+
+  /**
+   * Deselect all rows.
+   */
+  public void clear() {
+    selected.clear();
+  }
+
+  /**
+   * Get the IDs of the selected rows, in ascending order.
+   *
+   * @return The selected row IDs.
+   */
+  public List<Long> getSelectedRowIds() {
+    List<Long> result = new ArrayList<Long>(selected.cardinality());
+
+    for (int i = selected.nextSetBit(0); i >= 0; i = selected
+      .nextSetBit(i + 1)) {
+      result.add(rowIds[i]);
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the selection as a JSON array of {@code [first, last]} row ID ranges.
+   *
+   * @return The selection JSON.
+   */
+  public String toJson() {
+    StringBuilder json = new StringBuilder("[");
+
+    int start = selected.nextSetBit(0);
+    while (start >= 0) {
+      int end = selected.nextClearBit(start) - 1;
+
+      if (json.length() > 1) {
+        json.append(',');
+      }
+
+      json.append('[').append(rowIds[start]).append(',').append(rowIds[end])
+        .append(']');
+
+      start = selected.nextSetBit(end + 1);
+    }
+
+    json.append(']');
+    return json.toString();
+  }
+
+  /**
+   * Replace the selection with the ranges in the supplied JSON (see
+   * {@link #toJson()}). All the page's rows that lie within each range are
+   * selected, so the range limits do not need to be on the page.
+   *
+   * @param json
+   *          The selection JSON.
+   */
+  public void setFromJson(String json) {
+    selected.clear();
+
+    if (null != json && json.trim().length() > 0) {
+      long[][] ranges = new Gson().fromJson(json, long[][].class);
+
+      if (null != ranges) {
+        for (long[] range : ranges) {
+          if (null != range && range.length > 0) {
+            int from = lowerBound(range[0]);
+            int to = lowerBound(range[range.length - 1] + 1);
+            if (from < to) {
+              selected.set(from, to);
+            }
+          }
+        }
+      }
+    }
+  }
+
+  /**
+   * Find the position of the first row whose ID is greater than or equal to
+   * the specified value.
+   */
+  private int lowerBound(long rowId) {
+    int index = Arrays.binarySearch(rowIds, rowId);
+    return index < 0 ? -index - 1 : index;
+  }
+}
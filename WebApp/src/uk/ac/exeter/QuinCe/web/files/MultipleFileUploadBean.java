@@ -1,6 +1,10 @@
 package uk.ac.exeter.QuinCe.web.files;
 
+import java.util.LinkedHashMap;
+import java.util.Properties;
 import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
 
 import javax.faces.bean.ManagedBean;
 import javax.faces.bean.ViewScoped;
@@ -10,16 +14,55 @@ import org.primefaces.model.UploadedFile;
 import uk.ac.exeter.QuinCe.data.Files.DataFile;
 import uk.ac.exeter.QuinCe.data.Files.DataFileDB;
 import uk.ac.exeter.QuinCe.data.Files.FileExistsException;
+import uk.ac.exeter.QuinCe.data.Instrument.Instrument;
 import uk.ac.exeter.QuinCe.data.Instrument.InstrumentDB;
 import uk.ac.exeter.QuinCe.utils.DatabaseException;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.utils.MissingParamException;
 import uk.ac.exeter.QuinCe.utils.RecordNotFoundException;
+import uk.ac.exeter.QuinCe.utils.WorkerPools;
 import uk.ac.exeter.QuinCe.web.FileUploadBean;
 
+/**
+ * Bean for uploading multiple data files.
+ *
+ * <p>
+ * Uploaded files are extracted in the background on a shared pool of
+ * threads, so several files can be extracted at once. The page calls
+ * {@link #extractNext()} repeatedly until {@link #isExtractionInProgress()}
+ * returns {@code false}, updating the file list each time.
+ * </p>
+ *
+ * <p>
+ * The number of files being extracted at once is limited by the size of the
+ * files (see {@link #MAX_EXTRACTION_SIZE}), so a large upload does not use up
+ * all the available memory. Files that cannot be started yet are left
+ * waiting until the next call.
+ * </p>
+ */
 @ManagedBean(name = "fileUpload")
 @ViewScoped
 public class MultipleFileUploadBean extends FileUploadBean {
+
+  /**
+   * The maximum total size of the files being extracted at any one time
+   * across all users, in kilobytes of file content.
+   */
+  private static final int MAX_EXTRACTION_SIZE = 256 * 1024;
+
+  /**
+   * The pool used to extract uploaded files.
+   */
+  private static final ForkJoinPool EXTRACTION_POOL = WorkerPools.newPool();
+
+  /**
+   * Limits the total size of the files being extracted, in kilobytes.
+   *
+   * @see #MAX_EXTRACTION_SIZE
+   */
+  private static final Semaphore EXTRACTION_MEMORY = new Semaphore(
+    MAX_EXTRACTION_SIZE);
+
   /**
    * The data file object
    */
@@ -43,20 +86,86 @@ public class MultipleFileUploadBean extends FileUploadBean {
   }
 
   /**
-   * Extract files in file list that are not yet extracted
+   * Start extracting the files in the file list that are not yet extracted.
+   *
+   * <p>
+   * Files are queued on the extraction pool for as long as there is memory
+   * available for them. Any remaining files are started by later calls.
+   * </p>
    */
   public void extractNext() {
     for (UploadedDataFile file : dataFiles) {
-      if (file.getDataFile() == null && file.isStore()) {
-        file.extractFile(getCurrentInstrument(), getAppConfig(), false, false);
+      if (!file.isQueued() && file.getDataFile() == null && file.isStore()) {
+
+        int permits = getExtractionPermits(file);
+        if (!EXTRACTION_MEMORY.tryAcquire(permits)) {
+          break;
+        }
+
+        file.setQueued(true);
+
+        Instrument instrument = getCurrentInstrument();
+        Properties appConfig = getAppConfig();
+
+        EXTRACTION_POOL.execute(() -> {
+          try {
+            file.extractFile(instrument, appConfig, false, false);
+          } finally {
+            EXTRACTION_MEMORY.release(permits);
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Determine whether or not any of the uploaded files are still waiting to
+   * be extracted or are being extracted.
+   *
+   * @return {@code true} if extraction is still in progress; {@code false} if
+   *         all files have been extracted
+   */
+  public boolean isExtractionInProgress() {
+    boolean result = false;
+
+    for (UploadedDataFile file : dataFiles) {
+      if (!file.isProcessed() && file.isStore()) {
+        result = true;
         break;
       }
     }
+
+    return result;
+  }
+
+  /**
+   * Dummy method allowing the front end to call a {@code set} method. Does
+   * nothing.
+   *
+   * @param inProgress
+   *          The extraction state (ignored)
+   */
+  public void setExtractionInProgress(boolean inProgress) {
+    ; // Do nothing
+  }
+
+  /**
+   * Get the number of {@link #EXTRACTION_MEMORY} permits needed to extract a
+   * file.
+   *
+   * @param file
+   *          The file
+   * @return The number of permits
+   */
+  private static int getExtractionPermits(UploadedDataFile file) {
+    long kilobytes = file.getContentSize() / 1024;
+    return (int) Math.max(1, Math.min(MAX_EXTRACTION_SIZE, kilobytes));
   }
 
   /**
    * Store selected files. This moves the file(s) to the file store, and updates
-   * the database with file info.
+   * the database with file info. All the files are stored in a single
+   * transaction, so if any file cannot be stored none of them are.
    *
    * @throws MissingParamException
    *           If any required parameters are missing
@@ -69,12 +178,18 @@ public class MultipleFileUploadBean extends FileUploadBean {
    */
   public void store() throws MissingParamException, FileExistsException,
     DatabaseException, RecordNotFoundException {
+
+    LinkedHashMap<DataFile, Long> filesToStore = new LinkedHashMap<DataFile, Long>();
+
     for (UploadedDataFile file : dataFiles) {
       if (file.isStore() && null != file.getDataFile()) {
-        DataFileDB.storeFile(getDataSource(), getAppConfig(),
-          file.getDataFile(), file.getReplacementFile());
+        filesToStore.put(file.getDataFile(), file.getReplacementFile());
       }
     }
+
+    if (filesToStore.size() > 0) {
+      DataFileDB.storeFiles(getDataSource(), getAppConfig(), filesToStore);
+    }
   }
 
   /**
@@ -4,6 +4,7 @@ import java.time.LocalDateTime;
 import java.time.ZoneId;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.NoSuchElementException;
@@ -47,33 +48,52 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
   /**
    * Indicates whether or not the file should be stored
    */
-  private boolean store = true;
+  private volatile boolean store = true;
 
   /**
-   * The processed file
+   * The processed file.
+   *
+   * <p>
+   * Files are extracted on a separate thread (see
+   * {@link #extractFile(Instrument, Properties, boolean, boolean)}). The
+   * extracted file is only set here once extraction has finished, so other
+   * threads never see a partly checked file.
+   * </p>
    */
-  private DataFile dataFile = null;
+  private volatile DataFile dataFile = null;
 
   /**
-   * Error messages for the file
+   * Error messages for the file. Messages are added by the extraction thread
+   * while they are read for display, so the list is synchronized.
    */
-  private ArrayList<FacesMessage> messages = new ArrayList<>();
+  private final List<FacesMessage> messages = Collections
+    .synchronizedList(new ArrayList<>());
 
   /**
    * Return status code for the uploaded file (for use with API calls)
    */
-  private int statusCode = Status.OK.getStatusCode();
+  private volatile int statusCode = Status.OK.getStatusCode();
 
   /**
    * Indicates whether or not the file has been extracted and processed
    */
-  private boolean processed = false;
+  private volatile boolean processed = false;
+
+  /**
+   * Indicates whether or not the file has been queued for extraction
+   */
+  private volatile boolean queued = false;
+
+  /**
+   * Indicates whether or not the file is currently being extracted
+   */
+  private volatile boolean extracting = false;
 
   /**
    * The database ID of the existing file that this file will replace -1
    * indicates that this is a completely new file
    */
-  private long replaceFile = -1;
+  private volatile long replaceFile = -1;
 
   /**
    * Extract the file contents as individual lines
@@ -93,6 +113,24 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
     return fileLines;
   }
 
+  /**
+   * Get the number of characters in the file, excluding line breaks.
+   *
+   * @return The file size
+   */
+  public long getContentSize() {
+    long result = 0;
+
+    String[] lines = getLines();
+    if (null != lines) {
+      for (String line : lines) {
+        result += line.length();
+      }
+    }
+
+    return result;
+  }
+
   /**
    * Get the filename of the file
    *
@@ -184,13 +222,17 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
    */
   public String getMessages() {
     JSONArray jsonArray = new JSONArray();
-    for (FacesMessage message : messages) {
-      JSONObject jsonObject = new JSONObject();
-      jsonObject.put("summary", message.getSummary());
-      jsonObject.put("severity", getSeverityLabel(message.getSeverity()));
-      jsonObject.put("type", "file");
-      jsonArray.put(jsonObject);
+    synchronized (messages) {
+      for (FacesMessage message : messages) {
+        JSONObject jsonObject = new JSONObject();
+        jsonObject.put("summary", message.getSummary());
+        jsonObject.put("severity", getSeverityLabel(message.getSeverity()));
+        jsonObject.put("type", "file");
+        jsonArray.put(jsonObject);
+      }
     }
+
+    DataFile dataFile = this.dataFile;
     if (null != dataFile) {
       for (DataFileMessage message : dataFile.getMessages()) {
         JSONObject jsonObject = new JSONObject();
@@ -246,13 +288,55 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
     this.processed = processed;
   }
 
+  /**
+   * Determine whether or not the file has been queued for extraction.
+   *
+   * @return {@code true} if the file has been queued; {@code false} if it has
+   *         not
+   */
+  public boolean isQueued() {
+    return queued;
+  }
+
+  /**
+   * Set the flag indicating whether or not the file has been queued for
+   * extraction.
+   *
+   * @param queued
+   *          The queued flag
+   */
+  public void setQueued(boolean queued) {
+    this.queued = queued;
+  }
+
+  /**
+   * Get a description of the file's extraction progress for display.
+   *
+   * @return The extraction status
+   */
+  public String getExtractionStatus() {
+    String result;
+
+    if (processed) {
+      result = "Extracted";
+    } else if (extracting) {
+      result = "Extracting";
+    } else if (queued) {
+      result = "Queued";
+    } else {
+      result = "Waiting";
+    }
+
+    return result;
+  }
+
   /**
    * Determine whether or not error messages have been generated for this file
    *
    * @return {@code true} if there are messages; {@code false} if there are none
    */
   public boolean getHasMessages() {
-    return null != messages && messages.size() > 0;
+    return messages.size() > 0;
   }
 
   /**
@@ -263,6 +347,7 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
    *         {@code false} otherwise
    */
   public boolean getHasUnrecognisedRunTypes() {
+    DataFile dataFile = this.dataFile;
     return null != dataFile && dataFile.getMissingRunTypes().size() > 0;
   }
 
@@ -311,6 +396,11 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
   public void extractFile(Instrument instrument, Properties appConfig,
     boolean allowExactDuplicate, boolean allowEmpty) {
     boolean fileEmpty = false;
+    extracting = true;
+
+    // The extracted file is only published once all the checks are complete
+    DataFile extractedFile = null;
+    long replacementId = -1;
 
     try {
       DataSource dataSource = ResourceManager.getInstance().getDBDataSource();
@@ -344,9 +434,9 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
           throw new NoSuchElementException();
         }
 
-        setDataFile(new DataFile(appConfig.getProperty("filestore"),
-          matchedDefinition, getName(), lines));
-        if (getDataFile().getFirstDataLine() >= getDataFile()
+        extractedFile = new DataFile(appConfig.getProperty("filestore"),
+          matchedDefinition, getName(), lines);
+        if (extractedFile.getFirstDataLine() >= extractedFile
           .getContentLineCount()) {
           if (allowEmpty) {
             fileEmpty = true;
@@ -362,19 +452,19 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
             getName() + " is empty. File accepted but not processed",
             FacesMessage.SEVERITY_INFO);
         } else {
-          if (null == getDataFile().getRawStartTime()
-            || null == getDataFile().getRawEndTime()) {
+          if (null == extractedFile.getRawStartTime()
+            || null == extractedFile.getRawEndTime()) {
             putMessage(UNPROCESSABLE_STATUS, getName()
               + " has date issues, see messages below. Please fix these problems and upload the file again.",
               FacesMessage.SEVERITY_ERROR);
-          } else if (getDataFile().getMessageCount() > 0) {
+          } else if (extractedFile.getMessageCount() > 0) {
             putMessage(UNPROCESSABLE_STATUS, getName()
               + " could not be processed (see messages below). Please fix these problems and upload the file again.",
               FacesMessage.SEVERITY_ERROR);
           } else {
             List<DataFile> overlappingFiles = DataFileDB.getFilesWithinDates(
-              dataSource, matchedDefinition, getDataFile().getRawStartTime(),
-              getDataFile().getRawEndTime(), false);
+              dataSource, matchedDefinition, extractedFile.getRawStartTime(),
+              extractedFile.getRawEndTime(), false);
 
             boolean fileOK = true;
             String fileMessage = null;
@@ -386,7 +476,7 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
               fileStatus = Status.CONFLICT.getStatusCode();
             } else if (overlappingFiles.size() == 1) {
               DataFile existingFile = overlappingFiles.get(0);
-              DataFile newFile = getDataFile();
+              DataFile newFile = extractedFile;
 
               if (!existingFile.getFilename().equals(newFile.getFilename())) {
                 fileOK = false;
@@ -413,7 +503,7 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
                     fileMessage = "This file would update an existing file but change existing data";
                     fileStatus = Status.CONFLICT.getStatusCode();
                   } else {
-                    setReplacementFile(existingFile.getDatabaseId());
+                    replacementId = existingFile.getDatabaseId();
                   }
                 }
               }
@@ -428,26 +518,29 @@ public abstract class UploadedDataFile implements Comparable<UploadedDataFile> {
 
             if (!fileOK) {
               matchedDefinition = null;
-              setDataFile(null);
+              extractedFile = null;
               putMessage(fileStatus, fileMessage, FacesMessage.SEVERITY_ERROR);
             }
           }
         }
       }
     } catch (NoSuchElementException nose) {
-      setDataFile(null);
+      extractedFile = null;
       putMessage(Status.BAD_REQUEST.getStatusCode(),
         "The format of " + getName()
           + " was not recognised. Please upload a different file.",
         FacesMessage.SEVERITY_ERROR);
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
-      setDataFile(null);
+      extractedFile = null;
       putMessage(Status.INTERNAL_SERVER_ERROR.getStatusCode(),
         "The file could not be processed: " + e.getMessage(),
         FacesMessage.SEVERITY_ERROR);
     }
 
+    replaceFile = replacementId;
+    dataFile = extractedFile;
+    extracting = false;
     setProcessed(true);
   }
 
@@ -1,13 +1,20 @@
 package uk.ac.exeter.QuinCe.web.jobs;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 
+import org.apache.commons.text.StringEscapeUtils;
+
 import uk.ac.exeter.QuinCe.jobs.Job;
 import uk.ac.exeter.QuinCe.jobs.JobManager;
+import uk.ac.exeter.QuinCe.jobs.JobMetrics;
+import uk.ac.exeter.QuinCe.jobs.JobMetricsRegistry;
 import uk.ac.exeter.QuinCe.jobs.JobSummary;
 import uk.ac.exeter.QuinCe.jobs.JobThreadPool;
+import uk.ac.exeter.QuinCe.jobs.UnrecognisedStatusException;
 import uk.ac.exeter.QuinCe.jobs.test.TenSecondJob;
 import uk.ac.exeter.QuinCe.utils.ExceptionUtils;
 import uk.ac.exeter.QuinCe.web.BaseManagedBean;
@@ -21,6 +28,18 @@ import uk.ac.exeter.QuinCe.web.system.ServletUtils;
  */
 public class JobsBean extends BaseManagedBean {
 
+  /**
+   * The number of jobs shown on each page of the job list
+   */
+  private static final int PAGE_SIZE = 50;
+
+  /**
+   * The job statuses that the job list can be filtered by
+   */
+  private static final List<String> JOB_STATUSES = Arrays.asList(
+    Job.WAITING_STATUS, Job.RUNNING_STATUS, Job.FINISHED_STATUS,
+    Job.ERROR_STATUS, Job.KILLED_STATUS);
+
   /**
    * The number of threads in the thread pool
    */
@@ -47,10 +66,42 @@ public class JobsBean extends BaseManagedBean {
   private Map<String, Integer> jobCounts = null;
 
   /**
-   * The complete list of jobs
+   * The current page of the job list
    */
   private List<JobSummary> jobList = null;
 
+  /**
+   * The status that the job list is filtered by. An empty string shows jobs of
+   * all statuses.
+   */
+  private String statusFilter = "";
+
+  /**
+   * The last job of each page before the current page of the job list. The
+   * list is empty when the first page is shown.
+   *
+   * @see JobManager#getJobList(javax.sql.DataSource, String, JobSummary, int)
+   */
+  private List<JobSummary> previousPageEnds = new ArrayList<JobSummary>();
+
+  /**
+   * Indicates whether there are more jobs after the current page of the job
+   * list
+   */
+  private boolean hasNextPage = false;
+
+  /**
+   * The stack trace of the chosen job
+   *
+   * @see #loadStackTrace()
+   */
+  private String stackTrace = null;
+
+  /**
+   * The metrics for jobs running on this server
+   */
+  private List<JobMetrics> runningJobMetrics = null;
+
   /**
    * The number of chunks in the test job
    */
@@ -103,12 +154,98 @@ public class JobsBean extends BaseManagedBean {
       jobCounts = null;
     }
 
+    loadJobList();
+
+    runningJobMetrics = JobMetricsRegistry.getRunningJobs();
+  }
+
+  /**
+   * Load the current page of the job list. One more job than the page size is
+   * retrieved to see whether there is a following page.
+   */
+  private void loadJobList() {
     try {
-      jobList = JobManager.getJobList(ServletUtils.getDBDataSource());
+      JobSummary after = previousPageEnds.isEmpty() ? null
+        : previousPageEnds.get(previousPageEnds.size() - 1);
+
+      jobList = JobManager.getJobList(ServletUtils.getDBDataSource(),
+        getStatusFilterValue(), after, PAGE_SIZE + 1);
+
+      hasNextPage = jobList.size() > PAGE_SIZE;
+      if (hasNextPage) {
+        jobList = new ArrayList<JobSummary>(jobList.subList(0, PAGE_SIZE));
+      }
     } catch (Exception e) {
       ExceptionUtils.printStackTrace(e);
       jobList = null;
+      hasNextPage = false;
+    }
+  }
+
+  /**
+   * Show the first page of the job list
+   */
+  public void firstPage() {
+    previousPageEnds.clear();
+    loadJobList();
+  }
+
+  /**
+   * Show the next page of the job list
+   */
+  public void nextPage() {
+    if (hasNextPage && null != jobList && !jobList.isEmpty()) {
+      previousPageEnds.add(jobList.get(jobList.size() - 1));
+    }
+
+    loadJobList();
+  }
+
+  /**
+   * Show the previous page of the job list
+   */
+  public void previousPage() {
+    if (!previousPageEnds.isEmpty()) {
+      previousPageEnds.remove(previousPageEnds.size() - 1);
+    }
+
+    loadJobList();
+  }
+
+  /**
+   * Load the stack trace of the chosen job
+   *
+   * @see JobManager#getStackTrace(javax.sql.DataSource, long)
+   */
+  public void loadStackTrace() {
+    try {
+      stackTrace = JobManager.getStackTrace(ServletUtils.getDBDataSource(),
+        chosenJob);
+    } catch (Exception e) {
+      ExceptionUtils.printStackTrace(e);
+      stackTrace = null;
+    }
+  }
+
+  /**
+   * Get the status filter to pass to the {@link JobManager}
+   *
+   * @return The status filter, or {@code null} if all jobs are shown
+   * @throws UnrecognisedStatusException
+   *           If the status filter is not a valid job status
+   */
+  private String getStatusFilterValue() throws UnrecognisedStatusException {
+    String result = null;
+
+    if (null != statusFilter && statusFilter.length() > 0) {
+      if (!JOB_STATUSES.contains(statusFilter)) {
+        throw new UnrecognisedStatusException(statusFilter);
+      }
+
+      result = statusFilter;
     }
+
+    return result;
   }
 
   /**
@@ -306,7 +443,7 @@ public class JobsBean extends BaseManagedBean {
   }
 
   /**
-   * Get the list of all jobs in the system
+   * Get the current page of the job list
    *
    * @return The list of jobs
    */
@@ -314,6 +451,97 @@ public class JobsBean extends BaseManagedBean {
     return jobList;
   }
 
+  /**
+   * Get the job statuses that the job list can be filtered by
+   *
+   * @return The job statuses
+   */
+  public List<String> getJobStatuses() {
+    return JOB_STATUSES;
+  }
+
+  /**
+   * Get the status that the job list is filtered by
+   *
+   * @return The status filter
+   */
+  public String getStatusFilter() {
+    return statusFilter;
+  }
+
+  /**
+   * Set the status that the job list is filtered by. Changing the filter
+   * returns the job list to its first page.
+   *
+   * @param statusFilter
+   *          The status filter
+   */
+  public void setStatusFilter(String statusFilter) {
+    if (null == statusFilter) {
+      statusFilter = "";
+    }
+
+    if (!statusFilter.equals(this.statusFilter)) {
+      previousPageEnds.clear();
+    }
+
+    this.statusFilter = statusFilter;
+  }
+
+  /**
+   * Determine whether there are jobs before the current page of the job list
+   *
+   * @return {@code true} if there is a previous page; {@code false} otherwise
+   */
+  public boolean getHasPreviousPage() {
+    return !previousPageEnds.isEmpty();
+  }
+
+  /**
+   * Determine whether there are jobs after the current page of the job list
+   *
+   * @return {@code true} if there is a next page; {@code false} otherwise
+   */
+  public boolean getHasNextPage() {
+    return hasNextPage;
+  }
+
+  /**
+   * Get the page number of the job list currently shown
+   *
+   * @return The page number
+   */
+  public int getPageNumber() {
+    return previousPageEnds.size() + 1;
+  }
+
+  /**
+   * Get the stack trace of the chosen job, formatted in HTML
+   *
+   * @return The stack trace in HTML
+   * @see #loadStackTrace()
+   */
+  public String getStackTraceAsHtml() {
+    String result = "";
+
+    if (null != stackTrace) {
+      result = StringEscapeUtils.escapeHtml4(stackTrace).replace("\n",
+        "<br/>");
+    }
+
+    return result;
+  }
+
+  /**
+   * Get the processing metrics for the jobs running on this server
+   *
+   * @return The running jobs' metrics
+   * @see JobMetricsRegistry#getRunningJobs()
+   */
+  public List<JobMetrics> getRunningJobMetrics() {
+    return runningJobMetrics;
+  }
+
   /**
    * Get the number of jobs with a specified status
    *
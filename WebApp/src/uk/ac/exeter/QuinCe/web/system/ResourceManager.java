@@ -15,6 +15,8 @@ import javax.servlet.ServletContextEvent;
 import javax.servlet.ServletContextListener;
 import javax.sql.DataSource;
 
+import uk.ac.exeter.QuinCe.data.Dataset.MeasurementValueCalculatorFactory;
+import uk.ac.exeter.QuinCe.data.Dataset.DataReduction.DataReducerFactory;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.DataReduction.DataReductionQCRoutinesConfiguration;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.ExternalStandards.ExternalStandardsRoutinesConfiguration;
 import uk.ac.exeter.QuinCe.data.Dataset.QC.SensorValues.QCRoutinesConfiguration;
@@ -24,6 +26,7 @@ import uk.ac.exeter.QuinCe.data.Instrument.SensorDefinition.SensorsConfiguration
 import uk.ac.exeter.QuinCe.jobs.InvalidThreadCountException;
 import uk.ac.exeter.QuinCe.jobs.JobThreadPool;
 import uk.ac.exeter.QuinCe.utils.DatabaseUtils;
+import uk.ac.exeter.QuinCe.utils.WorkerPools;
 
 /**
  * Utility class for handling resources required by the web application. The
@@ -107,6 +110,16 @@ public class ResourceManager implements ServletContextListener {
       throw new RuntimeException("Could not load sensors configuration", e);
     }
 
+    // Build the data reducer registry
+    try {
+      DataReducerFactory.init(sensorsConfiguration);
+    } catch (Exception e) {
+      throw new RuntimeException("Could not initialise data reducers", e);
+    }
+
+    // Choose the measurement value calculators for each sensor type
+    MeasurementValueCalculatorFactory.init(sensorsConfiguration);
+
     // Initialise run type category configuration
     try {
       runTypeCategoryConfiguration = new RunTypeCategoryConfiguration(conn,
@@ -161,9 +174,12 @@ public class ResourceManager implements ServletContextListener {
     return new InitialContext();
   }
 
+  /**
+   * Shut down the shared worker thread pools when the application is stopped.
+   */
   @Override
   public void contextDestroyed(ServletContextEvent event) {
-    // NOOP.
+    WorkerPools.shutdown();
   }
 
   /**